@@ -62,7 +62,8 @@ public final class R {
         public static final int fr_fr_lc_alt_gr=0x7f040009;
         public static final int fr_fr_uc=0x7f04000a;
         public static final int fr_fr_uc_alt_gr=0x7f04000b;
-        public static final int math=0x7f04000c;
-        public static final int method=0x7f04000d;
+        public static final int languages=0x7f04000c;
+        public static final int math=0x7f04000d;
+        public static final int method=0x7f04000e;
     }
 }
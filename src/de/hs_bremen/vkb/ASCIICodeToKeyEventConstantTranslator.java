@@ -146,7 +146,7 @@ public final class ASCIICodeToKeyEventConstantTranslator {
         final char start, final char end, final int offset
     ) {
         int i = 0;
-        for (char c = start; c < end; ++c) {
+        for (char c = start; c <= end; ++c) {
             i = c;
             ASCIICodeToKeyEventConstantTranslator._MAP.put(i, i - offset);
         }
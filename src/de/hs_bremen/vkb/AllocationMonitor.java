@@ -0,0 +1,220 @@
+/**
+ * <tt>AllocationMonitor.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package de.hs_bremen.vkb;
+
+import java.io.PrintWriter;
+
+import android.os.Debug;
+import android.util.Log;
+
+/**
+ * Counts the objects allocated by the hot paths of the input method and
+ * checks them against a budget per operation.
+ *
+ * Allocations are counted with <tt>{@link Debug#getThreadAllocCount()}</tt>,
+ * which slows down the whole process; the monitor is therefore only enabled
+ * in debuggable builds. An operation that exceeds its budget is logged, and
+ * the number of such operations is printed by <tt>{@link
+ * #dump(PrintWriter, String)}</tt>.
+ *
+ * When an operation starts while another one is measured, e.g. a switch of
+ * the layout triggered by a key, only the inner operation is measured.
+ *
+ * All methods must be called on the thread of the input method (IME).
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public final class AllocationMonitor {
+
+    /**
+     * A key handled by <tt>onKey()</tt>.
+     */
+    public static final int OP_KEY = 0;
+
+    /**
+     * A toggle of <i>Caps Lock</i>, <i>Alt Gr</i> or <i>Fn</i>.
+     */
+    public static final int OP_MODIFIER_SWITCH = 1;
+
+    /**
+     * A switch to the next language.
+     */
+    public static final int OP_LANGUAGE_SWITCH = 2;
+
+    /**
+     * The tag used for log messages.
+     */
+    private static final String _TAG = "AllocationMonitor"; //$NON-NLS-1$
+
+    /**
+     * The names of the operations.
+     */
+    private static final String[] _OP_NAMES = {
+        "key", //$NON-NLS-1$
+        "modifier switch", //$NON-NLS-1$
+        "language switch", //$NON-NLS-1$
+    };
+
+    /**
+     * The maximum number of objects each operation may allocate. A key
+     * commits its text as a <tt>String</tt>; a language switch may have to
+     * build a keyboard that has been released on memory pressure.
+     */
+    private static final int[] _BUDGETS = {16, 8, 4096};
+
+    /**
+     * Signals whether allocations are counted.
+     */
+    private final boolean _bIsEnabled;
+
+    /**
+     * The operation that is measured, or <tt>-1</tt>.
+     */
+    private int _iOpenOp = -1;
+
+    /**
+     * The allocation count of the thread when the operation started.
+     */
+    private int _iStartCount = 0;
+
+    /**
+     * The number of measured operations of each type.
+     */
+    private final int[] _aCounts = new int[_OP_NAMES.length];
+
+    /**
+     * The total number of objects allocated by each type of operation.
+     */
+    private final long[] _aTotals = new long[_OP_NAMES.length];
+
+    /**
+     * The maximum number of objects allocated by an operation of each type.
+     */
+    private final int[] _aMaxima = new int[_OP_NAMES.length];
+
+    /**
+     * The number of operations of each type that exceeded their budget.
+     */
+    private final int[] _aOverBudget = new int[_OP_NAMES.length];
+
+    /**
+     * Creates a monitor and starts counting allocations, if enabled.
+     *
+     * @param enabled <tt>true</tt> to count allocations, e.g. in debuggable
+     *                builds, <tt>false</tt> to do nothing.
+     */
+    public AllocationMonitor(final boolean enabled) {
+        this._bIsEnabled = enabled;
+        if (enabled) {
+            Debug.startAllocCounting();
+        }
+    }
+
+    /**
+     * Starts measuring an operation.
+     *
+     * @param op the operation, one of the <tt>OP_</tt> constants.
+     */
+    public void begin(final int op) {
+        if (!this._bIsEnabled) {
+            return;
+        }
+        this._iOpenOp = op;
+        this._iStartCount = Debug.getThreadAllocCount();
+    }
+
+    /**
+     * Stops measuring an operation and checks it against its budget.
+     *
+     * Does nothing if another operation has been started since.
+     *
+     * @param op the operation, one of the <tt>OP_</tt> constants.
+     */
+    public void end(final int op) {
+        if (op != this._iOpenOp) {
+            return;
+        }
+        final int iALLOCATED = Debug.getThreadAllocCount() - this._iStartCount;
+        this._iOpenOp = -1;
+        ++this._aCounts[op];
+        this._aTotals[op] += iALLOCATED;
+        if (iALLOCATED > this._aMaxima[op]) {
+            this._aMaxima[op] = iALLOCATED;
+        }
+        if (iALLOCATED > _BUDGETS[op]) {
+            ++this._aOverBudget[op];
+            Log.w(
+                _TAG, _OP_NAMES[op] + " allocated " //$NON-NLS-1$
+                    + iALLOCATED + " objects, budget " //$NON-NLS-1$
+                    + _BUDGETS[op]
+            );
+        }
+    }
+
+    /**
+     * Stops counting allocations.
+     */
+    public void close() {
+        if (this._bIsEnabled) {
+            this._iOpenOp = -1;
+            Debug.stopAllocCounting();
+        }
+    }
+
+    /**
+     * Prints the allocations of each type of operation.
+     *
+     * @param writer the writer to print to.
+     * @param prefix the prefix of each line.
+     */
+    public void dump(final PrintWriter writer, final String prefix) {
+        if (!this._bIsEnabled) {
+            writer.print(prefix);
+            writer.println(
+                "Allocations: not counted in release builds" //$NON-NLS-1$
+            );
+            return;
+        }
+        for (int i = 0; i < _OP_NAMES.length; ++i) {
+            writer.print(prefix);
+            writer.print("Allocations per "); //$NON-NLS-1$
+            writer.print(_OP_NAMES[i]);
+            writer.print(": operations="); //$NON-NLS-1$
+            writer.print(this._aCounts[i]);
+            writer.print(", avg/max="); //$NON-NLS-1$
+            writer.print(
+                (0 == this._aCounts[i])
+                    ? 0L : this._aTotals[i] / this._aCounts[i]
+            );
+            writer.print('/');
+            writer.print(this._aMaxima[i]);
+            writer.print(", budget="); //$NON-NLS-1$
+            writer.print(_BUDGETS[i]);
+            writer.print(", over budget="); //$NON-NLS-1$
+            writer.println(this._aOverBudget[i]);
+        }
+    }
+}
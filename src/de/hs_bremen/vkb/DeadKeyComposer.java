@@ -0,0 +1,198 @@
+/**
+ * <tt>DeadKeyComposer.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package de.hs_bremen.vkb;
+
+import java.text.Normalizer;
+
+/**
+ * Composes accented characters from a dead key and a following base
+ * character, e.g. <i>´</i> and <i>e</i> to <i>é</i>.
+ *
+ * The compositions are looked up in a table that is computed once for all
+ * dead keys and all Latin-1 base characters. The table holds the composed
+ * characters as preallocated strings, so that composing never allocates.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public final class DeadKeyComposer {
+
+    /**
+     * The unicode codes of the dead keys.
+     */
+    private static final int[] _DEAD_KEYS = {
+        ASCIICharacters.CIRCUMFLEX,
+        ASCIICharacters.GRAVE_ACCENT,
+        0x00B4, // Acute accent.
+        0x00A8, // Diaeresis.
+    };
+
+    /**
+     * The combining diacritical marks of the dead keys, in the order of
+     * <tt>_DEAD_KEYS</tt>.
+     */
+    private static final char[] _COMBINING_MARKS = {
+        '\u0302', '\u0300', '\u0301', '\u0308',
+    };
+
+    /**
+     * The number of base characters covered by the composition table.
+     */
+    private static final int _BASE_RANGE = 0x100;
+
+    /**
+     * The dead keys as strings, in the order of <tt>_DEAD_KEYS</tt>.
+     */
+    private static final String[] _ACCENTS;
+
+    /**
+     * The composition table, indexed by dead key and base character.
+     * <tt>null</tt> if the combination has no precomposed character.
+     */
+    private static final String[][] _COMPOSITIONS;
+
+    static {
+        final int iDEAD_KEYS = DeadKeyComposer._DEAD_KEYS.length;
+        _ACCENTS = new String[iDEAD_KEYS];
+        _COMPOSITIONS = new String[iDEAD_KEYS][_BASE_RANGE];
+
+        final char[] aPair = new char[2];
+        for (int i = 0; i < iDEAD_KEYS; ++i) {
+            DeadKeyComposer._ACCENTS[i] = String.valueOf(
+                (char) DeadKeyComposer._DEAD_KEYS[i]
+            );
+            aPair[1] = DeadKeyComposer._COMBINING_MARKS[i];
+            for (int iBase = 0; iBase < _BASE_RANGE; ++iBase) {
+                if (!Character.isLetter(iBase)) {
+                    continue;
+                }
+                aPair[0] = (char) iBase;
+                final String sCOMPOSED = Normalizer.normalize(
+                    new String(aPair), Normalizer.Form.NFC
+                );
+                if (1 == sCOMPOSED.length()) {
+                    DeadKeyComposer._COMPOSITIONS[i][iBase] = sCOMPOSED;
+                }
+            }
+        }
+    }
+
+    /**
+     * Signals whether dead keys are composed (<tt>true</tt>) or committed as
+     * they are (<tt>false</tt>).
+     */
+    private boolean _bIsEnabled = true;
+
+    /**
+     * The index of the pending dead key, or <tt>-1</tt> if there is none.
+     */
+    private int _iPending = -1;
+
+    /**
+     * Enables or disables the composition, e.g. depending on the language of
+     * the keyboard. Disabling discards a pending dead key.
+     *
+     * @param enabled <tt>true</tt> to compose dead keys, <tt>false</tt> to
+     *                commit them as they are.
+     */
+    public void setEnabled(final boolean enabled) {
+        this._bIsEnabled = enabled;
+        this._iPending = -1;
+    }
+
+    /**
+     * Returns whether the composition is enabled.
+     *
+     * @return <tt>true</tt> if dead keys are composed, <tt>false</tt>
+     *         otherwise.
+     */
+    public boolean isEnabled() {
+        return this._bIsEnabled;
+    }
+
+    /**
+     * Starts a composition if the specified key is a dead key.
+     *
+     * @param primaryCode the unicode code of the key that was pressed.
+     *
+     * @return the accent to show as composing text, or <tt>null</tt> if the
+     *         key is no dead key.
+     */
+    public String startComposing(final int primaryCode) {
+        for (int i = 0; i < DeadKeyComposer._DEAD_KEYS.length; ++i) {
+            if (DeadKeyComposer._DEAD_KEYS[i] == primaryCode) {
+                this._iPending = i;
+                return DeadKeyComposer._ACCENTS[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether a dead key is pending.
+     *
+     * @return <tt>true</tt> if a dead key waits for its base character,
+     *         <tt>false</tt> otherwise.
+     */
+    public boolean isComposing() {
+        return -1 != this._iPending;
+    }
+
+    /**
+     * Composes the pending dead key with the specified base character and
+     * ends the composition.
+     *
+     * A space or the dead key itself yield the accent on its own.
+     *
+     * @param primaryCode the unicode code of the base character.
+     *
+     * @return the composed text, or <tt>null</tt> if the base character cannot
+     *         be composed with the dead key. The composition ends in both
+     *         cases.
+     */
+    public String compose(final int primaryCode) {
+        final int iPENDING = this._iPending;
+        this._iPending = -1;
+        if (-1 == iPENDING) {
+            return null;
+        }
+        if (ASCIICharacters.SPACE == primaryCode
+                || DeadKeyComposer._DEAD_KEYS[iPENDING] == primaryCode) {
+            return DeadKeyComposer._ACCENTS[iPENDING];
+        }
+        if (primaryCode < 0 || primaryCode >= _BASE_RANGE) {
+            return null;
+        }
+        return DeadKeyComposer._COMPOSITIONS[iPENDING][primaryCode];
+    }
+
+    /**
+     * Ends the composition without composing, e.g. because a non-character
+     * key has been pressed.
+     */
+    public void reset() {
+        this._iPending = -1;
+    }
+}
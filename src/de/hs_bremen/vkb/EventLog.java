@@ -0,0 +1,202 @@
+/**
+ * <tt>EventLog.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package de.hs_bremen.vkb;
+
+import java.io.PrintWriter;
+
+/**
+ * A log of the most recent events of the input method, which is always on.
+ *
+ * Each event is stored as a fixed-size record of two <tt>long</tt> values in
+ * a ring buffer: the time of the event, and the event ID, the layout
+ * modifiers (layer), the meta state of the PC modifiers and the key code
+ * packed into one value. Logging an event stores two values and never
+ * allocates; the records are only decoded by <tt>{@link #dump(PrintWriter,
+ * String)}</tt>.
+ *
+ * The log is printed into bug reports, so the caller must not log the codes
+ * of characters typed into privacy-sensitive editors.
+ *
+ * All methods must be called on the thread of the input method (IME).
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public final class EventLog {
+
+    /**
+     * The event of a key sent to the input method.
+     */
+    public static final int EVENT_KEY = 1;
+
+    /**
+     * The event of a toggle of <i>Caps Lock</i>.
+     */
+    public static final int EVENT_CAPS_LOCK = 2;
+
+    /**
+     * The event of a toggle of <i>Alt Gr</i>.
+     */
+    public static final int EVENT_ALT_GR = 3;
+
+    /**
+     * The event of a toggle of <i>Fn</i>.
+     */
+    public static final int EVENT_FN = 4;
+
+    /**
+     * The event of the start of the input in an editor; the code is the input
+     * type of the editor.
+     */
+    public static final int EVENT_START_INPUT = 5;
+
+    /**
+     * The event of the end of the input in an editor.
+     */
+    public static final int EVENT_FINISH_INPUT = 6;
+
+    /**
+     * The event of a switch to another language; the code is the index of
+     * the new language.
+     */
+    public static final int EVENT_LANGUAGE = 7;
+
+    /**
+     * The default number of events that are kept.
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    /**
+     * The names of the events, indexed by event ID.
+     */
+    private static final String[] _EVENT_NAMES = {
+        "?", //$NON-NLS-1$
+        "key", //$NON-NLS-1$
+        "caps lock", //$NON-NLS-1$
+        "alt gr", //$NON-NLS-1$
+        "fn", //$NON-NLS-1$
+        "start input", //$NON-NLS-1$
+        "finish input", //$NON-NLS-1$
+        "language", //$NON-NLS-1$
+    };
+
+    /**
+     * The number of <tt>long</tt> values of a record.
+     */
+    private static final int _RECORD_SIZE = 2;
+
+    /**
+     * The position of the layout modifiers in <tt>ModifierState</tt>.
+     */
+    private static final int _LAYER_SHIFT = 28;
+
+    /**
+     * The records, oldest first from <tt>{@link #_iNext}</tt> on once the
+     * buffer has wrapped.
+     */
+    private final long[] _aRecords;
+
+    /**
+     * The index of the record that is written next.
+     */
+    private int _iNext = 0;
+
+    /**
+     * The number of events that have been logged.
+     */
+    private long _lCount = 0L;
+
+    /**
+     * Creates an empty log.
+     *
+     * @param capacity the number of events that are kept.
+     */
+    public EventLog(final int capacity) {
+        this._aRecords = new long[capacity * _RECORD_SIZE];
+    }
+
+    /**
+     * Logs an event.
+     *
+     * @param event     the event ID, one of the <tt>EVENT_</tt> constants.
+     * @param code      the key code or another value of the event.
+     * @param metaState the meta state of the PC modifiers.
+     * @param modifiers the state of the modifiers, see <tt>{@link
+     *                  ModifierState#get()}</tt>.
+     */
+    public void log(
+        final int event, final int code, final int metaState,
+        final int modifiers
+    ) {
+        final int iINDEX = this._iNext * _RECORD_SIZE;
+        this._aRecords[iINDEX] = System.nanoTime();
+        this._aRecords[iINDEX + 1] = ((long) (event & 0xFF) << 56)
+            | ((long) ((modifiers >>> _LAYER_SHIFT) & 0xFF) << 48)
+            | ((long) (metaState & 0xFFFF) << 32)
+            | (code & 0xFFFFFFFFL);
+        if (++this._iNext * _RECORD_SIZE == this._aRecords.length) {
+            this._iNext = 0;
+        }
+        ++this._lCount;
+    }
+
+    /**
+     * Prints the logged events, oldest first.
+     *
+     * @param writer the writer to print to.
+     * @param prefix the prefix of each line.
+     */
+    public void dump(final PrintWriter writer, final String prefix) {
+        final int iCAPACITY = this._aRecords.length / _RECORD_SIZE;
+        final int iSIZE = (int) Math.min(this._lCount, iCAPACITY);
+        writer.print(prefix);
+        writer.print("Event log: events="); //$NON-NLS-1$
+        writer.print(this._lCount);
+        writer.print(", kept="); //$NON-NLS-1$
+        writer.println(iSIZE);
+
+        final long lNOW = System.nanoTime();
+        for (int i = 0; i < iSIZE; ++i) {
+            final int iINDEX = ((this._iNext - iSIZE + i + iCAPACITY)
+                % iCAPACITY) * _RECORD_SIZE;
+            final long lVALUE = this._aRecords[iINDEX + 1];
+            final int iEVENT = (int) (lVALUE >>> 56);
+            writer.print(prefix);
+            writer.print("  -"); //$NON-NLS-1$
+            writer.print((lNOW - this._aRecords[iINDEX]) / 1000000L);
+            writer.print("ms "); //$NON-NLS-1$
+            writer.print(
+                (iEVENT < _EVENT_NAMES.length)
+                    ? _EVENT_NAMES[iEVENT] : _EVENT_NAMES[0]
+            );
+            writer.print(" code="); //$NON-NLS-1$
+            writer.print((int) lVALUE);
+            writer.print(" meta=0x"); //$NON-NLS-1$
+            writer.print(Integer.toHexString((int) (lVALUE >>> 32) & 0xFFFF));
+            writer.print(" layer=0x"); //$NON-NLS-1$
+            writer.println(Integer.toHexString((int) (lVALUE >>> 48) & 0xFF));
+        }
+    }
+}
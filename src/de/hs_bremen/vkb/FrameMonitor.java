@@ -0,0 +1,187 @@
+/**
+ * <tt>FrameMonitor.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package de.hs_bremen.vkb;
+
+import java.io.PrintWriter;
+
+/**
+ * Measures the frames that show the result of layout switches.
+ *
+ * A switch opens a measurement window that is closed when the input view has
+ * drawn its next frame. The time from the start of the switch to the end of
+ * that frame includes the switch itself, the layout and the drawing; every
+ * full frame interval (16.7 ms at 60 Hz) it takes is a missed frame. The
+ * number of switches, the missed frames and the worst and average frame time
+ * are recorded per type of switch.
+ *
+ * A window that is not closed within <tt>{@link #_WINDOW_NANOS}</tt>, e.g.
+ * because the switch did not change the view, is dropped.
+ *
+ * All methods must be called on the thread of the input method (IME).
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public final class FrameMonitor {
+
+    /**
+     * A toggle of <i>Caps Lock</i>.
+     */
+    public static final int SWITCH_CAPS_LOCK = 0;
+
+    /**
+     * A toggle of <i>Alt Gr</i>.
+     */
+    public static final int SWITCH_ALT_GR = 1;
+
+    /**
+     * A toggle of <i>Fn</i>.
+     */
+    public static final int SWITCH_FN = 2;
+
+    /**
+     * A switch to the next language.
+     */
+    public static final int SWITCH_LANGUAGE = 3;
+
+    /**
+     * The names of the types of switches.
+     */
+    private static final String[] _SWITCH_NAMES = {
+        "caps lock", //$NON-NLS-1$
+        "alt gr", //$NON-NLS-1$
+        "fn", //$NON-NLS-1$
+        "language", //$NON-NLS-1$
+    };
+
+    /**
+     * The duration, in nanoseconds, of a frame at 60 Hz.
+     */
+    private static final long _FRAME_NANOS = 1000000000L / 60L;
+
+    /**
+     * The time, in nanoseconds, after which an open window is dropped.
+     */
+    private static final long _WINDOW_NANOS = 1000000000L;
+
+    /**
+     * The type of the switch whose window is open, or <tt>-1</tt>.
+     */
+    private int _iOpenSwitch = -1;
+
+    /**
+     * The time, in nanoseconds, at which the open window started.
+     */
+    private long _lOpenedAt = 0L;
+
+    /**
+     * The number of measured switches of each type.
+     */
+    private final int[] _aSwitchCounts = new int[_SWITCH_NAMES.length];
+
+    /**
+     * The number of missed frames of each type.
+     */
+    private final int[] _aMissedFrames = new int[_SWITCH_NAMES.length];
+
+    /**
+     * The total frame time, in nanoseconds, of each type.
+     */
+    private final long[] _aTotalNanos = new long[_SWITCH_NAMES.length];
+
+    /**
+     * The worst frame time, in nanoseconds, of each type.
+     */
+    private final long[] _aWorstNanos = new long[_SWITCH_NAMES.length];
+
+    /**
+     * The number of windows of each type that have been dropped.
+     */
+    private final int[] _aDroppedCounts = new int[_SWITCH_NAMES.length];
+
+    /**
+     * Opens the window of a switch. A window that is still open is dropped.
+     *
+     * @param type the type of the switch, one of the <tt>SWITCH_</tt>
+     *             constants.
+     */
+    public void begin(final int type) {
+        if (-1 != this._iOpenSwitch) {
+            ++this._aDroppedCounts[this._iOpenSwitch];
+        }
+        this._iOpenSwitch = type;
+        this._lOpenedAt = System.nanoTime();
+    }
+
+    /**
+     * Signals that the input view has drawn a frame and closes the open
+     * window, if any.
+     */
+    public void onFrameDrawn() {
+        final int iTYPE = this._iOpenSwitch;
+        if (-1 == iTYPE) {
+            return;
+        }
+        this._iOpenSwitch = -1;
+        final long lNANOS = System.nanoTime() - this._lOpenedAt;
+        if (lNANOS > _WINDOW_NANOS) {
+            ++this._aDroppedCounts[iTYPE];
+            return;
+        }
+        ++this._aSwitchCounts[iTYPE];
+        this._aMissedFrames[iTYPE] += (int) (lNANOS / _FRAME_NANOS);
+        this._aTotalNanos[iTYPE] += lNANOS;
+        if (lNANOS > this._aWorstNanos[iTYPE]) {
+            this._aWorstNanos[iTYPE] = lNANOS;
+        }
+    }
+
+    /**
+     * Prints the measurements of each type of switch.
+     *
+     * @param writer the writer to print to.
+     * @param prefix the prefix of each line.
+     */
+    public void dump(final PrintWriter writer, final String prefix) {
+        for (int i = 0; i < _SWITCH_NAMES.length; ++i) {
+            final int iCOUNT = this._aSwitchCounts[i];
+            writer.print(prefix);
+            writer.print("Switch "); //$NON-NLS-1$
+            writer.print(_SWITCH_NAMES[i]);
+            writer.print(": switches="); //$NON-NLS-1$
+            writer.print(iCOUNT);
+            writer.print(", missed frames="); //$NON-NLS-1$
+            writer.print(this._aMissedFrames[i]);
+            writer.print(", avg/worst ms="); //$NON-NLS-1$
+            writer.print(
+                (0 == iCOUNT) ? 0L : this._aTotalNanos[i] / iCOUNT / 1000000L
+            );
+            writer.print('/');
+            writer.print(this._aWorstNanos[i] / 1000000L);
+            writer.print(", dropped="); //$NON-NLS-1$
+            writer.println(this._aDroppedCounts[i]);
+        }
+    }
+}
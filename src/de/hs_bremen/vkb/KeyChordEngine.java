@@ -0,0 +1,374 @@
+/**
+ * <tt>KeyChordEngine.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package de.hs_bremen.vkb;
+
+import android.os.SystemClock;
+import android.view.InputDevice;
+import android.view.KeyCharacterMap;
+import android.view.KeyEvent;
+import android.view.inputmethod.InputConnection;
+
+/**
+ * Tracks the PC modifier keys <i>Ctrl</i>, <i>Alt</i> and <i>Shift</i> and
+ * sends key chords to the current editor.
+ *
+ * Each modifier is in one of the following modes, kept as bits of the meta
+ * state masks of <tt>{@link KeyEvent}</tt>:
+ * <ul>
+ * <li><i>held</i>: the modifier key is pressed while another key is typed.
+ * The modifier is released together with its key.</li>
+ * <li><i>one-shot</i> (sticky): the modifier key has been tapped once. The
+ * modifier applies to the next key only.</li>
+ * <li><i>locked</i>: the modifier key has been tapped twice. The modifier
+ * applies until it is tapped again.</li>
+ * </ul>
+ *
+ * A chord is sent as the complete sequence of key events a hardware keyboard
+ * would produce (modifier down, key down, key up, modifier up) inside one
+ * batch edit. The sequences are built from templates that are computed once
+ * for every combination of modifiers.
+ *
+ * The modifiers that apply to the next key are published to a shared
+ * <tt>{@link ModifierState}</tt>, which updates the keys of all keyboards.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public final class KeyChordEngine {
+
+    /**
+     * The modifier bits handled by this engine.
+     */
+    public static final int MODIFIER_MASK = KeyEvent.META_CTRL_ON
+        | KeyEvent.META_ALT_ON | KeyEvent.META_SHIFT_ON;
+
+    /**
+     * The flags of all sent key events.
+     */
+    private static final int _EVENT_FLAGS = KeyEvent.FLAG_SOFT_KEYBOARD
+        | KeyEvent.FLAG_KEEP_TOUCH_MODE;
+
+    /**
+     * The modifier bits, in the order in which the modifiers go down.
+     */
+    private static final int[] _MODIFIERS = {
+        KeyEvent.META_CTRL_ON, KeyEvent.META_ALT_ON, KeyEvent.META_SHIFT_ON,
+    };
+
+    /**
+     * The key codes of the modifiers, in the order of <tt>_MODIFIERS</tt>.
+     */
+    private static final int[] _MODIFIER_KEY_CODES = {
+        KeyEvent.KEYCODE_CTRL_LEFT, KeyEvent.KEYCODE_ALT_LEFT,
+        KeyEvent.KEYCODE_SHIFT_LEFT,
+    };
+
+    /**
+     * The meta state of a pressed modifier, including the side of the key, in
+     * the order of <tt>_MODIFIERS</tt>.
+     */
+    private static final int[] _MODIFIER_META_STATES = {
+        KeyEvent.META_CTRL_ON | KeyEvent.META_CTRL_LEFT_ON,
+        KeyEvent.META_ALT_ON | KeyEvent.META_ALT_LEFT_ON,
+        KeyEvent.META_SHIFT_ON | KeyEvent.META_SHIFT_LEFT_ON,
+    };
+
+    /**
+     * The placeholder for the chorded key in the templates.
+     */
+    private static final int _CHORDED_KEY = KeyEvent.KEYCODE_UNKNOWN;
+
+    /**
+     * The key codes of the event sequence of each combination of modifiers.
+     */
+    private static final int[][] _TEMPLATE_KEY_CODES;
+
+    /**
+     * The actions of the event sequence of each combination of modifiers.
+     */
+    private static final int[][] _TEMPLATE_ACTIONS;
+
+    /**
+     * The meta states of the event sequence of each combination of modifiers.
+     */
+    private static final int[][] _TEMPLATE_META_STATES;
+
+    static {
+        final int iMODIFIERS = KeyChordEngine._MODIFIERS.length;
+        final int iCOMBINATIONS = 1 << iMODIFIERS;
+        _TEMPLATE_KEY_CODES = new int[iCOMBINATIONS][];
+        _TEMPLATE_ACTIONS = new int[iCOMBINATIONS][];
+        _TEMPLATE_META_STATES = new int[iCOMBINATIONS][];
+
+        for (int iCombination = 0; iCombination < iCOMBINATIONS;
+                ++iCombination) {
+            final int iEVENTS = 2 + 2 * Integer.bitCount(iCombination);
+            final int[] aCODES = new int[iEVENTS];
+            final int[] aACTIONS = new int[iEVENTS];
+            final int[] aMETA_STATES = new int[iEVENTS];
+            int iEvent = 0;
+            int iMetaState = 0;
+
+            for (int i = 0; i < iMODIFIERS; ++i) {
+                if (0 != (iCombination & (1 << i))) {
+                    iMetaState |= KeyChordEngine._MODIFIER_META_STATES[i];
+                    aCODES[iEvent] = KeyChordEngine._MODIFIER_KEY_CODES[i];
+                    aACTIONS[iEvent] = KeyEvent.ACTION_DOWN;
+                    aMETA_STATES[iEvent++] = iMetaState;
+                }
+            }
+            aCODES[iEvent] = _CHORDED_KEY;
+            aACTIONS[iEvent] = KeyEvent.ACTION_DOWN;
+            aMETA_STATES[iEvent++] = iMetaState;
+            aCODES[iEvent] = _CHORDED_KEY;
+            aACTIONS[iEvent] = KeyEvent.ACTION_UP;
+            aMETA_STATES[iEvent++] = iMetaState;
+            for (int i = iMODIFIERS - 1; i >= 0; --i) {
+                if (0 != (iCombination & (1 << i))) {
+                    iMetaState &= ~KeyChordEngine._MODIFIER_META_STATES[i];
+                    aCODES[iEvent] = KeyChordEngine._MODIFIER_KEY_CODES[i];
+                    aACTIONS[iEvent] = KeyEvent.ACTION_UP;
+                    aMETA_STATES[iEvent++] = iMetaState;
+                }
+            }
+
+            KeyChordEngine._TEMPLATE_KEY_CODES[iCombination] = aCODES;
+            KeyChordEngine._TEMPLATE_ACTIONS[iCombination] = aACTIONS;
+            KeyChordEngine._TEMPLATE_META_STATES[iCombination] = aMETA_STATES;
+        }
+    }
+
+    /**
+     * The shared state to which the active modifiers are published.
+     */
+    private final ModifierState _oModifierState;
+
+    /**
+     * The modifiers whose keys are currently pressed.
+     */
+    private int _iHeld = 0;
+
+    /**
+     * The held modifiers that have been used for a chord while pressed.
+     */
+    private int _iUsedWhileHeld = 0;
+
+    /**
+     * The modifiers that apply to the next key only.
+     */
+    private int _iOneShot = 0;
+
+    /**
+     * The modifiers that apply until they are tapped again.
+     */
+    private int _iLocked = 0;
+
+    /**
+     * Creates an engine that publishes the active modifiers to the specified
+     * state.
+     *
+     * @param state the shared state of the modifier keys.
+     */
+    public KeyChordEngine(final ModifierState state) {
+        this._oModifierState = state;
+    }
+
+    /**
+     * Returns the modifier bit of the specified key.
+     *
+     * @param primaryCode the unicode code of a key.
+     *
+     * @return the modifier bit, or <tt>0</tt> if the key is no PC modifier.
+     */
+    public static int getModifier(final int primaryCode) {
+        switch (primaryCode) {
+        case LatinKeyboard.KEYCODE_PC_ALT:
+            return KeyEvent.META_ALT_ON;
+        case LatinKeyboard.KEYCODE_PC_CTRL:
+            return KeyEvent.META_CTRL_ON;
+        case LatinKeyboard.KEYCODE_PC_SHIFT:
+            return KeyEvent.META_SHIFT_ON;
+        default:
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the modifiers that apply to the next key.
+     *
+     * @return the modifier bits.
+     */
+    public int getMetaState() {
+        return this._iHeld | this._iOneShot | this._iLocked;
+    }
+
+    /**
+     * Returns whether the specified modifier is locked.
+     *
+     * @param modifier the modifier bit.
+     *
+     * @return <tt>true</tt> if the modifier is locked, <tt>false</tt>
+     *         otherwise.
+     */
+    public boolean isLocked(final int modifier) {
+        return 0 != (this._iLocked & modifier);
+    }
+
+    /**
+     * Signals that a key has been pressed.
+     *
+     * @param primaryCode the unicode code of the key.
+     */
+    public void onPress(final int primaryCode) {
+        final int iMODIFIER = KeyChordEngine.getModifier(primaryCode);
+        if (0 != iMODIFIER) {
+            this._iHeld |= iMODIFIER;
+            this._iUsedWhileHeld &= ~iMODIFIER;
+        } else {
+            this._iUsedWhileHeld |= this._iHeld;
+        }
+        this._publish();
+    }
+
+    /**
+     * Signals that a key has been released.
+     *
+     * @param primaryCode the unicode code of the key.
+     */
+    public void onRelease(final int primaryCode) {
+        this._iHeld &= ~KeyChordEngine.getModifier(primaryCode);
+        this._publish();
+    }
+
+    /**
+     * Signals that a modifier key has been tapped.
+     *
+     * The modifier cycles through <i>off</i>, <i>one-shot</i> and
+     * <i>locked</i>. A tap that ends a chord leaves the mode unchanged.
+     *
+     * @param modifier the modifier bit.
+     */
+    public void onModifierKey(final int modifier) {
+        if (0 != (this._iUsedWhileHeld & modifier)) {
+            this._iUsedWhileHeld &= ~modifier;
+            return;
+        }
+        if (0 != (this._iLocked & modifier)) {
+            this._iLocked &= ~modifier;
+        } else if (0 != (this._iOneShot & modifier)) {
+            this._iOneShot &= ~modifier;
+            this._iLocked |= modifier;
+        } else {
+            this._iOneShot |= modifier;
+        }
+        this._publish();
+    }
+
+    /**
+     * Releases all one-shot modifiers, e.g. after they have been applied to a
+     * key that is not sent as a chord.
+     *
+     * @return <tt>true</tt> if a modifier has been released, <tt>false</tt>
+     *         otherwise.
+     */
+    public boolean consumeOneShot() {
+        final boolean bCHANGED = 0 != this._iOneShot;
+        this._iOneShot = 0;
+        this._publish();
+        return bCHANGED;
+    }
+
+    /**
+     * Releases all modifiers.
+     */
+    public void reset() {
+        this._iHeld = 0;
+        this._iUsedWhileHeld = 0;
+        this._iOneShot = 0;
+        this._iLocked = 0;
+        this._publish();
+    }
+
+    /**
+     * Returns the modifiers that apply to the next key and releases the
+     * one-shot modifiers, because the key is sent as a chord.
+     *
+     * @return the modifier bits.
+     */
+    public int consumeMetaState() {
+        final int iMETA_STATE = this.getMetaState();
+        this._iOneShot = 0;
+        this._iUsedWhileHeld |= this._iHeld;
+        this._publish();
+        return iMETA_STATE;
+    }
+
+    /**
+     * Sends the specified key together with the specified modifiers to the
+     * editor.
+     *
+     * @param ic        the connection to the editor.
+     * @param keyCode   the key code, as defined by <tt>{@link KeyEvent}</tt>.
+     * @param metaState the modifier bits, e.g. returned by <tt>{@link
+     *                  #consumeMetaState()}</tt>.
+     */
+    public static void sendKeyEvents(
+        final InputConnection ic, final int keyCode, final int metaState
+    ) {
+        int iCombination = 0;
+        for (int i = 0; i < KeyChordEngine._MODIFIERS.length; ++i) {
+            if (0 != (metaState & KeyChordEngine._MODIFIERS[i])) {
+                iCombination |= 1 << i;
+            }
+        }
+
+        final int[] aCODES = KeyChordEngine._TEMPLATE_KEY_CODES[iCombination];
+        final int[] aACTIONS = KeyChordEngine._TEMPLATE_ACTIONS[iCombination];
+        final int[] aMETA_STATES
+            = KeyChordEngine._TEMPLATE_META_STATES[iCombination];
+        final long lDOWN_TIME = SystemClock.uptimeMillis();
+
+        ic.beginBatchEdit();
+        try {
+            for (int i = 0; i < aCODES.length; ++i) {
+                ic.sendKeyEvent(new KeyEvent(
+                    lDOWN_TIME, SystemClock.uptimeMillis(), aACTIONS[i],
+                    (_CHORDED_KEY == aCODES[i]) ? keyCode : aCODES[i], 0,
+                    aMETA_STATES[i], KeyCharacterMap.FULL, 0, _EVENT_FLAGS,
+                    InputDevice.SOURCE_KEYBOARD
+                ));
+            }
+        } finally {
+            ic.endBatchEdit();
+        }
+    }
+
+    /**
+     * Publishes the modifiers that apply to the next key to the shared state.
+     */
+    private void _publish() {
+        this._oModifierState.replace(MODIFIER_MASK, this.getMetaState());
+    }
+}
@@ -0,0 +1,672 @@
+/**
+ * <tt>KeyFaceAtlas.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package de.hs_bremen.vkb;
+
+import java.util.Arrays;
+import java.util.List;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.inputmethodservice.Keyboard.Key;
+import android.util.AttributeSet;
+
+/**
+ * The pre-rendered faces of all keys of a keyboard.
+ *
+ * The faces are rasterized into a single bitmap: a band with the normal face
+ * of every key, a band with the pressed face of every key, both in the layout
+ * of the keyboard, and a strip with the <i>on</i> face of the sticky and
+ * modifier keys. Drawing a key thus copies a rectangle of the bitmap instead
+ * of drawing its background and measuring and drawing its label or icon.
+ *
+ * The faces are drawn like <tt>KeyboardView</tt> draws keys, except that the
+ * case of labels is not adjusted to the shift state, since every layout
+ * variant has its own labels.
+ *
+ * An atlas is rendered by a <tt>{@link KeyFaceAtlas.Request}</tt> on a
+ * background thread and then only used on the thread of the input method
+ * (IME).
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public final class KeyFaceAtlas {
+
+    /**
+     * The state of a key that is neither pressed nor on.
+     */
+    public static final int STATE_NORMAL = 0;
+
+    /**
+     * The state of a pressed key.
+     */
+    public static final int STATE_PRESSED = 1;
+
+    /**
+     * The state of a sticky or modifier key that is on.
+     */
+    public static final int STATE_ON = 2;
+
+    /**
+     * The attributes of <tt>KeyboardView</tt> that define the faces of the
+     * keys, sorted by their identifiers.
+     */
+    private static final int[] _ATTRIBUTES = {
+        android.R.attr.shadowColor,
+        android.R.attr.shadowRadius,
+        android.R.attr.keyBackground,
+        android.R.attr.keyTextSize,
+        android.R.attr.labelTextSize,
+        android.R.attr.keyTextColor,
+    };
+
+    /**
+     * The drawable state of a normal key.
+     */
+    private static final int[] _DRAWABLE_NORMAL = {};
+
+    /**
+     * The drawable state of a pressed key.
+     */
+    private static final int[] _DRAWABLE_PRESSED = {
+        android.R.attr.state_pressed,
+    };
+
+    /**
+     * The drawable state of a sticky key that is off.
+     */
+    private static final int[] _DRAWABLE_NORMAL_OFF = {
+        android.R.attr.state_checkable,
+    };
+
+    /**
+     * The drawable state of a pressed sticky key that is off.
+     */
+    private static final int[] _DRAWABLE_PRESSED_OFF = {
+        android.R.attr.state_pressed, android.R.attr.state_checkable,
+    };
+
+    /**
+     * The drawable state of a key that is on.
+     */
+    private static final int[] _DRAWABLE_NORMAL_ON = {
+        android.R.attr.state_checkable, android.R.attr.state_checked,
+    };
+
+    /**
+     * The rasterized faces.
+     */
+    private final Bitmap _oBitmap;
+
+    /**
+     * The height, in pixels, of the bands of the normal and the pressed faces.
+     */
+    private final int _iBandHeight;
+
+    /**
+     * The position of the <i>on</i> face of each key in the strip, as x- and
+     * y-coordinate, or <tt>-1</tt> if the key has no <i>on</i> face.
+     */
+    private final int[] _aOnFaces;
+
+    /**
+     * The geometry generation of the keyboard the faces have been rendered
+     * for.
+     */
+    private final int _iGeneration;
+
+    /**
+     * The source rectangle of a blit. Reused, so that drawing never
+     * allocates.
+     */
+    private final Rect _oSource = new Rect();
+
+    /**
+     * The destination rectangle of a blit.
+     */
+    private final Rect _oDestination = new Rect();
+
+    /**
+     * Creates an atlas from rendered faces.
+     *
+     * @param bitmap     the rasterized faces.
+     * @param bandHeight the height, in pixels, of a band.
+     * @param onFaces    the positions of the <i>on</i> faces.
+     * @param generation the geometry generation of the keyboard.
+     */
+    private KeyFaceAtlas(
+        final Bitmap bitmap, final int bandHeight, final int[] onFaces,
+        final int generation
+    ) {
+        this._oBitmap = bitmap;
+        this._iBandHeight = bandHeight;
+        this._aOnFaces = onFaces;
+        this._iGeneration = generation;
+    }
+
+    /**
+     * Returns the state in which the specified key is drawn.
+     *
+     * @param key the key.
+     *
+     * @return <tt>{@link #STATE_PRESSED}</tt>, <tt>{@link #STATE_ON}</tt> or
+     *         <tt>{@link #STATE_NORMAL}</tt>.
+     */
+    public static int getState(final Key key) {
+        if (key.pressed) {
+            return STATE_PRESSED;
+        }
+        return key.on ? STATE_ON : STATE_NORMAL;
+    }
+
+    /**
+     * Draws the face of a key.
+     *
+     * @param canvas the canvas to draw on.
+     * @param index  the index of the key in its keyboard.
+     * @param key    the key.
+     * @param state  the state to draw the key in.
+     * @param left   the x-coordinate of the keyboard on the canvas.
+     * @param top    the y-coordinate of the keyboard on the canvas.
+     */
+    public void drawKey(
+        final Canvas canvas, final int index, final Key key, final int state,
+        final int left, final int top
+    ) {
+        final int iX;
+        final int iY;
+        if (STATE_ON == state && -1 != this._aOnFaces[2 * index]) {
+            iX = this._aOnFaces[2 * index];
+            iY = this._aOnFaces[2 * index + 1];
+        } else {
+            iX = key.x;
+            iY = (STATE_PRESSED == state)
+                ? key.y + this._iBandHeight : key.y;
+        }
+        this._oSource.set(iX, iY, iX + key.width, iY + key.height);
+        this._oDestination.set(
+            left + key.x, top + key.y,
+            left + key.x + key.width, top + key.y + key.height
+        );
+        canvas.drawBitmap(
+            this._oBitmap, this._oSource, this._oDestination, null
+        );
+    }
+
+    /**
+     * Returns whether the faces have been rendered for the current geometry
+     * of a keyboard.
+     *
+     * @param generation the geometry generation of the keyboard.
+     *
+     * @return <tt>true</tt> if the atlas matches the geometry, <tt>false</tt>
+     *         otherwise.
+     */
+    public boolean matches(final int generation) {
+        return generation == this._iGeneration;
+    }
+
+    /**
+     * Returns the memory held by the rasterized faces.
+     *
+     * @return the size of the bitmap, in bytes.
+     */
+    public int getByteCount() {
+        return this._oBitmap.getRowBytes() * this._oBitmap.getHeight();
+    }
+
+    /**
+     * Releases the rasterized faces. The atlas must not be drawn afterwards.
+     */
+    public void recycle() {
+        this._oBitmap.recycle();
+    }
+
+    /**
+     * The attributes of a <tt>KeyboardView</tt> that define the faces of the
+     * keys.
+     */
+    public static final class Style {
+
+        /**
+         * The background of a key.
+         */
+        private final Drawable _oKeyBackground;
+
+        /**
+         * The size, in pixels, of single character labels.
+         */
+        private final float _fKeyTextSize;
+
+        /**
+         * The size, in pixels, of labels with multiple characters.
+         */
+        private final float _fLabelTextSize;
+
+        /**
+         * The color of the labels.
+         */
+        private final int _iKeyTextColor;
+
+        /**
+         * The color of the shadow of the labels.
+         */
+        private final int _iShadowColor;
+
+        /**
+         * The radius, in pixels, of the shadow of the labels.
+         */
+        private final float _fShadowRadius;
+
+        /**
+         * Reads the style of a view.
+         *
+         * The attribute of the default style of a <tt>KeyboardView</tt> is not
+         * public, so the attributes that are neither set by the view nor by
+         * <tt>defStyle</tt> are taken from the public
+         * <tt>Widget.KeyboardView</tt> style.
+         *
+         * @param context  the context of the view.
+         * @param attrs    the attributes of the view.
+         * @param defStyle the attribute of the default style of the view, or
+         *                 <tt>0</tt>.
+         */
+        public Style(
+            final Context context, final AttributeSet attrs,
+            final int defStyle
+        ) {
+            final TypedArray oVALUES = context.obtainStyledAttributes(
+                attrs, KeyFaceAtlas._ATTRIBUTES, defStyle,
+                android.R.style.Widget_KeyboardView
+            );
+            this._iShadowColor = oVALUES.getColor(0, 0);
+            this._fShadowRadius = oVALUES.getFloat(1, 0f);
+            this._oKeyBackground = oVALUES.getDrawable(2);
+            this._fKeyTextSize = oVALUES.getDimensionPixelSize(3, 18);
+            this._fLabelTextSize = oVALUES.getDimensionPixelSize(4, 14);
+            this._iKeyTextColor = oVALUES.getColor(5, 0xFF000000);
+            oVALUES.recycle();
+        }
+
+        /**
+         * Returns the background of a key.
+         *
+         * @return the drawable, or <tt>null</tt> if keys have no background.
+         */
+        public Drawable getKeyBackground() {
+            return this._oKeyBackground;
+        }
+
+        /**
+         * Returns the size of single character labels.
+         *
+         * @return the size, in pixels.
+         */
+        public float getKeyTextSize() {
+            return this._fKeyTextSize;
+        }
+
+        /**
+         * Returns the size of labels with multiple characters.
+         *
+         * @return the size, in pixels.
+         */
+        public float getLabelTextSize() {
+            return this._fLabelTextSize;
+        }
+
+        /**
+         * Returns the color of the labels.
+         *
+         * @return the color.
+         */
+        public int getKeyTextColor() {
+            return this._iKeyTextColor;
+        }
+
+        /**
+         * Returns the color of the shadow of the labels.
+         *
+         * @return the color.
+         */
+        public int getShadowColor() {
+            return this._iShadowColor;
+        }
+
+        /**
+         * Returns the radius of the shadow of the labels.
+         *
+         * @return the radius, in pixels.
+         */
+        public float getShadowRadius() {
+            return this._fShadowRadius;
+        }
+    }
+
+    /**
+     * A request to render the faces of a keyboard.
+     *
+     * A request is created on the thread of the input method (IME) and takes
+     * a snapshot of the keys, so that it can be rendered on any thread while
+     * the keyboard is in use.
+     */
+    public static final class Request {
+
+        /**
+         * The keyboard the faces are rendered for.
+         */
+        private final LatinKeyboard _oKeyboard;
+
+        /**
+         * The geometry generation of the keyboard at the time of the
+         * snapshot.
+         */
+        private final int _iGeneration;
+
+        /**
+         * The width, in pixels, of the keyboard.
+         */
+        private final int _iWidth;
+
+        /**
+         * The height, in pixels, of the keyboard.
+         */
+        private final int _iHeight;
+
+        /**
+         * The geometry of the keys, as x, y, width and height.
+         */
+        private final int[] _aGeometry;
+
+        /**
+         * The labels of the keys, <tt>null</tt> for keys without label.
+         */
+        private final String[] _aLabels;
+
+        /**
+         * Whether the label of a key is drawn in the smaller label text size.
+         */
+        private final boolean[] _aSmallLabels;
+
+        /**
+         * Private copies of the icons of the keys, <tt>null</tt> for keys
+         * without icon.
+         */
+        private final Drawable[] _aIcons;
+
+        /**
+         * Whether a key is sticky.
+         */
+        private final boolean[] _aSticky;
+
+        /**
+         * Whether a key has an <i>on</i> face.
+         */
+        private final boolean[] _aCanBeOn;
+
+        /**
+         * A private copy of the background of the keys.
+         */
+        private final Drawable _oBackground;
+
+        /**
+         * The style of the faces.
+         */
+        private final Style _oStyle;
+
+        /**
+         * Takes a snapshot of the keys of a keyboard.
+         *
+         * @param resources the resources used to copy the drawables.
+         * @param style     the style of the faces.
+         * @param keyboard  the keyboard.
+         */
+        public Request(
+            final Resources resources, final Style style,
+            final LatinKeyboard keyboard
+        ) {
+            final List<Key> oKEYS = keyboard.getKeys();
+            final int iKEYS = oKEYS.size();
+            this._oKeyboard = keyboard;
+            this._iGeneration = keyboard.getGeometryGeneration();
+            this._iWidth = keyboard.getMinWidth();
+            this._iHeight = keyboard.getHeight();
+            this._aGeometry = new int[4 * iKEYS];
+            this._aLabels = new String[iKEYS];
+            this._aSmallLabels = new boolean[iKEYS];
+            this._aIcons = new Drawable[iKEYS];
+            this._aSticky = new boolean[iKEYS];
+            this._aCanBeOn = new boolean[iKEYS];
+            this._oStyle = style;
+            this._oBackground = Request._copy(resources, style._oKeyBackground);
+
+            for (int i = 0; i < iKEYS; ++i) {
+                final Key oKEY = oKEYS.get(i);
+                this._aGeometry[4 * i] = oKEY.x;
+                this._aGeometry[4 * i + 1] = oKEY.y;
+                this._aGeometry[4 * i + 2] = oKEY.width;
+                this._aGeometry[4 * i + 3] = oKEY.height;
+                if (null != oKEY.label) {
+                    this._aLabels[i] = oKEY.label.toString();
+                    this._aSmallLabels[i] = oKEY.label.length() > 1
+                        && oKEY.codes.length < 2;
+                } else {
+                    this._aIcons[i] = Request._copy(resources, oKEY.icon);
+                }
+                this._aSticky[i] = oKEY.sticky;
+                this._aCanBeOn[i] = oKEY.sticky || oKEY.modifier;
+            }
+        }
+
+        /**
+         * Returns the keyboard the faces are rendered for.
+         *
+         * @return the keyboard.
+         */
+        public LatinKeyboard getKeyboard() {
+            return this._oKeyboard;
+        }
+
+        /**
+         * Returns the geometry generation of the keyboard at the time of the
+         * snapshot.
+         *
+         * @return the generation.
+         */
+        public int getGeneration() {
+            return this._iGeneration;
+        }
+
+        /**
+         * Renders the faces. May be called on any thread.
+         *
+         * @return the atlas, or <tt>null</tt> if there is not enough memory
+         *         for the bitmap.
+         */
+        public KeyFaceAtlas render() {
+            final int iKEYS = this._aLabels.length;
+            if (this._iWidth <= 0 || this._iHeight <= 0) {
+                return null;
+            }
+
+            // Place the on faces on shelves below the two bands.
+            final int[] aON_FACES = new int[2 * iKEYS];
+            Arrays.fill(aON_FACES, -1);
+            int iShelfX = 0;
+            int iShelfY = 2 * this._iHeight;
+            int iShelfHeight = 0;
+            for (int i = 0; i < iKEYS; ++i) {
+                if (!this._aCanBeOn[i]) {
+                    continue;
+                }
+                final int iWIDTH = this._aGeometry[4 * i + 2];
+                if (iShelfX + iWIDTH > this._iWidth && iShelfX > 0) {
+                    iShelfX = 0;
+                    iShelfY += iShelfHeight;
+                    iShelfHeight = 0;
+                }
+                aON_FACES[2 * i] = iShelfX;
+                aON_FACES[2 * i + 1] = iShelfY;
+                iShelfX += iWIDTH;
+                iShelfHeight = Math.max(
+                    iShelfHeight, this._aGeometry[4 * i + 3]
+                );
+            }
+
+            final Bitmap oBITMAP;
+            try {
+                oBITMAP = Bitmap.createBitmap(
+                    this._iWidth, iShelfY + iShelfHeight,
+                    Bitmap.Config.ARGB_8888
+                );
+            } catch (OutOfMemoryError e) {
+                return null;
+            }
+
+            final Canvas oCANVAS = new Canvas(oBITMAP);
+            final Paint oPAINT = new Paint();
+            oPAINT.setAntiAlias(true);
+            oPAINT.setTextAlign(Paint.Align.CENTER);
+            oPAINT.setColor(this._oStyle._iKeyTextColor);
+            final Rect oPADDING = new Rect();
+            if (null != this._oBackground) {
+                this._oBackground.getPadding(oPADDING);
+            }
+
+            for (int i = 0; i < iKEYS; ++i) {
+                final int iX = this._aGeometry[4 * i];
+                final int iY = this._aGeometry[4 * i + 1];
+                this._drawFace(
+                    oCANVAS, oPAINT, oPADDING, i, iX, iY,
+                    this._aSticky[i] ? _DRAWABLE_NORMAL_OFF : _DRAWABLE_NORMAL
+                );
+                this._drawFace(
+                    oCANVAS, oPAINT, oPADDING, i, iX, iY + this._iHeight,
+                    this._aSticky[i] ? _DRAWABLE_PRESSED_OFF : _DRAWABLE_PRESSED
+                );
+                if (-1 != aON_FACES[2 * i]) {
+                    this._drawFace(
+                        oCANVAS, oPAINT, oPADDING, i,
+                        aON_FACES[2 * i], aON_FACES[2 * i + 1],
+                        _DRAWABLE_NORMAL_ON
+                    );
+                }
+            }
+            return new KeyFaceAtlas(
+                oBITMAP, this._iHeight, aON_FACES, this._iGeneration
+            );
+        }
+
+        /**
+         * Draws the face of a key like <tt>KeyboardView</tt> does.
+         *
+         * @param canvas        the canvas of the atlas.
+         * @param paint         the paint of the labels.
+         * @param padding       the padding of the background.
+         * @param index         the index of the key.
+         * @param x             the x-coordinate of the face.
+         * @param y             the y-coordinate of the face.
+         * @param drawableState the drawable state of the background.
+         */
+        private void _drawFace(
+            final Canvas canvas, final Paint paint, final Rect padding,
+            final int index, final int x, final int y,
+            final int[] drawableState
+        ) {
+            final int iWIDTH = this._aGeometry[4 * index + 2];
+            final int iHEIGHT = this._aGeometry[4 * index + 3];
+            final Style oSTYLE = this._oStyle;
+            canvas.save();
+            canvas.translate(x, y);
+            if (null != this._oBackground) {
+                this._oBackground.setState(drawableState);
+                this._oBackground.setBounds(0, 0, iWIDTH, iHEIGHT);
+                this._oBackground.draw(canvas);
+            }
+
+            final String sLABEL = this._aLabels[index];
+            final Drawable oICON = this._aIcons[index];
+            if (null != sLABEL) {
+                if (this._aSmallLabels[index]) {
+                    paint.setTextSize(oSTYLE._fLabelTextSize);
+                    paint.setTypeface(Typeface.DEFAULT_BOLD);
+                } else {
+                    paint.setTextSize(oSTYLE._fKeyTextSize);
+                    paint.setTypeface(Typeface.DEFAULT);
+                }
+                paint.setShadowLayer(
+                    oSTYLE._fShadowRadius, 0f, 0f, oSTYLE._iShadowColor
+                );
+                canvas.drawText(
+                    sLABEL,
+                    (iWIDTH - padding.left - padding.right) / 2
+                        + padding.left,
+                    (iHEIGHT - padding.top - padding.bottom) / 2
+                        + (paint.getTextSize() - paint.descent()) / 2
+                        + padding.top,
+                    paint
+                );
+                paint.setShadowLayer(0f, 0f, 0f, 0);
+            } else if (null != oICON) {
+                final int iICON_WIDTH = oICON.getIntrinsicWidth();
+                final int iICON_HEIGHT = oICON.getIntrinsicHeight();
+                canvas.translate(
+                    (iWIDTH - padding.left - padding.right - iICON_WIDTH) / 2
+                        + padding.left,
+                    (iHEIGHT - padding.top - padding.bottom - iICON_HEIGHT)
+                        / 2 + padding.top
+                );
+                oICON.setBounds(0, 0, iICON_WIDTH, iICON_HEIGHT);
+                oICON.draw(canvas);
+            }
+            canvas.restore();
+        }
+
+        /**
+         * Copies a drawable, so that it can be drawn on another thread.
+         *
+         * @param resources the resources of the drawable.
+         * @param drawable  the drawable, may be <tt>null</tt>.
+         *
+         * @return the copy, or <tt>null</tt>.
+         */
+        private static Drawable _copy(
+            final Resources resources, final Drawable drawable
+        ) {
+            if (null == drawable || null == drawable.getConstantState()) {
+                return null;
+            }
+            return drawable.getConstantState().newDrawable(resources)
+                .mutate();
+        }
+    }
+}
@@ -0,0 +1,369 @@
+/**
+ * <tt>KeyFeedback.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package de.hs_bremen.vkb;
+
+import java.io.PrintWriter;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.inputmethodservice.Keyboard;
+import android.media.AudioManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.os.SystemClock;
+import android.os.Vibrator;
+import android.provider.Settings;
+
+/**
+ * Plays a click and vibrates when a key is pressed.
+ *
+ * The click samples of the system are loaded once, when the feedback is
+ * created. Clicks and vibrations are fired on the <tt>{@link Looper}</tt>
+ * passed to the constructor, which must not be the looper of the input method
+ * (IME): <tt>{@link #onPress(int)}</tt> only enqueues a pooled message and
+ * returns. The time spent in <tt>{@link #onPress(int)}</tt> and the delay
+ * until the feedback is fired are measured and printed by <tt>{@link
+ * #dump(PrintWriter, String)}</tt>.
+ *
+ * Clicks and vibrations can be turned off in the preferences, and are only
+ * fired if the touch sounds respectively the haptic feedback of the system
+ * are enabled. The settings are read when the samples are loaded and again
+ * on <tt>{@link #reloadSettings()}</tt>. No click is played if the ringer is
+ * not in normal mode, and no vibration if the ringer is silent.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public final class KeyFeedback implements Handler.Callback {
+
+    /**
+     * The key of the preference that enables the clicks.
+     */
+    public static final String PREFERENCE_SOUND
+        = "key_feedback_sound"; //$NON-NLS-1$
+
+    /**
+     * The key of the preference that enables the vibrations.
+     */
+    public static final String PREFERENCE_VIBRATION
+        = "key_feedback_vibration"; //$NON-NLS-1$
+
+    /**
+     * The duration, in milliseconds, of the vibration of a key press.
+     */
+    private static final long _VIBRATE_MILLIS = 20L;
+
+    /**
+     * The volume of the clicks, <tt>-1</tt> for the volume of the system.
+     */
+    private static final float _VOLUME = -1f;
+
+    /**
+     * The message that loads the click samples.
+     */
+    private static final int _MSG_LOAD = 0;
+
+    /**
+     * The message that fires the feedback of a key press.
+     */
+    private static final int _MSG_PRESS = 1;
+
+    /**
+     * The message that unloads the click samples.
+     */
+    private static final int _MSG_CLOSE = 2;
+
+    /**
+     * The message that reads the settings.
+     */
+    private static final int _MSG_SETTINGS = 3;
+
+    /**
+     * The <tt>Handler</tt> of the thread that fires the feedback.
+     */
+    private final Handler _oHandler;
+
+    /**
+     * The context to look up the system services with.
+     */
+    private final Context _oContext;
+
+    /**
+     * The preferences of the input method (IME).
+     */
+    private final SharedPreferences _oPreferences;
+
+    /**
+     * The <tt>AudioManager</tt> that plays the clicks, or <tt>null</tt> until
+     * the samples have been loaded. Used by the feedback thread only.
+     */
+    private AudioManager _oAudioManager = null;
+
+    /**
+     * The <tt>Vibrator</tt>, or <tt>null</tt> if there is none. Used by the
+     * feedback thread only.
+     */
+    private Vibrator _oVibrator = null;
+
+    /**
+     * Whether clicks are played. Used by the feedback thread only.
+     */
+    private boolean _bIsSoundEnabled = false;
+
+    /**
+     * Whether key presses vibrate. Used by the feedback thread only.
+     */
+    private boolean _bIsVibrationEnabled = false;
+
+    /**
+     * The number of key presses.
+     */
+    private int _iPressCount = 0;
+
+    /**
+     * The total time, in nanoseconds, spent in <tt>{@link
+     * #onPress(int)}</tt>.
+     */
+    private long _lEnqueueNanos = 0L;
+
+    /**
+     * The longest time, in nanoseconds, spent in <tt>{@link
+     * #onPress(int)}</tt>.
+     */
+    private long _lMaxEnqueueNanos = 0L;
+
+    /**
+     * The number of key presses whose feedback has been fired.
+     */
+    private volatile int _iFiredCount = 0;
+
+    /**
+     * The total delay, in milliseconds, from a key press to its feedback.
+     */
+    private volatile long _lFireDelayMillis = 0L;
+
+    /**
+     * The longest delay, in milliseconds, from a key press to its feedback.
+     */
+    private volatile long _lMaxFireDelayMillis = 0L;
+
+    /**
+     * Creates the feedback and loads the click samples in the background.
+     *
+     * @param context     the application or service context.
+     * @param preferences the preferences of the input method (IME).
+     * @param looper      the looper of the background thread firing the
+     *                    feedback.
+     */
+    public KeyFeedback(
+        final Context context, final SharedPreferences preferences,
+        final Looper looper
+    ) {
+        this._oContext = context;
+        this._oPreferences = preferences;
+        this._oHandler = new Handler(looper, this);
+        this._oHandler.sendEmptyMessage(_MSG_LOAD);
+    }
+
+    /**
+     * Fires the feedback of a key press.
+     *
+     * This method returns immediately, the feedback is fired by the
+     * background thread. Must be called on the thread of the input method
+     * (IME).
+     *
+     * @param primaryCode the unicode code of the pressed key.
+     */
+    public void onPress(final int primaryCode) {
+        final long lSTART = System.nanoTime();
+        this._oHandler.obtainMessage(_MSG_PRESS, primaryCode, 0)
+            .sendToTarget();
+        final long lNANOS = System.nanoTime() - lSTART;
+        ++this._iPressCount;
+        this._lEnqueueNanos += lNANOS;
+        if (lNANOS > this._lMaxEnqueueNanos) {
+            this._lMaxEnqueueNanos = lNANOS;
+        }
+    }
+
+    /**
+     * Reads the preferences and the settings of the system again in the
+     * background, e.g. because the user may have changed them while the
+     * keyboard was hidden.
+     */
+    public void reloadSettings() {
+        this._oHandler.sendEmptyMessage(_MSG_SETTINGS);
+    }
+
+    /**
+     * Unloads the click samples once the pending feedback has been fired.
+     *
+     * The feedback must not be used afterwards.
+     */
+    public void close() {
+        this._oHandler.sendEmptyMessage(_MSG_CLOSE);
+    }
+
+    /**
+     * Prints the statistics of the feedback. Must be called on the thread of
+     * the input method (IME).
+     *
+     * @param writer the writer to print to.
+     * @param prefix the prefix of each line.
+     */
+    public void dump(final PrintWriter writer, final String prefix) {
+        final int iFIRED = this._iFiredCount;
+        writer.print(prefix);
+        writer.print("Key feedback: presses="); //$NON-NLS-1$
+        writer.print(this._iPressCount);
+        writer.print(", IME thread avg/max us="); //$NON-NLS-1$
+        writer.print(
+            (0 == this._iPressCount)
+                ? 0L : this._lEnqueueNanos / this._iPressCount / 1000L
+        );
+        writer.print('/');
+        writer.print(this._lMaxEnqueueNanos / 1000L);
+        writer.print(", fired="); //$NON-NLS-1$
+        writer.print(iFIRED);
+        writer.print(", delay avg/max ms="); //$NON-NLS-1$
+        writer.print((0 == iFIRED) ? 0L : this._lFireDelayMillis / iFIRED);
+        writer.print('/');
+        writer.println(this._lMaxFireDelayMillis);
+    }
+
+    /**
+     * Handles the messages of the background thread.
+     *
+     * @param msg the message to handle.
+     *
+     * @return <tt>true</tt> if the message has been handled.
+     */
+    @Override
+    public boolean handleMessage(final Message msg) {
+        switch (msg.what) {
+        case _MSG_LOAD:
+            this._oAudioManager = (AudioManager) this._oContext
+                .getSystemService(Context.AUDIO_SERVICE);
+            if (null != this._oAudioManager) {
+                this._oAudioManager.loadSoundEffects();
+            }
+            final Vibrator oVIBRATOR = (Vibrator) this._oContext
+                .getSystemService(Context.VIBRATOR_SERVICE);
+            if (null != oVIBRATOR && oVIBRATOR.hasVibrator()) {
+                this._oVibrator = oVIBRATOR;
+            }
+            this._readSettings();
+            break;
+        case _MSG_SETTINGS:
+            this._readSettings();
+            break;
+        case _MSG_PRESS:
+            this._fire(msg.arg1);
+            final long lDELAY = SystemClock.uptimeMillis() - msg.getWhen();
+            this._lFireDelayMillis += lDELAY;
+            if (lDELAY > this._lMaxFireDelayMillis) {
+                this._lMaxFireDelayMillis = lDELAY;
+            }
+            ++this._iFiredCount;
+            break;
+        case _MSG_CLOSE:
+            if (null != this._oAudioManager) {
+                this._oAudioManager.unloadSoundEffects();
+                this._oAudioManager = null;
+            }
+            this._oVibrator = null;
+            break;
+        default:
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads whether clicks and vibrations are enabled, both in the
+     * preferences and in the settings of the system.
+     */
+    private void _readSettings() {
+        if (null == this._oAudioManager) {
+            return;
+        }
+        final ContentResolver oRESOLVER = this._oContext.getContentResolver();
+        this._bIsSoundEnabled = this._oPreferences.getBoolean(
+            PREFERENCE_SOUND, true
+        ) && 0 != Settings.System.getInt(
+            oRESOLVER, Settings.System.SOUND_EFFECTS_ENABLED, 1
+        );
+        this._bIsVibrationEnabled = this._oPreferences.getBoolean(
+            PREFERENCE_VIBRATION, true
+        ) && 0 != Settings.System.getInt(
+            oRESOLVER, Settings.System.HAPTIC_FEEDBACK_ENABLED, 1
+        );
+    }
+
+    /**
+     * Plays the click of a key and vibrates, as far as the settings and the
+     * ringer mode allow.
+     *
+     * @param primaryCode the unicode code of the pressed key.
+     */
+    private void _fire(final int primaryCode) {
+        if (null == this._oAudioManager) {
+            return;
+        }
+        final int iRINGER_MODE = this._oAudioManager.getRingerMode();
+        if (this._bIsSoundEnabled
+                && AudioManager.RINGER_MODE_NORMAL == iRINGER_MODE) {
+            this._oAudioManager.playSoundEffect(
+                KeyFeedback._getSoundEffect(primaryCode), _VOLUME
+            );
+        }
+        if (null != this._oVibrator && this._bIsVibrationEnabled
+                && AudioManager.RINGER_MODE_SILENT != iRINGER_MODE) {
+            this._oVibrator.vibrate(_VIBRATE_MILLIS);
+        }
+    }
+
+    /**
+     * Returns the click sample of a key.
+     *
+     * @param primaryCode the unicode code of the key.
+     *
+     * @return the sound effect constant of <tt>AudioManager</tt>.
+     */
+    private static int _getSoundEffect(final int primaryCode) {
+        switch (primaryCode) {
+        case Keyboard.KEYCODE_DELETE:
+            return AudioManager.FX_KEYPRESS_DELETE;
+        case ASCIICharacters.LF:
+            return AudioManager.FX_KEYPRESS_RETURN;
+        case ASCIICharacters.SPACE:
+            return AudioManager.FX_KEYPRESS_SPACEBAR;
+        default:
+            return AudioManager.FX_KEYPRESS_STANDARD;
+        }
+    }
+}
@@ -0,0 +1,412 @@
+/**
+ * <tt>KeyPreviewOverlay.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package de.hs_bremen.vkb;
+
+import java.io.PrintWriter;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.inputmethodservice.Keyboard.Key;
+
+/**
+ * The previews of pressed keys, drawn inside the keyboard view.
+ *
+ * <tt>KeyboardView</tt> shows the preview of a key in a <tt>PopupWindow</tt>
+ * that is moved and resized on each press. The overlay instead draws the
+ * previews on top of the keys, in a fixed number of preallocated slots, so
+ * that showing a preview only invalidates an area of the keyboard view. Fast
+ * successive presses get a slot each until the oldest slot is reused.
+ *
+ * The time from drawing a preview to committing its key is measured.
+ *
+ * All methods must be called on the thread of the input method (IME).
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public final class KeyPreviewOverlay {
+
+    /**
+     * The time, in milliseconds, a preview stays visible after its key has
+     * been released, as in <tt>KeyboardView</tt>.
+     */
+    public static final long DISMISS_DELAY_MILLIS = 70L;
+
+    /**
+     * The number of previews that can be shown at the same time.
+     */
+    private static final int _SLOTS = 4;
+
+    /**
+     * The size of a preview relative to the size of its key.
+     */
+    private static final float _SCALE = 1.5f;
+
+    /**
+     * The drawable state of a preview.
+     */
+    private static final int[] _DRAWABLE_PRESSED = {
+        android.R.attr.state_pressed,
+    };
+
+    /**
+     * The background of a preview, or <tt>null</tt>.
+     */
+    private final Drawable _oBackground;
+
+    /**
+     * The paint of the labels of the previews.
+     */
+    private final Paint _oPaint;
+
+    /**
+     * The index of the key of each slot, or <tt>-1</tt> for a free slot.
+     */
+    private final int[] _aKeyIndices = new int[_SLOTS];
+
+    /**
+     * The primary code of the key of each slot.
+     */
+    private final int[] _aCodes = new int[_SLOTS];
+
+    /**
+     * The label of each slot.
+     */
+    private final String[] _aLabels = new String[_SLOTS];
+
+    /**
+     * The bounds of each slot on the canvas.
+     */
+    private final Rect[] _aBounds = new Rect[_SLOTS];
+
+    /**
+     * The time each slot has been requested.
+     */
+    private final long[] _aRequestedAt = new long[_SLOTS];
+
+    /**
+     * The time each slot has been drawn first, or <tt>-1</tt>.
+     */
+    private final long[] _aShownAt = new long[_SLOTS];
+
+    /**
+     * The time the key of each slot has been released, or <tt>-1</tt> if it
+     * is pressed.
+     */
+    private final long[] _aReleasedAt = new long[_SLOTS];
+
+    /**
+     * Signals whether previews are shown (<tt>true</tt>) or not (
+     * <tt>false</tt>).
+     */
+    private boolean _bIsEnabled = true;
+
+    /**
+     * The number of previews that have been drawn.
+     */
+    private int _iShown = 0;
+
+    /**
+     * The sum of the times, in milliseconds, from requesting to drawing a
+     * preview.
+     */
+    private long _lShowMillis = 0L;
+
+    /**
+     * The number of keys that have been committed while their preview was
+     * shown.
+     */
+    private int _iCommits = 0;
+
+    /**
+     * The sum of the times, in milliseconds, from drawing a preview to
+     * committing its key.
+     */
+    private long _lCommitMillis = 0L;
+
+    /**
+     * The maximum time, in milliseconds, from drawing a preview to committing
+     * its key.
+     */
+    private long _lMaxCommitMillis = 0L;
+
+    /**
+     * Creates an overlay.
+     *
+     * @param style the style of the keys.
+     */
+    public KeyPreviewOverlay(final KeyFaceAtlas.Style style) {
+        this._oBackground = style.getKeyBackground();
+        this._oPaint = new Paint();
+        this._oPaint.setAntiAlias(true);
+        this._oPaint.setTextAlign(Paint.Align.CENTER);
+        this._oPaint.setColor(style.getKeyTextColor());
+        this._oPaint.setTextSize(2f * style.getKeyTextSize());
+        this._oPaint.setTypeface(Typeface.DEFAULT_BOLD);
+        for (int i = 0; i < _SLOTS; ++i) {
+            this._aKeyIndices[i] = -1;
+            this._aBounds[i] = new Rect();
+        }
+    }
+
+    /**
+     * Enables or disables the previews. Disabling hides all previews.
+     *
+     * @param enabled <tt>true</tt> to show previews, <tt>false</tt> otherwise.
+     */
+    public void setEnabled(final boolean enabled) {
+        this._bIsEnabled = enabled;
+        if (!enabled) {
+            this.hideAll();
+        }
+    }
+
+    /**
+     * Hides all previews at once, e.g. because another keyboard is shown.
+     */
+    public void hideAll() {
+        for (int i = 0; i < _SLOTS; ++i) {
+            this._aKeyIndices[i] = -1;
+        }
+    }
+
+    /**
+     * Returns whether previews are shown.
+     *
+     * @return <tt>true</tt> if previews are shown, <tt>false</tt> otherwise.
+     */
+    public boolean isEnabled() {
+        return this._bIsEnabled;
+    }
+
+    /**
+     * Shows the preview of a pressed key.
+     *
+     * @param index the index of the key.
+     * @param key   the key.
+     * @param left  the x-coordinate of the keyboard on the canvas.
+     * @param top   the y-coordinate of the keyboard on the canvas.
+     * @param width the width of the canvas.
+     * @param now   the current time, in milliseconds.
+     * @param dirty receives the area of the canvas to invalidate.
+     *
+     * @return <tt>true</tt> if the area must be invalidated, <tt>false</tt> if
+     *         the key has no preview.
+     */
+    public boolean show(
+        final int index, final Key key, final int left, final int top,
+        final int width, final long now, final Rect dirty
+    ) {
+        if (!this._bIsEnabled || null == key.label || key.modifier
+                || key.codes.length < 1) {
+            return false;
+        }
+        int iSlot = this._findSlot(index);
+        if (-1 != iSlot && -1 == this._aReleasedAt[iSlot]) {
+            // The preview is shown already.
+            return false;
+        }
+        if (-1 == iSlot) {
+            iSlot = this._findSlot(-1);
+        }
+        dirty.setEmpty();
+        if (-1 == iSlot) {
+            // Reuse the oldest slot.
+            iSlot = 0;
+            for (int i = 1; i < _SLOTS; ++i) {
+                if (this._aRequestedAt[i] < this._aRequestedAt[iSlot]) {
+                    iSlot = i;
+                }
+            }
+            dirty.set(this._aBounds[iSlot]);
+        }
+
+        final int iWIDTH = Math.round(
+            Math.max(key.width, key.height) * _SCALE
+        );
+        final int iHEIGHT = Math.round(key.height * _SCALE);
+        int iLeft = left + key.x + (key.width - iWIDTH) / 2;
+        iLeft = Math.max(0, Math.min(iLeft, width - iWIDTH));
+        final int iTOP = Math.max(0, top + key.y - iHEIGHT);
+
+        this._aKeyIndices[iSlot] = index;
+        this._aCodes[iSlot] = key.codes[0];
+        this._aLabels[iSlot] = key.label.toString();
+        this._aBounds[iSlot].set(
+            iLeft, iTOP, iLeft + iWIDTH, iTOP + iHEIGHT
+        );
+        this._aRequestedAt[iSlot] = now;
+        this._aShownAt[iSlot] = -1L;
+        this._aReleasedAt[iSlot] = -1L;
+        dirty.union(this._aBounds[iSlot]);
+        return true;
+    }
+
+    /**
+     * Starts the dismissal of the preview of a released key.
+     *
+     * @param index the index of the key.
+     * @param now   the current time, in milliseconds.
+     *
+     * @return <tt>true</tt> if the key has a preview, <tt>false</tt>
+     *         otherwise.
+     */
+    public boolean release(final int index, final long now) {
+        final int iSLOT = this._findSlot(index);
+        if (-1 == iSLOT || -1 != this._aReleasedAt[iSLOT]) {
+            return false;
+        }
+        this._aReleasedAt[iSLOT] = now;
+        return true;
+    }
+
+    /**
+     * Hides the previews of keys that have been released for
+     * <tt>{@link #DISMISS_DELAY_MILLIS}</tt>.
+     *
+     * @param now   the current time, in milliseconds.
+     * @param dirty receives the area of the canvas to invalidate.
+     *
+     * @return the time, in milliseconds, until the next preview has to be
+     *         hidden, or <tt>-1</tt> if no preview waits for its dismissal.
+     */
+    public long dismiss(final long now, final Rect dirty) {
+        dirty.setEmpty();
+        long lNext = -1L;
+        for (int i = 0; i < _SLOTS; ++i) {
+            if (-1 == this._aKeyIndices[i] || -1 == this._aReleasedAt[i]) {
+                continue;
+            }
+            final long lREMAINING = this._aReleasedAt[i]
+                + DISMISS_DELAY_MILLIS - now;
+            if (lREMAINING <= 0) {
+                this._aKeyIndices[i] = -1;
+                dirty.union(this._aBounds[i]);
+            } else if (-1L == lNext || lREMAINING < lNext) {
+                lNext = lREMAINING;
+            }
+        }
+        return lNext;
+    }
+
+    /**
+     * Draws the visible previews.
+     *
+     * @param canvas the canvas to draw on.
+     * @param now    the current time, in milliseconds.
+     */
+    public void draw(final Canvas canvas, final long now) {
+        for (int i = 0; i < _SLOTS; ++i) {
+            if (-1 == this._aKeyIndices[i]) {
+                continue;
+            }
+            if (-1L == this._aShownAt[i]) {
+                this._aShownAt[i] = now;
+                ++this._iShown;
+                this._lShowMillis += now - this._aRequestedAt[i];
+            }
+            final Rect oBOUNDS = this._aBounds[i];
+            if (null != this._oBackground) {
+                this._oBackground.setState(_DRAWABLE_PRESSED);
+                this._oBackground.setBounds(oBOUNDS);
+                this._oBackground.draw(canvas);
+            }
+            canvas.drawText(
+                this._aLabels[i], oBOUNDS.left + oBOUNDS.width() / 2,
+                oBOUNDS.top + (oBOUNDS.height() + this._oPaint.getTextSize()
+                    - this._oPaint.descent()) / 2,
+                this._oPaint
+            );
+        }
+    }
+
+    /**
+     * Records that a key has been committed.
+     *
+     * @param primaryCode the code of the key.
+     * @param now         the current time, in milliseconds.
+     */
+    public void onCommit(final int primaryCode, final long now) {
+        int iSlot = -1;
+        for (int i = 0; i < _SLOTS; ++i) {
+            if (-1 != this._aKeyIndices[i] && -1L != this._aShownAt[i]
+                    && primaryCode == this._aCodes[i]
+                    && (-1 == iSlot
+                        || this._aShownAt[i] > this._aShownAt[iSlot])) {
+                iSlot = i;
+            }
+        }
+        if (-1 == iSlot) {
+            return;
+        }
+        final long lMILLIS = now - this._aShownAt[iSlot];
+        ++this._iCommits;
+        this._lCommitMillis += lMILLIS;
+        this._lMaxCommitMillis = Math.max(this._lMaxCommitMillis, lMILLIS);
+        // Count each preview once.
+        this._aCodes[iSlot] = 0;
+    }
+
+    /**
+     * Returns the slot of a key.
+     *
+     * @param index the index of the key, or <tt>-1</tt> for a free slot.
+     *
+     * @return the slot, or <tt>-1</tt> if there is none.
+     */
+    private int _findSlot(final int index) {
+        for (int i = 0; i < _SLOTS; ++i) {
+            if (index == this._aKeyIndices[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Prints the statistics of the previews.
+     *
+     * @param writer the writer to print to.
+     * @param prefix the prefix of each line.
+     */
+    public void dump(final PrintWriter writer, final String prefix) {
+        writer.print(prefix);
+        writer.print("Previews: shown="); //$NON-NLS-1$
+        writer.print(this._iShown);
+        writer.print(", mean show ms="); //$NON-NLS-1$
+        writer.print((0 == this._iShown) ? 0L : this._lShowMillis
+            / this._iShown);
+        writer.print(", commits="); //$NON-NLS-1$
+        writer.print(this._iCommits);
+        writer.print(", mean preview-to-commit ms="); //$NON-NLS-1$
+        writer.print((0 == this._iCommits) ? 0L : this._lCommitMillis
+            / this._iCommits);
+        writer.print(", max="); //$NON-NLS-1$
+        writer.println(this._lMaxCommitMillis);
+    }
+}
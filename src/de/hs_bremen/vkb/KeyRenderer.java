@@ -0,0 +1,430 @@
+/**
+ * <tt>KeyRenderer.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package de.hs_bremen.vkb;
+
+import java.io.PrintWriter;
+import java.util.List;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.inputmethodservice.Keyboard.Key;
+
+/**
+ * Draws the keys of a <tt>{@link LatinKeyboard}</tt> directly onto the canvas
+ * of the view, without the buffer bitmap of <tt>KeyboardView</tt>.
+ *
+ * The renderer retains a display list of the shown keyboard: the bounds of
+ * each key on the canvas and the paint and text position of its label, which
+ * are computed once per keyboard and geometry. Damage is tracked per key, so
+ * that a key press invalidates and redraws only the pressed key. Keys are
+ * copied from the <tt>{@link KeyFaceAtlas}</tt> of the keyboard if it has
+ * been rendered, and drawn from their background and label otherwise.
+ *
+ * The number of draw operations of each frame is counted, which allows to
+ * check the cost of a frame on any device.
+ *
+ * All methods must be called on the thread of the input method (IME).
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public final class KeyRenderer {
+
+    /**
+     * The number of values per key in the display list.
+     */
+    private static final int _VALUES = 4;
+
+    /**
+     * The style of the keys.
+     */
+    private final KeyFaceAtlas.Style _oStyle;
+
+    /**
+     * The paint of single character labels.
+     */
+    private final Paint _oKeyTextPaint;
+
+    /**
+     * The paint of labels with multiple characters.
+     */
+    private final Paint _oLabelTextPaint;
+
+    /**
+     * The bounds of the clip of a frame. Reused, so that drawing never
+     * allocates.
+     */
+    private final Rect _oClip = new Rect();
+
+    /**
+     * The keyboard of the display list, or <tt>null</tt>.
+     */
+    private LatinKeyboard _oKeyboard = null;
+
+    /**
+     * The geometry generation of <tt>_oKeyboard</tt> the display list has been
+     * built for.
+     */
+    private int _iGeneration = 0;
+
+    /**
+     * The x-coordinate of the keyboard on the canvas.
+     */
+    private int _iLeft = 0;
+
+    /**
+     * The y-coordinate of the keyboard on the canvas.
+     */
+    private int _iTop = 0;
+
+    /**
+     * The keys of <tt>_oKeyboard</tt>.
+     */
+    private Key[] _aKeys = new Key[0];
+
+    /**
+     * The bounds of each key on the canvas, as left, top, right and bottom.
+     */
+    private int[] _aBounds = new int[0];
+
+    /**
+     * The position of the label of each key relative to the key, as x- and
+     * y-coordinate.
+     */
+    private float[] _aLabelPositions = new float[0];
+
+    /**
+     * The labels of the keys, <tt>null</tt> for keys without label.
+     */
+    private String[] _aLabels = new String[0];
+
+    /**
+     * The paint of the label of each key.
+     */
+    private Paint[] _aLabelPaints = new Paint[0];
+
+    /**
+     * Whether each key has been damaged since the last frame.
+     */
+    private boolean[] _aDamaged = new boolean[0];
+
+    /**
+     * The number of frames that have been drawn.
+     */
+    private int _iFrames = 0;
+
+    /**
+     * The number of draw operations of the last frame.
+     */
+    private int _iLastFrameOps = 0;
+
+    /**
+     * The maximum number of draw operations of a frame.
+     */
+    private int _iMaxFrameOps = 0;
+
+    /**
+     * The number of draw operations of all frames.
+     */
+    private long _lTotalOps = 0L;
+
+    /**
+     * The number of keys that have been damaged.
+     */
+    private int _iDamagedKeys = 0;
+
+    /**
+     * Creates a renderer.
+     *
+     * @param style the style of the keys.
+     */
+    public KeyRenderer(final KeyFaceAtlas.Style style) {
+        this._oStyle = style;
+        this._oKeyTextPaint = KeyRenderer._createPaint(
+            style, style.getKeyTextSize(), Typeface.DEFAULT
+        );
+        this._oLabelTextPaint = KeyRenderer._createPaint(
+            style, style.getLabelTextSize(), Typeface.DEFAULT_BOLD
+        );
+    }
+
+    /**
+     * Creates the paint of labels.
+     *
+     * @param style    the style of the keys.
+     * @param size     the text size, in pixels.
+     * @param typeface the typeface.
+     *
+     * @return the paint.
+     */
+    private static Paint _createPaint(
+        final KeyFaceAtlas.Style style, final float size,
+        final Typeface typeface
+    ) {
+        final Paint oPAINT = new Paint();
+        oPAINT.setAntiAlias(true);
+        oPAINT.setTextAlign(Paint.Align.CENTER);
+        oPAINT.setColor(style.getKeyTextColor());
+        oPAINT.setTextSize(size);
+        oPAINT.setTypeface(typeface);
+        oPAINT.setShadowLayer(
+            style.getShadowRadius(), 0f, 0f, style.getShadowColor()
+        );
+        return oPAINT;
+    }
+
+    /**
+     * Draws the keys that intersect the clip of the canvas.
+     *
+     * @param canvas   the canvas to draw on.
+     * @param keyboard the keyboard.
+     * @param atlas    the faces of the keys, or <tt>null</tt> to draw the keys
+     *                 from their background and label.
+     * @param left     the x-coordinate of the keyboard on the canvas.
+     * @param top      the y-coordinate of the keyboard on the canvas.
+     */
+    public void draw(
+        final Canvas canvas, final LatinKeyboard keyboard,
+        final KeyFaceAtlas atlas, final int left, final int top
+    ) {
+        this._prepare(keyboard, left, top);
+        if (!canvas.getClipBounds(this._oClip)) {
+            this._oClip.set(0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        }
+
+        int iOps = 0;
+        final int[] aBOUNDS = this._aBounds;
+        for (int i = 0; i < this._aKeys.length; ++i) {
+            this._aDamaged[i] = false;
+            final int iOFFSET = i * _VALUES;
+            if (!this._oClip.intersects(
+                aBOUNDS[iOFFSET], aBOUNDS[iOFFSET + 1],
+                aBOUNDS[iOFFSET + 2], aBOUNDS[iOFFSET + 3]
+            )) {
+                continue;
+            }
+            final Key oKEY = this._aKeys[i];
+            if (null != atlas) {
+                atlas.drawKey(
+                    canvas, i, oKEY, KeyFaceAtlas.getState(oKEY), left, top
+                );
+                ++iOps;
+            } else {
+                iOps += this._drawKey(canvas, i, oKEY);
+            }
+        }
+
+        ++this._iFrames;
+        this._iLastFrameOps = iOps;
+        this._iMaxFrameOps = Math.max(this._iMaxFrameOps, iOps);
+        this._lTotalOps += iOps;
+    }
+
+    /**
+     * Draws a key from its background and label.
+     *
+     * @param canvas the canvas to draw on.
+     * @param index  the index of the key.
+     * @param key    the key.
+     *
+     * @return the number of draw operations.
+     */
+    private int _drawKey(final Canvas canvas, final int index, final Key key) {
+        final int iOFFSET = index * _VALUES;
+        int iOps = 0;
+        canvas.save();
+        canvas.translate(this._aBounds[iOFFSET], this._aBounds[iOFFSET + 1]);
+
+        final Drawable oBACKGROUND = this._oStyle.getKeyBackground();
+        if (null != oBACKGROUND) {
+            oBACKGROUND.setState(key.getCurrentDrawableState());
+            oBACKGROUND.setBounds(0, 0, key.width, key.height);
+            oBACKGROUND.draw(canvas);
+            ++iOps;
+        }
+
+        if (null != this._aLabels[index]) {
+            canvas.drawText(
+                this._aLabels[index], this._aLabelPositions[2 * index],
+                this._aLabelPositions[2 * index + 1],
+                this._aLabelPaints[index]
+            );
+            ++iOps;
+        } else if (null != key.icon) {
+            final int iWIDTH = key.icon.getIntrinsicWidth();
+            final int iHEIGHT = key.icon.getIntrinsicHeight();
+            canvas.translate(
+                this._aLabelPositions[2 * index] - iWIDTH / 2,
+                this._aLabelPositions[2 * index + 1] - iHEIGHT / 2
+            );
+            key.icon.setBounds(0, 0, iWIDTH, iHEIGHT);
+            key.icon.draw(canvas);
+            ++iOps;
+        }
+        canvas.restore();
+        return iOps;
+    }
+
+    /**
+     * Marks a key as damaged.
+     *
+     * @param keyboard the keyboard.
+     * @param index    the index of the key.
+     * @param left     the x-coordinate of the keyboard on the canvas.
+     * @param top      the y-coordinate of the keyboard on the canvas.
+     * @param dirty    receives the area of the canvas to invalidate.
+     *
+     * @return <tt>true</tt> if the area must be invalidated, <tt>false</tt> if
+     *         the key does not exist or has been damaged already.
+     */
+    public boolean damageKey(
+        final LatinKeyboard keyboard, final int index, final int left,
+        final int top, final Rect dirty
+    ) {
+        this._prepare(keyboard, left, top);
+        if (index < 0 || index >= this._aKeys.length
+                || this._aDamaged[index]) {
+            return false;
+        }
+        this._aDamaged[index] = true;
+        ++this._iDamagedKeys;
+        final int iOFFSET = index * _VALUES;
+        dirty.set(
+            this._aBounds[iOFFSET], this._aBounds[iOFFSET + 1],
+            this._aBounds[iOFFSET + 2], this._aBounds[iOFFSET + 3]
+        );
+        return true;
+    }
+
+    /**
+     * Marks all keys as damaged.
+     */
+    public void damageAllKeys() {
+        for (int i = 0; i < this._aDamaged.length; ++i) {
+            this._aDamaged[i] = true;
+        }
+        this._iDamagedKeys += this._aDamaged.length;
+    }
+
+    /**
+     * Builds the display list of a keyboard, unless it is up to date.
+     *
+     * @param keyboard the keyboard.
+     * @param left     the x-coordinate of the keyboard on the canvas.
+     * @param top      the y-coordinate of the keyboard on the canvas.
+     */
+    private void _prepare(
+        final LatinKeyboard keyboard, final int left, final int top
+    ) {
+        if (keyboard == this._oKeyboard
+                && keyboard.getGeometryGeneration() == this._iGeneration
+                && left == this._iLeft && top == this._iTop) {
+            return;
+        }
+        this._oKeyboard = keyboard;
+        this._iGeneration = keyboard.getGeometryGeneration();
+        this._iLeft = left;
+        this._iTop = top;
+
+        final List<Key> oKEYS = keyboard.getKeys();
+        final int iKEYS = oKEYS.size();
+        if (this._aKeys.length != iKEYS) {
+            this._aKeys = new Key[iKEYS];
+            this._aBounds = new int[iKEYS * _VALUES];
+            this._aLabelPositions = new float[2 * iKEYS];
+            this._aLabels = new String[iKEYS];
+            this._aLabelPaints = new Paint[iKEYS];
+            this._aDamaged = new boolean[iKEYS];
+        }
+
+        final Rect oPADDING = new Rect();
+        final Drawable oBACKGROUND = this._oStyle.getKeyBackground();
+        if (null != oBACKGROUND) {
+            oBACKGROUND.getPadding(oPADDING);
+        }
+        for (int i = 0; i < iKEYS; ++i) {
+            final Key oKEY = oKEYS.get(i);
+            final int iOFFSET = i * _VALUES;
+            this._aKeys[i] = oKEY;
+            this._aBounds[iOFFSET] = left + oKEY.x;
+            this._aBounds[iOFFSET + 1] = top + oKEY.y;
+            this._aBounds[iOFFSET + 2] = left + oKEY.x + oKEY.width;
+            this._aBounds[iOFFSET + 3] = top + oKEY.y + oKEY.height;
+            this._aDamaged[i] = true;
+
+            // The center of the area inside the padding of the background.
+            final float fX = (oKEY.width - oPADDING.left - oPADDING.right) / 2
+                + oPADDING.left;
+            final float fY = (oKEY.height - oPADDING.top - oPADDING.bottom) / 2
+                + oPADDING.top;
+            this._aLabelPositions[2 * i] = fX;
+            if (null != oKEY.label) {
+                final Paint oPAINT = (oKEY.label.length() > 1
+                    && oKEY.codes.length < 2)
+                    ? this._oLabelTextPaint : this._oKeyTextPaint;
+                this._aLabels[i] = oKEY.label.toString();
+                this._aLabelPaints[i] = oPAINT;
+                this._aLabelPositions[2 * i + 1] = fY
+                    + (oPAINT.getTextSize() - oPAINT.descent()) / 2;
+            } else {
+                this._aLabels[i] = null;
+                this._aLabelPaints[i] = null;
+                this._aLabelPositions[2 * i + 1] = fY;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of draw operations of the last frame.
+     *
+     * @return the number of draw operations.
+     */
+    public int getLastFrameOps() {
+        return this._iLastFrameOps;
+    }
+
+    /**
+     * Prints the statistics of the renderer.
+     *
+     * @param writer the writer to print to.
+     * @param prefix the prefix of each line.
+     */
+    public void dump(final PrintWriter writer, final String prefix) {
+        writer.print(prefix);
+        writer.print("Renderer: frames="); //$NON-NLS-1$
+        writer.print(this._iFrames);
+        writer.print(", draw ops last="); //$NON-NLS-1$
+        writer.print(this._iLastFrameOps);
+        writer.print(", max="); //$NON-NLS-1$
+        writer.print(this._iMaxFrameOps);
+        writer.print(", total="); //$NON-NLS-1$
+        writer.print(this._lTotalOps);
+        writer.print(", damaged keys="); //$NON-NLS-1$
+        writer.println(this._iDamagedKeys);
+    }
+}
@@ -0,0 +1,307 @@
+/**
+ * <tt>KeyboardCache.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package de.hs_bremen.vkb;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.content.Context;
+import android.util.DisplayMetrics;
+
+/**
+ * Caches the parsed keyboards of VKB (Virtual KeyBoard) per configuration.
+ *
+ * A keyboard is identified by its layout resource and the screen density;
+ * there is a single keyboard per layout, whatever width it is requested for.
+ * When the width changes, e.g. because the device has been rotated, the
+ * cached keyboard is rescaled in place from the geometry of the parsed
+ * layout. Rotating back rescales it again, so the XML of a layout is parsed
+ * at most once per screen density and the footprint of the cache does not
+ * depend on the number of widths.
+ *
+ * The memory held by the cache is bounded by a budget, checked against the
+ * estimated footprint of each keyboard. The least recently used keyboards,
+ * i.e. the keyboard sets of the languages that have not been used for the
+ * longest time, are evicted once the budget is exceeded, and further ones on
+ * memory pressure. Keyboards are built lazily, so the number of languages
+ * does not affect the startup time.
+ *
+ * All methods must be called on the thread of the input method (IME).
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public final class KeyboardCache {
+
+    /**
+     * The default maximum footprint, in bytes, of all cached keyboards, enough
+     * for the keyboard sets of three languages and the Math keyboard.
+     */
+    public static final long DEFAULT_BUDGET_BYTES = 256L * 1024L;
+
+    /**
+     * The context used to parse the layouts.
+     */
+    private final Context _oContext;
+
+    /**
+     * The cached keyboards, mapped by their configuration, in access order.
+     */
+    private final Map<Long, LatinKeyboard> _oKeyboards;
+
+    /**
+     * The maximum footprint, in bytes, of all cached keyboards.
+     */
+    private final long _lBudgetBytes;
+
+    /**
+     * The estimated footprint, in bytes, of all cached keyboards.
+     */
+    private long _lResidentBytes = 0L;
+
+    /**
+     * The number of keyboards that have been found in the cache.
+     */
+    private int _iHits = 0;
+
+    /**
+     * The number of keyboards that have been parsed.
+     */
+    private int _iMisses = 0;
+
+    /**
+     * The number of times a cached keyboard has been rescaled to another
+     * width.
+     */
+    private int _iRescales = 0;
+
+    /**
+     * Creates a cache.
+     *
+     * @param context     the context used to parse the layouts.
+     * @param budgetBytes the maximum footprint, in bytes, of all cached
+     *                    keyboards. The most recently used keyboard is kept
+     *                    even if it exceeds the budget on its own.
+     */
+    public KeyboardCache(final Context context, final long budgetBytes) {
+        this._oContext = context;
+        this._lBudgetBytes = budgetBytes;
+        this._oKeyboards = new LinkedHashMap<Long, LatinKeyboard>(
+            16, 0.75f, true
+        );
+    }
+
+    /**
+     * Returns the keyboard for the specified layout and width, rescaling or
+     * parsing the layout if the keyboard is not cached.
+     *
+     * @param xmlLayoutResId the resource file that contains the keyboard
+     *                       layout and keys.
+     * @param width          the width, in pixels, available for the keyboard.
+     *
+     * @return the keyboard.
+     */
+    public LatinKeyboard get(final int xmlLayoutResId, final int width) {
+        final Long oKEY = Long.valueOf(this._getKey(xmlLayoutResId));
+        LatinKeyboard oKeyboard = this._oKeyboards.get(oKEY);
+        if (null != oKeyboard) {
+            ++this._iHits;
+            if (width == oKeyboard.getLayoutWidth()) {
+                return oKeyboard;
+            }
+            ++this._iRescales;
+            this._lResidentBytes -= oKeyboard.estimateFootprint();
+        } else {
+            ++this._iMisses;
+            oKeyboard = new LatinKeyboard(this._oContext, xmlLayoutResId);
+            this._oKeyboards.put(oKEY, oKeyboard);
+        }
+        // A parsed layout is laid out for the width of the display.
+        oKeyboard.rescale(width, oKeyboard.getHeight());
+        this._lResidentBytes += oKeyboard.estimateFootprint();
+        this.trim(this._lBudgetBytes, xmlLayoutResId);
+        return oKeyboard;
+    }
+
+    /**
+     * Evicts the least recently used keyboards until the cached keyboards fit
+     * into the specified footprint, e.g. on memory pressure.
+     *
+     * Evicted keyboards are built again when they are requested.
+     *
+     * @param maxBytes    the maximum footprint, in bytes, of the keyboards
+     *                    that remain cached.
+     * @param keepLayouts the layout resources of the keyboards that must not
+     *                    be evicted, e.g. because they are shown.
+     */
+    public void trim(final long maxBytes, final int... keepLayouts) {
+        final Iterator<Map.Entry<Long, LatinKeyboard>> oENTRIES
+            = this._oKeyboards.entrySet().iterator();
+        while (this._lResidentBytes > maxBytes && oENTRIES.hasNext()) {
+            final Map.Entry<Long, LatinKeyboard> oENTRY = oENTRIES.next();
+            if (KeyboardCache._contains(
+                keepLayouts, (int) (oENTRY.getKey().longValue() >>> 32)
+            )) {
+                continue;
+            }
+            final LatinKeyboard oKEYBOARD = oENTRY.getValue();
+            oENTRIES.remove();
+            this._lResidentBytes -= oKEYBOARD.estimateFootprint();
+            // The evicted keyboard must not be kept alive by the shared state
+            // of the modifier keys.
+            oKEYBOARD.setModifierState(null);
+            oKEYBOARD.setFaceAtlas(null);
+        }
+    }
+
+    /**
+     * Releases the pre-rendered key faces of the cached keyboards, e.g. on
+     * memory pressure. Released faces are rendered again when the keyboard
+     * is shown.
+     *
+     * @param keepLayouts the layout resources of the keyboards whose faces
+     *                    must not be released.
+     */
+    public void releaseFaceAtlases(final int... keepLayouts) {
+        for (Map.Entry<Long, LatinKeyboard> oEntry
+                : this._oKeyboards.entrySet()) {
+            if (!KeyboardCache._contains(
+                keepLayouts, (int) (oEntry.getKey().longValue() >>> 32)
+            )) {
+                oEntry.getValue().setFaceAtlas(null);
+            }
+        }
+    }
+
+    /**
+     * Returns the memory held by the pre-rendered key faces of the cached
+     * keyboards, which is not part of the budget. The faces are released
+     * with their keyboards, and by the caller via
+     * <tt>{@link #releaseFaceAtlases(int...)}</tt>.
+     *
+     * @return the size of the faces, in bytes.
+     */
+    public long getFaceAtlasBytes() {
+        long lBytes = 0L;
+        for (LatinKeyboard oKeyboard : this._oKeyboards.values()) {
+            if (null != oKeyboard.getFaceAtlas()) {
+                lBytes += oKeyboard.getFaceAtlas().getByteCount();
+            }
+        }
+        return lBytes;
+    }
+
+    /**
+     * Checks whether an array contains a value.
+     *
+     * @param values the array.
+     * @param value  the value.
+     *
+     * @return <tt>true</tt> if the array contains the value, <tt>false</tt>
+     *         otherwise.
+     */
+    private static boolean _contains(final int[] values, final int value) {
+        for (int i = 0; i < values.length; ++i) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes all keyboards from the cache.
+     */
+    public void clear() {
+        for (LatinKeyboard oKeyboard : this._oKeyboards.values()) {
+            oKeyboard.setModifierState(null);
+            oKeyboard.setFaceAtlas(null);
+        }
+        this._oKeyboards.clear();
+        this._lResidentBytes = 0L;
+    }
+
+    /**
+     * Returns the number of cached keyboards.
+     *
+     * @return the number of keyboards.
+     */
+    public int size() {
+        return this._oKeyboards.size();
+    }
+
+    /**
+     * Returns the estimated footprint of all cached keyboards.
+     *
+     * @return the footprint, in bytes.
+     */
+    public long getResidentBytes() {
+        return this._lResidentBytes;
+    }
+
+    /**
+     * Returns the number of keyboards that have been found in the cache.
+     *
+     * @return the number of cache hits.
+     */
+    public int getHitCount() {
+        return this._iHits;
+    }
+
+    /**
+     * Returns the number of keyboards that have been parsed.
+     *
+     * @return the number of cache misses.
+     */
+    public int getMissCount() {
+        return this._iMisses;
+    }
+
+    /**
+     * Returns the number of times a cached keyboard has been rescaled to
+     * another width.
+     *
+     * @return the number of rescales.
+     */
+    public int getRescaleCount() {
+        return this._iRescales;
+    }
+
+    /**
+     * Returns the key of a keyboard in the cache.
+     *
+     * @param xmlLayoutResId the resource file of the layout.
+     *
+     * @return the layout resource in the upper 32 bits and the screen density
+     *         in the lower 32 bits.
+     */
+    private long _getKey(final int xmlLayoutResId) {
+        final DisplayMetrics oMETRICS = this._oContext.getResources()
+            .getDisplayMetrics();
+        return ((long) xmlLayoutResId << 32)
+            | (oMETRICS.densityDpi & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,533 @@
+/**
+ * <tt>KeystrokeTrace.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package de.hs_bremen.vkb;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import android.inputmethodservice.KeyboardView.OnKeyboardActionListener;
+
+/**
+ * Records a binary trace of the keys handled by the input method, to analyze
+ * the latency reported from the field.
+ *
+ * The trace is written to <tt>{@link #SEGMENT_COUNT}</tt> memory-mapped
+ * segment files of a fixed size. When a segment is full, recording continues
+ * in the oldest one, so that the trace never grows and the most recent keys
+ * are always kept. Writing a record only stores primitive values into the
+ * mapping and never allocates; the records reach the file even if the process
+ * is killed.
+ *
+ * A segment starts with a header of <tt>{@link #HEADER_SIZE}</tt> bytes: the
+ * magic number, the version, the size of a record, the sequence number of the
+ * segment, the number of records, the wall clock time in milliseconds and the
+ * <tt>System.nanoTime()</tt> at which the segment was started, followed by
+ * reserved bytes. The number of records is updated after each record, so that
+ * a segment never contains a partial record. Each record of <tt>{@link
+ * #RECORD_SIZE}</tt> bytes holds:
+ *
+ * <ul>
+ *   <li>the time of the key in nanoseconds (<tt>long</tt>),</li>
+ *   <li>the nanoseconds from the press of the key to the key, <tt>-1</tt> if
+ *       unknown (<tt>int</tt>),</li>
+ *   <li>the nanoseconds spent in the handler of the key (<tt>int</tt>),</li>
+ *   <li>the nanoseconds from the handler to the end of the key, e.g. to
+ *       update the input view (<tt>int</tt>),</li>
+ *   <li>the key code (<tt>int</tt>),</li>
+ *   <li>the input type of the editor (<tt>int</tt>),</li>
+ *   <li>the meta state of the PC modifiers (<tt>short</tt>),</li>
+ *   <li>the layout modifiers (layer) (<tt>byte</tt>) and</li>
+ *   <li>the flags of the record (<tt>byte</tt>).</li>
+ * </ul>
+ *
+ * In privacy-sensitive editors, the codes of characters are replaced by
+ * <tt>{@link #REDACTED_CODE}</tt> and the record is flagged with <tt>{@link
+ * #FLAG_REDACTED}</tt>. The codes of control keys are always kept.
+ *
+ * Except for <tt>{@link #open(File)}</tt>, <tt>{@link #close()}</tt> and
+ * <tt>{@link #replay(File, OnKeyboardActionListener)}</tt>, all methods must
+ * be called on the thread of the input method (IME).
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public final class KeystrokeTrace {
+
+    /**
+     * The key of the preference that enables the trace.
+     */
+    public static final String PREFERENCE_KEY
+        = "keystroke_trace"; //$NON-NLS-1$
+
+    /**
+     * The prefix of the names of the segment files, which end with the index
+     * of the segment.
+     */
+    public static final String FILE_PREFIX
+        = "keystroke_trace."; //$NON-NLS-1$
+
+    /**
+     * The number of segment files.
+     */
+    public static final int SEGMENT_COUNT = 2;
+
+    /**
+     * The number of records of a segment.
+     */
+    public static final int RECORDS_PER_SEGMENT = 4096;
+
+    /**
+     * The size, in bytes, of the header of a segment.
+     */
+    public static final int HEADER_SIZE = 40;
+
+    /**
+     * The size, in bytes, of a record.
+     */
+    public static final int RECORD_SIZE = 32;
+
+    /**
+     * The flag of a record whose key code has been redacted.
+     */
+    public static final int FLAG_REDACTED = 1;
+
+    /**
+     * The code that replaces the codes of characters in privacy-sensitive
+     * editors.
+     */
+    public static final int REDACTED_CODE = 'x';
+
+    /**
+     * The magic number of a segment ("VKBK").
+     */
+    private static final int _MAGIC = 0x564B424B;
+
+    /**
+     * The version of the format of a segment.
+     */
+    private static final short _VERSION = 1;
+
+    /**
+     * The size, in bytes, of a segment file.
+     */
+    private static final int _SEGMENT_SIZE
+        = HEADER_SIZE + RECORDS_PER_SEGMENT * RECORD_SIZE;
+
+    /**
+     * The offset of the sequence number in the header.
+     */
+    private static final int _SEQUENCE_OFFSET = 8;
+
+    /**
+     * The offset of the number of records in the header.
+     */
+    private static final int _COUNT_OFFSET = 12;
+
+    /**
+     * The position of the layout modifiers in <tt>ModifierState</tt>.
+     */
+    private static final int _LAYER_SHIFT = 28;
+
+    /**
+     * The mappings of the segment files.
+     */
+    private final MappedByteBuffer[] _aSegments;
+
+    /**
+     * The index of the segment that is written.
+     */
+    private int _iSegment = 0;
+
+    /**
+     * The number of records of the segment that is written.
+     */
+    private int _iRecord = 0;
+
+    /**
+     * The sequence number of the segment that is written.
+     */
+    private int _iSequence = 0;
+
+    /**
+     * The number of records that have been written.
+     */
+    private long _lRecordCount = 0L;
+
+    /**
+     * The number of records whose key code has been redacted.
+     */
+    private long _lRedactedCount = 0L;
+
+    /**
+     * The input type of the current editor.
+     */
+    private int _iInputType = 0;
+
+    /**
+     * Signals whether the codes of characters are redacted (<tt>true</tt>)
+     * or not (<tt>false</tt>).
+     */
+    private boolean _bIsRedacting = true;
+
+    /**
+     * The time, in nanoseconds, of the last key press, or <tt>0</tt>.
+     */
+    private long _lPressedAt = 0L;
+
+    /**
+     * The time, in nanoseconds, at which the current key started.
+     */
+    private long _lKeyAt = 0L;
+
+    /**
+     * The time, in nanoseconds, at which the current key was handled, or
+     * <tt>0</tt>.
+     */
+    private long _lHandledAt = 0L;
+
+    /**
+     * The code of the current key.
+     */
+    private int _iCode = 0;
+
+    /**
+     * The meta state of the PC modifiers of the current key.
+     */
+    private int _iMetaState = 0;
+
+    /**
+     * The layout modifiers of the current key.
+     */
+    private int _iLayer = 0;
+
+    /**
+     * Creates a trace that continues after the newest valid segment.
+     *
+     * @param segments the mappings of the segment files.
+     */
+    private KeystrokeTrace(final MappedByteBuffer[] segments) {
+        this._aSegments = segments;
+        int iNewest = -1;
+        int iOldest = 0;
+        for (int i = 0; i < segments.length; ++i) {
+            final int iSEQUENCE = KeystrokeTrace._getSequence(segments[i]);
+            if (iSEQUENCE > iNewest) {
+                iNewest = iSEQUENCE;
+            }
+            if (iSEQUENCE < KeystrokeTrace._getSequence(segments[iOldest])) {
+                iOldest = i;
+            }
+        }
+        this._startSegment(iOldest, iNewest + 1);
+    }
+
+    /**
+     * Opens the trace in a directory and maps its segment files, which are
+     * created if necessary. Must not be called on the thread of the input
+     * method (IME).
+     *
+     * @param directory the directory of the segment files.
+     *
+     * @return the trace.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    public static KeystrokeTrace open(final File directory)
+        throws IOException {
+        final MappedByteBuffer[] aSEGMENTS
+            = new MappedByteBuffer[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; ++i) {
+            final RandomAccessFile oFILE = new RandomAccessFile(
+                KeystrokeTrace.getSegmentFile(directory, i), "rw" //$NON-NLS-1$
+            );
+            try {
+                oFILE.setLength(_SEGMENT_SIZE);
+                aSEGMENTS[i] = oFILE.getChannel().map(
+                    FileChannel.MapMode.READ_WRITE, 0, _SEGMENT_SIZE
+                );
+            } finally {
+                oFILE.close();
+            }
+        }
+        return new KeystrokeTrace(aSEGMENTS);
+    }
+
+    /**
+     * Returns a segment file.
+     *
+     * @param directory the directory of the segment files.
+     * @param index     the index of the segment.
+     *
+     * @return the segment file.
+     */
+    public static File getSegmentFile(final File directory, final int index) {
+        return new File(directory, FILE_PREFIX + index);
+    }
+
+    /**
+     * Sets the editor the following keys are typed into.
+     *
+     * @param inputType the input type of the editor.
+     * @param redacting <tt>true</tt> to redact the codes of characters, e.g.
+     *                  for password fields, <tt>false</tt> otherwise.
+     */
+    public void setEditor(final int inputType, final boolean redacting) {
+        this._iInputType = inputType;
+        this._bIsRedacting = redacting;
+    }
+
+    /**
+     * Signals that a key has been pressed.
+     */
+    public void onPress() {
+        this._lPressedAt = System.nanoTime();
+    }
+
+    /**
+     * Signals that the input method starts to handle a key.
+     *
+     * @param code      the code of the key.
+     * @param metaState the meta state of the PC modifiers.
+     * @param modifiers the state of the modifiers, see <tt>{@link
+     *                  ModifierState#get()}</tt>.
+     */
+    public void beginKey(
+        final int code, final int metaState, final int modifiers
+    ) {
+        this._iCode = code;
+        this._iMetaState = metaState;
+        this._iLayer = (modifiers >>> _LAYER_SHIFT) & 0xFF;
+        this._lHandledAt = 0L;
+        this._lKeyAt = System.nanoTime();
+    }
+
+    /**
+     * Signals that the current key has been handled, e.g. committed to the
+     * editor, and that the input view is updated next.
+     */
+    public void onKeyHandled() {
+        this._lHandledAt = System.nanoTime();
+    }
+
+    /**
+     * Signals that the input method has handled the current key and writes
+     * its record.
+     */
+    public void endKey() {
+        final long lNOW = System.nanoTime();
+        if (RECORDS_PER_SEGMENT == this._iRecord) {
+            this._startSegment(
+                (this._iSegment + 1) % SEGMENT_COUNT, this._iSequence + 1
+            );
+        }
+        final long lHANDLED = (0L == this._lHandledAt)
+            ? lNOW : this._lHandledAt;
+        int iCode = this._iCode;
+        int iFlags = 0;
+        if (this._bIsRedacting && iCode >= ASCIICharacters.SPACE) {
+            iCode = REDACTED_CODE;
+            iFlags |= FLAG_REDACTED;
+            ++this._lRedactedCount;
+        }
+
+        final MappedByteBuffer oBUFFER = this._aSegments[this._iSegment];
+        final int iOFFSET = HEADER_SIZE + this._iRecord * RECORD_SIZE;
+        oBUFFER.putLong(iOFFSET, this._lKeyAt);
+        oBUFFER.putInt(
+            iOFFSET + 8, (0L == this._lPressedAt)
+                ? -1 : KeystrokeTrace._toInt(this._lKeyAt - this._lPressedAt)
+        );
+        oBUFFER.putInt(
+            iOFFSET + 12, KeystrokeTrace._toInt(lHANDLED - this._lKeyAt)
+        );
+        oBUFFER.putInt(iOFFSET + 16, KeystrokeTrace._toInt(lNOW - lHANDLED));
+        oBUFFER.putInt(iOFFSET + 20, iCode);
+        oBUFFER.putInt(iOFFSET + 24, this._iInputType);
+        oBUFFER.putShort(iOFFSET + 28, (short) this._iMetaState);
+        oBUFFER.put(iOFFSET + 30, (byte) this._iLayer);
+        oBUFFER.put(iOFFSET + 31, (byte) iFlags);
+        // Publish the record only once it is complete.
+        oBUFFER.putInt(_COUNT_OFFSET, ++this._iRecord);
+        ++this._lRecordCount;
+    }
+
+    /**
+     * Writes the pending records to the segment files. Must not be called on
+     * the thread of the input method (IME); the trace must not be used
+     * afterwards.
+     */
+    public void close() {
+        for (MappedByteBuffer oSegment : this._aSegments) {
+            oSegment.force();
+        }
+    }
+
+    /**
+     * Prints the statistics of this trace.
+     *
+     * @param writer the writer to print to.
+     * @param prefix the prefix of each line.
+     */
+    public void dump(final PrintWriter writer, final String prefix) {
+        writer.print(prefix);
+        writer.print("Keystroke trace: records="); //$NON-NLS-1$
+        writer.print(this._lRecordCount);
+        writer.print(", redacted="); //$NON-NLS-1$
+        writer.print(this._lRedactedCount);
+        writer.print(", segment="); //$NON-NLS-1$
+        writer.print(this._iSegment);
+        writer.print(", sequence="); //$NON-NLS-1$
+        writer.print(this._iSequence);
+        writer.print(", redacting="); //$NON-NLS-1$
+        writer.println(this._bIsRedacting);
+    }
+
+    /**
+     * Replays the trace in a directory, oldest segment first, by sending each
+     * recorded key to a listener as a press, a key and a release.
+     *
+     * The modifiers are not restored; they follow from the recorded keys if
+     * the listener starts in the state in which the trace started.
+     *
+     * @param directory the directory of the segment files.
+     * @param listener  the listener to send the keys to, e.g. the input
+     *                  method.
+     *
+     * @return the number of replayed keys.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    public static int replay(
+        final File directory, final OnKeyboardActionListener listener
+    ) throws IOException {
+        final ByteBuffer[] aSEGMENTS = new ByteBuffer[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; ++i) {
+            final File oFILE = KeystrokeTrace.getSegmentFile(directory, i);
+            if (!oFILE.exists()) {
+                continue;
+            }
+            final FileInputStream oSTREAM = new FileInputStream(oFILE);
+            try {
+                final FileChannel oCHANNEL = oSTREAM.getChannel();
+                aSEGMENTS[i] = oCHANNEL.map(
+                    FileChannel.MapMode.READ_ONLY, 0, oCHANNEL.size()
+                );
+            } finally {
+                oSTREAM.close();
+            }
+        }
+
+        int iReplayed = 0;
+        int iLastSequence = -1;
+        while (true) {
+            // Select the oldest segment that has not been replayed yet.
+            ByteBuffer oNext = null;
+            int iNextSequence = Integer.MAX_VALUE;
+            for (ByteBuffer oSegment : aSEGMENTS) {
+                final int iSEQUENCE = KeystrokeTrace._getSequence(oSegment);
+                if (iSEQUENCE > iLastSequence && iSEQUENCE < iNextSequence) {
+                    oNext = oSegment;
+                    iNextSequence = iSEQUENCE;
+                }
+            }
+            if (null == oNext) {
+                return iReplayed;
+            }
+            iLastSequence = iNextSequence;
+
+            final int iCOUNT = Math.min(
+                oNext.getInt(_COUNT_OFFSET),
+                (oNext.limit() - HEADER_SIZE) / RECORD_SIZE
+            );
+            for (int i = 0; i < iCOUNT; ++i) {
+                final int iCODE = oNext.getInt(
+                    HEADER_SIZE + i * RECORD_SIZE + 20
+                );
+                listener.onPress(iCODE);
+                listener.onKey(iCODE, new int[] {iCODE});
+                listener.onRelease(iCODE);
+                ++iReplayed;
+            }
+        }
+    }
+
+    /**
+     * Starts to write a segment, discarding its records.
+     *
+     * @param index    the index of the segment.
+     * @param sequence the sequence number of the segment.
+     */
+    private void _startSegment(final int index, final int sequence) {
+        final MappedByteBuffer oBUFFER = this._aSegments[index];
+        // Invalidate the segment while its header is rewritten.
+        oBUFFER.putInt(0, 0);
+        oBUFFER.putShort(4, _VERSION);
+        oBUFFER.putShort(6, (short) RECORD_SIZE);
+        oBUFFER.putInt(_SEQUENCE_OFFSET, sequence);
+        oBUFFER.putInt(_COUNT_OFFSET, 0);
+        oBUFFER.putLong(16, System.currentTimeMillis());
+        oBUFFER.putLong(24, System.nanoTime());
+        oBUFFER.putLong(32, 0L);
+        oBUFFER.putInt(0, _MAGIC);
+        this._iSegment = index;
+        this._iSequence = sequence;
+        this._iRecord = 0;
+    }
+
+    /**
+     * Returns the sequence number of a segment.
+     *
+     * @param segment the mapping of the segment file, or <tt>null</tt>.
+     *
+     * @return the sequence number, or <tt>-1</tt> if the segment is invalid.
+     */
+    private static int _getSequence(final ByteBuffer segment) {
+        if (null == segment || segment.limit() < HEADER_SIZE
+                || _MAGIC != segment.getInt(0)
+                || _VERSION != segment.getShort(4)
+                || RECORD_SIZE != segment.getShort(6)) {
+            return -1;
+        }
+        return segment.getInt(_SEQUENCE_OFFSET);
+    }
+
+    /**
+     * Converts a duration to an <tt>int</tt>, saturating at
+     * <tt>Integer.MAX_VALUE</tt>.
+     *
+     * @param nanos the duration in nanoseconds.
+     *
+     * @return the duration in nanoseconds.
+     */
+    private static int _toInt(final long nanos) {
+        return (int) Math.min(nanos, Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * <tt>LanguageDescriptor.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+
+package de.hs_bremen.vkb;
+
+/**
+ * Describes a language of VKB (Virtual KeyBoard), as declared in the language
+ * manifest <tt>res/xml/languages.xml</tt>.
+ *
+ * A descriptor only references the layouts of the keyboards of the language.
+ * The keyboards themselves are built when the language is used for the first
+ * time.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public final class LanguageDescriptor {
+
+    /**
+     * The identifier of the language, e.g. <tt>de_de</tt>.
+     */
+    private final String _sId;
+
+    /**
+     * The position of the language in the manifest.
+     */
+    private final int _iIndex;
+
+    /**
+     * The resource of the lowercase layout.
+     */
+    private final int _iLowercaseLayout;
+
+    /**
+     * The resource of the lowercase and Alt Gr layout.
+     */
+    private final int _iLowercaseAltGrLayout;
+
+    /**
+     * The resource of the uppercase layout.
+     */
+    private final int _iUppercaseLayout;
+
+    /**
+     * The resource of the uppercase and Alt Gr layout.
+     */
+    private final int _iUppercaseAltGrLayout;
+
+    /**
+     * Signals whether the accent keys are dead keys (<tt>true</tt>) or not (
+     * <tt>false</tt>).
+     */
+    private final boolean _bHasDeadKeys;
+
+    /**
+     * Creates a descriptor.
+     *
+     * @param id                   the identifier of the language.
+     * @param index                the position of the language in the
+     *                             manifest.
+     * @param lowercaseLayout      the resource of the lowercase layout.
+     * @param lowercaseAltGrLayout the resource of the lowercase and Alt Gr
+     *                             layout.
+     * @param uppercaseLayout      the resource of the uppercase layout.
+     * @param uppercaseAltGrLayout the resource of the uppercase and Alt Gr
+     *                             layout.
+     * @param hasDeadKeys          <tt>true</tt> if the accent keys are dead
+     *                             keys, <tt>false</tt> otherwise.
+     */
+    public LanguageDescriptor(
+        final String id, final int index, final int lowercaseLayout,
+        final int lowercaseAltGrLayout, final int uppercaseLayout,
+        final int uppercaseAltGrLayout, final boolean hasDeadKeys
+    ) {
+        this._sId = id;
+        this._iIndex = index;
+        this._iLowercaseLayout = lowercaseLayout;
+        this._iLowercaseAltGrLayout = lowercaseAltGrLayout;
+        this._iUppercaseLayout = uppercaseLayout;
+        this._iUppercaseAltGrLayout = uppercaseAltGrLayout;
+        this._bHasDeadKeys = hasDeadKeys;
+    }
+
+    /**
+     * Returns the identifier of the language.
+     *
+     * @return the identifier, e.g. <tt>de_de</tt>.
+     */
+    public String getId() {
+        return this._sId;
+    }
+
+    /**
+     * Returns the position of the language in the manifest.
+     *
+     * @return the index, starting at <tt>0</tt>.
+     */
+    public int getIndex() {
+        return this._iIndex;
+    }
+
+    /**
+     * Returns the resource of the lowercase layout.
+     *
+     * @return the resource identifier.
+     */
+    public int getLowercaseLayout() {
+        return this._iLowercaseLayout;
+    }
+
+    /**
+     * Returns the resource of the lowercase and Alt Gr layout.
+     *
+     * @return the resource identifier.
+     */
+    public int getLowercaseAltGrLayout() {
+        return this._iLowercaseAltGrLayout;
+    }
+
+    /**
+     * Returns the resource of the uppercase layout.
+     *
+     * @return the resource identifier.
+     */
+    public int getUppercaseLayout() {
+        return this._iUppercaseLayout;
+    }
+
+    /**
+     * Returns the resource of the uppercase and Alt Gr layout.
+     *
+     * @return the resource identifier.
+     */
+    public int getUppercaseAltGrLayout() {
+        return this._iUppercaseAltGrLayout;
+    }
+
+    /**
+     * Returns whether the accent keys are dead keys on PCs of the language.
+     *
+     * @return <tt>true</tt> if accents are composed with the following
+     *         character, <tt>false</tt> otherwise.
+     */
+    public boolean hasDeadKeys() {
+        return this._bHasDeadKeys;
+    }
+
+    @Override
+    public String toString() {
+        return this._sId;
+    }
+}
@@ -0,0 +1,222 @@
+/**
+ * <tt>LanguageRegistry.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+
+package de.hs_bremen.vkb;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import android.content.res.Resources;
+import android.content.res.XmlResourceParser;
+import android.util.Log;
+
+/**
+ * The registry of the languages of VKB (Virtual KeyBoard).
+ *
+ * The languages are read from a manifest (<tt>res/xml/languages.xml</tt>),
+ * so that adding a language only requires its layouts and one entry in the
+ * manifest. Reading the manifest does not parse any layout; the keyboards of
+ * a language are built by the <tt>{@link KeyboardCache}</tt> when the
+ * language is used.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public final class LanguageRegistry {
+
+    /**
+     * The tag used for log messages.
+     */
+    private static final String _TAG = "LanguageRegistry"; //$NON-NLS-1$
+
+    /**
+     * The name of the element that declares a language.
+     */
+    private static final String _TAG_LANGUAGE = "language"; //$NON-NLS-1$
+
+    /**
+     * The registered languages, in the order of the manifest.
+     */
+    private final List<LanguageDescriptor> _oLanguages;
+
+    /**
+     * Creates a registry of the specified languages.
+     *
+     * @param languages the languages, in the order of the manifest.
+     */
+    private LanguageRegistry(final List<LanguageDescriptor> languages) {
+        this._oLanguages = Collections.unmodifiableList(languages);
+    }
+
+    /**
+     * Reads the languages from the specified manifest.
+     *
+     * Malformed entries are skipped.
+     *
+     * @param res         the resources of the application.
+     * @param xmlManifest the resource file of the manifest.
+     *
+     * @return the registry.
+     *
+     * @throws IllegalStateException if the manifest declares no language.
+     */
+    public static LanguageRegistry fromXml(
+        final Resources res, final int xmlManifest
+    ) {
+        final List<LanguageDescriptor> oLANGUAGES
+            = new ArrayList<LanguageDescriptor>();
+        final XmlResourceParser oPARSER = res.getXml(xmlManifest);
+        try {
+            int iEvent;
+            while (XmlPullParser.END_DOCUMENT != (iEvent = oPARSER.next())) {
+                if (XmlPullParser.START_TAG == iEvent
+                        && _TAG_LANGUAGE.equals(oPARSER.getName())) {
+                    final LanguageDescriptor oLANGUAGE
+                        = LanguageRegistry._readLanguage(
+                            oPARSER, oLANGUAGES.size()
+                        );
+                    if (null != oLANGUAGE) {
+                        oLANGUAGES.add(oLANGUAGE);
+                    }
+                }
+            }
+        } catch (XmlPullParserException ex) {
+            Log.e(_TAG, "Cannot parse the language manifest", ex); //$NON-NLS-1$
+        } catch (IOException ex) {
+            Log.e(_TAG, "Cannot read the language manifest", ex); //$NON-NLS-1$
+        } finally {
+            oPARSER.close();
+        }
+
+        if (oLANGUAGES.isEmpty()) {
+            throw new IllegalStateException(
+                "The language manifest declares no language" //$NON-NLS-1$
+            );
+        }
+        return new LanguageRegistry(oLANGUAGES);
+    }
+
+    /**
+     * Reads the attributes of a <tt>language</tt> element.
+     *
+     * @param parser the parser, positioned at the element.
+     * @param index  the index of the language.
+     *
+     * @return the descriptor, or <tt>null</tt> if the element is malformed.
+     */
+    private static LanguageDescriptor _readLanguage(
+        final XmlResourceParser parser, final int index
+    ) {
+        final String sID = parser.getAttributeValue(
+            null, "id" //$NON-NLS-1$
+        );
+        final int iLC = parser.getAttributeResourceValue(
+            null, "lowercase", 0 //$NON-NLS-1$
+        );
+        final int iLC_ALT_GR = parser.getAttributeResourceValue(
+            null, "lowercaseAltGr", 0 //$NON-NLS-1$
+        );
+        final int iUC = parser.getAttributeResourceValue(
+            null, "uppercase", 0 //$NON-NLS-1$
+        );
+        final int iUC_ALT_GR = parser.getAttributeResourceValue(
+            null, "uppercaseAltGr", 0 //$NON-NLS-1$
+        );
+        if (null == sID || 0 == iLC || 0 == iLC_ALT_GR || 0 == iUC
+                || 0 == iUC_ALT_GR) {
+            Log.w(_TAG, "Skipping malformed language " + sID); //$NON-NLS-1$
+            return null;
+        }
+        return new LanguageDescriptor(
+            sID, index, iLC, iLC_ALT_GR, iUC, iUC_ALT_GR,
+            parser.getAttributeBooleanValue(
+                null, "deadKeys", false //$NON-NLS-1$
+            )
+        );
+    }
+
+    /**
+     * Returns the number of registered languages.
+     *
+     * @return the number of languages.
+     */
+    public int size() {
+        return this._oLanguages.size();
+    }
+
+    /**
+     * Returns the language at the specified position.
+     *
+     * @param index the index of the language.
+     *
+     * @return the language.
+     */
+    public LanguageDescriptor get(final int index) {
+        return this._oLanguages.get(index);
+    }
+
+    /**
+     * Returns the language with the specified identifier.
+     *
+     * @param id the identifier of the language.
+     *
+     * @return the language, or <tt>null</tt> if it is not registered.
+     */
+    public LanguageDescriptor get(final String id) {
+        for (LanguageDescriptor oLanguage : this._oLanguages) {
+            if (oLanguage.getId().equals(id)) {
+                return oLanguage;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the default language, i.e. the first language of the manifest.
+     *
+     * @return the default language.
+     */
+    public LanguageDescriptor getDefault() {
+        return this._oLanguages.get(0);
+    }
+
+    /**
+     * Returns the language that follows the specified language (round-robin).
+     *
+     * @param language the current language.
+     *
+     * @return the next language.
+     */
+    public LanguageDescriptor next(final LanguageDescriptor language) {
+        return this._oLanguages.get(
+            (language.getIndex() + 1) % this._oLanguages.size()
+        );
+    }
+}
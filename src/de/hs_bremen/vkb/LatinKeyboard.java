@@ -21,6 +21,8 @@
  */
 package de.hs_bremen.vkb;
 
+import java.util.List;
+
 import android.content.Context;
 import android.content.res.Resources;
 import android.content.res.XmlResourceParser;
@@ -29,12 +31,17 @@ import android.inputmethodservice.Keyboard;
 /**
  * The keyboard for VKB (Virtual KeyBoard).
  *
+ * The state of the modifier keys is kept in a <tt>{@link ModifierState}</tt>
+ * that can be shared by all keyboards, so that switching between layouts
+ * never has to copy it.
+ *
  * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
  * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
  * @version Release: @package_version@
  * @since   Class available since Release 1.0.0
  */
-public class LatinKeyboard extends Keyboard {
+public class LatinKeyboard extends Keyboard
+    implements ModifierState.OnChangeListener {
 
     /**
      * The <tt>android:codes</tt> value for the <i>Alt</i> key of a PC.
@@ -93,59 +100,137 @@ public class LatinKeyboard extends Keyboard {
     public static final int KEYCODE_LANGUAGE = -164;
 
     /**
-     * <tt>Key</tt> instance for the PC <i>Alt</i> key, if present.
+     * The modifiers of <tt>{@link ModifierState}</tt> whose keys are tracked
+     * by this keyboard.
      */
-    private Key _oPcAltKey = null;
+    private static final int[] _MODIFIERS = {
+        ModifierState.PC_ALT, ModifierState.PC_CTRL, ModifierState.PC_SHIFT,
+        ModifierState.FN, ModifierState.ALT_GR, ModifierState.CAPS_LOCK,
+    };
 
     /**
-     * <tt>Key</tt> instance for the PC <i>Ctrl</i> key, if present.
+     * The number of columns of the proximity grid.
      */
-    private Key _oPcCtrlKey = null;
+    private static final int _GRID_WIDTH = 10;
 
     /**
-     * <tt>Key</tt> instance for the PC <i>shift</i> key, if present.
+     * The number of rows of the proximity grid.
      */
-    private Key _oPcShiftKey = null;
+    private static final int _GRID_HEIGHT = 5;
 
     /**
-     * <tt>Key</tt> instance for the PC <i>Fn</i> key, if present.
+     * The maximum distance of a nearby key from a touch point, in multiples of
+     * the default key width.
      */
-    private Key _oPcFnKey = null;
+    private static final float _SEARCH_DISTANCE = 1.8f;
 
     /**
-     * <tt>Key</tt> instance for the PC <i>Alt Gr</i> key, if present.
+     * The estimated footprint, in bytes, of a keyboard without its keys: the
+     * rows, the key lists and the proximity grid of the super class.
      */
-    private Key _oPcAltGrKey = null;
+    private static final int _KEYBOARD_BYTES = 2048;
 
     /**
-     * Signals whether the PC <i>Alt</i> key of this keyboard is active (
-     * <tt>true</tt>) or not (<tt>false</tt>).
+     * The estimated footprint, in bytes, of a key: the <tt>Key</tt> instance,
+     * its codes and its label.
      */
-    private boolean _bIsPcAltKeyOn;
+    private static final int _KEY_BYTES = 160;
 
     /**
-     * Signals whether the PC <i>Ctrl</i> key of this keyboard is active (
-     * <tt>true</tt>) or not (<tt>false</tt>).
+     * The estimated overhead, in bytes, of an array.
      */
-    private boolean _bIsPcCtrlKeyOn;
+    private static final int _ARRAY_BYTES = 16;
 
     /**
-     * Signals whether the PC <i>Shift</i> key of this keyboard is active (
-     * <tt>true</tt>) or not (<tt>false</tt>).
+     * The number of values stored per key in <tt>_aBaseGeometry</tt>.
      */
-    private boolean _bIsPcShiftKeyOn;
+    private static final int _GEOMETRY_VALUES = 5;
 
     /**
-     * Signals whether the PC <i>Fn</i> key of this keyboard is active (
-     * <tt>true</tt>) or not (<tt>false</tt>).
+     * The result of <tt>{@link #getNearestKeys(int, int)}</tt> for a point
+     * outside of the keyboard.
      */
-    private boolean _bIsPcFnKeyOn;
+    private static final int[] _NO_KEYS = new int[0];
 
     /**
-     * Signals whether the PC <i>Alt Gr</i> key of this keyboard is active (
-     * <tt>true</tt>) or not (<tt>false</tt>).
+     * <tt>Key</tt> instances for the modifier keys, if present, in the order
+     * of <tt>_MODIFIERS</tt>.
+     *
+     * Not initialized by a field initializer, since the keys are created by
+     * the constructor of the super class.
      */
-    private boolean _bIsPcAltGrKeyOn;
+    private Key[] _aModifierKeys;
+
+    /**
+     * The indices of the modifier keys in <tt>getKeys()</tt>, in the order of
+     * <tt>_MODIFIERS</tt>.
+     */
+    private int[] _aModifierKeyIndices;
+
+    /**
+     * The state of the modifier keys, which may be shared with other
+     * keyboards.
+     */
+    private ModifierState _oModifierState;
+
+    /**
+     * The width, in pixels, the layout has been parsed for.
+     */
+    private int _iBaseWidth;
+
+    /**
+     * The height, in pixels, of the parsed layout.
+     */
+    private int _iBaseHeight;
+
+    /**
+     * The minimum width, in pixels, of the parsed layout.
+     */
+    private int _iBaseMinWidth;
+
+    /**
+     * The geometry of the parsed keys (x, y, width, height and gap of each
+     * key), or <tt>null</tt> if the keyboard has never been rescaled.
+     */
+    private int[] _aBaseGeometry = null;
+
+    /**
+     * The width, in pixels, the keyboard is currently laid out for.
+     */
+    private int _iWidth;
+
+    /**
+     * The current height, in pixels, of the keyboard.
+     */
+    private int _iHeight;
+
+    /**
+     * The current minimum width, in pixels, of the keyboard.
+     */
+    private int _iMinWidth;
+
+    /**
+     * The indices of the keys near each cell of the proximity grid of the
+     * rescaled keyboard.
+     */
+    private int[][] _aGridNeighbors = null;
+
+    /**
+     * The number of times the keys have been rescaled.
+     */
+    private int _iGeometryGeneration = 0;
+
+    /**
+     * The pre-rendered faces of the keys, or <tt>null</tt> if they have not
+     * been rendered for the current geometry.
+     */
+    private KeyFaceAtlas _oFaceAtlas = null;
+
+    /**
+     * The ID of the layout, which stays the same across releases of VKB
+     * (Virtual KeyBoard).
+     */
+    private int _iLayoutId;
 
     /**
      * Creates a keyboard from the given xml key layout file.
@@ -156,6 +241,10 @@ public class LatinKeyboard extends Keyboard {
      */
     public LatinKeyboard(final Context context, final int xmlLayoutResId) {
         super(context, xmlLayoutResId);
+        this.setModifierState(null);
+        this._initGeometry(context);
+        this._iLayoutId = context.getResources()
+            .getResourceEntryName(xmlLayoutResId).hashCode();
     }
 
     /**
@@ -184,6 +273,26 @@ public class LatinKeyboard extends Keyboard {
             context, layoutTemplateResId, characters, columns,
             horizontalPadding
         );
+        this.setModifierState(null);
+        this._initGeometry(context);
+        this._iLayoutId = 31 * context.getResources()
+            .getResourceEntryName(layoutTemplateResId).hashCode()
+            + characters.toString().hashCode();
+    }
+
+    /**
+     * Remembers the size the layout has been parsed for.
+     *
+     * @param context the application or service context.
+     */
+    private void _initGeometry(final Context context) {
+        this._iBaseWidth = context.getResources().getDisplayMetrics()
+            .widthPixels;
+        this._iBaseHeight = super.getHeight();
+        this._iBaseMinWidth = super.getMinWidth();
+        this._iWidth = this._iBaseWidth;
+        this._iHeight = this._iBaseHeight;
+        this._iMinWidth = this._iBaseMinWidth;
     }
 
     @Override
@@ -193,39 +302,356 @@ public class LatinKeyboard extends Keyboard {
     ) {
         final Key oKey = new Key(res, parent, x, y, parser);
 
+        final int iMODIFIER;
         switch (oKey.codes[0]) {
         case KEYCODE_PC_ALT:
-            this._oPcAltKey = oKey;
-            this.getModifierKeys().add(oKey);
+            iMODIFIER = ModifierState.PC_ALT;
             break;
         case KEYCODE_PC_CTRL:
-            this._oPcCtrlKey = oKey;
-            this.getModifierKeys().add(oKey);
+            iMODIFIER = ModifierState.PC_CTRL;
             break;
         case KEYCODE_PC_SHIFT:
-            this._oPcShiftKey = oKey;
-            this.getModifierKeys().add(oKey);
+            iMODIFIER = ModifierState.PC_SHIFT;
             break;
         case KEYCODE_ALT:
-            this._oPcAltGrKey = oKey;
-            this.getModifierKeys().add(oKey);
+            iMODIFIER = ModifierState.ALT_GR;
             break;
         case KEYCODE_MODE_CHANGE:
-            this._oPcFnKey = oKey;
-            this.getModifierKeys().add(oKey);
+            iMODIFIER = ModifierState.FN;
+            break;
+        case KEYCODE_SHIFT:
+            // The super class registers the key as its shift key.
+            iMODIFIER = ModifierState.CAPS_LOCK;
             break;
         default:
+            return oKey;
+        }
+
+        if (null == this._aModifierKeys) {
+            this._aModifierKeys = new Key[_MODIFIERS.length];
+            this._aModifierKeyIndices = new int[_MODIFIERS.length];
+        }
+        final int iSLOT = LatinKeyboard._getSlot(iMODIFIER);
+        this._aModifierKeys[iSLOT] = oKey;
+        // The key is appended to the keys after it has been created.
+        this._aModifierKeyIndices[iSLOT] = this.getKeys().size();
+        if (ModifierState.CAPS_LOCK != iMODIFIER) {
+            this.getModifierKeys().add(oKey);
         }
         return oKey;
     }
 
+    /**
+     * Shares the state of the modifier keys with other keyboards.
+     *
+     * The modifier keys of this keyboard reflect the shared state from now on.
+     *
+     * @param state the shared state, or <tt>null</tt> to detach this keyboard
+     *              from the state it currently shares.
+     */
+    public final void setModifierState(final ModifierState state) {
+        if (null != state && state == this._oModifierState) {
+            return;
+        }
+        if (null != this._oModifierState) {
+            this._oModifierState.removeListener(this);
+        }
+        this._oModifierState = (null == state) ? new ModifierState() : state;
+        this._oModifierState.addListener(this);
+        this.onModifierStateChanged(~0, this._oModifierState.get());
+    }
+
+    /**
+     * Returns the state of the modifier keys of this keyboard.
+     *
+     * @return the (possibly shared) state.
+     */
+    public final ModifierState getModifierState() {
+        return this._oModifierState;
+    }
+
+    /**
+     * Updates the modifier keys of this keyboard.
+     *
+     * @param changed the modifiers that have changed.
+     * @param state   the new state.
+     */
+    @Override
+    public final void onModifierStateChanged(
+        final int changed, final int state
+    ) {
+        for (int i = 0; null != this._aModifierKeys
+                && i < _MODIFIERS.length; ++i) {
+            if (0 != (changed & _MODIFIERS[i])
+                    && null != this._aModifierKeys[i]) {
+                this._aModifierKeys[i].on = 0 != (state & _MODIFIERS[i]);
+            }
+        }
+        if (0 != (changed & ModifierState.CAPS_LOCK)) {
+            this.setShifted(0 != (state & ModifierState.CAPS_LOCK));
+        }
+    }
+
+    /**
+     * Returns the index of the key of the specified modifier.
+     *
+     * @param modifier the modifier, one of the constants of <tt>{@link
+     *                 ModifierState}</tt>.
+     *
+     * @return the index of the key in <tt>getKeys()</tt>, or <tt>-1</tt> if
+     *         this keyboard has no key for the modifier.
+     */
+    public final int getModifierKeyIndex(final int modifier) {
+        final int iSLOT = LatinKeyboard._getSlot(modifier);
+        if (-1 == iSLOT || null == this._aModifierKeys
+                || null == this._aModifierKeys[iSLOT]) {
+            return -1;
+        }
+        return this._aModifierKeyIndices[iSLOT];
+    }
+
+    /**
+     * Lays the keys of this keyboard out for the specified size, without
+     * parsing the layout again.
+     *
+     * All layouts use widths relative to the width of the keyboard, so the
+     * keys are scaled from the geometry of the parsed layout. The edges of the
+     * keys are rounded, so that adjacent keys stay adjacent.
+     *
+     * @param width  the width, in pixels, available for the keyboard.
+     * @param height the height, in pixels, of the keyboard.
+     */
+    public final void rescale(final int width, final int height) {
+        if (width == this._iWidth && height == this._iHeight) {
+            return;
+        }
+
+        final List<Key> oKEYS = this.getKeys();
+        final int iKEYS = oKEYS.size();
+        if (null == this._aBaseGeometry) {
+            this._aBaseGeometry = new int[iKEYS * _GEOMETRY_VALUES];
+            for (int i = 0, j = 0; i < iKEYS; ++i) {
+                final Key oKEY = oKEYS.get(i);
+                this._aBaseGeometry[j++] = oKEY.x;
+                this._aBaseGeometry[j++] = oKEY.y;
+                this._aBaseGeometry[j++] = oKEY.width;
+                this._aBaseGeometry[j++] = oKEY.height;
+                this._aBaseGeometry[j++] = oKEY.gap;
+            }
+        }
+
+        final float fSCALE_X = (float) width / this._iBaseWidth;
+        final float fSCALE_Y = (float) height / this._iBaseHeight;
+        for (int i = 0, j = 0; i < iKEYS; ++i, j += _GEOMETRY_VALUES) {
+            final Key oKEY = oKEYS.get(i);
+            final int iX = this._aBaseGeometry[j];
+            final int iY = this._aBaseGeometry[j + 1];
+            oKEY.x = Math.round(iX * fSCALE_X);
+            oKEY.y = Math.round(iY * fSCALE_Y);
+            oKEY.width = Math.round(
+                (iX + this._aBaseGeometry[j + 2]) * fSCALE_X
+            ) - oKEY.x;
+            oKEY.height = Math.round(
+                (iY + this._aBaseGeometry[j + 3]) * fSCALE_Y
+            ) - oKEY.y;
+            oKEY.gap = oKEY.x - Math.round(
+                (iX - this._aBaseGeometry[j + 4]) * fSCALE_X
+            );
+        }
+
+        this._iWidth = width;
+        this._iHeight = height;
+        this._iMinWidth = Math.round(this._iBaseMinWidth * fSCALE_X);
+        ++this._iGeometryGeneration;
+        this.setFaceAtlas(null);
+        this._computeNearestNeighbors(
+            Math.round(this.getKeyWidth() * fSCALE_X * _SEARCH_DISTANCE)
+        );
+    }
+
+    /**
+     * Returns the number of times the keys have been rescaled.
+     *
+     * @return the geometry generation.
+     */
+    public final int getGeometryGeneration() {
+        return this._iGeometryGeneration;
+    }
+
+    /**
+     * Returns the ID of the layout.
+     *
+     * Unlike the resource ID of the layout, it does not change when the
+     * resources are rebuilt, so that it can be stored.
+     *
+     * @return the ID of the layout.
+     */
+    public final int getLayoutId() {
+        return this._iLayoutId;
+    }
+
+    /**
+     * Returns the pre-rendered faces of the keys.
+     *
+     * @return the atlas, or <tt>null</tt> if the faces have not been rendered
+     *         for the current geometry.
+     */
+    public final KeyFaceAtlas getFaceAtlas() {
+        return this._oFaceAtlas;
+    }
+
+    /**
+     * Sets the pre-rendered faces of the keys and releases the previous ones.
+     *
+     * @param atlas the atlas, or <tt>null</tt> to release the faces.
+     */
+    public final void setFaceAtlas(final KeyFaceAtlas atlas) {
+        if (null != this._oFaceAtlas && atlas != this._oFaceAtlas) {
+            this._oFaceAtlas.recycle();
+        }
+        this._oFaceAtlas = atlas;
+    }
+
+    /**
+     * Estimates the memory held by this keyboard.
+     *
+     * @return the estimated footprint, in bytes.
+     */
+    public final int estimateFootprint() {
+        int iBytes = _KEYBOARD_BYTES + this.getKeys().size() * _KEY_BYTES;
+        if (null != this._aBaseGeometry) {
+            iBytes += _ARRAY_BYTES + 4 * this._aBaseGeometry.length;
+        }
+        if (null != this._aGridNeighbors) {
+            for (int[] aCell : this._aGridNeighbors) {
+                iBytes += _ARRAY_BYTES + 4 * aCell.length;
+            }
+        }
+        return iBytes;
+    }
+
+    /**
+     * Returns the width the keys of this keyboard are laid out for.
+     *
+     * @return the width, in pixels.
+     */
+    public final int getLayoutWidth() {
+        return this._iWidth;
+    }
+
+    /**
+     * Returns the total width of this keyboard.
+     *
+     * @return the width, in pixels.
+     */
+    @Override
+    public int getMinWidth() {
+        return this._iMinWidth;
+    }
+
+    /**
+     * Returns the total height of this keyboard.
+     *
+     * @return the height, in pixels.
+     */
+    @Override
+    public int getHeight() {
+        return this._iHeight;
+    }
+
+    /**
+     * Returns the indices of the keys that are near the specified point.
+     *
+     * @param x the x-coordinate of the point.
+     * @param y the y-coordinate of the point.
+     *
+     * @return the indices of the nearby keys, or an empty array if the point is
+     *         outside of this keyboard.
+     */
+    @Override
+    public int[] getNearestKeys(final int x, final int y) {
+        if (null == this._aGridNeighbors) {
+            // The keyboard has never been rescaled.
+            return super.getNearestKeys(x, y);
+        }
+        if (x < 0 || x >= this._iMinWidth || y < 0 || y >= this._iHeight) {
+            return _NO_KEYS;
+        }
+        final int iCELL_WIDTH = this._getCellWidth();
+        final int iCELL_HEIGHT = this._getCellHeight();
+        final int iINDEX = (y / iCELL_HEIGHT) * _GRID_WIDTH + x / iCELL_WIDTH;
+        return (iINDEX < this._aGridNeighbors.length)
+            ? this._aGridNeighbors[iINDEX] : _NO_KEYS;
+    }
+
+    /**
+     * Computes the keys near each cell of the proximity grid.
+     *
+     * @param threshold the maximum distance, in pixels, of a nearby key from
+     *                  a corner of the cell.
+     */
+    private void _computeNearestNeighbors(final int threshold) {
+        final List<Key> oKEYS = this.getKeys();
+        final int iKEYS = oKEYS.size();
+        final int iTHRESHOLD = threshold * threshold;
+        final int iCELL_WIDTH = this._getCellWidth();
+        final int iCELL_HEIGHT = this._getCellHeight();
+        final int[][] aNEIGHBORS = new int[_GRID_WIDTH * _GRID_HEIGHT][];
+        final int[] aINDICES = new int[iKEYS];
+
+        for (int iRow = 0; iRow < _GRID_HEIGHT; ++iRow) {
+            final int iY = iRow * iCELL_HEIGHT;
+            for (int iColumn = 0; iColumn < _GRID_WIDTH; ++iColumn) {
+                final int iX = iColumn * iCELL_WIDTH;
+                int iCount = 0;
+                for (int i = 0; i < iKEYS; ++i) {
+                    final Key oKEY = oKEYS.get(i);
+                    if (oKEY.squaredDistanceFrom(iX, iY) < iTHRESHOLD
+                            || oKEY.squaredDistanceFrom(
+                                iX + iCELL_WIDTH - 1, iY
+                            ) < iTHRESHOLD
+                            || oKEY.squaredDistanceFrom(
+                                iX, iY + iCELL_HEIGHT - 1
+                            ) < iTHRESHOLD
+                            || oKEY.squaredDistanceFrom(
+                                iX + iCELL_WIDTH - 1, iY + iCELL_HEIGHT - 1
+                            ) < iTHRESHOLD) {
+                        aINDICES[iCount++] = i;
+                    }
+                }
+                final int[] aCELL = new int[iCount];
+                System.arraycopy(aINDICES, 0, aCELL, 0, iCount);
+                aNEIGHBORS[iRow * _GRID_WIDTH + iColumn] = aCELL;
+            }
+        }
+        this._aGridNeighbors = aNEIGHBORS;
+    }
+
+    /**
+     * Returns the width of a cell of the proximity grid.
+     *
+     * @return the width, in pixels.
+     */
+    private int _getCellWidth() {
+        return (this._iMinWidth + _GRID_WIDTH - 1) / _GRID_WIDTH;
+    }
+
+    /**
+     * Returns the height of a cell of the proximity grid.
+     *
+     * @return the height, in pixels.
+     */
+    private int _getCellHeight() {
+        return (this._iHeight + _GRID_HEIGHT - 1) / _GRID_HEIGHT;
+    }
+
     /**
      * Returns whether the PC <i>shift</i> key of this keyboard is pressed.
      *
      * @return <tt>true</tt> if the key is pressed, <tt>false</tt> otherwise.
      */
     public final boolean isPcShiftActive() {
-        return this._bIsPcShiftKeyOn;
+        return this._oModifierState.isOn(ModifierState.PC_SHIFT);
     }
 
     /**
@@ -238,16 +664,7 @@ public class LatinKeyboard extends Keyboard {
      *         otherwise.
      */
     public final boolean setPcShiftState(final boolean bSTATE) {
-        if (this._oPcShiftKey != null) {
-            this._oPcShiftKey.on = bSTATE;
-        }
-
-        if (this._bIsPcShiftKeyOn != bSTATE) {
-            this._bIsPcShiftKeyOn = bSTATE;
-            return true;
-        }
-
-        return false;
+        return this._oModifierState.set(ModifierState.PC_SHIFT, bSTATE);
     }
 
     /**
@@ -257,7 +674,7 @@ public class LatinKeyboard extends Keyboard {
      *         otherwise.
      */
     public final boolean isPcCtrlActive() {
-        return this._bIsPcCtrlKeyOn;
+        return this._oModifierState.isOn(ModifierState.PC_CTRL);
     }
 
     /**
@@ -270,16 +687,7 @@ public class LatinKeyboard extends Keyboard {
      *         otherwise.
      */
     public final boolean setPcCtrlState(final boolean bSTATE) {
-        if (this._oPcCtrlKey != null) {
-            this._oPcCtrlKey.on = bSTATE;
-        }
-
-        if (this._bIsPcCtrlKeyOn != bSTATE) {
-            this._bIsPcCtrlKeyOn = bSTATE;
-            return true;
-        }
-
-        return false;
+        return this._oModifierState.set(ModifierState.PC_CTRL, bSTATE);
     }
 
     /**
@@ -288,7 +696,7 @@ public class LatinKeyboard extends Keyboard {
      * @return <tt>true</tt> if the key is pressed, <tt>false</tt> otherwise.
      */
     public final boolean isPcFnActive() {
-        return this._bIsPcFnKeyOn;
+        return this._oModifierState.isOn(ModifierState.FN);
     }
 
     /**
@@ -301,16 +709,7 @@ public class LatinKeyboard extends Keyboard {
      *         otherwise.
      */
     public final boolean setPcFnState(final boolean bSTATE) {
-        if (this._oPcFnKey != null) {
-            this._oPcFnKey.on = bSTATE;
-        }
-
-        if (this._bIsPcFnKeyOn != bSTATE) {
-            this._bIsPcFnKeyOn = bSTATE;
-            return true;
-        }
-
-        return false;
+        return this._oModifierState.set(ModifierState.FN, bSTATE);
     }
 
     /**
@@ -319,7 +718,7 @@ public class LatinKeyboard extends Keyboard {
      * @return <tt>true</tt> if the key is pressed, <tt>false</tt> otherwise.
      */
     public final boolean isPcAltActive() {
-        return this._bIsPcAltKeyOn;
+        return this._oModifierState.isOn(ModifierState.PC_ALT);
     }
 
     /**
@@ -332,16 +731,7 @@ public class LatinKeyboard extends Keyboard {
      *         otherwise.
      */
     public final boolean setPcAltState(final boolean bSTATE) {
-        if (this._oPcAltKey != null) {
-            this._oPcAltKey.on = bSTATE;
-        }
-
-        if (this._bIsPcAltKeyOn != bSTATE) {
-            this._bIsPcAltKeyOn = bSTATE;
-            return true;
-        }
-
-        return false;
+        return this._oModifierState.set(ModifierState.PC_ALT, bSTATE);
     }
 
     /**
@@ -350,7 +740,7 @@ public class LatinKeyboard extends Keyboard {
      * @return <tt>true</tt> if the key is pressed, <tt>false</tt> otherwise.
      */
     public final boolean isPcAltGrActive() {
-        return this._bIsPcAltGrKeyOn;
+        return this._oModifierState.isOn(ModifierState.ALT_GR);
     }
 
     /**
@@ -363,15 +753,22 @@ public class LatinKeyboard extends Keyboard {
      *         otherwise.
      */
     public final boolean setPcAltGrState(final boolean bSTATE) {
-        if (this._oPcAltGrKey != null) {
-            this._oPcAltGrKey.on = bSTATE;
-        }
+        return this._oModifierState.set(ModifierState.ALT_GR, bSTATE);
+    }
 
-        if (this._bIsPcAltGrKeyOn != bSTATE) {
-            this._bIsPcAltGrKeyOn = bSTATE;
-            return true;
+    /**
+     * Returns the slot of a modifier in <tt>_MODIFIERS</tt>.
+     *
+     * @param modifier the modifier.
+     *
+     * @return the slot, or <tt>-1</tt> if the modifier has no key.
+     */
+    private static int _getSlot(final int modifier) {
+        for (int i = 0; i < _MODIFIERS.length; ++i) {
+            if (_MODIFIERS[i] == modifier) {
+                return i;
+            }
         }
-
-        return false;
+        return -1;
     }
 }
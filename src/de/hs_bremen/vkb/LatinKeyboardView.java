@@ -21,21 +21,141 @@
  */
 package de.hs_bremen.vkb;
 
+import java.io.PrintWriter;
+
 import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.inputmethodservice.Keyboard;
 import android.inputmethodservice.KeyboardView;
+import android.inputmethodservice.Keyboard.Key;
+import android.os.Handler;
+import android.os.SystemClock;
 import android.util.AttributeSet;
+import android.view.MotionEvent;
 
 /**
  * The view that renders the keyboard for VKB (Virtual KeyBoard).
  *
  * It handles rendering of keys and detecting key presses and touch movements.
+ * When the state of a modifier changes, only the keys of the changed modifiers
+ * are redrawn. Attaching the keyboard that is already shown, with unchanged
+ * dimensions, neither lays out nor redraws the view.
+ *
+ * The keys are drawn by a <tt>{@link KeyRenderer}</tt> instead of
+ * <tt>KeyboardView</tt>, which draws all keys into a buffer bitmap on every
+ * change. Once the faces of the keys of a keyboard have been rendered into a
+ * <tt>{@link KeyFaceAtlas}</tt> in the background, keys are drawn by copying
+ * their faces from the atlas.
+ *
+ * The previews of pressed keys are drawn by a <tt>{@link
+ * KeyPreviewOverlay}</tt> on top of the keys, instead of the
+ * <tt>PopupWindow</tt> of <tt>KeyboardView</tt>.
+ *
+ * Touches are tracked by a <tt>{@link PointerTracker}</tt>, which follows
+ * several fingers at once and commits their keys in the order in which they
+ * have been pressed.
  *
  * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
  * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
  * @version Release: @package_version@
  * @since   Class available since Release 1.0.0
  */
-public class LatinKeyboardView extends KeyboardView {
+public class LatinKeyboardView extends KeyboardView
+    implements ModifierState.OnChangeListener {
+
+    /**
+     * The modifiers whose keys are redrawn when their state changes.
+     */
+    private static final int[] _MODIFIERS = {
+        ModifierState.PC_ALT, ModifierState.PC_CTRL, ModifierState.PC_SHIFT,
+        ModifierState.FN, ModifierState.ALT_GR, ModifierState.CAPS_LOCK,
+    };
+
+    /**
+     * The state of the modifier keys of the attached keyboard, or
+     * <tt>null</tt> if no keyboard is attached.
+     */
+    private ModifierState _oModifierState = null;
+
+    /**
+     * The width, in pixels, of the attached keyboard when it was attached.
+     */
+    private int _iAppliedWidth = 0;
+
+    /**
+     * The height, in pixels, of the attached keyboard when it was attached.
+     */
+    private int _iAppliedHeight = 0;
+
+    /**
+     * The number of keyboards that have been attached to this view.
+     */
+    private int _iAppliedCount = 0;
+
+    /**
+     * The number of keyboards that have not been attached because they were
+     * already shown.
+     */
+    private int _iSkippedCount = 0;
+
+    /**
+     * The style of the faces of the keys.
+     */
+    private final KeyFaceAtlas.Style _oFaceStyle;
+
+    /**
+     * The <tt>Handler</tt> of the thread that renders the faces of the keys,
+     * or <tt>null</tt> if the faces are not rendered.
+     */
+    private Handler _oRenderHandler = null;
+
+    /**
+     * The keyboard whose faces are being rendered, or <tt>null</tt>.
+     */
+    private LatinKeyboard _oPendingFaces = null;
+
+    /**
+     * The <tt>KeyRenderer</tt> that draws the keys.
+     */
+    private final KeyRenderer _oRenderer;
+
+    /**
+     * The area of a damaged key. Reused, so that a key press never
+     * allocates.
+     */
+    private final Rect _oDirtyRect = new Rect();
+
+    /**
+     * The <tt>KeyPreviewOverlay</tt> that draws the previews of pressed keys.
+     */
+    private final KeyPreviewOverlay _oPreview;
+
+    /**
+     * The <tt>PointerTracker</tt> that tracks the fingers on the keyboard.
+     */
+    private final PointerTracker _oTracker = new PointerTracker(this);
+
+    /**
+     * The <tt>FrameMonitor</tt> that is told about drawn frames, or
+     * <tt>null</tt>.
+     */
+    private FrameMonitor _oFrameMonitor = null;
+
+    /**
+     * The number of historical samples that have been tracked.
+     */
+    private long _lHistoricalSamples = 0L;
+
+    /**
+     * Hides the previews of released keys after their delay.
+     */
+    private final Runnable _oPreviewDismisser = new Runnable() {
+        @Override
+        public void run() {
+            LatinKeyboardView.this._dismissPreviews();
+        }
+    };
 
     /**
      * Constructs a newly allocated <tt>LatinKeyboardView</tt>.
@@ -46,6 +166,10 @@ public class LatinKeyboardView extends KeyboardView {
      */
     public LatinKeyboardView(final Context context, final AttributeSet attrs) {
         super(context, attrs);
+        this._oFaceStyle = new KeyFaceAtlas.Style(context, attrs, 0);
+        this._oRenderer = new KeyRenderer(this._oFaceStyle);
+        this._oPreview = new KeyPreviewOverlay(this._oFaceStyle);
+        super.setPreviewEnabled(false);
     }
 
     /**
@@ -60,6 +184,487 @@ public class LatinKeyboardView extends KeyboardView {
         final Context context, final AttributeSet attrs, final int defStyle
     ) {
         super(context, attrs, defStyle);
+        this._oFaceStyle = new KeyFaceAtlas.Style(context, attrs, defStyle);
+        this._oRenderer = new KeyRenderer(this._oFaceStyle);
+        this._oPreview = new KeyPreviewOverlay(this._oFaceStyle);
+        super.setPreviewEnabled(false);
+    }
+
+    /**
+     * Attaches a keyboard to this view and follows the state of its modifier
+     * keys.
+     *
+     * Does nothing if the keyboard is already attached and has not been
+     * rescaled since, e.g. when the focus moves to another editor.
+     *
+     * @param keyboard the keyboard to attach.
+     */
+    @Override
+    public void setKeyboard(final Keyboard keyboard) {
+        if (null != keyboard && this.getKeyboard() == keyboard
+                && this._iAppliedWidth == keyboard.getMinWidth()
+                && this._iAppliedHeight == keyboard.getHeight()) {
+            ++this._iSkippedCount;
+            return;
+        }
+        final ModifierState oSTATE = (keyboard instanceof LatinKeyboard)
+            ? ((LatinKeyboard) keyboard).getModifierState() : null;
+        if (oSTATE != this._oModifierState) {
+            if (null != this._oModifierState) {
+                this._oModifierState.removeListener(this);
+            }
+            this._oModifierState = oSTATE;
+            if (null != oSTATE) {
+                oSTATE.addListener(this);
+            }
+        }
+        this._oPreview.hideAll();
+        super.setKeyboard(keyboard);
+        this._oTracker.onKeyboardChanged(keyboard);
+        ++this._iAppliedCount;
+        if (null != keyboard) {
+            this._iAppliedWidth = keyboard.getMinWidth();
+            this._iAppliedHeight = keyboard.getHeight();
+        }
+    }
+
+    /**
+     * Sets the listener to notify of key events.
+     *
+     * @param listener the listener.
+     */
+    @Override
+    public void setOnKeyboardActionListener(
+        final OnKeyboardActionListener listener
+    ) {
+        super.setOnKeyboardActionListener(listener);
+        this._oTracker.setOnKeyboardActionListener(listener);
+    }
+
+    /**
+     * Tracks the fingers on a <tt>{@link LatinKeyboard}</tt> with the
+     * <tt>{@link PointerTracker}</tt> of this view. Touches on other
+     * keyboards are handled by <tt>KeyboardView</tt>.
+     *
+     * @param me the motion event.
+     *
+     * @return <tt>true</tt> if the event has been handled, <tt>false</tt>
+     *         otherwise.
+     */
+    @Override
+    public boolean onTouchEvent(final MotionEvent me) {
+        if (!(this.getKeyboard() instanceof LatinKeyboard)) {
+            return super.onTouchEvent(me);
+        }
+        final int iLEFT = this.getPaddingLeft();
+        final int iTOP = this.getPaddingTop();
+        final int iINDEX = me.getActionIndex();
+        final long lTIME = me.getEventTime();
+        switch (me.getActionMasked()) {
+        case MotionEvent.ACTION_DOWN:
+            // Fingers of a previous gesture whose end has been lost.
+            this._oTracker.cancelAll(lTIME);
+            //$FALL-THROUGH$
+        case MotionEvent.ACTION_POINTER_DOWN:
+            this._oTracker.onDown(
+                me.getPointerId(iINDEX), (int) me.getX(iINDEX) - iLEFT,
+                (int) me.getY(iINDEX) - iTOP, lTIME
+            );
+            break;
+        case MotionEvent.ACTION_MOVE:
+            this._trackMove(me, iLEFT, iTOP);
+            break;
+        case MotionEvent.ACTION_UP:
+        case MotionEvent.ACTION_POINTER_UP:
+            this._trackMove(me, iLEFT, iTOP);
+            this._oTracker.onUp(
+                me.getPointerId(iINDEX), (int) me.getX(iINDEX) - iLEFT,
+                (int) me.getY(iINDEX) - iTOP, lTIME
+            );
+            break;
+        case MotionEvent.ACTION_CANCEL:
+            this._oTracker.cancelAll(lTIME);
+            break;
+        default:
+            break;
+        }
+        return true;
+    }
+
+    /**
+     * Tracks the historical samples of all fingers of a motion event, oldest
+     * first, and then the current samples of a move.
+     *
+     * The samples are read from the event directly, so that tracking never
+     * allocates.
+     *
+     * @param me   the motion event.
+     * @param left the left padding of this view.
+     * @param top  the top padding of this view.
+     */
+    private void _trackMove(
+        final MotionEvent me, final int left, final int top
+    ) {
+        final int iPOINTERS = me.getPointerCount();
+        final int iHISTORY = me.getHistorySize();
+        for (int h = 0; h < iHISTORY; ++h) {
+            final long lTIME = me.getHistoricalEventTime(h);
+            for (int i = 0; i < iPOINTERS; ++i) {
+                this._oTracker.onMove(
+                    me.getPointerId(i),
+                    (int) me.getHistoricalX(i, h) - left,
+                    (int) me.getHistoricalY(i, h) - top, lTIME
+                );
+            }
+        }
+        this._lHistoricalSamples += iHISTORY * iPOINTERS;
+        if (MotionEvent.ACTION_MOVE != me.getActionMasked()) {
+            return;
+        }
+        final long lTIME = me.getEventTime();
+        for (int i = 0; i < iPOINTERS; ++i) {
+            this._oTracker.onMove(
+                me.getPointerId(i), (int) me.getX(i) - left,
+                (int) me.getY(i) - top, lTIME
+            );
+        }
+    }
+
+    /**
+     * Sets the calibration that biases the resolution of touches.
+     *
+     * @param calibration the calibration, or <tt>null</tt> to resolve touches
+     *                    to the keys under them.
+     */
+    public final void setTouchCalibration(
+        final TouchCalibration calibration
+    ) {
+        this._oTracker.setTouchCalibration(calibration);
+    }
+
+    /**
+     * Registers a listener for every sample of the fingers on the keyboard.
+     *
+     * @param listener the listener to add.
+     */
+    public final void addSampleListener(
+        final PointerTracker.OnSampleListener listener
+    ) {
+        this._oTracker.addSampleListener(listener);
+    }
+
+    /**
+     * Unregisters a sample listener.
+     *
+     * @param listener the listener to remove.
+     */
+    public final void removeSampleListener(
+        final PointerTracker.OnSampleListener listener
+    ) {
+        this._oTracker.removeSampleListener(listener);
+    }
+
+    /**
+     * Releases all keys without committing them and closes this view.
+     */
+    @Override
+    public void closing() {
+        this._oTracker.cancelAll(SystemClock.uptimeMillis());
+        super.closing();
+    }
+
+    /**
+     * Sets the thread that renders the faces of the keys.
+     *
+     * @param handler the <tt>Handler</tt> of the thread, or <tt>null</tt> to
+     *                draw the keys with <tt>KeyboardView</tt> only.
+     */
+    public final void setRenderHandler(final Handler handler) {
+        this._oRenderHandler = handler;
+    }
+
+    /**
+     * Draws the damaged keys of a <tt>{@link LatinKeyboard}</tt> with the
+     * renderer of this view, from the atlas of the keyboard if it has been
+     * rendered. Other keyboards are drawn by <tt>KeyboardView</tt>.
+     *
+     * @param canvas the canvas to draw on.
+     */
+    @Override
+    public void onDraw(final Canvas canvas) {
+        final Keyboard oKEYBOARD = this.getKeyboard();
+        if (!(oKEYBOARD instanceof LatinKeyboard)) {
+            super.onDraw(canvas);
+        } else {
+            final KeyFaceAtlas oATLAS = this._getFaceAtlas();
+            this._oRenderer.draw(
+                canvas, (LatinKeyboard) oKEYBOARD, oATLAS,
+                this.getPaddingLeft(), this.getPaddingTop()
+            );
+            this._oPreview.draw(canvas, SystemClock.uptimeMillis());
+            if (null == oATLAS) {
+                this._requestFaceAtlas((LatinKeyboard) oKEYBOARD);
+            }
+        }
+        if (null != this._oFrameMonitor) {
+            this._oFrameMonitor.onFrameDrawn();
+        }
+    }
+
+    /**
+     * Sets the monitor that measures the frames after layout switches.
+     *
+     * @param monitor the monitor, or <tt>null</tt>.
+     */
+    public final void setFrameMonitor(final FrameMonitor monitor) {
+        this._oFrameMonitor = monitor;
+    }
+
+    /**
+     * Redraws a single key and shows or dismisses its preview.
+     *
+     * Only the area of the key and of its preview is invalidated, without
+     * drawing the keyboard into the buffer of <tt>KeyboardView</tt>.
+     *
+     * @param keyIndex the index of the key in the keyboard.
+     */
+    @Override
+    public void invalidateKey(final int keyIndex) {
+        final Keyboard oKEYBOARD = this.getKeyboard();
+        if (!(oKEYBOARD instanceof LatinKeyboard)) {
+            super.invalidateKey(keyIndex);
+            return;
+        }
+        if (this._oRenderer.damageKey(
+            (LatinKeyboard) oKEYBOARD, keyIndex, this.getPaddingLeft(),
+            this.getPaddingTop(), this._oDirtyRect
+        )) {
+            this.invalidate(this._oDirtyRect);
+        }
+
+        if (keyIndex < 0 || keyIndex >= oKEYBOARD.getKeys().size()) {
+            return;
+        }
+        final Key oKEY = oKEYBOARD.getKeys().get(keyIndex);
+        final long lNOW = SystemClock.uptimeMillis();
+        if (oKEY.pressed) {
+            if (this._oPreview.show(
+                keyIndex, oKEY, this.getPaddingLeft(), this.getPaddingTop(),
+                this.getWidth(), lNOW, this._oDirtyRect
+            )) {
+                this.invalidate(this._oDirtyRect);
+            }
+        } else if (this._oPreview.release(keyIndex, lNOW)) {
+            this.removeCallbacks(this._oPreviewDismisser);
+            this.postDelayed(
+                this._oPreviewDismisser, KeyPreviewOverlay.DISMISS_DELAY_MILLIS
+            );
+        }
+    }
+
+    /**
+     * Hides the previews whose delay has elapsed and schedules the dismissal
+     * of the remaining ones.
+     */
+    private void _dismissPreviews() {
+        final long lNEXT = this._oPreview.dismiss(
+            SystemClock.uptimeMillis(), this._oDirtyRect
+        );
+        if (!this._oDirtyRect.isEmpty()) {
+            this.invalidate(this._oDirtyRect);
+        }
+        if (-1L != lNEXT) {
+            this.postDelayed(this._oPreviewDismisser, lNEXT);
+        }
+    }
+
+    /**
+     * Enables or disables the previews of pressed keys.
+     *
+     * The previews are drawn by the overlay of this view, the popup of
+     * <tt>KeyboardView</tt> stays disabled.
+     *
+     * @param previewEnabled <tt>true</tt> to show previews, <tt>false</tt>
+     *                       otherwise.
+     */
+    @Override
+    public void setPreviewEnabled(final boolean previewEnabled) {
+        this._oPreview.setEnabled(previewEnabled);
+        this.invalidate();
+    }
+
+    /**
+     * Returns whether previews of pressed keys are shown.
+     *
+     * @return <tt>true</tt> if previews are shown, <tt>false</tt> otherwise.
+     */
+    @Override
+    public boolean isPreviewEnabled() {
+        return this._oPreview.isEnabled();
+    }
+
+    /**
+     * Records that a key has been committed, to measure the time from showing
+     * its preview to committing it.
+     *
+     * @param primaryCode the code of the key.
+     */
+    public final void onKeyCommitted(final int primaryCode) {
+        this._oPreview.onCommit(primaryCode, SystemClock.uptimeMillis());
+    }
+
+    /**
+     * Redraws all keys.
+     */
+    @Override
+    public void invalidateAllKeys() {
+        if (!(this.getKeyboard() instanceof LatinKeyboard)) {
+            super.invalidateAllKeys();
+            return;
+        }
+        this._oRenderer.damageAllKeys();
+        this.invalidate();
+    }
+
+    /**
+     * Prints the statistics of the rendering of this view.
+     *
+     * @param writer the writer to print to.
+     * @param prefix the prefix of each line.
+     */
+    public final void dump(final PrintWriter writer, final String prefix) {
+        writer.print(prefix);
+        writer.print("Input view: layouts applied="); //$NON-NLS-1$
+        writer.print(this._iAppliedCount);
+        writer.print(", skipped="); //$NON-NLS-1$
+        writer.print(this._iSkippedCount);
+        writer.print(", historical samples="); //$NON-NLS-1$
+        writer.println(this._lHistoricalSamples);
+        this._oRenderer.dump(writer, prefix);
+        this._oPreview.dump(writer, prefix);
+        this._oTracker.dump(writer, prefix);
+    }
+
+    /**
+     * Returns the atlas of the attached keyboard.
+     *
+     * @return the atlas, or <tt>null</tt> if the faces of the keyboard have
+     *         not been rendered for its current geometry.
+     */
+    private KeyFaceAtlas _getFaceAtlas() {
+        final Keyboard oKEYBOARD = this.getKeyboard();
+        if (!(oKEYBOARD instanceof LatinKeyboard)) {
+            return null;
+        }
+        final LatinKeyboard oLATIN_KEYBOARD = (LatinKeyboard) oKEYBOARD;
+        final KeyFaceAtlas oATLAS = oLATIN_KEYBOARD.getFaceAtlas();
+        if (null == oATLAS
+                || !oATLAS.matches(oLATIN_KEYBOARD.getGeometryGeneration())) {
+            return null;
+        }
+        return oATLAS;
+    }
+
+    /**
+     * Renders the faces of the keys of a keyboard on the render thread,
+     * unless they are being rendered already.
+     *
+     * @param keyboard the keyboard.
+     */
+    private void _requestFaceAtlas(final LatinKeyboard keyboard) {
+        if (null == this._oRenderHandler || keyboard == this._oPendingFaces) {
+            return;
+        }
+        this._oPendingFaces = keyboard;
+        final KeyFaceAtlas.Request oREQUEST = new KeyFaceAtlas.Request(
+            this.getResources(), this._oFaceStyle, keyboard
+        );
+        this._oRenderHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                final KeyFaceAtlas oATLAS = oREQUEST.render();
+                LatinKeyboardView.this.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        LatinKeyboardView.this._onFaceAtlasRendered(
+                            oREQUEST, oATLAS
+                        );
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Attaches a rendered atlas to its keyboard, if the keyboard is still
+     * shown with the same geometry.
+     *
+     * @param request the request that rendered the atlas.
+     * @param atlas   the atlas, or <tt>null</tt> if rendering failed.
+     */
+    private void _onFaceAtlasRendered(
+        final KeyFaceAtlas.Request request, final KeyFaceAtlas atlas
+    ) {
+        if (null == atlas) {
+            // Do not retry until another keyboard has been shown.
+            return;
+        }
+        final LatinKeyboard oKEYBOARD = request.getKeyboard();
+        if (oKEYBOARD == this._oPendingFaces) {
+            this._oPendingFaces = null;
+        }
+        if (oKEYBOARD == this.getKeyboard()
+                && oKEYBOARD.getGeometryGeneration()
+                    == request.getGeneration()) {
+            oKEYBOARD.setFaceAtlas(atlas);
+            this.invalidate();
+        } else {
+            atlas.recycle();
+        }
+    }
+
+    /**
+     * Returns the number of keyboards that have been attached to this view.
+     *
+     * @return the number of layouts.
+     */
+    public final int getAppliedCount() {
+        return this._iAppliedCount;
+    }
+
+    /**
+     * Returns the number of keyboards that have not been attached because
+     * they were already shown.
+     *
+     * @return the number of layouts that have been skipped.
+     */
+    public final int getSkippedCount() {
+        return this._iSkippedCount;
+    }
+
+    /**
+     * Redraws the keys of the modifiers that have changed.
+     *
+     * @param changed the modifiers that have changed.
+     * @param state   the new state.
+     */
+    @Override
+    public final void onModifierStateChanged(
+        final int changed, final int state
+    ) {
+        final Keyboard oKEYBOARD = this.getKeyboard();
+        if (!(oKEYBOARD instanceof LatinKeyboard)) {
+            return;
+        }
+        for (int i = 0; i < _MODIFIERS.length; ++i) {
+            if (0 != (changed & _MODIFIERS[i])) {
+                final int iINDEX = ((LatinKeyboard) oKEYBOARD)
+                    .getModifierKeyIndex(_MODIFIERS[i]);
+                if (-1 != iINDEX) {
+                    this.invalidateKey(iINDEX);
+                }
+            }
+        }
     }
 
     /**
@@ -74,17 +679,9 @@ public class LatinKeyboardView extends KeyboardView {
      */
     public final boolean setPcAltState(final boolean bSTATE) {
         final LatinKeyboard oKEYBOARD = (LatinKeyboard) this.getKeyboard();
-        boolean bReturn = false;
 
-        if (null != oKEYBOARD) {
-            if (oKEYBOARD.setPcAltState(bSTATE)) {
-                // The whole keyboard probably needs to be redrawn.
-                this.invalidateAllKeys();
-                bReturn = true;
-            }
-        }
-
-        return bReturn;
+        // The key is redrawn by onModifierStateChanged().
+        return null != oKEYBOARD && oKEYBOARD.setPcAltState(bSTATE);
     }
 
     /**
@@ -116,17 +713,9 @@ public class LatinKeyboardView extends KeyboardView {
      */
     public final boolean setPcCtrlState(final boolean bSTATE) {
         final LatinKeyboard oKEYBOARD = (LatinKeyboard) this.getKeyboard();
-        boolean bReturn = false;
 
-        if (null != oKEYBOARD) {
-            if (oKEYBOARD.setPcCtrlState(bSTATE)) {
-                // The whole keyboard probably needs to be redrawn.
-                this.invalidateAllKeys();
-                bReturn = true;
-            }
-        }
-
-        return bReturn;
+        // The key is redrawn by onModifierStateChanged().
+        return null != oKEYBOARD && oKEYBOARD.setPcCtrlState(bSTATE);
     }
 
     /**
@@ -158,17 +747,9 @@ public class LatinKeyboardView extends KeyboardView {
      */
     public final boolean setPcShiftState(final boolean bSTATE) {
         final LatinKeyboard oKEYBOARD = (LatinKeyboard) this.getKeyboard();
-        boolean bReturn = false;
 
-        if (null != oKEYBOARD) {
-            if (oKEYBOARD.setPcShiftState(bSTATE)) {
-                // The whole keyboard probably needs to be redrawn.
-                this.invalidateAllKeys();
-                bReturn = true;
-            }
-        }
-
-        return bReturn;
+        // The key is redrawn by onModifierStateChanged().
+        return null != oKEYBOARD && oKEYBOARD.setPcShiftState(bSTATE);
     }
 
     /**
@@ -200,17 +781,9 @@ public class LatinKeyboardView extends KeyboardView {
      */
     public final boolean setPcFnState(final boolean bSTATE) {
         final LatinKeyboard oKEYBOARD = (LatinKeyboard) this.getKeyboard();
-        boolean bReturn = false;
-
-        if (null != oKEYBOARD) {
-            if (oKEYBOARD.setPcFnState(bSTATE)) {
-                // The whole keyboard probably needs to be redrawn.
-                this.invalidateAllKeys();
-                bReturn = true;
-            }
-        }
 
-        return bReturn;
+        // The key is redrawn by onModifierStateChanged().
+        return null != oKEYBOARD && oKEYBOARD.setPcFnState(bSTATE);
     }
 
     /**
@@ -242,17 +815,9 @@ public class LatinKeyboardView extends KeyboardView {
      */
     public final boolean setPcAltGrState(final boolean bSTATE) {
         final LatinKeyboard oKEYBOARD = (LatinKeyboard) this.getKeyboard();
-        boolean bReturn = false;
-
-        if (null != oKEYBOARD) {
-            if (oKEYBOARD.setPcAltGrState(bSTATE)) {
-                // The whole keyboard probably needs to be redrawn.
-                this.invalidateAllKeys();
-                bReturn = true;
-            }
-        }
 
-        return bReturn;
+        // The key is redrawn by onModifierStateChanged().
+        return null != oKEYBOARD && oKEYBOARD.setPcAltGrState(bSTATE);
     }
 
     /**
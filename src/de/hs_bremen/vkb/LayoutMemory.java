@@ -0,0 +1,119 @@
+/**
+ * <tt>LayoutMemory.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package de.hs_bremen.vkb;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the layout last used in the text fields of each application.
+ *
+ * A layout is remembered as its layout modifiers (<i>Caps Lock</i>, <i>Alt
+ * Gr</i> and <i>Fn</i>), so that it applies to every language. Only the most
+ * recently used applications are remembered.
+ *
+ * All methods must be called on the thread of the input method (IME).
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public final class LayoutMemory {
+
+    /**
+     * The value returned by <tt>{@link #get(String)}</tt> for an application
+     * without a remembered layout.
+     */
+    public static final int UNKNOWN = -1;
+
+    /**
+     * The default number of applications to remember.
+     */
+    public static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The layout modifiers, mapped by the package names of the applications,
+     * in access order.
+     */
+    private final Map<String, Integer> _oLayouts;
+
+    /**
+     * Creates an empty memory.
+     *
+     * @param capacity the maximum number of applications to remember.
+     */
+    public LayoutMemory(final int capacity) {
+        this._oLayouts = new LinkedHashMap<String, Integer>(
+            capacity, 0.75f, true
+        ) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                final Map.Entry<String, Integer> eldest
+            ) {
+                return this.size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the layout last used in the specified application.
+     *
+     * @param packageName the package name of the application.
+     *
+     * @return the layout modifiers, or <tt>{@link #UNKNOWN}</tt>.
+     */
+    public int get(final String packageName) {
+        if (null == packageName) {
+            return UNKNOWN;
+        }
+        final Integer oLAYOUT = this._oLayouts.get(packageName);
+        return (null == oLAYOUT) ? UNKNOWN : oLAYOUT.intValue();
+    }
+
+    /**
+     * Remembers the layout used in the specified application.
+     *
+     * @param packageName the package name of the application.
+     * @param modifiers   the layout modifiers.
+     */
+    public void put(final String packageName, final int modifiers) {
+        if (null != packageName) {
+            this._oLayouts.put(
+                packageName,
+                Integer.valueOf(modifiers & ModifierState.LAYOUT_MODIFIERS)
+            );
+        }
+    }
+
+    /**
+     * Returns the number of remembered applications.
+     *
+     * @return the number of applications.
+     */
+    public int size() {
+        return this._oLayouts.size();
+    }
+}
@@ -0,0 +1,213 @@
+/**
+ * <tt>ModifierState.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package de.hs_bremen.vkb;
+
+import android.view.KeyEvent;
+
+/**
+ * The state of all modifier keys of VKB (Virtual KeyBoard), shared by all
+ * keyboards.
+ *
+ * The state is a single bit mask. The PC modifiers use the meta state bits of
+ * <tt>{@link KeyEvent}</tt>, so that the mask can be passed to key events
+ * directly. Listeners are notified of the bits that actually changed only.
+ *
+ * All methods must be called on the thread of the input method (IME).
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public final class ModifierState {
+
+    /**
+     * The bit of the PC <i>Alt</i> key.
+     */
+    public static final int PC_ALT = KeyEvent.META_ALT_ON;
+
+    /**
+     * The bit of the PC <i>Ctrl</i> key.
+     */
+    public static final int PC_CTRL = KeyEvent.META_CTRL_ON;
+
+    /**
+     * The bit of the PC <i>Shift</i> key.
+     */
+    public static final int PC_SHIFT = KeyEvent.META_SHIFT_ON;
+
+    /**
+     * The bits of all PC modifier keys.
+     */
+    public static final int PC_MODIFIERS = PC_ALT | PC_CTRL | PC_SHIFT;
+
+    /**
+     * The bit of the <i>Caps Lock</i> key (uppercase layout).
+     */
+    public static final int CAPS_LOCK = 1 << 28;
+
+    /**
+     * The bit of the <i>Alt Gr</i> key (Alt Gr layout).
+     */
+    public static final int ALT_GR = 1 << 29;
+
+    /**
+     * The bit of the <i>Fn</i> key (Math layout).
+     */
+    public static final int FN = 1 << 30;
+
+    /**
+     * The bits that select the layout.
+     */
+    public static final int LAYOUT_MODIFIERS = CAPS_LOCK | ALT_GR | FN;
+
+    /**
+     * Interface definition for a callback to be invoked when the state of
+     * modifier keys changes.
+     */
+    public interface OnChangeListener {
+
+        /**
+         * Called when the state of modifier keys has changed.
+         *
+         * @param changed the bits that have changed.
+         * @param state   the new state.
+         */
+        void onModifierStateChanged(int changed, int state);
+    }
+
+    /**
+     * The registered listeners. Replaced on registration, so that a
+     * notification never allocates.
+     */
+    private OnChangeListener[] _aListeners = new OnChangeListener[0];
+
+    /**
+     * The bit mask of the active modifiers.
+     */
+    private int _iState = 0;
+
+    /**
+     * Returns the bit mask of the active modifiers.
+     *
+     * @return the state.
+     */
+    public int get() {
+        return this._iState;
+    }
+
+    /**
+     * Returns whether any of the specified modifiers is active.
+     *
+     * @param bits the modifier bits.
+     *
+     * @return <tt>true</tt> if one of the modifiers is active, <tt>false</tt>
+     *         otherwise.
+     */
+    public boolean isOn(final int bits) {
+        return 0 != (this._iState & bits);
+    }
+
+    /**
+     * Activates or deactivates the specified modifiers.
+     *
+     * @param bits   the modifier bits.
+     * @param active <tt>true</tt> to activate, <tt>false</tt> to deactivate.
+     *
+     * @return <tt>true</tt> if the state has been changed, <tt>false</tt>
+     *         otherwise.
+     */
+    public boolean set(final int bits, final boolean active) {
+        return this.replace(bits, active ? bits : 0);
+    }
+
+    /**
+     * Toggles the specified modifiers.
+     *
+     * @param bits the modifier bits.
+     *
+     * @return <tt>true</tt> if the state has been changed, <tt>false</tt>
+     *         otherwise.
+     */
+    public boolean toggle(final int bits) {
+        return this.replace(bits, ~this._iState & bits);
+    }
+
+    /**
+     * Replaces the modifiers selected by a mask.
+     *
+     * @param mask the modifier bits to replace.
+     * @param bits the new values of the bits in <tt>mask</tt>.
+     *
+     * @return <tt>true</tt> if the state has been changed, <tt>false</tt>
+     *         otherwise.
+     */
+    public boolean replace(final int mask, final int bits) {
+        final int iSTATE = (this._iState & ~mask) | (bits & mask);
+        final int iCHANGED = iSTATE ^ this._iState;
+        if (0 == iCHANGED) {
+            return false;
+        }
+        this._iState = iSTATE;
+
+        final OnChangeListener[] aLISTENERS = this._aListeners;
+        for (int i = 0; i < aLISTENERS.length; ++i) {
+            aLISTENERS[i].onModifierStateChanged(iCHANGED, iSTATE);
+        }
+        return true;
+    }
+
+    /**
+     * Registers a listener.
+     *
+     * @param listener the listener to add.
+     */
+    public void addListener(final OnChangeListener listener) {
+        final int iCOUNT = this._aListeners.length;
+        final OnChangeListener[] aLISTENERS = new OnChangeListener[iCOUNT + 1];
+        System.arraycopy(this._aListeners, 0, aLISTENERS, 0, iCOUNT);
+        aLISTENERS[iCOUNT] = listener;
+        this._aListeners = aLISTENERS;
+    }
+
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener the listener to remove.
+     */
+    public void removeListener(final OnChangeListener listener) {
+        final int iCOUNT = this._aListeners.length;
+        for (int i = 0; i < iCOUNT; ++i) {
+            if (this._aListeners[i] == listener) {
+                final OnChangeListener[] aLISTENERS
+                    = new OnChangeListener[iCOUNT - 1];
+                System.arraycopy(this._aListeners, 0, aLISTENERS, 0, i);
+                System.arraycopy(
+                    this._aListeners, i + 1, aLISTENERS, i, iCOUNT - i - 1
+                );
+                this._aListeners = aLISTENERS;
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,878 @@
+/**
+ * <tt>PointerTracker.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package de.hs_bremen.vkb;
+
+import java.io.PrintWriter;
+import java.util.List;
+
+import android.inputmethodservice.Keyboard;
+import android.inputmethodservice.Keyboard.Key;
+import android.inputmethodservice.KeyboardView;
+import android.view.MotionEvent;
+
+/**
+ * Tracks the keys pressed by several fingers at once.
+ *
+ * Each finger (pointer) is tracked in one of a fixed number of preallocated
+ * slots and is resolved to a key of the attached keyboard. A key is committed
+ * when its finger is lifted, or as soon as another key is pressed while the
+ * finger is still down (rollover), so that keys are always committed in the
+ * order in which they have been pressed. PC modifier keys (<i>Alt</i>,
+ * <i>Ctrl</i> and <i>Shift</i>) are never committed by rollover, they stay
+ * held until their finger is lifted.
+ *
+ * A repeatable key is committed when it is pressed and then repeatedly while
+ * it is held. The release of a key is always signalled when its finger is
+ * lifted, so that held modifiers apply to all keys committed meanwhile.
+ *
+ * A finger that slides onto another key presses that key only once it has
+ * stayed on it for <tt>{@link #STABLE_SAMPLES}</tt> consecutive samples, so
+ * that jitter on the border of two keys is ignored. As the historical samples
+ * of each <tt>MotionEvent</tt> are tracked too, the key is decided on the
+ * earliest sample at which it is stable, not on the latest one. Every sample
+ * is also passed on to the registered <tt>{@link OnSampleListener}</tt>s,
+ * e.g. for gestures.
+ *
+ * With a <tt>{@link TouchCalibration}</tt>, a touch is resolved to the key
+ * under which it is most likely, as learned from the keys committed by
+ * touches that have not slid.
+ *
+ * All methods must be called on the thread of the input method (IME).
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public final class PointerTracker {
+
+    /**
+     * The maximum number of fingers that are tracked at once.
+     */
+    public static final int MAX_POINTERS = 10;
+
+    /**
+     * The number of consecutive samples on another key after which a sliding
+     * finger presses that key.
+     */
+    public static final int STABLE_SAMPLES = 2;
+
+    /**
+     * Interface definition for a callback to be invoked for every sample of
+     * the fingers on the keyboard.
+     */
+    public interface OnSampleListener {
+
+        /**
+         * Called for every sample of a finger, in the order in which the
+         * samples have been taken.
+         *
+         * @param pointerId the ID of the pointer.
+         * @param action    <tt>MotionEvent.ACTION_DOWN</tt>,
+         *                  <tt>MotionEvent.ACTION_MOVE</tt>,
+         *                  <tt>MotionEvent.ACTION_UP</tt> or
+         *                  <tt>MotionEvent.ACTION_CANCEL</tt>.
+         * @param x         the horizontal position, relative to the keyboard.
+         * @param y         the vertical position, relative to the keyboard.
+         * @param eventTime the time of the sample, in the
+         *                  <tt>SystemClock.uptimeMillis()</tt> time base.
+         */
+        void onSample(int pointerId, int action, int x, int y, long eventTime);
+    }
+
+    /**
+     * The delay, in milliseconds, before a held repeatable key repeats.
+     */
+    private static final long _REPEAT_START_DELAY_MILLIS = 400L;
+
+    /**
+     * The interval, in milliseconds, between two repetitions of a key.
+     */
+    private static final long _REPEAT_INTERVAL_MILLIS = 50L;
+
+    /**
+     * The bonus of the key under a touch over its neighbors, in units of
+     * <tt>{@link TouchCalibration#getCost(long, float, float)}</tt>.
+     */
+    private static final float _INSIDE_BONUS = 1f;
+
+    /**
+     * The value of a free slot in <tt>{@link #_aPointerIds}</tt> and of a
+     * slot without key in <tt>{@link #_aKeyIndices}</tt>.
+     */
+    private static final int _NONE = -1;
+
+    /**
+     * The view whose keys are tracked.
+     */
+    private final KeyboardView _oView;
+
+    /**
+     * The listener to notify of key events, or <tt>null</tt>.
+     */
+    private KeyboardView.OnKeyboardActionListener _oListener = null;
+
+    /**
+     * The registered sample listeners. Replaced on registration, so that a
+     * sample never allocates.
+     */
+    private OnSampleListener[] _aSampleListeners = new OnSampleListener[0];
+
+    /**
+     * The ID of the pointer of each slot, or <tt>{@link #_NONE}</tt> if the
+     * slot is free.
+     */
+    private final int[] _aPointerIds = new int[MAX_POINTERS];
+
+    /**
+     * The index of the key of each slot, or <tt>{@link #_NONE}</tt> if the
+     * pointer is not on a key.
+     */
+    private final int[] _aKeyIndices = new int[MAX_POINTERS];
+
+    /**
+     * The key of each slot, or <tt>null</tt>.
+     */
+    private final Key[] _aKeys = new Key[MAX_POINTERS];
+
+    /**
+     * The sequence number of the press of each slot.
+     */
+    private final long[] _aPressOrder = new long[MAX_POINTERS];
+
+    /**
+     * Whether the key of each slot has been committed already.
+     */
+    private final boolean[] _aCommitted = new boolean[MAX_POINTERS];
+
+    /**
+     * The last horizontal position of each slot, relative to the keyboard.
+     */
+    private final int[] _aX = new int[MAX_POINTERS];
+
+    /**
+     * The last vertical position of each slot, relative to the keyboard.
+     */
+    private final int[] _aY = new int[MAX_POINTERS];
+
+    /**
+     * The horizontal position of each slot when its finger touched the
+     * keyboard.
+     */
+    private final int[] _aDownX = new int[MAX_POINTERS];
+
+    /**
+     * The vertical position of each slot when its finger touched the
+     * keyboard.
+     */
+    private final int[] _aDownY = new int[MAX_POINTERS];
+
+    /**
+     * The index of the key each slot has pressed when its finger touched the
+     * keyboard, or <tt>{@link #_NONE}</tt>.
+     */
+    private final int[] _aDownIndices = new int[MAX_POINTERS];
+
+    /**
+     * The calibration of the keys, or <tt>null</tt>.
+     */
+    private TouchCalibration _oCalibration = null;
+
+    /**
+     * The index of the key each slot is sliding onto, or
+     * <tt>{@link #_NONE}</tt>.
+     */
+    private final int[] _aCandidateIndices = new int[MAX_POINTERS];
+
+    /**
+     * The number of consecutive samples of each slot on its candidate key.
+     */
+    private final int[] _aCandidateSamples = new int[MAX_POINTERS];
+
+    /**
+     * The sequence number of the next press.
+     */
+    private long _lNextPressOrder = 0L;
+
+    /**
+     * The slot of the key that repeats, or <tt>{@link #_NONE}</tt>.
+     */
+    private int _iRepeatSlot = _NONE;
+
+    /**
+     * Commits the repeating key again.
+     */
+    private final Runnable _oRepeater = new Runnable() {
+        @Override
+        public void run() {
+            PointerTracker.this._repeat();
+        }
+    };
+
+    /**
+     * The number of keys that have been pressed.
+     */
+    private int _iPressCount = 0;
+
+    /**
+     * The number of keys that have been committed.
+     */
+    private int _iCommitCount = 0;
+
+    /**
+     * The number of keys that have been committed by rollover.
+     */
+    private int _iRolloverCount = 0;
+
+    /**
+     * The number of fingers that have been ignored because all slots were in
+     * use.
+     */
+    private int _iDroppedCount = 0;
+
+    /**
+     * The maximum number of fingers that have been down at once.
+     */
+    private int _iMaxPointers = 0;
+
+    /**
+     * The number of samples that have been tracked.
+     */
+    private long _lSampleCount = 0L;
+
+    /**
+     * The number of times a sliding finger has pressed another key.
+     */
+    private int _iSlideCount = 0;
+
+    /**
+     * The number of samples on another key that have been ignored as jitter.
+     */
+    private int _iJitterCount = 0;
+
+    /**
+     * The number of samples the calibration has resolved to another key than
+     * the one under them.
+     */
+    private int _iCorrectedCount = 0;
+
+    /**
+     * Creates a tracker without fingers.
+     *
+     * @param view the view whose keys are tracked.
+     */
+    public PointerTracker(final KeyboardView view) {
+        this._oView = view;
+        for (int i = 0; i < MAX_POINTERS; ++i) {
+            this._clear(i);
+        }
+    }
+
+    /**
+     * Sets the listener to notify of key events.
+     *
+     * @param listener the listener, or <tt>null</tt>.
+     */
+    public void setOnKeyboardActionListener(
+        final KeyboardView.OnKeyboardActionListener listener
+    ) {
+        this._oListener = listener;
+    }
+
+    /**
+     * Sets the calibration that biases the resolution of touches and learns
+     * from the committed keys.
+     *
+     * @param calibration the calibration, or <tt>null</tt> to resolve touches
+     *                    to the keys under them.
+     */
+    public void setTouchCalibration(final TouchCalibration calibration) {
+        this._oCalibration = calibration;
+    }
+
+    /**
+     * Registers a sample listener.
+     *
+     * @param listener the listener to add.
+     */
+    public void addSampleListener(final OnSampleListener listener) {
+        final int iCOUNT = this._aSampleListeners.length;
+        final OnSampleListener[] aLISTENERS = new OnSampleListener[iCOUNT + 1];
+        System.arraycopy(this._aSampleListeners, 0, aLISTENERS, 0, iCOUNT);
+        aLISTENERS[iCOUNT] = listener;
+        this._aSampleListeners = aLISTENERS;
+    }
+
+    /**
+     * Unregisters a sample listener.
+     *
+     * @param listener the listener to remove.
+     */
+    public void removeSampleListener(final OnSampleListener listener) {
+        final int iCOUNT = this._aSampleListeners.length;
+        for (int i = 0; i < iCOUNT; ++i) {
+            if (this._aSampleListeners[i] == listener) {
+                final OnSampleListener[] aLISTENERS
+                    = new OnSampleListener[iCOUNT - 1];
+                System.arraycopy(this._aSampleListeners, 0, aLISTENERS, 0, i);
+                System.arraycopy(
+                    this._aSampleListeners, i + 1, aLISTENERS, i,
+                    iCOUNT - i - 1
+                );
+                this._aSampleListeners = aLISTENERS;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Signals that a finger has touched the keyboard.
+     *
+     * All keys that are still held, except PC modifier keys, are committed
+     * before the new key is pressed.
+     *
+     * @param pointerId the ID of the pointer.
+     * @param x         the horizontal position, relative to the keyboard.
+     * @param y         the vertical position, relative to the keyboard.
+     * @param eventTime the time of the sample.
+     */
+    public void onDown(
+        final int pointerId, final int x, final int y, final long eventTime
+    ) {
+        if (_NONE != this._findSlot(pointerId)) {
+            return;
+        }
+        this._dispatchSample(
+            pointerId, MotionEvent.ACTION_DOWN, x, y, eventTime
+        );
+        final int iSLOT = this._findSlot(_NONE);
+        if (_NONE == iSLOT) {
+            ++this._iDroppedCount;
+            return;
+        }
+        this._stopRepeat();
+        this._commitHeldKeys();
+
+        this._aPointerIds[iSLOT] = pointerId;
+        this._aPressOrder[iSLOT] = this._lNextPressOrder++;
+        this._aX[iSLOT] = x;
+        this._aY[iSLOT] = y;
+        int iCount = 0;
+        for (int i = 0; i < MAX_POINTERS; ++i) {
+            if (_NONE != this._aPointerIds[i]) {
+                ++iCount;
+            }
+        }
+        if (iCount > this._iMaxPointers) {
+            this._iMaxPointers = iCount;
+        }
+
+        final Keyboard oKEYBOARD = this._oView.getKeyboard();
+        final int iINDEX = this._resolveKey(oKEYBOARD, x, y);
+        this._aDownX[iSLOT] = x;
+        this._aDownY[iSLOT] = y;
+        this._aDownIndices[iSLOT] = iINDEX;
+        if (_NONE == iINDEX) {
+            return;
+        }
+        final Key oKEY = oKEYBOARD.getKeys().get(iINDEX);
+        this._press(iSLOT, iINDEX, oKEY);
+        if (null != this._oListener) {
+            this._oListener.onPress(oKEY.codes[0]);
+        }
+        if (oKEY.repeatable && this._aKeys[iSLOT] == oKEY) {
+            this._iRepeatSlot = iSLOT;
+            this._commit(iSLOT);
+            this._oView.postDelayed(
+                this._oRepeater, _REPEAT_START_DELAY_MILLIS
+            );
+        }
+    }
+
+    /**
+     * Signals that a finger has moved.
+     *
+     * Must be called for each historical sample of a <tt>MotionEvent</tt>,
+     * oldest first, before the current sample. The finger presses the key it
+     * has moved onto once the key is stable, unless its key has been
+     * committed already.
+     *
+     * @param pointerId the ID of the pointer.
+     * @param x         the horizontal position, relative to the keyboard.
+     * @param y         the vertical position, relative to the keyboard.
+     * @param eventTime the time of the sample.
+     */
+    public void onMove(
+        final int pointerId, final int x, final int y, final long eventTime
+    ) {
+        final int iSLOT = this._findSlot(pointerId);
+        if (_NONE == iSLOT) {
+            return;
+        }
+        this._dispatchSample(
+            pointerId, MotionEvent.ACTION_MOVE, x, y, eventTime
+        );
+        this._track(iSLOT, x, y);
+    }
+
+    /**
+     * Signals that a finger has been lifted and commits its key, unless it
+     * has been committed already.
+     *
+     * @param pointerId the ID of the pointer.
+     * @param x         the horizontal position, relative to the keyboard.
+     * @param y         the vertical position, relative to the keyboard.
+     * @param eventTime the time of the sample.
+     */
+    public void onUp(
+        final int pointerId, final int x, final int y, final long eventTime
+    ) {
+        final int iSLOT = this._findSlot(pointerId);
+        if (_NONE == iSLOT) {
+            return;
+        }
+        this._dispatchSample(
+            pointerId, MotionEvent.ACTION_UP, x, y, eventTime
+        );
+        this._track(iSLOT, x, y);
+        if (iSLOT == this._iRepeatSlot) {
+            this._stopRepeat();
+        }
+        final Key oKEY = this._aKeys[iSLOT];
+        final boolean bCOMMITTED = this._aCommitted[iSLOT];
+        if (null != oKEY && null != this._oCalibration
+                && this._aDownIndices[iSLOT] == this._aKeyIndices[iSLOT]) {
+            this._learn(iSLOT, oKEY);
+        }
+        this._release(iSLOT, true);
+        this._clear(iSLOT);
+        if (null == oKEY || null == this._oListener) {
+            return;
+        }
+        if (!bCOMMITTED) {
+            ++this._iCommitCount;
+            this._oListener.onKey(oKEY.codes[0], oKEY.codes);
+        }
+        this._oListener.onRelease(oKEY.codes[0]);
+    }
+
+    /**
+     * Releases all keys without committing them, e.g. when the gesture has
+     * been cancelled.
+     *
+     * @param eventTime the time of the cancellation.
+     */
+    public void cancelAll(final long eventTime) {
+        this._stopRepeat();
+        for (int i = 0; i < MAX_POINTERS; ++i) {
+            if (_NONE == this._aPointerIds[i]) {
+                continue;
+            }
+            this._dispatchSample(
+                this._aPointerIds[i], MotionEvent.ACTION_CANCEL, this._aX[i],
+                this._aY[i], eventTime
+            );
+            final Key oKEY = this._aKeys[i];
+            this._release(i, false);
+            this._clear(i);
+            if (null != oKEY && null != this._oListener) {
+                this._oListener.onRelease(oKEY.codes[0]);
+            }
+        }
+    }
+
+    /**
+     * Moves the fingers that are down to the keys of another keyboard.
+     *
+     * A finger stays on its key if the new keyboard has a key with the same
+     * code under it, e.g. a held PC <i>Shift</i> key when the layout changes.
+     * Otherwise its key is released and the finger is ignored until it is
+     * lifted.
+     *
+     * @param keyboard the keyboard that has been attached, or <tt>null</tt>.
+     */
+    public void onKeyboardChanged(final Keyboard keyboard) {
+        for (int i = 0; i < MAX_POINTERS; ++i) {
+            final Key oOLD_KEY = this._aKeys[i];
+            if (null == oOLD_KEY) {
+                continue;
+            }
+            oOLD_KEY.pressed = false;
+            this._aKeys[i] = null;
+            this._aKeyIndices[i] = _NONE;
+            this._aDownIndices[i] = _NONE;
+
+            final int iINDEX = PointerTracker._getKeyIndex(
+                keyboard, this._aX[i], this._aY[i]
+            );
+            final Key oKEY = (_NONE == iINDEX)
+                ? null : keyboard.getKeys().get(iINDEX);
+            if (null != oKEY && oKEY.codes[0] == oOLD_KEY.codes[0]) {
+                oKEY.pressed = true;
+                this._aKeys[i] = oKEY;
+                this._aKeyIndices[i] = iINDEX;
+                continue;
+            }
+            if (i == this._iRepeatSlot) {
+                this._stopRepeat();
+            }
+            this._aCommitted[i] = true;
+            if (null != this._oListener) {
+                this._oListener.onRelease(oOLD_KEY.codes[0]);
+            }
+        }
+    }
+
+    /**
+     * Prints the statistics of this tracker.
+     *
+     * @param writer the writer to print to.
+     * @param prefix the prefix of each line.
+     */
+    public void dump(final PrintWriter writer, final String prefix) {
+        writer.print(prefix);
+        writer.print("Pointers: pressed="); //$NON-NLS-1$
+        writer.print(this._iPressCount);
+        writer.print(", committed="); //$NON-NLS-1$
+        writer.print(this._iCommitCount);
+        writer.print(", rollover="); //$NON-NLS-1$
+        writer.print(this._iRolloverCount);
+        writer.print(", dropped="); //$NON-NLS-1$
+        writer.print(this._iDroppedCount);
+        writer.print(", max down="); //$NON-NLS-1$
+        writer.println(this._iMaxPointers);
+        writer.print(prefix);
+        writer.print("Pointer samples: tracked="); //$NON-NLS-1$
+        writer.print(this._lSampleCount);
+        writer.print(", slides="); //$NON-NLS-1$
+        writer.print(this._iSlideCount);
+        writer.print(", jitter="); //$NON-NLS-1$
+        writer.print(this._iJitterCount);
+        writer.print(", corrected="); //$NON-NLS-1$
+        writer.println(this._iCorrectedCount);
+    }
+
+    /**
+     * Tracks a sample of the finger of a slot.
+     *
+     * @param slot the slot.
+     * @param x    the horizontal position, relative to the keyboard.
+     * @param y    the vertical position, relative to the keyboard.
+     */
+    private void _track(final int slot, final int x, final int y) {
+        this._aX[slot] = x;
+        this._aY[slot] = y;
+        if (this._aCommitted[slot]) {
+            return;
+        }
+        final Keyboard oKEYBOARD = this._oView.getKeyboard();
+        final int iINDEX = this._resolveKey(oKEYBOARD, x, y);
+        if (iINDEX == this._aKeyIndices[slot]) {
+            if (_NONE != this._aCandidateIndices[slot]) {
+                this._iJitterCount += this._aCandidateSamples[slot];
+                this._aCandidateIndices[slot] = _NONE;
+            }
+            return;
+        }
+        if (iINDEX != this._aCandidateIndices[slot]) {
+            if (_NONE != this._aCandidateIndices[slot]) {
+                this._iJitterCount += this._aCandidateSamples[slot];
+            }
+            this._aCandidateIndices[slot] = iINDEX;
+            this._aCandidateSamples[slot] = 0;
+        }
+        if (++this._aCandidateSamples[slot] < STABLE_SAMPLES) {
+            return;
+        }
+        this._aCandidateIndices[slot] = _NONE;
+        ++this._iSlideCount;
+        this._release(slot, false);
+        if (_NONE != iINDEX) {
+            this._press(slot, iINDEX, oKEYBOARD.getKeys().get(iINDEX));
+        }
+    }
+
+    /**
+     * Passes a sample on to the sample listeners.
+     *
+     * @param pointerId the ID of the pointer.
+     * @param action    the action of the sample.
+     * @param x         the horizontal position, relative to the keyboard.
+     * @param y         the vertical position, relative to the keyboard.
+     * @param eventTime the time of the sample.
+     */
+    private void _dispatchSample(
+        final int pointerId, final int action, final int x, final int y,
+        final long eventTime
+    ) {
+        ++this._lSampleCount;
+        final OnSampleListener[] aLISTENERS = this._aSampleListeners;
+        for (int i = 0; i < aLISTENERS.length; ++i) {
+            aLISTENERS[i].onSample(pointerId, action, x, y, eventTime);
+        }
+    }
+
+    /**
+     * Commits the keys that are held, except PC modifier keys, in the order
+     * in which they have been pressed.
+     */
+    private void _commitHeldKeys() {
+        while (true) {
+            int iOldest = _NONE;
+            for (int i = 0; i < MAX_POINTERS; ++i) {
+                if (null == this._aKeys[i] || this._aCommitted[i]
+                        || 0 != KeyChordEngine.getModifier(
+                            this._aKeys[i].codes[0]
+                        )) {
+                    continue;
+                }
+                if (_NONE == iOldest
+                        || this._aPressOrder[i] < this._aPressOrder[iOldest]) {
+                    iOldest = i;
+                }
+            }
+            if (_NONE == iOldest) {
+                return;
+            }
+            ++this._iRolloverCount;
+            this._commit(iOldest);
+        }
+    }
+
+    /**
+     * Commits the key of a slot, which stays pressed until its finger is
+     * lifted.
+     *
+     * @param slot the slot.
+     */
+    private void _commit(final int slot) {
+        final Key oKEY = this._aKeys[slot];
+        this._aCommitted[slot] = true;
+        ++this._iCommitCount;
+        if (null != this._oListener) {
+            this._oListener.onKey(oKEY.codes[0], oKEY.codes);
+        }
+    }
+
+    /**
+     * Commits the repeating key again and schedules its next repetition.
+     */
+    private void _repeat() {
+        final int iSLOT = this._iRepeatSlot;
+        if (_NONE == iSLOT || null == this._aKeys[iSLOT]) {
+            return;
+        }
+        this._commit(iSLOT);
+        if (iSLOT == this._iRepeatSlot) {
+            this._oView.postDelayed(this._oRepeater, _REPEAT_INTERVAL_MILLIS);
+        }
+    }
+
+    /**
+     * Stops the repetition of the repeating key, if any.
+     */
+    private void _stopRepeat() {
+        if (_NONE != this._iRepeatSlot) {
+            this._iRepeatSlot = _NONE;
+            this._oView.removeCallbacks(this._oRepeater);
+        }
+    }
+
+    /**
+     * Presses the key of a slot.
+     *
+     * @param slot  the slot.
+     * @param index the index of the key in the keyboard.
+     * @param key   the key.
+     */
+    private void _press(final int slot, final int index, final Key key) {
+        this._aKeyIndices[slot] = index;
+        this._aKeys[slot] = key;
+        ++this._iPressCount;
+        key.onPressed();
+        this._oView.invalidateKey(index);
+    }
+
+    /**
+     * Releases the key of a slot, if any.
+     *
+     * @param slot   the slot.
+     * @param inside <tt>true</tt> if the finger has been lifted on the key,
+     *               <tt>false</tt> if it has left the key.
+     */
+    private void _release(final int slot, final boolean inside) {
+        final Key oKEY = this._aKeys[slot];
+        if (null == oKEY) {
+            return;
+        }
+        final int iINDEX = this._aKeyIndices[slot];
+        this._aKeys[slot] = null;
+        this._aKeyIndices[slot] = _NONE;
+        oKEY.onReleased(inside);
+        this._oView.invalidateKey(iINDEX);
+    }
+
+    /**
+     * Frees a slot.
+     *
+     * @param slot the slot.
+     */
+    private void _clear(final int slot) {
+        this._aPointerIds[slot] = _NONE;
+        this._aKeyIndices[slot] = _NONE;
+        this._aKeys[slot] = null;
+        this._aCommitted[slot] = false;
+        this._aCandidateIndices[slot] = _NONE;
+    }
+
+    /**
+     * Returns the slot of a pointer.
+     *
+     * @param pointerId the ID of the pointer, or <tt>{@link #_NONE}</tt> to
+     *                  find a free slot.
+     *
+     * @return the slot, or <tt>{@link #_NONE}</tt> if there is none.
+     */
+    private int _findSlot(final int pointerId) {
+        for (int i = 0; i < MAX_POINTERS; ++i) {
+            if (pointerId == this._aPointerIds[i]) {
+                return i;
+            }
+        }
+        return _NONE;
+    }
+
+    /**
+     * Learns the touch of the key of a slot.
+     *
+     * @param slot the slot.
+     * @param key  the key.
+     */
+    private void _learn(final int slot, final Key key) {
+        final Keyboard oKEYBOARD = this._oView.getKeyboard();
+        if (!(oKEYBOARD instanceof LatinKeyboard)
+                || key.width <= 0 || key.height <= 0) {
+            return;
+        }
+        this._oCalibration.learn(
+            TouchCalibration.getId(
+                ((LatinKeyboard) oKEYBOARD).getLayoutId(),
+                this._oView.getResources().getConfiguration().orientation,
+                this._aKeyIndices[slot]
+            ),
+            (this._aDownX[slot] - key.x - key.width / 2f) / key.width,
+            (this._aDownY[slot] - key.y - key.height / 2f) / key.height
+        );
+    }
+
+    /**
+     * Returns the key a touch is meant for.
+     *
+     * Without calibration, or if no key near the touch is calibrated, this
+     * is the key under the touch. Otherwise it is the most likely key near
+     * the touch, with a bonus for the key under it.
+     *
+     * @param keyboard the keyboard, or <tt>null</tt>.
+     * @param x        the horizontal position, relative to the keyboard.
+     * @param y        the vertical position, relative to the keyboard.
+     *
+     * @return the index of the key, or <tt>{@link #_NONE}</tt> if there is no
+     *         key for the touch.
+     */
+    private int _resolveKey(
+        final Keyboard keyboard, final int x, final int y
+    ) {
+        final int iINSIDE = PointerTracker._getKeyIndex(keyboard, x, y);
+        if (null == this._oCalibration
+                || !(keyboard instanceof LatinKeyboard)) {
+            return iINSIDE;
+        }
+        final int iLAYOUT = ((LatinKeyboard) keyboard).getLayoutId();
+        final int iORIENTATION = this._oView.getResources()
+            .getConfiguration().orientation;
+        final List<Key> lKEYS = keyboard.getKeys();
+        final int[] aNEAREST = keyboard.getNearestKeys(x, y);
+        boolean bCalibrated = false;
+        int iBest = _NONE;
+        float fBestCost = Float.MAX_VALUE;
+        for (int i = 0; i < aNEAREST.length; ++i) {
+            final Key oKEY = lKEYS.get(aNEAREST[i]);
+            if (oKEY.width <= 0 || oKEY.height <= 0) {
+                continue;
+            }
+            final float fDX = (x - oKEY.x - oKEY.width / 2f) / oKEY.width;
+            final float fDY = (y - oKEY.y - oKEY.height / 2f) / oKEY.height;
+            if (Math.abs(fDX) > 1f || Math.abs(fDY) > 1f) {
+                continue;
+            }
+            final long lID = TouchCalibration.getId(
+                iLAYOUT, iORIENTATION, aNEAREST[i]
+            );
+            bCalibrated |= this._oCalibration.isCalibrated(lID);
+            float fCost = this._oCalibration.getCost(lID, fDX, fDY);
+            if (aNEAREST[i] == iINSIDE) {
+                fCost -= _INSIDE_BONUS;
+            }
+            if (fCost < fBestCost) {
+                fBestCost = fCost;
+                iBest = aNEAREST[i];
+            }
+        }
+        if (!bCalibrated || _NONE == iBest) {
+            return iINSIDE;
+        }
+        if (iBest != iINSIDE) {
+            ++this._iCorrectedCount;
+        }
+        return iBest;
+    }
+
+    /**
+     * Returns the key of a keyboard at the specified position.
+     *
+     * @param keyboard the keyboard, or <tt>null</tt>.
+     * @param x        the horizontal position, relative to the keyboard.
+     * @param y        the vertical position, relative to the keyboard.
+     *
+     * @return the index of the key, or <tt>{@link #_NONE}</tt> if there is no
+     *         key at the position.
+     */
+    private static int _getKeyIndex(
+        final Keyboard keyboard, final int x, final int y
+    ) {
+        if (null == keyboard) {
+            return _NONE;
+        }
+        final List<Key> lKEYS = keyboard.getKeys();
+        final int[] aNEAREST = keyboard.getNearestKeys(x, y);
+        if (null == aNEAREST) {
+            return _NONE;
+        }
+        for (int i = 0; i < aNEAREST.length; ++i) {
+            if (lKEYS.get(aNEAREST[i]).isInside(x, y)) {
+                return aNEAREST[i];
+            }
+        }
+        return _NONE;
+    }
+}
@@ -0,0 +1,339 @@
+/**
+ * <tt>SnippetMatcher.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package de.hs_bremen.vkb;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Detects the triggers of text-expansion snippets (e.g. <tt>;sig</tt>) while
+ * they are typed.
+ *
+ * The triggers are compiled into a prefix trie with failure links (an
+ * Aho-Corasick automaton) stored in primitive arrays. Each typed character
+ * advances the automaton in amortized constant time, without allocating and
+ * without looking at the text of the editor, independent of the number of
+ * snippets.
+ *
+ * A matcher is built once and then only used on the thread of the input
+ * method (IME).
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public final class SnippetMatcher {
+
+    /**
+     * The value returned by <tt>{@link #advance(char)}</tt> if no trigger has
+     * been completed.
+     */
+    public static final int NO_MATCH = -1;
+
+    /**
+     * The name of the file in the private storage that defines the snippets.
+     *
+     * Each line contains a trigger, a tab character and the expansion, in
+     * which <tt>\n</tt> stands for a line break.
+     */
+    public static final String SNIPPETS_FILE_NAME
+        = "snippets.txt"; //$NON-NLS-1$
+
+    /**
+     * The keys of the transition table: the source state in the upper and the
+     * character in the lower 16 bits, or <tt>-1</tt> for an empty slot.
+     */
+    private final long[] _aTransitionKeys;
+
+    /**
+     * The target states of the transition table.
+     */
+    private final int[] _aTransitionTargets;
+
+    /**
+     * <tt>_aTransitionKeys.length - 1</tt>.
+     */
+    private final int _iTransitionMask;
+
+    /**
+     * The failure link of each state: the state of the longest proper suffix
+     * that is also a prefix of a trigger.
+     */
+    private final int[] _aFailure;
+
+    /**
+     * The index of the longest snippet whose trigger ends in each state, or
+     * <tt>{@link #NO_MATCH}</tt>.
+     */
+    private final int[] _aOutput;
+
+    /**
+     * The lengths of the triggers, indexed by snippet.
+     */
+    private final int[] _aTriggerLengths;
+
+    /**
+     * The expansions, indexed by snippet.
+     */
+    private final String[] _aExpansions;
+
+    /**
+     * The current state of the automaton.
+     */
+    private int _iState = 0;
+
+    /**
+     * Compiles the specified snippets.
+     *
+     * @param snippets the expansions, mapped by their triggers.
+     */
+    public SnippetMatcher(final Map<String, String> snippets) {
+        final int iSNIPPETS = snippets.size();
+        this._aTriggerLengths = new int[iSNIPPETS];
+        this._aExpansions = new String[iSNIPPETS];
+
+        int iMaxStates = 1;
+        for (String sTrigger : snippets.keySet()) {
+            iMaxStates += sTrigger.length();
+        }
+        int iCapacity = 4;
+        while (iCapacity < 2 * iMaxStates) {
+            iCapacity <<= 1;
+        }
+        this._aTransitionKeys = new long[iCapacity];
+        this._aTransitionTargets = new int[iCapacity];
+        this._iTransitionMask = iCapacity - 1;
+        Arrays.fill(this._aTransitionKeys, -1L);
+
+        this._aFailure = new int[iMaxStates];
+        this._aOutput = new int[iMaxStates];
+        Arrays.fill(this._aOutput, NO_MATCH);
+
+        // The children of each state, as linked lists, for the breadth-first
+        // traversal that computes the failure links.
+        final int[] aFIRST_CHILD = new int[iMaxStates];
+        final int[] aNEXT_SIBLING = new int[iMaxStates];
+        final char[] aEDGE = new char[iMaxStates];
+        int iStates = 1;
+
+        int iSnippet = 0;
+        for (Map.Entry<String, String> oEntry : snippets.entrySet()) {
+            final String sTRIGGER = oEntry.getKey();
+            if (0 == sTRIGGER.length()) {
+                continue;
+            }
+            int iState = 0;
+            for (int i = 0; i < sTRIGGER.length(); ++i) {
+                final char cCHAR = sTRIGGER.charAt(i);
+                int iNext = this._goto(iState, cCHAR);
+                if (iNext < 0) {
+                    iNext = iStates++;
+                    this._putTransition(iState, cCHAR, iNext);
+                    aEDGE[iNext] = cCHAR;
+                    aNEXT_SIBLING[iNext] = aFIRST_CHILD[iState];
+                    aFIRST_CHILD[iState] = iNext;
+                }
+                iState = iNext;
+            }
+            this._aTriggerLengths[iSnippet] = sTRIGGER.length();
+            this._aExpansions[iSnippet] = oEntry.getValue();
+            this._aOutput[iState] = iSnippet++;
+        }
+
+        // Breadth-first traversal; the root and its children fail to the
+        // root.
+        final int[] aQUEUE = new int[iStates];
+        int iHead = 0;
+        int iTail = 0;
+        aQUEUE[iTail++] = 0;
+        while (iHead < iTail) {
+            final int iSTATE = aQUEUE[iHead++];
+            for (int iChild = aFIRST_CHILD[iSTATE]; 0 != iChild;
+                    iChild = aNEXT_SIBLING[iChild]) {
+                aQUEUE[iTail++] = iChild;
+                if (0 == iSTATE) {
+                    continue;
+                }
+                int iFailure = this._aFailure[iSTATE];
+                int iTarget = this._goto(iFailure, aEDGE[iChild]);
+                while (iTarget < 0 && 0 != iFailure) {
+                    iFailure = this._aFailure[iFailure];
+                    iTarget = this._goto(iFailure, aEDGE[iChild]);
+                }
+                this._aFailure[iChild] = (iTarget < 0) ? 0 : iTarget;
+                if (NO_MATCH == this._aOutput[iChild]) {
+                    this._aOutput[iChild]
+                        = this._aOutput[this._aFailure[iChild]];
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the snippets from the specified file.
+     *
+     * @param file the file that defines the snippets.
+     *
+     * @return the expansions, mapped by their triggers. Empty if the file does
+     *         not exist.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    public static Map<String, String> readSnippets(final File file)
+        throws IOException {
+        final Map<String, String> oSNIPPETS
+            = new LinkedHashMap<String, String>();
+        if (!file.exists()) {
+            return oSNIPPETS;
+        }
+        final BufferedReader oREADER = new BufferedReader(
+            new InputStreamReader(
+                new FileInputStream(file), "UTF-8" //$NON-NLS-1$
+            )
+        );
+        try {
+            String sLine;
+            while (null != (sLine = oREADER.readLine())) {
+                final int iTAB = sLine.indexOf('\t');
+                if (iTAB > 0) {
+                    oSNIPPETS.put(
+                        sLine.substring(0, iTAB),
+                        sLine.substring(iTAB + 1).replace(
+                            "\\n", "\n" //$NON-NLS-1$ //$NON-NLS-2$
+                        )
+                    );
+                }
+            }
+        } finally {
+            oREADER.close();
+        }
+        return oSNIPPETS;
+    }
+
+    /**
+     * Advances the automaton by a typed character.
+     *
+     * @param c the typed character.
+     *
+     * @return the index of the snippet whose trigger has been completed by the
+     *         character, or <tt>{@link #NO_MATCH}</tt>.
+     */
+    public int advance(final char c) {
+        int iState = this._iState;
+        int iNext = this._goto(iState, c);
+        while (iNext < 0 && 0 != iState) {
+            iState = this._aFailure[iState];
+            iNext = this._goto(iState, c);
+        }
+        this._iState = (iNext < 0) ? 0 : iNext;
+        return this._aOutput[this._iState];
+    }
+
+    /**
+     * Forgets the characters typed so far, e.g. after the cursor has moved.
+     */
+    public void reset() {
+        this._iState = 0;
+    }
+
+    /**
+     * Returns the length of the trigger of the specified snippet.
+     *
+     * @param snippet the index of the snippet.
+     *
+     * @return the number of characters of the trigger.
+     */
+    public int getTriggerLength(final int snippet) {
+        return this._aTriggerLengths[snippet];
+    }
+
+    /**
+     * Returns the expansion of the specified snippet.
+     *
+     * @param snippet the index of the snippet.
+     *
+     * @return the text that replaces the trigger.
+     */
+    public String getExpansion(final int snippet) {
+        return this._aExpansions[snippet];
+    }
+
+    /**
+     * Returns the target of a transition.
+     *
+     * @param state the source state.
+     * @param c     the character of the transition.
+     *
+     * @return the target state, or <tt>-1</tt> if there is no transition.
+     */
+    private int _goto(final int state, final char c) {
+        final long lKEY = ((long) state << 16) | c;
+        int i = SnippetMatcher._hash(lKEY) & this._iTransitionMask;
+        long lSlot;
+        while (-1L != (lSlot = this._aTransitionKeys[i])) {
+            if (lSlot == lKEY) {
+                return this._aTransitionTargets[i];
+            }
+            i = (i + 1) & this._iTransitionMask;
+        }
+        return -1;
+    }
+
+    /**
+     * Adds a transition.
+     *
+     * @param state  the source state.
+     * @param c      the character of the transition.
+     * @param target the target state.
+     */
+    private void _putTransition(
+        final int state, final char c, final int target
+    ) {
+        final long lKEY = ((long) state << 16) | c;
+        int i = SnippetMatcher._hash(lKEY) & this._iTransitionMask;
+        while (-1L != this._aTransitionKeys[i]) {
+            i = (i + 1) & this._iTransitionMask;
+        }
+        this._aTransitionKeys[i] = lKEY;
+        this._aTransitionTargets[i] = target;
+    }
+
+    /**
+     * Spreads the bits of a transition key over the whole hash value.
+     *
+     * @param key the transition key.
+     *
+     * @return the hash value.
+     */
+    private static int _hash(final long key) {
+        final long lMIXED = key * 0x9E3779B97F4A7C15L;
+        return (int) (lMIXED ^ (lMIXED >>> 32));
+    }
+}
@@ -0,0 +1,227 @@
+/**
+ * <tt>StartupTrace.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+
+package de.hs_bremen.vkb;
+
+import java.io.PrintWriter;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Records the stages of the startup of VKB (Virtual KeyBoard), from the
+ * creation of the input view to the first frame of the keyboard and beyond.
+ *
+ * The service is usually created long before the keyboard is shown for the
+ * first time, so the trace starts with the input view instead. Stages that
+ * are completed before the start are not recorded. The time to the first
+ * visible frame is checked against a fixed budget, so that a regression of
+ * the startup time shows up in the log. The recorded
+ * stages can be printed with <tt>dumpsys input_method</tt>.
+ *
+ * All methods must be called on the thread of the input method (IME).
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public final class StartupTrace {
+
+    /**
+     * The tag used for log messages.
+     */
+    private static final String _TAG = "StartupTrace"; //$NON-NLS-1$
+
+    /**
+     * The maximum number of recorded stages.
+     */
+    private static final int _MAX_STAGES = 16;
+
+    /**
+     * The maximum time, in milliseconds, from the start to the first visible
+     * frame.
+     */
+    private final long _lBudgetMillis;
+
+    /**
+     * The names of the recorded stages.
+     */
+    private final String[] _aStageNames = new String[_MAX_STAGES];
+
+    /**
+     * The times, in milliseconds since the start, at which the recorded
+     * stages have been completed.
+     */
+    private final long[] _aStageTimes = new long[_MAX_STAGES];
+
+    /**
+     * The number of recorded stages.
+     */
+    private int _iStages = 0;
+
+    /**
+     * The time, in milliseconds since boot, at which the startup began.
+     */
+    private long _lStartTime = 0L;
+
+    /**
+     * The time, in milliseconds, from the start to the first visible frame,
+     * or <tt>-1</tt> if no frame has been drawn yet.
+     */
+    private long _lTimeToVisibleMillis = -1L;
+
+    /**
+     * Signals whether the trace has been started (<tt>true</tt>) or not (
+     * <tt>false</tt>).
+     */
+    private boolean _bIsStarted = false;
+
+    /**
+     * Signals whether the startup has been completed (<tt>true</tt>) or not (
+     * <tt>false</tt>).
+     */
+    private boolean _bIsFinished = false;
+
+    /**
+     * Creates a trace.
+     *
+     * @param budgetMillis the maximum time, in milliseconds, from the start to
+     *                     the first visible frame.
+     */
+    public StartupTrace(final long budgetMillis) {
+        this._lBudgetMillis = budgetMillis;
+    }
+
+    /**
+     * Starts the trace.
+     */
+    public void begin() {
+        this._lStartTime = SystemClock.uptimeMillis();
+        this._iStages = 0;
+        this._lTimeToVisibleMillis = -1L;
+        this._bIsStarted = true;
+        this._bIsFinished = false;
+    }
+
+    /**
+     * Returns whether the trace has been started.
+     *
+     * @return <tt>true</tt> if the trace has been started, <tt>false</tt>
+     *         otherwise.
+     */
+    public boolean isStarted() {
+        return this._bIsStarted;
+    }
+
+    /**
+     * Records that a stage has been completed.
+     *
+     * Stages before the start, after the end of the startup and beyond the
+     * capacity of the trace are ignored.
+     *
+     * @param stage the name of the stage.
+     */
+    public void mark(final String stage) {
+        if (this._bIsStarted && !this._bIsFinished
+                && this._iStages < _MAX_STAGES) {
+            this._aStageNames[this._iStages] = stage;
+            this._aStageTimes[this._iStages++] = SystemClock.uptimeMillis()
+                - this._lStartTime;
+        }
+    }
+
+    /**
+     * Records that the first frame of the keyboard is about to be drawn and
+     * checks the time against the budget.
+     */
+    public void markVisible() {
+        if (!this._bIsStarted || this.isVisible()) {
+            return;
+        }
+        this.mark("first frame"); //$NON-NLS-1$
+        this._lTimeToVisibleMillis = SystemClock.uptimeMillis()
+            - this._lStartTime;
+        if (this._lTimeToVisibleMillis > this._lBudgetMillis) {
+            Log.w(
+                _TAG,
+                "Keyboard visible after " //$NON-NLS-1$
+                    + this._lTimeToVisibleMillis
+                    + " ms, budget is " //$NON-NLS-1$
+                    + this._lBudgetMillis + " ms" //$NON-NLS-1$
+            );
+        }
+    }
+
+    /**
+     * Records the last stage of the startup and ends the trace.
+     *
+     * @param stage the name of the stage.
+     */
+    public void finish(final String stage) {
+        this.mark(stage);
+        this._bIsFinished = true;
+    }
+
+    /**
+     * Returns whether the first frame of the keyboard has been drawn.
+     *
+     * @return <tt>true</tt> if the keyboard is visible, <tt>false</tt>
+     *         otherwise.
+     */
+    public boolean isVisible() {
+        return -1L != this._lTimeToVisibleMillis;
+    }
+
+    /**
+     * Returns the time from the start to the first visible frame.
+     *
+     * @return the time, in milliseconds, or <tt>-1</tt> if no frame has been
+     *         drawn yet.
+     */
+    public long getTimeToVisibleMillis() {
+        return this._lTimeToVisibleMillis;
+    }
+
+    /**
+     * Prints the recorded stages.
+     *
+     * @param writer the writer to print to.
+     * @param prefix the prefix of each line.
+     */
+    public void dump(final PrintWriter writer, final String prefix) {
+        writer.print(prefix);
+        writer.print("Startup: time to visible="); //$NON-NLS-1$
+        writer.print(this._lTimeToVisibleMillis);
+        writer.print(" ms, budget="); //$NON-NLS-1$
+        writer.print(this._lBudgetMillis);
+        writer.println(" ms"); //$NON-NLS-1$
+        for (int i = 0; i < this._iStages; ++i) {
+            writer.print(prefix);
+            writer.print("  +"); //$NON-NLS-1$
+            writer.print(this._aStageTimes[i]);
+            writer.print(" ms "); //$NON-NLS-1$
+            writer.println(this._aStageNames[i]);
+        }
+    }
+}
@@ -0,0 +1,477 @@
+/**
+ * <tt>SuggestionEngine.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package de.hs_bremen.vkb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+/**
+ * Looks up word suggestions in the dictionaries of several languages at once.
+ *
+ * Only the dictionaries that have been set are queried: the one of the active
+ * language right away, those of the other languages as soon as the input
+ * method has opened them after startup. Each of them is queried by its own
+ * task on a small, fixed thread pool and the results are merged by their
+ * score. The score of a word is its
+ * frequency weighted with the estimated likelihood that the user currently
+ * writes in the language of the dictionary.
+ *
+ * A lookup never blocks the caller: the merged suggestions are posted to the
+ * <tt>{@link Looper}</tt> passed to the constructor, as soon as all
+ * dictionaries have answered or the budget has run out. A lookup that has
+ * been superseded by a newer one is dropped.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public class SuggestionEngine {
+
+    /**
+     * The time, in milliseconds, after which the suggestions of a lookup are
+     * delivered. Dictionaries that do not answer in time are left out of the
+     * result.
+     */
+    public static final long LOOKUP_BUDGET_MILLIS = 15L;
+
+    /**
+     * The weight of the latest observation in the language likelihood
+     * estimate.
+     */
+    private static final float _LIKELIHOOD_ADAPTION_RATE = 0.2f;
+
+    /**
+     * The smallest weight a language can get, so that words of a rarely used
+     * language are still suggested.
+     */
+    private static final float _MIN_LIKELIHOOD = 0.05f;
+
+    /**
+     * The number of threads that query the dictionaries.
+     */
+    private static final int _THREAD_COUNT = 2;
+
+    /**
+     * A suggested word.
+     */
+    public static final class Suggestion {
+
+        /**
+         * The suggested word.
+         */
+        public final String word;
+
+        /**
+         * The score of the word; higher is better.
+         */
+        public final float score;
+
+        /**
+         * The index of the language of the dictionary that suggested the word.
+         */
+        public final int language;
+
+        /**
+         * Constructs a newly allocated <tt>Suggestion</tt>.
+         *
+         * @param word     the suggested word.
+         * @param score    the score of the word.
+         * @param language the index of the language of the word.
+         */
+        private Suggestion(
+            final String word, final float score, final int language
+        ) {
+            this.word = word;
+            this.score = score;
+            this.language = language;
+        }
+    }
+
+    /**
+     * Interface definition for a callback to be invoked when the suggestions
+     * of a lookup are available.
+     */
+    public interface OnSuggestionsListener {
+
+        /**
+         * Called on the looper of the <tt>SuggestionEngine</tt> with the
+         * suggestions of the latest lookup.
+         *
+         * @param prefix      the prefix that has been looked up.
+         * @param suggestions the suggestions, best first. Each word is
+         *                    contained only once.
+         */
+        void onSuggestions(String prefix, List<Suggestion> suggestions);
+    }
+
+    /**
+     * A lookup in all dictionaries.
+     *
+     * The tasks on the thread pool store their result and post the lookup to
+     * the looper of the engine when the last one has finished; a timeout
+     * posted at the start delivers the results collected so far.
+     */
+    private final class Lookup implements Runnable {
+
+        /**
+         * The prefix the user has typed so far.
+         */
+        public final String prefix;
+
+        /**
+         * The maximum number of suggestions.
+         */
+        public final int maxSuggestions;
+
+        /**
+         * The callback that receives the suggestions.
+         */
+        public final OnSuggestionsListener listener;
+
+        /**
+         * The suggestions of each language, <tt>null</tt> until the language
+         * has answered.
+         */
+        public final AtomicReferenceArray<Suggestion[]> results;
+
+        /**
+         * The number of dictionaries that have not answered yet.
+         */
+        public final AtomicInteger pending;
+
+        /**
+         * Constructs a newly allocated <tt>Lookup</tt>.
+         *
+         * @param prefix         the prefix the user has typed so far.
+         * @param maxSuggestions the maximum number of suggestions.
+         * @param listener       the callback that receives the suggestions.
+         * @param languages      the number of languages.
+         * @param dictionaries   the number of dictionaries that are queried.
+         */
+        private Lookup(
+            final String prefix, final int maxSuggestions,
+            final OnSuggestionsListener listener, final int languages,
+            final int dictionaries
+        ) {
+            this.prefix = prefix;
+            this.maxSuggestions = maxSuggestions;
+            this.listener = listener;
+            this.results = new AtomicReferenceArray<Suggestion[]>(languages);
+            this.pending = new AtomicInteger(dictionaries);
+        }
+
+        /**
+         * Delivers the suggestions, unless the lookup has been superseded or
+         * delivered already.
+         */
+        @Override
+        public void run() {
+            SuggestionEngine.this._deliver(this);
+        }
+    }
+
+    /**
+     * Orders suggestions by descending score.
+     */
+    private static final Comparator<Suggestion> _BY_SCORE
+        = new Comparator<Suggestion>() {
+            @Override
+            public int compare(final Suggestion lhs, final Suggestion rhs) {
+                return Float.compare(rhs.score, lhs.score);
+            }
+        };
+
+    /**
+     * The dictionaries, indexed by language; <tt>null</tt> for a language
+     * whose dictionary is not open.
+     *
+     * Only accessed from the thread of the input method (IME).
+     */
+    private final UserDictionary[] _aDictionaries;
+
+    /**
+     * The estimated likelihood of each language in the current context,
+     * indexed by language.
+     *
+     * Only accessed from the thread of the input method (IME).
+     */
+    private final float[] _aLikelihoods;
+
+    /**
+     * The thread pool that queries the dictionaries.
+     */
+    private final ExecutorService _oExecutor;
+
+    /**
+     * The <tt>Handler</tt> that delivers the suggestions.
+     */
+    private final Handler _oHandler;
+
+    /**
+     * The latest lookup that has not been delivered yet, or <tt>null</tt>.
+     *
+     * Only accessed from the looper of the engine.
+     */
+    private Lookup _oCurrentLookup = null;
+
+    /**
+     * Creates a suggestion engine without dictionaries.
+     *
+     * @param languages the number of languages.
+     * @param looper    the looper the suggestions are delivered on, which
+     *                  must be the looper of the calling thread.
+     */
+    public SuggestionEngine(final int languages, final Looper looper) {
+        this._oHandler = new Handler(looper);
+        this._aDictionaries = new UserDictionary[languages];
+        this._aLikelihoods = new float[languages];
+        this.resetContext();
+
+        this._oExecutor = Executors.newFixedThreadPool(
+            _THREAD_COUNT, new ThreadFactory() {
+                private int _iCount = 0;
+
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread oTHREAD = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(
+                                Process.THREAD_PRIORITY_LESS_FAVORABLE
+                            );
+                            runnable.run();
+                        }
+                    }, "VKB-Suggest-" + (++this._iCount)); //$NON-NLS-1$
+                    oTHREAD.setDaemon(true);
+                    return oTHREAD;
+                }
+            }
+        );
+    }
+
+    /**
+     * Sets the dictionary of a language.
+     *
+     * Lookups that are already running are not affected.
+     *
+     * @param language   the index of the language.
+     * @param dictionary the dictionary, or <tt>null</tt> if it has been
+     *                   closed.
+     */
+    public final void setDictionary(
+        final int language, final UserDictionary dictionary
+    ) {
+        this._aDictionaries[language] = dictionary;
+    }
+
+    /**
+     * Forgets the language likelihood estimate, e.g. when a new editor is
+     * started.
+     */
+    public final void resetContext() {
+        final int iCOUNT = this._aLikelihoods.length;
+        for (int i = 0; i < iCOUNT; ++i) {
+            this._aLikelihoods[i] = 1.0f / iCOUNT;
+        }
+    }
+
+    /**
+     * Updates the language likelihood estimate with a word the user has
+     * committed.
+     *
+     * Every language whose dictionary knows the word gains likelihood, all
+     * other languages, including those whose dictionary is not open, lose
+     * some.
+     *
+     * @param word the committed word.
+     */
+    public final void observeWord(final String word) {
+        final int iCOUNT = this._aDictionaries.length;
+        float fSum = 0;
+        for (int i = 0; i < iCOUNT; ++i) {
+            final UserDictionary oDICTIONARY = this._aDictionaries[i];
+            final float fHIT = (null != oDICTIONARY
+                && oDICTIONARY.getFrequency(word) > 0) ? 1f : 0f;
+            this._aLikelihoods[i] = Math.max(
+                _MIN_LIKELIHOOD,
+                (1f - _LIKELIHOOD_ADAPTION_RATE) * this._aLikelihoods[i]
+                    + _LIKELIHOOD_ADAPTION_RATE * fHIT
+            );
+            fSum += this._aLikelihoods[i];
+        }
+        for (int i = 0; i < iCOUNT; ++i) {
+            this._aLikelihoods[i] /= fSum;
+        }
+    }
+
+    /**
+     * Looks up the best suggestions for the specified prefix in all
+     * dictionaries concurrently.
+     *
+     * Returns immediately; a pending lookup is superseded.
+     *
+     * @param prefix         the prefix the user has typed so far.
+     * @param maxSuggestions the maximum number of suggestions.
+     * @param listener       the callback that receives the suggestions.
+     */
+    public final void lookup(
+        final String prefix, final int maxSuggestions,
+        final OnSuggestionsListener listener
+    ) {
+        if (null != this._oCurrentLookup) {
+            this._oHandler.removeCallbacks(this._oCurrentLookup);
+        }
+        final int iCOUNT = this._aDictionaries.length;
+        int iOpen = 0;
+        for (int i = 0; i < iCOUNT; ++i) {
+            if (null != this._aDictionaries[i]) {
+                ++iOpen;
+            }
+        }
+        final Lookup oLOOKUP = new Lookup(
+            prefix, maxSuggestions, listener, iCOUNT, iOpen
+        );
+        this._oCurrentLookup = oLOOKUP;
+        if (0 == iOpen) {
+            this._oHandler.post(oLOOKUP);
+            return;
+        }
+        this._oHandler.postDelayed(oLOOKUP, LOOKUP_BUDGET_MILLIS);
+
+        for (int i = 0; i < iCOUNT; ++i) {
+            final UserDictionary oDICTIONARY = this._aDictionaries[i];
+            if (null == oDICTIONARY) {
+                continue;
+            }
+            final int iLANGUAGE = i;
+            final float fWEIGHT = this._aLikelihoods[i];
+            this._oExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    oLOOKUP.results.set(
+                        iLANGUAGE, SuggestionEngine._lookupLanguage(
+                            oDICTIONARY, iLANGUAGE, fWEIGHT, prefix,
+                            maxSuggestions
+                        )
+                    );
+                    if (0 == oLOOKUP.pending.decrementAndGet()) {
+                        SuggestionEngine.this._oHandler.post(oLOOKUP);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Stops the thread pool.
+     */
+    public final void shutdown() {
+        if (null != this._oCurrentLookup) {
+            this._oHandler.removeCallbacks(this._oCurrentLookup);
+            this._oCurrentLookup = null;
+        }
+        this._oExecutor.shutdownNow();
+    }
+
+    /**
+     * Looks up the suggestions of a single language.
+     *
+     * @param dictionary     the dictionary of the language.
+     * @param language       the index of the language.
+     * @param weight         the likelihood of the language.
+     * @param prefix         the prefix the user has typed so far.
+     * @param maxSuggestions the maximum number of suggestions.
+     *
+     * @return the weighted suggestions of the language.
+     */
+    private static Suggestion[] _lookupLanguage(
+        final UserDictionary dictionary, final int language,
+        final float weight, final String prefix, final int maxSuggestions
+    ) {
+        final String[] aWORDS = new String[maxSuggestions];
+        final int[] aFREQUENCIES = new int[maxSuggestions];
+        final int iFOUND = dictionary.getWordsStartingWith(
+            prefix, aWORDS, aFREQUENCIES
+        );
+        final Suggestion[] aResult = new Suggestion[iFOUND];
+        for (int i = 0; i < iFOUND; ++i) {
+            aResult[i] = new Suggestion(
+                aWORDS[i], weight * aFREQUENCIES[i], language
+            );
+        }
+        return aResult;
+    }
+
+    /**
+     * Merges the results of a lookup that have arrived so far, keeping the
+     * best score of each word, and passes them to its listener.
+     *
+     * @param lookup the lookup to deliver.
+     */
+    private void _deliver(final Lookup lookup) {
+        if (lookup != this._oCurrentLookup) {
+            // Superseded, or delivered by the timeout already.
+            return;
+        }
+        this._oCurrentLookup = null;
+        this._oHandler.removeCallbacks(lookup);
+
+        final Map<String, Suggestion> oMERGED
+            = new HashMap<String, Suggestion>();
+        for (int i = 0; i < lookup.results.length(); ++i) {
+            final Suggestion[] aRESULT = lookup.results.get(i);
+            if (null == aRESULT) {
+                continue;
+            }
+            for (Suggestion oSuggestion : aRESULT) {
+                final Suggestion oBEST = oMERGED.get(oSuggestion.word);
+                if (null == oBEST || oBEST.score < oSuggestion.score) {
+                    oMERGED.put(oSuggestion.word, oSuggestion);
+                }
+            }
+        }
+
+        final List<Suggestion> oRESULT = new ArrayList<Suggestion>(
+            oMERGED.values()
+        );
+        Collections.sort(oRESULT, _BY_SCORE);
+        lookup.listener.onSuggestions(
+            lookup.prefix, (oRESULT.size() > lookup.maxSuggestions)
+                ? oRESULT.subList(0, lookup.maxSuggestions) : oRESULT
+        );
+    }
+}
@@ -0,0 +1,362 @@
+/**
+ * <tt>TextCommitter.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package de.hs_bremen.vkb;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import android.inputmethodservice.InputMethodService;
+import android.os.Handler;
+import android.view.KeyEvent;
+import android.view.inputmethod.InputConnection;
+
+/**
+ * Commits text of arbitrary length to the current editor.
+ *
+ * Short text is committed at once. Long text is split into chunks of bounded
+ * size, so that no single <tt>commitText()</tt> call exceeds the size limit of
+ * a binder transaction. A few chunks are committed inside one batch edit, then
+ * the committer waits for the editor to acknowledge them by reporting the new
+ * selection before it sends the next batch. The keyboard thus stays responsive
+ * while large snippets or pastes are committed.
+ *
+ * Text, keys and replacements entered while text is streamed are queued and
+ * committed in the order in which they have been entered, so that e.g. a
+ * backspace never deletes a character in front of the streamed text.
+ *
+ * All methods must be called on the thread of the input method (IME).
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public class TextCommitter {
+
+    /**
+     * The maximum number of characters committed by one <tt>commitText()</tt>
+     * call.
+     */
+    public static final int CHUNK_SIZE = 1024;
+
+    /**
+     * The number of chunks committed inside one batch edit.
+     */
+    private static final int _CHUNKS_PER_BATCH = 4;
+
+    /**
+     * The time, in milliseconds, to wait for the acknowledgement of a batch
+     * before the next batch is sent anyway.
+     */
+    private static final long _ACKNOWLEDGEMENT_TIMEOUT_MILLIS = 100L;
+
+    /**
+     * A key that waits to be sent after the current text.
+     */
+    private static final class PendingKey {
+
+        /**
+         * The key code, as defined by <tt>{@link KeyEvent}</tt>.
+         */
+        public final int keyCode;
+
+        /**
+         * The PC modifiers of the key.
+         */
+        public final int metaState;
+
+        /**
+         * Constructs a newly allocated <tt>PendingKey</tt>.
+         *
+         * @param keyCode   the key code.
+         * @param metaState the PC modifiers of the key.
+         */
+        private PendingKey(final int keyCode, final int metaState) {
+            this.keyCode = keyCode;
+            this.metaState = metaState;
+        }
+    }
+
+    /**
+     * A replacement that waits to be applied after the current text.
+     */
+    private static final class PendingReplacement {
+
+        /**
+         * The number of characters to delete before the cursor.
+         */
+        public final int length;
+
+        /**
+         * The text to commit in their place.
+         */
+        public final CharSequence text;
+
+        /**
+         * Constructs a newly allocated <tt>PendingReplacement</tt>.
+         *
+         * @param length the number of characters to delete.
+         * @param text   the text to commit.
+         */
+        private PendingReplacement(final int length, final CharSequence text) {
+            this.length = length;
+            this.text = text;
+        }
+    }
+
+    /**
+     * The input method (IME) whose current editor receives the text.
+     */
+    private final InputMethodService _oService;
+
+    /**
+     * The <tt>Handler</tt> used to schedule the next batch.
+     */
+    private final Handler _oHandler = new Handler();
+
+    /**
+     * The text (<tt>CharSequence</tt>), the keys (<tt>PendingKey</tt>) and the
+     * replacements (<tt>PendingReplacement</tt>) that wait to be committed
+     * after the current text, in the order in which they have been entered.
+     */
+    private final Queue<Object> _oPending = new ArrayDeque<Object>();
+
+    /**
+     * Sends the next batch of the current text.
+     */
+    private final Runnable _oSendNextBatch = new Runnable() {
+        @Override
+        public void run() {
+            TextCommitter.this._sendBatch();
+        }
+    };
+
+    /**
+     * The text that is currently streamed, or <tt>null</tt> if idle.
+     */
+    private CharSequence _oCurrentText = null;
+
+    /**
+     * The index of the first character of <tt>_oCurrentText</tt> that has not
+     * yet been committed.
+     */
+    private int _iCurrentOffset = 0;
+
+    /**
+     * Creates a committer for the current editor of the specified input
+     * method (IME).
+     *
+     * @param service the input method (IME).
+     */
+    public TextCommitter(final InputMethodService service) {
+        this._oService = service;
+    }
+
+    /**
+     * Commits the specified text to the current editor.
+     *
+     * Text that fits into one chunk is committed immediately if no other text
+     * is streamed, longer text is streamed in batches.
+     *
+     * @param text the text to commit.
+     */
+    public final void commit(final CharSequence text) {
+        if (0 == text.length()) {
+            return;
+        }
+        if (null != this._oCurrentText) {
+            // Keep the order in which the text has been entered.
+            this._oPending.add(text);
+            return;
+        }
+        if (text.length() <= CHUNK_SIZE) {
+            final InputConnection oIC = this._oService
+                .getCurrentInputConnection();
+            if (null != oIC) {
+                oIC.commitText(text, 1);
+            }
+            return;
+        }
+        this._oCurrentText = text;
+        this._iCurrentOffset = 0;
+        this._sendBatch();
+    }
+
+    /**
+     * Replaces the specified number of characters before the cursor by the
+     * specified text.
+     *
+     * The replacement is applied immediately if no text is streamed,
+     * otherwise it is queued behind that text, so that the characters that
+     * are deleted are the ones entered last. The deletion and the text, or
+     * its first batch if the text is streamed, are applied inside one batch
+     * edit; the remaining batches of long text follow as for
+     * <tt>{@link #commit(CharSequence)}</tt>.
+     *
+     * @param length the number of characters to delete.
+     * @param text   the text to commit.
+     */
+    public final void replace(final int length, final CharSequence text) {
+        if (null != this._oCurrentText) {
+            this._oPending.add(new PendingReplacement(length, text));
+            return;
+        }
+        final InputConnection oIC = this._oService.getCurrentInputConnection();
+        if (null == oIC) {
+            return;
+        }
+        oIC.beginBatchEdit();
+        try {
+            oIC.deleteSurroundingText(length, 0);
+            this.commit(text);
+        } finally {
+            oIC.endBatchEdit();
+        }
+    }
+
+    /**
+     * Sends the specified key together with the specified PC modifiers to the
+     * current editor.
+     *
+     * The key is sent immediately if no text is streamed, otherwise it is
+     * queued behind that text.
+     *
+     * @param keyCode   the key code, as defined by <tt>{@link KeyEvent}</tt>.
+     * @param metaState the PC modifiers of the key, see <tt>{@link
+     *                  KeyChordEngine#MODIFIER_MASK}</tt>.
+     */
+    public final void sendKey(final int keyCode, final int metaState) {
+        if (null != this._oCurrentText) {
+            this._oPending.add(new PendingKey(keyCode, metaState));
+            return;
+        }
+        final InputConnection oIC = this._oService.getCurrentInputConnection();
+        if (null != oIC) {
+            KeyChordEngine.sendKeyEvents(oIC, keyCode, metaState);
+        }
+    }
+
+    /**
+     * Checks whether text is currently streamed.
+     *
+     * @return <tt>true</tt> if text is streamed, <tt>false</tt> otherwise.
+     */
+    public final boolean isBusy() {
+        return null != this._oCurrentText;
+    }
+
+    /**
+     * Signals that the editor has reported a new selection, i.e. that it has
+     * applied the previous batch.
+     */
+    public final void onSelectionUpdated() {
+        if (null != this._oCurrentText) {
+            this._oHandler.removeCallbacks(this._oSendNextBatch);
+            this._oHandler.post(this._oSendNextBatch);
+        }
+    }
+
+    /**
+     * Discards all text that has not yet been committed, e.g. because the
+     * editor has been closed.
+     */
+    public final void cancel() {
+        this._oHandler.removeCallbacks(this._oSendNextBatch);
+        this._oPending.clear();
+        this._oCurrentText = null;
+    }
+
+    /**
+     * Commits the next batch of chunks of the current text inside one batch
+     * edit, then waits for the acknowledgement of the editor.
+     */
+    private void _sendBatch() {
+        final InputConnection oIC = this._oService.getCurrentInputConnection();
+        if (null == oIC) {
+            this.cancel();
+            return;
+        }
+
+        final CharSequence oTEXT = this._oCurrentText;
+        final int iLENGTH = oTEXT.length();
+        oIC.beginBatchEdit();
+        try {
+            for (int i = 0; i < _CHUNKS_PER_BATCH
+                    && this._iCurrentOffset < iLENGTH; ++i) {
+                int iEnd = Math.min(
+                    iLENGTH, this._iCurrentOffset + CHUNK_SIZE
+                );
+                // Never split a surrogate pair.
+                if (iEnd < iLENGTH
+                        && Character.isHighSurrogate(oTEXT.charAt(iEnd - 1))) {
+                    --iEnd;
+                }
+                if (!oIC.commitText(
+                    oTEXT.subSequence(this._iCurrentOffset, iEnd), 1
+                )) {
+                    // The connection is no longer valid.
+                    this._oPending.clear();
+                    this._iCurrentOffset = iLENGTH;
+                    break;
+                }
+                this._iCurrentOffset = iEnd;
+            }
+        } finally {
+            oIC.endBatchEdit();
+        }
+
+        if (this._iCurrentOffset < iLENGTH) {
+            this._oHandler.postDelayed(
+                this._oSendNextBatch, _ACKNOWLEDGEMENT_TIMEOUT_MILLIS
+            );
+            return;
+        }
+
+        // Continue with the text and the keys entered in the meantime.
+        this._oCurrentText = null;
+        this._commitPending();
+    }
+
+    /**
+     * Commits the queued text and sends the queued keys in order, until long
+     * text starts to be streamed again.
+     */
+    private void _commitPending() {
+        while (null == this._oCurrentText) {
+            final Object oNEXT = this._oPending.poll();
+            if (null == oNEXT) {
+                return;
+            }
+            if (oNEXT instanceof PendingKey) {
+                final PendingKey oKEY = (PendingKey) oNEXT;
+                this.sendKey(oKEY.keyCode, oKEY.metaState);
+            } else if (oNEXT instanceof PendingReplacement) {
+                final PendingReplacement oREPLACEMENT
+                    = (PendingReplacement) oNEXT;
+                this.replace(oREPLACEMENT.length, oREPLACEMENT.text);
+            } else {
+                this.commit((CharSequence) oNEXT);
+            }
+        }
+    }
+}
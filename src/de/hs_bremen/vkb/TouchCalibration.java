@@ -0,0 +1,478 @@
+/**
+ * <tt>TouchCalibration.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package de.hs_bremen.vkb;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Learns where the user actually touches each key.
+ *
+ * For every key, per layout and per screen orientation, the running mean and
+ * covariance of the offsets of accepted touches from the center of the key are
+ * kept, in fractions of the size of the key, so that they survive rescaling.
+ * Touches are then resolved to the key under which they are most likely.
+ *
+ * The statistics are kept in an open addressing hash table of primitive
+ * arrays with a fixed capacity of <tt>{@link #MAX_KEYS}</tt> keys; keys beyond
+ * it are not learned. Each update takes constant time and never allocates.
+ * Older touches are forgotten gradually, so that the model follows the user.
+ *
+ * The table is persisted as a flat binary file that is memory-mapped when it
+ * is read.
+ *
+ * All methods, except <tt>{@link #read(File)}</tt> and <tt>{@link
+ * #write(File, byte[])}</tt>, must be called on the thread of the input method
+ * (IME).
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public final class TouchCalibration {
+
+    /**
+     * The name of the file the calibration is stored in.
+     */
+    public static final String FILE_NAME
+        = "touch_calibration.bin"; //$NON-NLS-1$
+
+    /**
+     * The maximum number of keys that are learned.
+     */
+    public static final int MAX_KEYS = 512;
+
+    /**
+     * The number of entries of the hash table, a power of two, twice
+     * <tt>{@link #MAX_KEYS}</tt> to keep probe sequences short.
+     */
+    private static final int _TABLE_SIZE = 2 * MAX_KEYS;
+
+    /**
+     * The magic number at the start of the file (<tt>VKTC</tt>).
+     */
+    private static final int _MAGIC = 0x564B5443;
+
+    /**
+     * The version of the file format.
+     */
+    private static final int _VERSION = 1;
+
+    /**
+     * The size, in bytes, of the header of the file.
+     */
+    private static final int _HEADER_SIZE = 12;
+
+    /**
+     * The size, in bytes, of a key in the file.
+     */
+    private static final int _RECORD_SIZE = 32;
+
+    /**
+     * The number of touches before the statistics of a key are used.
+     */
+    private static final int _MIN_SAMPLES = 8;
+
+    /**
+     * The number of touches after which older touches are forgotten
+     * gradually.
+     */
+    private static final int _MAX_WEIGHT = 64;
+
+    /**
+     * The variance of the offsets of a key without statistics, that of
+     * touches spread evenly over the key.
+     */
+    private static final float _DEFAULT_VARIANCE = 1f / 12f;
+
+    /**
+     * The smallest variance used, so that a few identical touches cannot
+     * shrink a key to a point.
+     */
+    private static final float _MIN_VARIANCE = 0.005f;
+
+    /**
+     * The IDs of the keys, valid where <tt>{@link #_aCounts}</tt> is not
+     * <tt>0</tt>.
+     */
+    private final long[] _aIds = new long[_TABLE_SIZE];
+
+    /**
+     * The number of touches of each key, <tt>0</tt> for a free entry.
+     */
+    private final int[] _aCounts = new int[_TABLE_SIZE];
+
+    /**
+     * The mean horizontal offset of each key.
+     */
+    private final float[] _aMeanX = new float[_TABLE_SIZE];
+
+    /**
+     * The mean vertical offset of each key.
+     */
+    private final float[] _aMeanY = new float[_TABLE_SIZE];
+
+    /**
+     * The variance of the horizontal offsets of each key.
+     */
+    private final float[] _aVarX = new float[_TABLE_SIZE];
+
+    /**
+     * The variance of the vertical offsets of each key.
+     */
+    private final float[] _aVarY = new float[_TABLE_SIZE];
+
+    /**
+     * The covariance of the offsets of each key.
+     */
+    private final float[] _aCovXY = new float[_TABLE_SIZE];
+
+    /**
+     * The number of learned keys.
+     */
+    private int _iSize = 0;
+
+    /**
+     * Signals whether touches are learned.
+     */
+    private boolean _bIsLearningEnabled = true;
+
+    /**
+     * Signals whether the calibration has changed since it has been written.
+     */
+    private boolean _bIsDirty = false;
+
+    /**
+     * The number of touches that have not been learned because the table is
+     * full.
+     */
+    private int _iRejectedCount = 0;
+
+    /**
+     * Returns the ID of a key.
+     *
+     * @param layoutId    the ID of the layout, see <tt>{@link
+     *                    LatinKeyboard#getLayoutId()}</tt>.
+     * @param orientation the orientation of the screen.
+     * @param keyIndex    the index of the key in the layout.
+     *
+     * @return the ID of the key.
+     */
+    public static long getId(
+        final int layoutId, final int orientation, final int keyIndex
+    ) {
+        return ((long) layoutId << 32) | ((orientation & 0xFFL) << 24)
+            | (keyIndex & 0xFFFFFFL);
+    }
+
+    /**
+     * Enables or disables learning, e.g. for password fields.
+     *
+     * @param enabled <tt>true</tt> to learn touches, <tt>false</tt>
+     *                otherwise.
+     */
+    public void setLearningEnabled(final boolean enabled) {
+        this._bIsLearningEnabled = enabled;
+    }
+
+    /**
+     * Learns an accepted touch of a key.
+     *
+     * @param id the ID of the key.
+     * @param dx the horizontal offset of the touch from the center of the key,
+     *           in widths of the key.
+     * @param dy the vertical offset of the touch from the center of the key,
+     *           in heights of the key.
+     */
+    public void learn(final long id, final float dx, final float dy) {
+        if (!this._bIsLearningEnabled) {
+            return;
+        }
+        final int iSLOT = this._find(id);
+        if (0 == this._aCounts[iSLOT]) {
+            if (this._iSize >= MAX_KEYS) {
+                ++this._iRejectedCount;
+                return;
+            }
+            ++this._iSize;
+            this._aIds[iSLOT] = id;
+            this._aMeanX[iSLOT] = 0f;
+            this._aMeanY[iSLOT] = 0f;
+            this._aVarX[iSLOT] = 0f;
+            this._aVarY[iSLOT] = 0f;
+            this._aCovXY[iSLOT] = 0f;
+        }
+        final int iCOUNT = Math.min(this._aCounts[iSLOT] + 1, _MAX_WEIGHT);
+        this._aCounts[iSLOT] = iCOUNT;
+
+        // Welford's update; with a weight capped at _MAX_WEIGHT it turns into
+        // an exponentially weighted average.
+        final float fWEIGHT = 1f / iCOUNT;
+        final float fDX = dx - this._aMeanX[iSLOT];
+        final float fDY = dy - this._aMeanY[iSLOT];
+        this._aMeanX[iSLOT] += fWEIGHT * fDX;
+        this._aMeanY[iSLOT] += fWEIGHT * fDY;
+        final float fKEEP = 1f - fWEIGHT;
+        this._aVarX[iSLOT] = fKEEP * (this._aVarX[iSLOT] + fWEIGHT * fDX * fDX);
+        this._aVarY[iSLOT] = fKEEP * (this._aVarY[iSLOT] + fWEIGHT * fDY * fDY);
+        this._aCovXY[iSLOT] = fKEEP
+            * (this._aCovXY[iSLOT] + fWEIGHT * fDX * fDY);
+        this._bIsDirty = true;
+    }
+
+    /**
+     * Returns whether a key has enough touches for its statistics to be used.
+     *
+     * @param id the ID of the key.
+     *
+     * @return <tt>true</tt> if the key is calibrated, <tt>false</tt>
+     *         otherwise.
+     */
+    public boolean isCalibrated(final long id) {
+        return this._aCounts[this._find(id)] >= _MIN_SAMPLES;
+    }
+
+    /**
+     * Returns how unlikely it is that a touch was meant for a key.
+     *
+     * The cost is the negative log-likelihood, up to a constant, of the
+     * offset under a normal distribution with the statistics of the key, or
+     * those of touches spread evenly over the key if it is not calibrated.
+     *
+     * @param id the ID of the key.
+     * @param dx the horizontal offset of the touch from the center of the key,
+     *           in widths of the key.
+     * @param dy the vertical offset of the touch from the center of the key,
+     *           in heights of the key.
+     *
+     * @return the cost, lower for more likely keys.
+     */
+    public float getCost(final long id, final float dx, final float dy) {
+        final int iSLOT = this._find(id);
+        float fMeanX = 0f;
+        float fMeanY = 0f;
+        float fVarX = _DEFAULT_VARIANCE;
+        float fVarY = _DEFAULT_VARIANCE;
+        float fCov = 0f;
+        if (this._aCounts[iSLOT] >= _MIN_SAMPLES) {
+            fMeanX = this._aMeanX[iSLOT];
+            fMeanY = this._aMeanY[iSLOT];
+            fVarX = Math.max(this._aVarX[iSLOT], _MIN_VARIANCE);
+            fVarY = Math.max(this._aVarY[iSLOT], _MIN_VARIANCE);
+            fCov = this._aCovXY[iSLOT];
+        }
+        float fDet = fVarX * fVarY - fCov * fCov;
+        if (fDet < _MIN_VARIANCE * _MIN_VARIANCE) {
+            // Nearly collinear touches; ignore the correlation.
+            fCov = 0f;
+            fDet = fVarX * fVarY;
+        }
+        final float fDX = dx - fMeanX;
+        final float fDY = dy - fMeanY;
+        final float fDISTANCE = (fVarY * fDX * fDX - 2f * fCov * fDX * fDY
+            + fVarX * fDY * fDY) / fDet;
+        return fDISTANCE + (float) Math.log(fDet);
+    }
+
+    /**
+     * Returns the number of learned keys.
+     *
+     * @return the number of keys.
+     */
+    public int size() {
+        return this._iSize;
+    }
+
+    /**
+     * Returns whether the calibration has changed since it has been written.
+     *
+     * @return <tt>true</tt> if the calibration has changed, <tt>false</tt>
+     *         otherwise.
+     */
+    public boolean isDirty() {
+        return this._bIsDirty;
+    }
+
+    /**
+     * Returns the calibration in the format of its file, to be written by
+     * <tt>{@link #write(File, byte[])}</tt> on another thread.
+     *
+     * @return the content of the file.
+     */
+    public byte[] toByteArray() {
+        final ByteBuffer oBUFFER = ByteBuffer.allocate(
+            _HEADER_SIZE + _RECORD_SIZE * this._iSize
+        );
+        oBUFFER.putInt(_MAGIC);
+        oBUFFER.putInt(_VERSION);
+        oBUFFER.putInt(this._iSize);
+        for (int i = 0; i < _TABLE_SIZE; ++i) {
+            if (0 != this._aCounts[i]) {
+                oBUFFER.putLong(this._aIds[i]);
+                oBUFFER.putInt(this._aCounts[i]);
+                oBUFFER.putFloat(this._aMeanX[i]);
+                oBUFFER.putFloat(this._aMeanY[i]);
+                oBUFFER.putFloat(this._aVarX[i]);
+                oBUFFER.putFloat(this._aVarY[i]);
+                oBUFFER.putFloat(this._aCovXY[i]);
+            }
+        }
+        this._bIsDirty = false;
+        return oBUFFER.array();
+    }
+
+    /**
+     * Reads a calibration from its file.
+     *
+     * @param file the file.
+     *
+     * @return the calibration, empty if the file does not exist or is
+     *         invalid.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    public static TouchCalibration read(final File file) throws IOException {
+        final TouchCalibration oCALIBRATION = new TouchCalibration();
+        if (!file.exists()) {
+            return oCALIBRATION;
+        }
+        final FileInputStream oSTREAM = new FileInputStream(file);
+        try {
+            final FileChannel oCHANNEL = oSTREAM.getChannel();
+            final MappedByteBuffer oBUFFER = oCHANNEL.map(
+                FileChannel.MapMode.READ_ONLY, 0, oCHANNEL.size()
+            );
+            if (oBUFFER.remaining() < _HEADER_SIZE
+                    || oBUFFER.getInt() != _MAGIC
+                    || oBUFFER.getInt() != _VERSION) {
+                return oCALIBRATION;
+            }
+            final int iCOUNT = Math.min(
+                Math.min(oBUFFER.getInt(), MAX_KEYS),
+                oBUFFER.remaining() / _RECORD_SIZE
+            );
+            for (int i = 0; i < iCOUNT; ++i) {
+                final long lID = oBUFFER.getLong();
+                final int iSLOT = oCALIBRATION._find(lID);
+                final int iSAMPLES = oBUFFER.getInt();
+                if (0 != oCALIBRATION._aCounts[iSLOT] || iSAMPLES <= 0) {
+                    oBUFFER.position(oBUFFER.position() + _RECORD_SIZE - 12);
+                    continue;
+                }
+                oCALIBRATION._aIds[iSLOT] = lID;
+                oCALIBRATION._aCounts[iSLOT] = Math.min(iSAMPLES, _MAX_WEIGHT);
+                oCALIBRATION._aMeanX[iSLOT] = oBUFFER.getFloat();
+                oCALIBRATION._aMeanY[iSLOT] = oBUFFER.getFloat();
+                oCALIBRATION._aVarX[iSLOT] = oBUFFER.getFloat();
+                oCALIBRATION._aVarY[iSLOT] = oBUFFER.getFloat();
+                oCALIBRATION._aCovXY[iSLOT] = oBUFFER.getFloat();
+                ++oCALIBRATION._iSize;
+            }
+        } finally {
+            oSTREAM.close();
+        }
+        return oCALIBRATION;
+    }
+
+    /**
+     * Writes the content of a calibration file.
+     *
+     * The content is written to a temporary file first and renamed
+     * afterwards, so that a crash never leaves a partial file behind.
+     *
+     * @param file the file.
+     * @param data the content, see <tt>{@link #toByteArray()}</tt>.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    public static void write(final File file, final byte[] data)
+        throws IOException {
+        final File oTEMP = new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+        final FileOutputStream oSTREAM = new FileOutputStream(oTEMP);
+        try {
+            final DataOutputStream oOUTPUT = new DataOutputStream(
+                new BufferedOutputStream(oSTREAM)
+            );
+            oOUTPUT.write(data);
+            oOUTPUT.flush();
+            oSTREAM.getFD().sync();
+        } finally {
+            oSTREAM.close();
+        }
+        if (!oTEMP.renameTo(file)) {
+            throw new IOException("Cannot replace " + file); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Prints the statistics of this calibration.
+     *
+     * @param writer the writer to print to.
+     * @param prefix the prefix of each line.
+     */
+    public void dump(final PrintWriter writer, final String prefix) {
+        int iCalibrated = 0;
+        for (int i = 0; i < _TABLE_SIZE; ++i) {
+            if (this._aCounts[i] >= _MIN_SAMPLES) {
+                ++iCalibrated;
+            }
+        }
+        writer.print(prefix);
+        writer.print("Touch calibration: keys="); //$NON-NLS-1$
+        writer.print(this._iSize);
+        writer.print('/');
+        writer.print(MAX_KEYS);
+        writer.print(", calibrated="); //$NON-NLS-1$
+        writer.print(iCalibrated);
+        writer.print(", rejected="); //$NON-NLS-1$
+        writer.print(this._iRejectedCount);
+        writer.print(", learning="); //$NON-NLS-1$
+        writer.println(this._bIsLearningEnabled);
+    }
+
+    /**
+     * Returns the entry of a key, or the free entry where it would be
+     * inserted.
+     *
+     * @param id the ID of the key.
+     *
+     * @return the index of the entry.
+     */
+    private int _find(final long id) {
+        final int iMASK = _TABLE_SIZE - 1;
+        int iSlot = ((int) (id ^ (id >>> 32)) * 0x9E3779B9) >>> 16 & iMASK;
+        while (0 != this._aCounts[iSlot] && id != this._aIds[iSlot]) {
+            iSlot = (iSlot + 1) & iMASK;
+        }
+        return iSlot;
+    }
+}
@@ -0,0 +1,598 @@
+/**
+ * <tt>UserDictionary.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package de.hs_bremen.vkb;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.TreeMap;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.util.Log;
+
+/**
+ * The personal dictionary of VKB (Virtual KeyBoard) that learns the words the
+ * user commits.
+ *
+ * Learned words are appended to a binary log file. The log is synchronized to
+ * the storage device in batches and merged into a sorted snapshot file by a
+ * background compaction, once it has grown large enough. The snapshot starts
+ * with an offset table pointing at the sorted words. It is memory-mapped and
+ * read into memory when the dictionary is loaded; every record is checked
+ * against the bounds of the file, and a corrupt snapshot is ignored, so that
+ * only the words of the log are loaded.
+ *
+ * All disk I/O happens on the <tt>{@link Looper}</tt> passed to the
+ * constructor, which must not be the looper of the input method (IME).
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public class UserDictionary implements Handler.Callback {
+
+    /**
+     * The maximum length of a word that is learned.
+     */
+    public static final int MAX_WORD_LENGTH = 48;
+
+    /**
+     * The tag used for log messages.
+     */
+    private static final String _TAG = "UserDictionary"; //$NON-NLS-1$
+
+    /**
+     * The magic number at the start of a snapshot file (<tt>VKBD</tt>).
+     */
+    private static final int _SNAPSHOT_MAGIC = 0x564B4244;
+
+    /**
+     * The version of the snapshot file format.
+     */
+    private static final int _SNAPSHOT_VERSION = 1;
+
+    /**
+     * The size, in bytes, of the snapshot header (magic, version and number of
+     * words).
+     */
+    private static final int _SNAPSHOT_HEADER_SIZE = 12;
+
+    /**
+     * The number of log records after which the log is synchronized to the
+     * storage device.
+     */
+    private static final int _SYNC_BATCH_SIZE = 32;
+
+    /**
+     * The delay, in milliseconds, after which a partial batch of log records
+     * is synchronized to the storage device.
+     */
+    private static final long _SYNC_DELAY_MILLIS = 2000L;
+
+    /**
+     * The size, in bytes, of the log file that triggers a compaction.
+     */
+    private static final long _COMPACTION_THRESHOLD = 64L * 1024L;
+
+    /**
+     * Message: load the snapshot and replay the log.
+     */
+    private static final int _MSG_LOAD = 0;
+
+    /**
+     * Message: learn the word in <tt>Message.obj</tt>.
+     */
+    private static final int _MSG_LEARN = 1;
+
+    /**
+     * Message: synchronize the log to the storage device.
+     */
+    private static final int _MSG_SYNC = 2;
+
+    /**
+     * Message: merge the log into the snapshot.
+     */
+    private static final int _MSG_COMPACT = 3;
+
+    /**
+     * Message: synchronize and close the log.
+     */
+    private static final int _MSG_CLOSE = 4;
+
+    /**
+     * The <tt>Handler</tt> of the background thread doing the disk I/O.
+     */
+    private final Handler _oHandler;
+
+    /**
+     * The append-only log file.
+     */
+    private final File _oLogFile;
+
+    /**
+     * The snapshot file.
+     */
+    private final File _oSnapshotFile;
+
+    /**
+     * The learned words and their frequencies.
+     *
+     * Guarded by itself, since it is written by the background thread and read
+     * by the thread of the input method (IME).
+     */
+    private final TreeMap<String, Integer> _oWords
+        = new TreeMap<String, Integer>();
+
+    /**
+     * The stream of the log file, or <tt>null</tt> if the log is not open.
+     */
+    private FileOutputStream _oLogStream = null;
+
+    /**
+     * The buffered writer on top of <tt>_oLogStream</tt>.
+     */
+    private DataOutputStream _oLogWriter = null;
+
+    /**
+     * The number of log records that have not yet been synchronized to the
+     * storage device.
+     */
+    private int _iUnsyncedRecords = 0;
+
+    /**
+     * Creates a user dictionary that stores its files in the given directory.
+     *
+     * @param directory the directory for the log and the snapshot file.
+     * @param name      the base name of the files, e.g. the language.
+     * @param looper    the looper of the background thread doing disk I/O.
+     */
+    public UserDictionary(
+        final File directory, final String name, final Looper looper
+    ) {
+        this._oLogFile = new File(directory, name + ".log"); //$NON-NLS-1$
+        this._oSnapshotFile = new File(
+            directory, name + ".snapshot" //$NON-NLS-1$
+        );
+        this._oHandler = new Handler(looper, this);
+        this._oHandler.sendEmptyMessage(_MSG_LOAD);
+    }
+
+    /**
+     * Learns the specified word.
+     *
+     * This method returns immediately, the word is written by the background
+     * thread.
+     *
+     * @param word the committed word.
+     */
+    public final void learn(final CharSequence word) {
+        final int iLENGTH = word.length();
+        if (0 == iLENGTH || iLENGTH > MAX_WORD_LENGTH) {
+            return;
+        }
+        this._oHandler.obtainMessage(_MSG_LEARN, word.toString())
+            .sendToTarget();
+    }
+
+    /**
+     * Returns how often the specified word has been learned.
+     *
+     * @param word the word to look up.
+     *
+     * @return the frequency of the word, <tt>0</tt> if it is unknown.
+     */
+    public final int getFrequency(final String word) {
+        synchronized (this._oWords) {
+            final Integer oFREQUENCY = this._oWords.get(word);
+            return (null == oFREQUENCY) ? 0 : oFREQUENCY.intValue();
+        }
+    }
+
+    /**
+     * Collects the most frequent words that start with the specified prefix.
+     *
+     * @param prefix      the prefix of the words.
+     * @param words       receives the words, most frequent first.
+     * @param frequencies receives the frequencies of the words.
+     *
+     * @return the number of words stored, at most <tt>words.length</tt>.
+     */
+    public final int getWordsStartingWith(
+        final String prefix, final String[] words, final int[] frequencies
+    ) {
+        int iCount = 0;
+        synchronized (this._oWords) {
+            for (Map.Entry<String, Integer> oEntry : this._oWords.subMap(
+                prefix, prefix + Character.MAX_VALUE
+            ).entrySet()) {
+                final int iFREQUENCY = oEntry.getValue().intValue();
+                // Insertion sort into the bounded result arrays.
+                int i = (iCount < words.length) ? iCount++ : iCount;
+                while (i > 0 && frequencies[i - 1] < iFREQUENCY) {
+                    if (i < words.length) {
+                        words[i] = words[i - 1];
+                        frequencies[i] = frequencies[i - 1];
+                    }
+                    --i;
+                }
+                if (i < words.length) {
+                    words[i] = oEntry.getKey();
+                    frequencies[i] = iFREQUENCY;
+                }
+            }
+        }
+        return iCount;
+    }
+
+    /**
+     * Synchronizes all pending words to the storage device and closes the log.
+     *
+     * The dictionary must not be used afterwards.
+     */
+    public final void close() {
+        this._oHandler.sendEmptyMessage(_MSG_CLOSE);
+    }
+
+    /**
+     * Handles the messages of the background thread.
+     *
+     * @param msg the message to handle.
+     *
+     * @return <tt>true</tt> if the message has been handled.
+     */
+    @Override
+    public final boolean handleMessage(final Message msg) {
+        try {
+            switch (msg.what) {
+            case _MSG_LOAD:
+                this._load();
+                break;
+            case _MSG_LEARN:
+                this._append((String) msg.obj);
+                break;
+            case _MSG_SYNC:
+                this._sync();
+                break;
+            case _MSG_COMPACT:
+                this._compact();
+                break;
+            case _MSG_CLOSE:
+                this._sync();
+                this._closeLog();
+                break;
+            default:
+                return false;
+            }
+        } catch (IOException ex) {
+            // A failing storage device must never affect typing; the words
+            // learned so far are kept in memory.
+            Log.w(_TAG, "I/O error in " + this._oLogFile, ex); //$NON-NLS-1$
+        }
+        return true;
+    }
+
+    /**
+     * Loads the snapshot and replays the log on top of it, then opens the log
+     * for appending.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    private void _load() throws IOException {
+        if (this._oSnapshotFile.exists()) {
+            this._readSnapshot();
+        }
+        long lValidLength = 0;
+        if (this._oLogFile.exists()) {
+            lValidLength = this._replayLog();
+        }
+        // Drop a torn record at the end of the log, e.g. after a crash.
+        if (lValidLength != this._oLogFile.length()) {
+            final RandomAccessFile oFILE = new RandomAccessFile(
+                this._oLogFile, "rw" //$NON-NLS-1$
+            );
+            try {
+                oFILE.setLength(lValidLength);
+            } finally {
+                oFILE.close();
+            }
+        }
+        this._openLog(true);
+    }
+
+    /**
+     * Reads the snapshot file into memory.
+     *
+     * The words are only added if the whole snapshot is valid.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    private void _readSnapshot() throws IOException {
+        final FileInputStream oSTREAM = new FileInputStream(
+            this._oSnapshotFile
+        );
+        try {
+            final FileChannel oCHANNEL = oSTREAM.getChannel();
+            final MappedByteBuffer oBUFFER = oCHANNEL.map(
+                FileChannel.MapMode.READ_ONLY, 0, oCHANNEL.size()
+            );
+            final TreeMap<String, Integer> oWORDS = this._parseSnapshot(
+                oBUFFER
+            );
+            if (null == oWORDS) {
+                Log.w(
+                    _TAG, "Ignoring invalid snapshot " //$NON-NLS-1$
+                        + this._oSnapshotFile
+                );
+                return;
+            }
+            synchronized (this._oWords) {
+                this._oWords.putAll(oWORDS);
+            }
+        } finally {
+            oSTREAM.close();
+        }
+    }
+
+    /**
+     * Parses the words of a snapshot.
+     *
+     * @param buffer the content of the snapshot file.
+     *
+     * @return the words and their frequencies, or <tt>null</tt> if the header,
+     *         an offset or the length of a word is out of bounds.
+     */
+    private TreeMap<String, Integer> _parseSnapshot(final ByteBuffer buffer) {
+        final int iLIMIT = buffer.limit();
+        if (iLIMIT < _SNAPSHOT_HEADER_SIZE
+                || buffer.getInt() != _SNAPSHOT_MAGIC
+                || buffer.getInt() != _SNAPSHOT_VERSION) {
+            return null;
+        }
+        final int iCOUNT = buffer.getInt();
+        if (iCOUNT < 0 || iCOUNT > (iLIMIT - _SNAPSHOT_HEADER_SIZE) / 12) {
+            // Every word needs an offset, a frequency, a length and a char.
+            return null;
+        }
+        final int iFIRST_RECORD = _SNAPSHOT_HEADER_SIZE + 4 * iCOUNT;
+        final TreeMap<String, Integer> oWORDS = new TreeMap<String, Integer>();
+        final char[] aWord = new char[MAX_WORD_LENGTH];
+        for (int i = 0; i < iCOUNT; ++i) {
+            final int iOFFSET = buffer.getInt(_SNAPSHOT_HEADER_SIZE + 4 * i);
+            if (iOFFSET < iFIRST_RECORD || iOFFSET > iLIMIT - 6) {
+                return null;
+            }
+            buffer.position(iOFFSET);
+            final int iFREQUENCY = buffer.getInt();
+            final int iLENGTH = buffer.getShort();
+            if (iLENGTH <= 0 || iLENGTH > MAX_WORD_LENGTH
+                    || iLENGTH > buffer.remaining() / 2) {
+                return null;
+            }
+            for (int j = 0; j < iLENGTH; ++j) {
+                aWord[j] = buffer.getChar();
+            }
+            oWORDS.put(new String(aWord, 0, iLENGTH), iFREQUENCY);
+        }
+        return oWORDS;
+    }
+
+    /**
+     * Replays the log file into memory.
+     *
+     * @return the length, in bytes, of the intact part of the log.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    private long _replayLog() throws IOException {
+        final DataInputStream oINPUT = new DataInputStream(
+            new BufferedInputStream(new FileInputStream(this._oLogFile))
+        );
+        final char[] aWord = new char[MAX_WORD_LENGTH];
+        long lValidLength = 0;
+        try {
+            while (true) {
+                final int iLENGTH = oINPUT.readShort();
+                if (iLENGTH <= 0 || iLENGTH > MAX_WORD_LENGTH) {
+                    break;
+                }
+                for (int i = 0; i < iLENGTH; ++i) {
+                    aWord[i] = oINPUT.readChar();
+                }
+                this._increment(new String(aWord, 0, iLENGTH));
+                lValidLength += 2 + 2 * iLENGTH;
+            }
+        } catch (EOFException ex) {
+            // The end of the log (or a torn last record) has been reached.
+        } finally {
+            oINPUT.close();
+        }
+        return lValidLength;
+    }
+
+    /**
+     * Appends the specified word to the log and schedules its synchronization.
+     *
+     * @param word the word to learn.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    private void _append(final String word) throws IOException {
+        this._increment(word);
+        if (null == this._oLogWriter) {
+            return;
+        }
+        this._oLogWriter.writeShort(word.length());
+        this._oLogWriter.writeChars(word);
+
+        if (++this._iUnsyncedRecords >= _SYNC_BATCH_SIZE) {
+            this._oHandler.removeMessages(_MSG_SYNC);
+            this._sync();
+        } else if (!this._oHandler.hasMessages(_MSG_SYNC)) {
+            this._oHandler.sendEmptyMessageDelayed(
+                _MSG_SYNC, _SYNC_DELAY_MILLIS
+            );
+        }
+    }
+
+    /**
+     * Increments the frequency of the specified word in memory.
+     *
+     * @param word the word to increment.
+     */
+    private void _increment(final String word) {
+        synchronized (this._oWords) {
+            final Integer oFREQUENCY = this._oWords.get(word);
+            this._oWords.put(
+                word, (null == oFREQUENCY) ? 1 : oFREQUENCY.intValue() + 1
+            );
+        }
+    }
+
+    /**
+     * Flushes the log and forces it to the storage device. Triggers a
+     * compaction if the log has grown too large.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    private void _sync() throws IOException {
+        if (null == this._oLogWriter || 0 == this._iUnsyncedRecords) {
+            return;
+        }
+        this._oLogWriter.flush();
+        this._oLogStream.getFD().sync();
+        this._iUnsyncedRecords = 0;
+
+        if (this._oLogFile.length() >= _COMPACTION_THRESHOLD
+                && !this._oHandler.hasMessages(_MSG_COMPACT)) {
+            this._oHandler.sendEmptyMessage(_MSG_COMPACT);
+        }
+    }
+
+    /**
+     * Writes all words into a new snapshot and truncates the log.
+     *
+     * The snapshot is written to a temporary file first and renamed
+     * afterwards, so that a crash never leaves a partial snapshot behind.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    private void _compact() throws IOException {
+        this._sync();
+
+        // Copy the words, so that the lookups on the thread of the input
+        // method never wait for the disk.
+        final String[] aWORDS;
+        final int[] aFREQUENCIES;
+        synchronized (this._oWords) {
+            aWORDS = new String[this._oWords.size()];
+            aFREQUENCIES = new int[aWORDS.length];
+            int i = 0;
+            for (Map.Entry<String, Integer> oEntry
+                    : this._oWords.entrySet()) {
+                aWORDS[i] = oEntry.getKey();
+                aFREQUENCIES[i] = oEntry.getValue().intValue();
+                ++i;
+            }
+        }
+
+        final File oTEMP = new File(
+            this._oSnapshotFile.getPath() + ".tmp" //$NON-NLS-1$
+        );
+        final FileOutputStream oSTREAM = new FileOutputStream(oTEMP);
+        try {
+            final DataOutputStream oOUTPUT = new DataOutputStream(
+                new BufferedOutputStream(oSTREAM)
+            );
+            oOUTPUT.writeInt(_SNAPSHOT_MAGIC);
+            oOUTPUT.writeInt(_SNAPSHOT_VERSION);
+            oOUTPUT.writeInt(aWORDS.length);
+
+            // The offset table, in the sort order of the words.
+            int iOffset = _SNAPSHOT_HEADER_SIZE + 4 * aWORDS.length;
+            for (int i = 0; i < aWORDS.length; ++i) {
+                oOUTPUT.writeInt(iOffset);
+                iOffset += 6 + 2 * aWORDS[i].length();
+            }
+            for (int i = 0; i < aWORDS.length; ++i) {
+                oOUTPUT.writeInt(aFREQUENCIES[i]);
+                oOUTPUT.writeShort(aWORDS[i].length());
+                oOUTPUT.writeChars(aWORDS[i]);
+            }
+            oOUTPUT.flush();
+            oSTREAM.getFD().sync();
+        } finally {
+            oSTREAM.close();
+        }
+
+        if (!oTEMP.renameTo(this._oSnapshotFile)) {
+            throw new IOException(
+                "Cannot replace " + this._oSnapshotFile //$NON-NLS-1$
+            );
+        }
+        // Every word of the log is part of the snapshot now.
+        this._closeLog();
+        this._openLog(false);
+    }
+
+    /**
+     * Opens the log file.
+     *
+     * @param append <tt>true</tt> to append to the log, <tt>false</tt> to
+     *               truncate it.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    private void _openLog(final boolean append) throws IOException {
+        this._oLogStream = new FileOutputStream(this._oLogFile, append);
+        this._oLogWriter = new DataOutputStream(
+            new BufferedOutputStream(this._oLogStream)
+        );
+    }
+
+    /**
+     * Closes the log file.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    private void _closeLog() throws IOException {
+        if (null != this._oLogWriter) {
+            this._oLogWriter.close();
+            this._oLogWriter = null;
+            this._oLogStream = null;
+        }
+    }
+}
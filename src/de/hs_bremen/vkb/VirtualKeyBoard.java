@@ -22,14 +22,29 @@
 
 package de.hs_bremen.vkb;
 
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import android.content.SharedPreferences;
+import android.content.pm.ApplicationInfo;
 import android.inputmethodservice.InputMethodService;
 import android.inputmethodservice.Keyboard;
 import android.inputmethodservice.KeyboardView.OnKeyboardActionListener;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Process;
 import android.os.SystemClock;
-import android.view.InputDevice;
-import android.view.KeyCharacterMap;
 import android.view.KeyEvent;
 import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.view.inputmethod.CompletionInfo;
 import android.view.inputmethod.EditorInfo;
 import android.view.inputmethod.InputConnection;
@@ -53,32 +68,21 @@ public class VirtualKeyBoard extends InputMethodService implements
     OnKeyboardActionListener {
 
     /**
-     * Enable debug mode if <tt>true</tt>, <tt>false</tt> otherwise.
+     * The maximum time, in milliseconds, from the creation of the input view
+     * to the first visible frame of the keyboard.
      */
-    public static final boolean DEBUG_MODE = false;
+    private static final long _STARTUP_BUDGET_MILLIS = 300L;
 
     /**
-     * The possible languages for the Virtual KeyBoard.
+     * The <tt>LanguageRegistry</tt> with the languages of the Virtual
+     * KeyBoard.
      */
-    private static enum KeyboardLanguage {
-        /**
-         * Germany (German).
-         */
-        DE,
-        /**
-         * United Kingdom (English).
-         */
-        UK,
-        /**
-         * France (French).
-         */
-        FR
-    }
+    private LanguageRegistry _oLanguages;
 
     /**
      * The current language of the Virtual KeyBoard.
      */
-    private KeyboardLanguage _eCurrentLanguage;
+    private LanguageDescriptor _oCurrentLanguage;
 
     /**
      * The currently used <tt>LatinKeyboard</tt>.
@@ -89,52 +93,228 @@ public class VirtualKeyBoard extends InputMethodService implements
     private LatinKeyboard _oKeyboardCurrent = null;
 
     /**
-     * The <tt>LatinKeyboard</tt> which was used before the currently used
-     * <tt>LatinKeyboard</tt>.
+     * The currently used <tt>LatinKeyboardView</tt>.
      */
-    private LatinKeyboard _oKeyboardLast = null;
+    private LatinKeyboardView _oKeyboardView;
 
     /**
-     * The currently used <tt>LatinKeyboardView</tt>.
+     * The layout resource of <tt>_oKeyboardCurrent</tt>.
      */
-    private LatinKeyboardView _oKeyboardView;
+    private int _iCurrentLayout = 0;
 
     /**
-     * The <tt>LatinKeyboard</tt> with the lowercase layout.
+     * The state of all modifier keys, shared by all keyboards.
+     *
+     * The layout modifiers <i>Caps Lock</i>, <i>Alt Gr</i> and <i>Fn</i>
+     * select the current keyboard, the PC modifiers are published by
+     * <tt>_oChordEngine</tt>.
      */
-    private LatinKeyboard _oKeyboardLowercase;
+    private final ModifierState _oModifierState = new ModifierState();
 
     /**
-     * The <tt>LatinKeyboard</tt> with the uppercase layout.
+     * The <tt>KeyChordEngine</tt> that tracks the modifier key meta state bits
+     * <tt>{@link KeyEvent#META_ALT_ON}</tt>, <tt>{@link
+     * KeyEvent#META_CTRL_ON}</tt> and <tt>{@link KeyEvent#META_SHIFT_ON}</tt>
+     * and sends key chords.
      */
-    private LatinKeyboard _oKeyboardUppercase;
+    private final KeyChordEngine _oChordEngine = new KeyChordEngine(
+        this._oModifierState
+    );
 
     /**
-     * The <tt>LatinKeyboard</tt> with the lowercase and Alt Gr layout.
+     * The maximum width, in pixels, of this input method (IME).
      */
-    private LatinKeyboard _oKeyboardLowercaseAltGr;
+    private int _iLastDisplayWidth;
 
     /**
-     * The <tt>LatinKeyboard</tt> with the uppercase and Alt Gr layout.
+     * The background thread that performs all disk I/O of the input method
+     * (IME), so that it never blocks the handling of a key.
      */
-    private LatinKeyboard _oKeyboardUppercaseAltGr;
+    private HandlerThread _oStorageThread;
 
     /**
-     * The <tt>LatinKeyboard</tt> with the Math layout.
+     * The <tt>Handler</tt> of <tt>_oStorageThread</tt>.
      */
-    private LatinKeyboard _oKeyboardMath;
+    private Handler _oStorageHandler;
 
     /**
-     * The mask that includes the modifier key meta state bits <tt>{@link
-     * KeyEvent#META_ALT_ON}</tt>, <tt>{@link KeyEvent#META_CTRL_ON}</tt> and
-     * <tt>{@link KeyEvent#META_SHIFT_ON}</tt>.
+     * The background thread that renders the faces of the keys.
      */
-    private int _iCurrentMetaKeyMask = 0;
+    private HandlerThread _oRenderThread;
 
     /**
-     * The maximum width, in pixels, of this input method (IME).
+     * The background thread that plays the clicks and vibrations of keys.
      */
-    private int _iLastDisplayWidth;
+    private HandlerThread _oFeedbackThread;
+
+    /**
+     * The <tt>KeyFeedback</tt> that plays the clicks and vibrations of keys.
+     */
+    private KeyFeedback _oKeyFeedback;
+
+    /**
+     * The <tt>Handler</tt> of the thread of the input method (IME).
+     */
+    private final Handler _oMainHandler = new Handler();
+
+    /**
+     * The open <tt>UserDictionary</tt> instances, mapped by the identifier of
+     * their language.
+     */
+    private final Map<String, UserDictionary> _oUserDictionaries
+        = new HashMap<String, UserDictionary>(4);
+
+    /**
+     * The <tt>SuggestionEngine</tt> that looks up words in the open
+     * dictionaries.
+     */
+    private SuggestionEngine _oSuggestionEngine;
+
+    /**
+     * The <tt>TextCommitter</tt> that commits text of arbitrary length.
+     */
+    private TextCommitter _oTextCommitter;
+
+    /**
+     * The <tt>KeyboardCache</tt> that keeps the parsed keyboards of recently
+     * used configurations.
+     */
+    private KeyboardCache _oKeyboardCache;
+
+    /**
+     * The <tt>StartupTrace</tt> that measures the time to the first visible
+     * frame of the keyboard.
+     */
+    private final StartupTrace _oStartupTrace = new StartupTrace(
+        _STARTUP_BUDGET_MILLIS
+    );
+
+    /**
+     * The layouts of the current language that are built in the background
+     * after the current keyboard is visible.
+     */
+    private int[] _aSecondaryLayouts = new int[0];
+
+    /**
+     * The index of the next layout of <tt>_aSecondaryLayouts</tt> to build.
+     */
+    private int _iNextSecondaryLayout = 0;
+
+    /**
+     * Signals whether <tt>_oSecondaryLayoutBuilder</tt> is registered (
+     * <tt>true</tt>) or not (<tt>false</tt>).
+     */
+    private boolean _bIsBuildingSecondaryLayouts = false;
+
+    /**
+     * Builds one secondary layout each time the thread of the input method
+     * (IME) is idle, so that building never delays a frame or a key.
+     */
+    private final MessageQueue.IdleHandler _oSecondaryLayoutBuilder
+        = new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                return VirtualKeyBoard.this._buildNextSecondaryLayout();
+            }
+        };
+
+    /**
+     * Records the first frame of the keyboard and starts building the
+     * secondary layouts.
+     */
+    private final ViewTreeObserver.OnPreDrawListener _oFirstFrameListener
+        = new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                VirtualKeyBoard.this._onFirstFrame();
+                return true;
+            }
+        };
+
+    /**
+     * The <tt>LayoutMemory</tt> that remembers the layout last used in the text
+     * fields of each application.
+     */
+    private final LayoutMemory _oLayoutMemory = new LayoutMemory(
+        LayoutMemory.DEFAULT_CAPACITY
+    );
+
+    /**
+     * The package name of the application whose text field is edited, or
+     * <tt>null</tt> if the layout of the current editor is not remembered.
+     */
+    private String _sTextFieldPackage = null;
+
+    /**
+     * The <tt>SnippetMatcher</tt> that detects the triggers of the snippets.
+     */
+    private SnippetMatcher _oSnippetMatcher = new SnippetMatcher(
+        Collections.<String, String>emptyMap()
+    );
+
+    /**
+     * The <tt>TouchCalibration</tt> that learns where the user touches the
+     * keys. Replaced by the stored calibration once it has been read.
+     */
+    private TouchCalibration _oTouchCalibration = new TouchCalibration();
+
+    /**
+     * The <tt>EventLog</tt> that records the recent events for
+     * <tt>{@link #dump(FileDescriptor, PrintWriter, String[])}</tt>.
+     */
+    private final EventLog _oEventLog = new EventLog(
+        EventLog.DEFAULT_CAPACITY
+    );
+
+    /**
+     * The <tt>FrameMonitor</tt> that measures the frames after layout
+     * switches.
+     */
+    private final FrameMonitor _oFrameMonitor = new FrameMonitor();
+
+    /**
+     * The <tt>AllocationMonitor</tt> that checks the allocations of the hot
+     * paths in debuggable builds.
+     */
+    private AllocationMonitor _oAllocationMonitor;
+
+    /**
+     * The <tt>KeystrokeTrace</tt> that records the keys, or <tt>null</tt> if
+     * the trace is disabled.
+     */
+    private KeystrokeTrace _oKeystrokeTrace = null;
+
+    /**
+     * The <tt>DeadKeyComposer</tt> that composes accented characters.
+     */
+    private final DeadKeyComposer _oDeadKeyComposer = new DeadKeyComposer();
+
+    /**
+     * The characters of the word that is currently typed.
+     */
+    private final StringBuilder _oComposingWord = new StringBuilder(
+        UserDictionary.MAX_WORD_LENGTH
+    );
+
+    /**
+     * The number of characters of the word that is currently typed beyond
+     * <tt>{@link UserDictionary#MAX_WORD_LENGTH}</tt>. A word that is too long
+     * is not learned.
+     */
+    private int _iComposingOverflow = 0;
+
+    /**
+     * Signals whether the words typed into the current editor are learned (
+     * <tt>true</tt>) or not (<tt>false</tt>), e.g. for password fields.
+     */
+    private boolean _bIsLearningEnabled = false;
+
+    /**
+     * Signals whether the current editor contains private data (
+     * <tt>true</tt>), whose characters are redacted in the event log, or not
+     * (<tt>false</tt>).
+     */
+    private boolean _bIsPrivateField = true;
 
     /**
      * Called by the system when the service is first created.
@@ -143,6 +323,366 @@ public class VirtualKeyBoard extends InputMethodService implements
     public final void onCreate() {
         // Do not forget to call the onCreate method of the super class.
         super.onCreate();
+        this._oAllocationMonitor = new AllocationMonitor(
+            0 != (this.getApplicationInfo().flags
+                & ApplicationInfo.FLAG_DEBUGGABLE)
+        );
+
+        this._oStorageThread = new HandlerThread(
+            "VKB-Storage", //$NON-NLS-1$
+            Process.THREAD_PRIORITY_BACKGROUND
+        );
+        this._oStorageThread.start();
+        this._oStorageHandler = new Handler(this._oStorageThread.getLooper());
+        this._oRenderThread = new HandlerThread(
+            "VKB-Render", //$NON-NLS-1$
+            Process.THREAD_PRIORITY_BACKGROUND
+        );
+        this._oRenderThread.start();
+        this._oFeedbackThread = new HandlerThread(
+            "VKB-Feedback", //$NON-NLS-1$
+            Process.THREAD_PRIORITY_BACKGROUND
+        );
+        this._oFeedbackThread.start();
+        this._oKeyFeedback = new KeyFeedback(
+            this,
+            this.getSharedPreferences(
+                "VirtualKeyBoard", VirtualKeyBoard.MODE_PRIVATE //$NON-NLS-1$
+            ),
+            this._oFeedbackThread.getLooper()
+        );
+
+        // Reading the manifest does not parse any layout.
+        this._oLanguages = LanguageRegistry.fromXml(
+            this.getResources(), R.xml.languages
+        );
+
+        // Users mix languages, so the dictionaries of the active and the
+        // recent languages are queried for suggestions. They are opened when
+        // a language becomes active and loaded on the storage thread.
+        this._oSuggestionEngine = new SuggestionEngine(
+            this._oLanguages.size(), this._oMainHandler.getLooper()
+        );
+        this._oTextCommitter = new TextCommitter(this);
+        this._oKeyboardCache = new KeyboardCache(
+            this, KeyboardCache.DEFAULT_BUDGET_BYTES
+        );
+        this._loadSnippets();
+        this._loadTouchCalibration();
+        this._openKeystrokeTrace();
+    }
+
+    /**
+     * Compiles the user-defined snippets on the storage thread and installs
+     * them when done.
+     */
+    private void _loadSnippets() {
+        final File oFILE = new File(
+            this.getFilesDir(), SnippetMatcher.SNIPPETS_FILE_NAME
+        );
+        this._oStorageHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final SnippetMatcher oMATCHER = new SnippetMatcher(
+                        SnippetMatcher.readSnippets(oFILE)
+                    );
+                    VirtualKeyBoard.this._oMainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            VirtualKeyBoard.this._oSnippetMatcher = oMATCHER;
+                        }
+                    });
+                } catch (IOException ex) {
+                    Log.w(
+                        "VirtualKeyBoard", //$NON-NLS-1$
+                        "Cannot read " + oFILE, ex //$NON-NLS-1$
+                    );
+                }
+            }
+        });
+    }
+
+    /**
+     * Reads the stored touch calibration on the storage thread and installs
+     * it when done.
+     */
+    private void _loadTouchCalibration() {
+        final File oFILE = new File(
+            this.getFilesDir(), TouchCalibration.FILE_NAME
+        );
+        this._oStorageHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final TouchCalibration oCALIBRATION
+                        = TouchCalibration.read(oFILE);
+                    VirtualKeyBoard.this._oMainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            VirtualKeyBoard.this._installTouchCalibration(
+                                oCALIBRATION
+                            );
+                        }
+                    });
+                } catch (IOException ex) {
+                    Log.w(
+                        "VirtualKeyBoard", //$NON-NLS-1$
+                        "Cannot read " + oFILE, ex //$NON-NLS-1$
+                    );
+                }
+            }
+        });
+    }
+
+    /**
+     * Opens the keystroke trace on the storage thread, if it has been enabled
+     * in the preferences, and installs it when done.
+     */
+    private void _openKeystrokeTrace() {
+        final SharedPreferences oPREFERENCES = this.getSharedPreferences(
+            "VirtualKeyBoard", VirtualKeyBoard.MODE_PRIVATE //$NON-NLS-1$
+        );
+        final File oDIRECTORY = this.getFilesDir();
+        this._oStorageHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!oPREFERENCES.getBoolean(
+                        KeystrokeTrace.PREFERENCE_KEY, false)) {
+                    return;
+                }
+                try {
+                    final KeystrokeTrace oTRACE = KeystrokeTrace.open(
+                        oDIRECTORY
+                    );
+                    VirtualKeyBoard.this._oMainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            VirtualKeyBoard.this._installKeystrokeTrace(
+                                oTRACE
+                            );
+                        }
+                    });
+                } catch (IOException ex) {
+                    Log.w(
+                        "VirtualKeyBoard", //$NON-NLS-1$
+                        "Cannot open the keystroke trace", ex //$NON-NLS-1$
+                    );
+                }
+            }
+        });
+    }
+
+    /**
+     * Starts to record the keys into the keystroke trace.
+     *
+     * @param trace the trace to record into.
+     */
+    private void _installKeystrokeTrace(final KeystrokeTrace trace) {
+        final EditorInfo oEDITOR = this.getCurrentInputEditorInfo();
+        if (null != oEDITOR) {
+            trace.setEditor(
+                oEDITOR.inputType, VirtualKeyBoard._isPrivateField(oEDITOR)
+            );
+        }
+        this._oKeystrokeTrace = trace;
+    }
+
+    /**
+     * Replaces the touch calibration.
+     *
+     * @param calibration the calibration to use.
+     */
+    private void _installTouchCalibration(
+        final TouchCalibration calibration
+    ) {
+        calibration.setLearningEnabled(this._bIsLearningEnabled);
+        this._oTouchCalibration = calibration;
+        if (null != this._oKeyboardView) {
+            this._oKeyboardView.setTouchCalibration(calibration);
+        }
+    }
+
+    /**
+     * Writes the touch calibration on the storage thread, if it has changed.
+     */
+    private void _saveTouchCalibration() {
+        if (!this._oTouchCalibration.isDirty()) {
+            return;
+        }
+        final File oFILE = new File(
+            this.getFilesDir(), TouchCalibration.FILE_NAME
+        );
+        final byte[] aDATA = this._oTouchCalibration.toByteArray();
+        this._oStorageHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    TouchCalibration.write(oFILE, aDATA);
+                } catch (IOException ex) {
+                    Log.w(
+                        "VirtualKeyBoard", //$NON-NLS-1$
+                        "Cannot write " + oFILE, ex //$NON-NLS-1$
+                    );
+                }
+            }
+        });
+    }
+
+    /**
+     * Called by the system to notify the service that it is no longer used and
+     * is being removed.
+     */
+    @Override
+    public final void onDestroy() {
+        if (this._bIsBuildingSecondaryLayouts) {
+            Looper.myQueue().removeIdleHandler(this._oSecondaryLayoutBuilder);
+            this._bIsBuildingSecondaryLayouts = false;
+        }
+        this._oSuggestionEngine.shutdown();
+        for (UserDictionary oDictionary : this._oUserDictionaries.values()) {
+            oDictionary.close();
+        }
+        this._oUserDictionaries.clear();
+
+        // Pending renderings are not needed anymore.
+        if (null != this._oKeyboardView) {
+            this._oKeyboardView.setRenderHandler(null);
+        }
+        this._oRenderThread.getLooper().quit();
+
+        // Quit the feedback thread after the click samples have been unloaded.
+        this._oKeyFeedback.close();
+        final Looper oFEEDBACK_LOOPER = this._oFeedbackThread.getLooper();
+        new Handler(oFEEDBACK_LOOPER).post(new Runnable() {
+            @Override
+            public void run() {
+                oFEEDBACK_LOOPER.quit();
+            }
+        });
+
+        this._saveTouchCalibration();
+        this._oAllocationMonitor.close();
+        if (null != this._oKeystrokeTrace) {
+            final KeystrokeTrace oTRACE = this._oKeystrokeTrace;
+            this._oKeystrokeTrace = null;
+            this._oStorageHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    oTRACE.close();
+                }
+            });
+        }
+        // Quit the storage thread after all pending writes have been handled.
+        final Looper oLOOPER = this._oStorageThread.getLooper();
+        this._oStorageHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                oLOOPER.quit();
+            }
+        });
+
+        super.onDestroy();
+    }
+
+    /**
+     * Called when the operating system has determined that it is a good time
+     * for a process to trim unneeded memory from its process.
+     *
+     * Available since API level 14, hence declared without
+     * <tt>@Override</tt>. The keyboards that are not currently shown are
+     * released in tiers and built again when they are needed.
+     *
+     * @param level the context of the trim, giving a hint of the amount of
+     *              trimming the application may like to perform.
+     */
+    public void onTrimMemory(final int level) {
+        // ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+        final int iTRIM_MEMORY_UI_HIDDEN = 20;
+        // ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+        final int iTRIM_MEMORY_BACKGROUND = 40;
+        // ComponentCallbacks2.TRIM_MEMORY_COMPLETE
+        final int iTRIM_MEMORY_COMPLETE = 80;
+
+        if (level >= iTRIM_MEMORY_COMPLETE) {
+            this.onLowMemory();
+        } else if (level >= iTRIM_MEMORY_BACKGROUND) {
+            // Release all keyboards except the one that is shown.
+            this._oKeyboardCache.trim(0L, this._iCurrentLayout);
+        } else if (level >= iTRIM_MEMORY_UI_HIDDEN
+                && null != this._oCurrentLanguage) {
+            // Release the keyboards of all other languages and the faces of
+            // all keyboards that are not shown.
+            this._oKeyboardCache.trim(
+                0L, this._iCurrentLayout,
+                this._oCurrentLanguage.getLowercaseLayout(),
+                this._oCurrentLanguage.getLowercaseAltGrLayout(),
+                this._oCurrentLanguage.getUppercaseLayout(),
+                this._oCurrentLanguage.getUppercaseAltGrLayout(),
+                R.xml.math
+            );
+            this._oKeyboardCache.releaseFaceAtlases(this._iCurrentLayout);
+        }
+    }
+
+    /**
+     * Called when the overall system is running low on memory.
+     *
+     * Releases all keyboards except the one that is shown, and the faces of
+     * all keys. The faces of the keyboard that is shown are rendered again
+     * when it is drawn.
+     */
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        this._oKeyboardCache.trim(0L, this._iCurrentLayout);
+        this._oKeyboardCache.releaseFaceAtlases();
+    }
+
+    /**
+     * Prints the state of the service, e.g. via <tt>adb shell dumpsys
+     * input_method</tt>.
+     *
+     * Called on a binder thread, so the printed values may be slightly
+     * outdated.
+     *
+     * @param fd     the raw file descriptor that the dump is being sent to.
+     * @param writer the writer to print to.
+     * @param args   additional arguments to the dump request.
+     */
+    @Override
+    protected void dump(
+        final FileDescriptor fd, final PrintWriter writer, final String[] args
+    ) {
+        super.dump(fd, writer, args);
+        this._oStartupTrace.dump(writer, "  "); //$NON-NLS-1$
+        writer.print("  Keyboard cache: keyboards="); //$NON-NLS-1$
+        writer.print(this._oKeyboardCache.size());
+        writer.print(", hits="); //$NON-NLS-1$
+        writer.print(this._oKeyboardCache.getHitCount());
+        writer.print(", misses="); //$NON-NLS-1$
+        writer.print(this._oKeyboardCache.getMissCount());
+        writer.print(", rescales="); //$NON-NLS-1$
+        writer.print(this._oKeyboardCache.getRescaleCount());
+        writer.print(", resident bytes="); //$NON-NLS-1$
+        writer.print(this._oKeyboardCache.getResidentBytes());
+        writer.print(", face bytes="); //$NON-NLS-1$
+        writer.println(this._oKeyboardCache.getFaceAtlasBytes());
+        writer.print("  Layout memory: applications="); //$NON-NLS-1$
+        writer.println(this._oLayoutMemory.size());
+        this._oTouchCalibration.dump(writer, "  "); //$NON-NLS-1$
+        this._oKeyFeedback.dump(writer, "  "); //$NON-NLS-1$
+        this._oFrameMonitor.dump(writer, "  "); //$NON-NLS-1$
+        this._oAllocationMonitor.dump(writer, "  "); //$NON-NLS-1$
+        if (null != this._oKeystrokeTrace) {
+            this._oKeystrokeTrace.dump(writer, "  "); //$NON-NLS-1$
+        } else {
+            writer.println("  Keystroke trace: off"); //$NON-NLS-1$
+        }
+        this._oEventLog.dump(writer, "  "); //$NON-NLS-1$
+        if (null != this._oKeyboardView) {
+            this._oKeyboardView.dump(writer, "  "); //$NON-NLS-1$
+        }
     }
 
     /**
@@ -156,59 +696,143 @@ public class VirtualKeyBoard extends InputMethodService implements
         // Configuration changes can happen after the keyboard gets recreated,
         // so we need to be able to re-build the keyboards if the available
         // space has changed.
-        if (null != this._oKeyboardCurrent) {
-            // Return the maximum width (in pixels) available for the input
-            // method.
-            int iDisplayWidth = this.getMaxWidth();
-            if (iDisplayWidth == this._iLastDisplayWidth) {
-                // The width has not changed.
-                return;
-            }
-
-            this._iLastDisplayWidth = iDisplayWidth;
+        // Return the maximum width (in pixels) available for the input method.
+        final int iDISPLAY_WIDTH = this.getMaxWidth();
+        if (null != this._oKeyboardCurrent
+                && iDISPLAY_WIDTH == this._iLastDisplayWidth) {
+            // The width has not changed.
+            return;
         }
+        this._iLastDisplayWidth = iDISPLAY_WIDTH;
 
-        // Creates the mathematical keyboard from the given xml key layout file.
-        this._oKeyboardMath = new LatinKeyboard(this, R.xml.math);
-        // Sets the language German as the default language.
-        this._eCurrentLanguage = KeyboardLanguage.DE;
+        if (null == this._oCurrentLanguage) {
+            // Sets the first language of the manifest as the default language.
+            this._oCurrentLanguage = this._oLanguages.getDefault();
+        }
         // Creates the keyboards for the given language and sets the current
         // keyboard to lowercase.
         this._createKeyboardsForCurrentLanguage();
+        this._oStartupTrace.mark("interface initialized"); //$NON-NLS-1$
     }
 
     /**
      * Creates the keyboards for the given language and sets the current
      * keyboard to lowercase.
+     *
+     * The keyboards are taken from the cache. Keyboards that are not cached,
+     * e.g. because they have been released on memory pressure, are built
+     * again: the lowercase keyboard at once, the other keyboards in the
+     * background once the keyboard is visible.
+     *
+     * The pre-rendered key faces of the keyboards of the other languages are
+     * released, so that at most the faces of the keyboards of one language
+     * and of the Math keyboard are held.
      */
     private void _createKeyboardsForCurrentLanguage() {
-        int lcXml, lcAltGrXml, ucXml, ucAltGrXml;
-
-        switch (this._eCurrentLanguage) {
-        case UK:
-            lcXml = R.xml.en_uk_lc;
-            lcAltGrXml = R.xml.en_uk_lc_alt_gr;
-            ucXml = R.xml.en_uk_uc;
-            ucAltGrXml = R.xml.en_uk_uc_alt_gr;
-            break;
-        case FR:
-            lcXml = R.xml.fr_fr_lc;
-            lcAltGrXml = R.xml.fr_fr_lc_alt_gr;
-            ucXml = R.xml.fr_fr_uc;
-            ucAltGrXml = R.xml.fr_fr_uc_alt_gr;
-            break;
-        default:
-            lcXml = R.xml.de_de_lc;
-            lcAltGrXml = R.xml.de_de_lc_alt_gr;
-            ucXml = R.xml.de_de_uc;
-            ucAltGrXml = R.xml.de_de_uc_alt_gr;
+        final LanguageDescriptor oLANGUAGE = this._oCurrentLanguage;
+        this._oModifierState.set(ModifierState.LAYOUT_MODIFIERS, false);
+        this._applyModifierLayer();
+        this._oKeyboardCache.releaseFaceAtlases(
+            oLANGUAGE.getLowercaseLayout(),
+            oLANGUAGE.getLowercaseAltGrLayout(),
+            oLANGUAGE.getUppercaseLayout(),
+            oLANGUAGE.getUppercaseAltGrLayout(),
+            R.xml.math
+        );
+
+        this._aSecondaryLayouts = new int[] {
+            oLANGUAGE.getUppercaseLayout(),
+            oLANGUAGE.getLowercaseAltGrLayout(),
+            oLANGUAGE.getUppercaseAltGrLayout(),
+            R.xml.math,
+        };
+        this._iNextSecondaryLayout = 0;
+        if (this._oStartupTrace.isVisible()) {
+            this._startBuildingSecondaryLayouts();
         }
 
-        this._oKeyboardLowercase = new LatinKeyboard(this, lcXml);
-        this._oKeyboardLowercaseAltGr = new LatinKeyboard(this, lcAltGrXml);
-        this._oKeyboardUppercase = new LatinKeyboard(this, ucXml);
-        this._oKeyboardUppercaseAltGr = new LatinKeyboard(this, ucAltGrXml);
-        this._oKeyboardCurrent = this._oKeyboardLowercase;
+        // Whether the keys for accents are dead keys depends on the language.
+        this._finishDeadKey();
+        this._oDeadKeyComposer.setEnabled(oLANGUAGE.hasDeadKeys());
+
+        // The dictionaries of the other languages are opened after startup.
+        this._getUserDictionary(oLANGUAGE);
+    }
+
+    /**
+     * Registers <tt>_oSecondaryLayoutBuilder</tt>, unless it is registered
+     * already.
+     */
+    private void _startBuildingSecondaryLayouts() {
+        if (!this._bIsBuildingSecondaryLayouts) {
+            this._bIsBuildingSecondaryLayouts = true;
+            Looper.myQueue().addIdleHandler(this._oSecondaryLayoutBuilder);
+        }
+    }
+
+    /**
+     * Builds the next secondary layout, unless it is cached already.
+     *
+     * @return <tt>true</tt> if there are more layouts to build, <tt>false</tt>
+     *         otherwise.
+     */
+    private boolean _buildNextSecondaryLayout() {
+        if (this._iNextSecondaryLayout < this._aSecondaryLayouts.length) {
+            this._getKeyboard(
+                this._aSecondaryLayouts[this._iNextSecondaryLayout++]
+            );
+        }
+        if (this._iNextSecondaryLayout < this._aSecondaryLayouts.length) {
+            return true;
+        }
+        this._bIsBuildingSecondaryLayouts = false;
+        this._oStartupTrace.finish("secondary layouts built"); //$NON-NLS-1$
+        this._openUserDictionaries();
+        return false;
+    }
+
+    /**
+     * Opens the <tt>UserDictionary</tt> of each language that is not open yet,
+     * so that the <tt>SuggestionEngine</tt> can query all languages at once.
+     *
+     * The dictionaries are loaded on <tt>_oStorageThread</tt>, after the one
+     * of the active language, which has been opened first.
+     */
+    private void _openUserDictionaries() {
+        for (int i = 0; i < this._oLanguages.size(); ++i) {
+            this._getUserDictionary(this._oLanguages.get(i));
+        }
+    }
+
+    /**
+     * Called before the first frame of the input view is drawn.
+     */
+    private void _onFirstFrame() {
+        final ViewTreeObserver oOBSERVER = this._oKeyboardView
+            .getViewTreeObserver();
+        if (oOBSERVER.isAlive()) {
+            oOBSERVER.removeOnPreDrawListener(this._oFirstFrameListener);
+        }
+        this._oStartupTrace.markVisible();
+        // The idle handler runs once the frame has been drawn.
+        this._startBuildingSecondaryLayouts();
+    }
+
+    /**
+     * Returns the keyboard for the specified layout and the current width from
+     * the cache and lets it share the state of the modifier keys.
+     *
+     * @param xmlLayoutResId the resource file that contains the keyboard
+     *                       layout and keys.
+     *
+     * @return the keyboard.
+     */
+    private LatinKeyboard _getKeyboard(final int xmlLayoutResId) {
+        final LatinKeyboard oKEYBOARD = this._oKeyboardCache.get(
+            xmlLayoutResId, this._iLastDisplayWidth
+        );
+        oKEYBOARD.setModifierState(this._oModifierState);
+        return oKEYBOARD;
     }
 
     /**
@@ -242,18 +866,42 @@ public class VirtualKeyBoard extends InputMethodService implements
      * <tt>onEvaluateInputViewShown()</tt>. To change the input view after the
      * first one is created by this function, use <tt>setInputView(View)</tt>.
      *
+     * The view is inflated once and reused when the input area is created
+     * again, e.g. after a configuration change, since the layout has no
+     * configuration specific resources.
+     *
      * @return the view hierarchy used for the input area
      */
     @Override
     public final View onCreateInputView() {
-        this._oKeyboardView = (LatinKeyboardView) getLayoutInflater().inflate(
-            R.layout.input, null
-        );
-
-        this._oKeyboardView.setOnKeyboardActionListener(this);
+        if (!this._oStartupTrace.isStarted()) {
+            // The keyboard is about to be shown for the first time.
+            this._oStartupTrace.begin();
+        }
+        if (null == this._oKeyboardView) {
+            this._oKeyboardView = (LatinKeyboardView) getLayoutInflater()
+                .inflate(R.layout.input, null);
+            this._oKeyboardView.setOnKeyboardActionListener(this);
+            this._oKeyboardView.setRenderHandler(
+                new Handler(this._oRenderThread.getLooper())
+            );
+            this._oKeyboardView.setTouchCalibration(this._oTouchCalibration);
+            this._oKeyboardView.setFrameMonitor(this._oFrameMonitor);
+        } else if (this._oKeyboardView.getParent() instanceof ViewGroup) {
+            // Detach the view from the window of the previous input area.
+            ((ViewGroup) this._oKeyboardView.getParent()).removeView(
+                this._oKeyboardView
+            );
+        }
 
         // Apply the selected keyboard to the input view.
         this._oKeyboardView.setKeyboard(this._oKeyboardCurrent);
+        this._oStartupTrace.mark("input view inflated"); //$NON-NLS-1$
+        if (!this._oStartupTrace.isVisible()) {
+            this._oKeyboardView.getViewTreeObserver().addOnPreDrawListener(
+                this._oFirstFrameListener
+            );
+        }
 
         // Return the input view.
         return this._oKeyboardView;
@@ -278,7 +926,10 @@ public class VirtualKeyBoard extends InputMethodService implements
         final EditorInfo info, final boolean restarting
     ) {
         super.onStartInputView(info, restarting);
-        // Apply the selected keyboard to the input view.
+        this._oKeyFeedback.reloadSettings();
+        // Apply the selected keyboard to the input view. Does nothing if the
+        // keyboard is already shown, e.g. when the focus moves between the
+        // fields of a form.
         this._oKeyboardView.setKeyboard(this._oKeyboardCurrent);
     }
 
@@ -300,6 +951,124 @@ public class VirtualKeyBoard extends InputMethodService implements
         final EditorInfo attribute, final boolean restarting
     ) {
         super.onStartInput(attribute, restarting);
+
+        this._resetComposingWord();
+        this._oSnippetMatcher.reset();
+        this._oDeadKeyComposer.reset();
+        this._bIsLearningEnabled = !VirtualKeyBoard._isPasswordField(
+            attribute
+        );
+        this._oTouchCalibration.setLearningEnabled(this._bIsLearningEnabled);
+        this._bIsPrivateField = VirtualKeyBoard._isPrivateField(attribute);
+        this._logEvent(EventLog.EVENT_START_INPUT, attribute.inputType);
+        if (null != this._oKeystrokeTrace) {
+            this._oKeystrokeTrace.setEditor(
+                attribute.inputType, this._bIsPrivateField
+            );
+        }
+        if (!restarting) {
+            this._oSuggestionEngine.resetContext();
+            this._preselectLayout(attribute);
+        }
+    }
+
+    /**
+     * Selects the layout for the specified editor and builds its keyboard
+     * ahead of <tt>{@link #onStartInputView(EditorInfo, boolean)}</tt>.
+     *
+     * Number, phone and date fields get the Math layout. Text fields get the
+     * layout last used in the text fields of the same application, or the
+     * uppercase layout if the editor requests capital characters.
+     *
+     * @param attribute the attributes of the editor.
+     */
+    private void _preselectLayout(final EditorInfo attribute) {
+        int iModifiers;
+        this._sTextFieldPackage = null;
+        switch (attribute.inputType & EditorInfo.TYPE_MASK_CLASS) {
+        case EditorInfo.TYPE_CLASS_NUMBER:
+        case EditorInfo.TYPE_CLASS_PHONE:
+        case EditorInfo.TYPE_CLASS_DATETIME:
+            iModifiers = ModifierState.FN;
+            break;
+        case EditorInfo.TYPE_CLASS_TEXT:
+            if (0 != (attribute.inputType
+                    & EditorInfo.TYPE_TEXT_FLAG_CAP_CHARACTERS)) {
+                iModifiers = ModifierState.CAPS_LOCK;
+                break;
+            }
+            this._sTextFieldPackage = attribute.packageName;
+            iModifiers = this._oLayoutMemory.get(attribute.packageName);
+            if (LayoutMemory.UNKNOWN == iModifiers) {
+                iModifiers = 0;
+            }
+            break;
+        default:
+            // Keep the current layout, e.g. for editors without a type.
+            return;
+        }
+        this._oModifierState.replace(
+            ModifierState.LAYOUT_MODIFIERS, iModifiers
+        );
+        this._applyModifierLayer();
+    }
+
+    /**
+     * Checks whether the specified editor is a password field.
+     *
+     * @param attribute the attributes of the editor.
+     *
+     * @return <tt>true</tt> if the editor contains a password, <tt>false</tt>
+     *         otherwise.
+     */
+    private static boolean _isPasswordField(final EditorInfo attribute) {
+        final int iCLASS = attribute.inputType & EditorInfo.TYPE_MASK_CLASS;
+        final int iVARIATION = attribute.inputType
+            & EditorInfo.TYPE_MASK_VARIATION;
+
+        switch (iCLASS) {
+        case EditorInfo.TYPE_CLASS_TEXT:
+            return EditorInfo.TYPE_TEXT_VARIATION_PASSWORD == iVARIATION
+                || EditorInfo.TYPE_TEXT_VARIATION_VISIBLE_PASSWORD
+                    == iVARIATION
+                || EditorInfo.TYPE_TEXT_VARIATION_WEB_PASSWORD == iVARIATION;
+        case EditorInfo.TYPE_CLASS_NUMBER:
+            return EditorInfo.TYPE_NUMBER_VARIATION_PASSWORD == iVARIATION;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Checks whether the specified editor contains private data, whose
+     * characters must not be recorded.
+     *
+     * @param attribute the attributes of the editor.
+     *
+     * @return <tt>true</tt> if the editor is a password field, a phone, email
+     *         or postal address field, a name field or an editor that
+     *         disables suggestions, <tt>false</tt> otherwise.
+     */
+    private static boolean _isPrivateField(final EditorInfo attribute) {
+        if (VirtualKeyBoard._isPasswordField(attribute)) {
+            return true;
+        }
+        final int iVARIATION = attribute.inputType
+            & EditorInfo.TYPE_MASK_VARIATION;
+
+        switch (attribute.inputType & EditorInfo.TYPE_MASK_CLASS) {
+        case EditorInfo.TYPE_CLASS_PHONE:
+            return true;
+        case EditorInfo.TYPE_CLASS_TEXT:
+            return EditorInfo.TYPE_TEXT_VARIATION_EMAIL_ADDRESS == iVARIATION
+                || EditorInfo.TYPE_TEXT_VARIATION_PERSON_NAME == iVARIATION
+                || EditorInfo.TYPE_TEXT_VARIATION_POSTAL_ADDRESS
+                    == iVARIATION
+                || 0 != (attribute.inputType
+                    & EditorInfo.TYPE_TEXT_FLAG_NO_SUGGESTIONS);
+        default:
+            return false;
+        }
     }
 
     /**
@@ -317,6 +1086,17 @@ public class VirtualKeyBoard extends InputMethodService implements
      */
     @Override
     public final void onFinishInput() {
+        this._logEvent(EventLog.EVENT_FINISH_INPUT, 0);
+        if (null != this._sTextFieldPackage) {
+            this._oLayoutMemory.put(
+                this._sTextFieldPackage, this._oModifierState.get()
+            );
+            this._sTextFieldPackage = null;
+        }
+        this._finishDeadKey();
+        this._learnComposingWord();
+        this._saveTouchCalibration();
+        this._oTextCommitter.cancel();
         super.onFinishInput();
     }
 
@@ -347,6 +1127,8 @@ public class VirtualKeyBoard extends InputMethodService implements
             oldSelStart, oldSelEnd, newSelStart, newSelEnd,
             candidatesStart, candidatesEnd
         );
+        // The editor has applied the text committed so far.
+        this._oTextCommitter.onSelectionUpdated();
     }
 
     /**
@@ -375,155 +1157,119 @@ public class VirtualKeyBoard extends InputMethodService implements
      * editor.
      */
     private void _handleAlt() {
-        this._iCurrentMetaKeyMask ^= KeyEvent.META_ALT_ON;
+        this._oChordEngine.onModifierKey(ModifierState.PC_ALT);
     }
 
     /**
      * Helper method to send a control key (<i>Ctrl</i>) to the current editor.
      */
     private void _handleCtrl() {
-        this._iCurrentMetaKeyMask ^= KeyEvent.META_CTRL_ON;
+        this._oChordEngine.onModifierKey(ModifierState.PC_CTRL);
     }
 
     /**
      * Helper method to send <i>Shift</i> to the current editor.
      */
     private void _handleShift() {
-        this._iCurrentMetaKeyMask ^= KeyEvent.META_SHIFT_ON;
+        this._oChordEngine.onModifierKey(ModifierState.PC_SHIFT);
     }
 
     /**
      * Helper method to manage the current state of the keyboard.
      */
     private void _switchCapitalization() {
-        if (DEBUG_MODE) {
-            Log.w(
-                "Keyboard::isShifted", //$NON-NLS-1$
-                String.valueOf(this._oKeyboardCurrent.isShifted())
-            );
-            Log.w(
-                "KeyboardView::isShifted", //$NON-NLS-1$
-                String.valueOf(this._oKeyboardView.isShifted())
-            );
-        }
-
-        if (this._oKeyboardCurrent == this._oKeyboardLowercase) {
-            // this._oKeyboardLowercase.setShifted(true);
-            // this._oKeyboardLowercaseAltGr.setShifted(true);
-            this._oKeyboardCurrent = this._oKeyboardUppercase;
-            // this._oKeyboardUppercase.setShifted(true);
-            // this._oKeyboardUppercaseAltGr.setShifted(true);
-
-        } else if (this._oKeyboardCurrent == this._oKeyboardUppercase) {
-            // this._oKeyboardUppercase.setShifted(false);
-            // this._oKeyboardUppercaseAltGr.setShifted(false);
-            this._oKeyboardCurrent = this._oKeyboardLowercase;
-            // this._oKeyboardLowercase.setShifted(false);
-            // this._oKeyboardLowercaseAltGr.setShifted(false);
-
-        } else if (this._oKeyboardCurrent == this._oKeyboardLowercaseAltGr) {
-            // this._oKeyboardLowercase.setShifted(true);
-            // this._oKeyboardLowercaseAltGr.setShifted(true);
-            this._oKeyboardCurrent = this._oKeyboardUppercaseAltGr;
-            // this._oKeyboardUppercase.setShifted(true);
-            // this._oKeyboardUppercaseAltGr.setShifted(true);
-
-        } else if (this._oKeyboardCurrent == this._oKeyboardUppercaseAltGr) {
-            // this._oKeyboardUppercase.setShifted(false);
-            // this._oKeyboardUppercaseAltGr.setShifted(false);
-            this._oKeyboardCurrent = this._oKeyboardLowercaseAltGr;
-            // this._oKeyboardLowercase.setShifted(false);
-            // this._oKeyboardLowercaseAltGr.setShifted(false);
-        }
-        // Apply the selected keyboard to the input view.
-        this._oKeyboardView.setKeyboard(this._oKeyboardCurrent);
-
-        if (DEBUG_MODE) {
-            Log.w(
-                "Keyboard::isShifted", //$NON-NLS-1$
-                String.valueOf(this._oKeyboardCurrent.isShifted())
-            );
-            Log.w(
-                "KeyboardView::isShifted", //$NON-NLS-1$
-                String.valueOf(this._oKeyboardView.isShifted())
-            );
-        }
+        this._oAllocationMonitor.begin(AllocationMonitor.OP_MODIFIER_SWITCH);
+        this._oFrameMonitor.begin(FrameMonitor.SWITCH_CAPS_LOCK);
+        this._oModifierState.toggle(ModifierState.CAPS_LOCK);
+        this._applyModifierLayer();
+        this._logEvent(EventLog.EVENT_CAPS_LOCK, 0);
+        this._oAllocationMonitor.end(AllocationMonitor.OP_MODIFIER_SWITCH);
     }
 
     /**
      * Helper method to manage the current state of the keyboard.
      */
     private void _switchAltGr() {
-        if (DEBUG_MODE) {
-            Log.w(
-                "LatinKeyboard.isPcAltGrActive", //$NON-NLS-1$
-                String.valueOf(this._oKeyboardCurrent.isPcAltGrActive())
-            );
-            Log.w(
-                "LatinKeyboardView.isPcAltGrActive", //$NON-NLS-1$
-                String.valueOf(this._oKeyboardView.isPcAltGrActive())
+        this._oAllocationMonitor.begin(AllocationMonitor.OP_MODIFIER_SWITCH);
+        this._oFrameMonitor.begin(FrameMonitor.SWITCH_ALT_GR);
+        if (this._oModifierState.isOn(ModifierState.FN)) {
+            // Leaving the Math layout always activates Alt Gr.
+            this._oModifierState.replace(
+                ModifierState.FN | ModifierState.ALT_GR, ModifierState.ALT_GR
             );
+        } else {
+            this._oModifierState.toggle(ModifierState.ALT_GR);
         }
+        this._applyModifierLayer();
+        this._logEvent(EventLog.EVENT_ALT_GR, 0);
+        this._oAllocationMonitor.end(AllocationMonitor.OP_MODIFIER_SWITCH);
+    }
 
-        if (this._oKeyboardCurrent == this._oKeyboardLowercase
-                || this._oKeyboardCurrent == this._oKeyboardMath) {
-            // this._oKeyboardLowercase.setPcAltGrState(true);
-            // this._oKeyboardUppercase.setPcAltGrState(true);
-            this._oKeyboardCurrent = this._oKeyboardLowercaseAltGr;
-            // this._oKeyboardLowercaseAltGr.setPcAltGrState(true);
-            // this._oKeyboardUppercaseAltGr.setPcAltGrState(true);
-
-        } else if (this._oKeyboardCurrent == this._oKeyboardLowercaseAltGr) {
-            // this._oKeyboardLowercase.setPcAltGrState(false);
-            // this._oKeyboardUppercase.setPcAltGrState(false);
-            this._oKeyboardCurrent = this._oKeyboardLowercase;
-            // this._oKeyboardLowercaseAltGr.setPcAltGrState(false);
-            // this._oKeyboardUppercaseAltGr.setPcAltGrState(false);
-
-        } else if (this._oKeyboardCurrent == this._oKeyboardUppercase) {
-            // this._oKeyboardLowercase.setPcAltGrState(true);
-            // this._oKeyboardUppercase.setPcAltGrState(true);
-            this._oKeyboardCurrent = this._oKeyboardUppercaseAltGr;
-            // this._oKeyboardLowercaseAltGr.setPcAltGrState(true);
-            // this._oKeyboardUppercaseAltGr.setPcAltGrState(true);
-
-        } else if (this._oKeyboardCurrent == this._oKeyboardUppercaseAltGr) {
-            // this._oKeyboardLowercase.setPcAltGrState(false);
-            // this._oKeyboardUppercase.setPcAltGrState(false);
-            this._oKeyboardCurrent = this._oKeyboardUppercase;
-            // this._oKeyboardLowercaseAltGr.setPcAltGrState(false);
-            // this._oKeyboardUppercaseAltGr.setPcAltGrState(false);
-        }
-        // Apply the selected keyboard to the input view.
-        this._oKeyboardView.setKeyboard(this._oKeyboardCurrent);
+    /**
+     * Helper method to manage the current state of the keyboard.
+     */
+    private void _switchFn() {
+        this._oAllocationMonitor.begin(AllocationMonitor.OP_MODIFIER_SWITCH);
+        this._oFrameMonitor.begin(FrameMonitor.SWITCH_FN);
+        this._finishDeadKey();
+        this._oModifierState.toggle(ModifierState.FN);
+        this._applyModifierLayer();
+        this._logEvent(EventLog.EVENT_FN, 0);
+        this._oAllocationMonitor.end(AllocationMonitor.OP_MODIFIER_SWITCH);
+    }
 
-        if (DEBUG_MODE) {
-            Log.w(
-                "LatinKeyboard.isPcAltGrActive", //$NON-NLS-1$
-                String.valueOf(this._oKeyboardCurrent.isPcAltGrActive())
-            );
-            Log.w(
-                "LatinKeyboardView.isPcAltGrActive", //$NON-NLS-1$
-                String.valueOf(this._oKeyboardView.isPcAltGrActive())
-            );
+    /**
+     * Logs an event with the current state of the modifiers.
+     *
+     * @param event the event ID.
+     * @param code  the key code or another value of the event.
+     */
+    private void _logEvent(final int event, final int code) {
+        this._oEventLog.log(
+            event, code, this._oChordEngine.getMetaState(),
+            this._oModifierState.get()
+        );
+    }
+
+    /**
+     * Applies the keyboard selected by the layout modifiers <i>Fn</i>,
+     * <i>Caps Lock</i> and <i>Alt Gr</i> to the input view.
+     */
+    private void _applyModifierLayer() {
+        final int iLAYOUT = this._getLayoutForModifiers();
+        final LatinKeyboard oKEYBOARD = this._getKeyboard(iLAYOUT);
+        this._iCurrentLayout = iLAYOUT;
+
+        if (oKEYBOARD != this._oKeyboardCurrent) {
+            this._oKeyboardCurrent = oKEYBOARD;
+            if (null != this._oKeyboardView) {
+                // Apply the selected keyboard to the input view.
+                this._oKeyboardView.setKeyboard(this._oKeyboardCurrent);
+            }
         }
     }
 
     /**
-     * Helper method to manage the current state of the keyboard.
+     * Returns the layout selected by the layout modifiers <i>Fn</i>, <i>Caps
+     * Lock</i> and <i>Alt Gr</i> for the current language.
+     *
+     * @return the layout resource.
      */
-    private void _switchFn() {
-        if (this._oKeyboardCurrent != this._oKeyboardMath) {
-            this._oKeyboardLast = this._oKeyboardCurrent;
-            this._oKeyboardCurrent = this._oKeyboardMath;
-            this._oKeyboardView.setKeyboard(this._oKeyboardCurrent);
-            this._oKeyboardView.setPcFnState(true);
-        } else {
-            this._oKeyboardCurrent = this._oKeyboardLast;
-            this._oKeyboardView.setKeyboard(this._oKeyboardCurrent);
+    private int _getLayoutForModifiers() {
+        final boolean bALT_GR = this._oModifierState.isOn(
+            ModifierState.ALT_GR
+        );
+
+        if (this._oModifierState.isOn(ModifierState.FN)) {
+            return R.xml.math;
+        } else if (this._oModifierState.isOn(ModifierState.CAPS_LOCK)) {
+            return bALT_GR
+                ? this._oCurrentLanguage.getUppercaseAltGrLayout()
+                : this._oCurrentLanguage.getUppercaseLayout();
         }
-        // Apply the selected keyboard to the input view.
-        this._oKeyboardView.setKeyboard(this._oKeyboardCurrent);
+        return bALT_GR
+            ? this._oCurrentLanguage.getLowercaseAltGrLayout()
+            : this._oCurrentLanguage.getLowercaseLayout();
     }
 
     /**
@@ -531,34 +1277,201 @@ public class VirtualKeyBoard extends InputMethodService implements
      * language (round-robin).
      */
     private void _switchLanguage() {
-        switch (this._eCurrentLanguage) {
-        case DE:
-            this._eCurrentLanguage = KeyboardLanguage.UK;
-            break;
-        case UK:
-            this._eCurrentLanguage = KeyboardLanguage.FR;
-            break;
-        case FR:
-            this._eCurrentLanguage = KeyboardLanguage.DE;
-            break;
-        default:
-            break;
-        }
-        // Create the Keyboard instances for the current language.
+        this._oAllocationMonitor.begin(AllocationMonitor.OP_LANGUAGE_SWITCH);
+        this._oFrameMonitor.begin(FrameMonitor.SWITCH_LANGUAGE);
+        this._oCurrentLanguage = this._oLanguages.next(this._oCurrentLanguage);
+        this._logEvent(
+            EventLog.EVENT_LANGUAGE, this._oCurrentLanguage.getIndex()
+        );
+        // Create the Keyboard instances for the current language and apply
+        // the lowercase keyboard to the input view.
         this._createKeyboardsForCurrentLanguage();
-        // Apply the selected keyboard to the input view.
-        this._oKeyboardView.setKeyboard(this._oKeyboardCurrent);
+        this._oAllocationMonitor.end(AllocationMonitor.OP_LANGUAGE_SWITCH);
     }
 
     /**
      * Helper method to send a character key to the current editor.
      *
+     * The keys of the Math keyboard are never dead keys, e.g. <i>^</i> is
+     * the power operator there.
+     *
      * @param primaryCode the unicode code of the key that was pressed.
      */
     private void _handleCharacter(final int primaryCode) {
-        this.getCurrentInputConnection().commitText(
-            String.valueOf((char) primaryCode), 1
+        final InputConnection oIC = this.getCurrentInputConnection();
+        if (null != oIC && this._oDeadKeyComposer.isEnabled()
+                && !this._oModifierState.isOn(ModifierState.FN)
+                && !this._oTextCommitter.isBusy()) {
+            if (this._oDeadKeyComposer.isComposing()) {
+                final String sCOMPOSED = this._oDeadKeyComposer.compose(
+                    primaryCode
+                );
+                if (null != sCOMPOSED) {
+                    // Replaces the accent shown as composing text.
+                    this._commitCharacter(sCOMPOSED.charAt(0), sCOMPOSED);
+                    return;
+                }
+                // The accent stays on its own in front of the character.
+                oIC.finishComposingText();
+            }
+            final String sACCENT = this._oDeadKeyComposer.startComposing(
+                primaryCode
+            );
+            if (null != sACCENT) {
+                oIC.setComposingText(sACCENT, 1);
+                return;
+            }
+        }
+        this._commitCharacter(
+            primaryCode, String.valueOf((char) primaryCode)
+        );
+    }
+
+    /**
+     * Commits a character to the current editor, unless it completes the
+     * trigger of a snippet.
+     *
+     * @param primaryCode the unicode code of the character.
+     * @param text        the character as text.
+     */
+    private void _commitCharacter(
+        final int primaryCode, final CharSequence text
+    ) {
+        final int iSNIPPET = this._oSnippetMatcher.advance((char) primaryCode);
+        if (SnippetMatcher.NO_MATCH != iSNIPPET) {
+            this._expandSnippet(iSNIPPET);
+            return;
+        }
+
+        // Queued behind large text that is still being committed, if any.
+        this._oTextCommitter.commit(text);
+        this._trackComposingWord(primaryCode);
+    }
+
+    /**
+     * Commits the accent of a pending dead key on its own, e.g. because a
+     * non-character key has been pressed.
+     */
+    private void _finishDeadKey() {
+        if (this._oDeadKeyComposer.isComposing()) {
+            this._oDeadKeyComposer.reset();
+            final InputConnection oIC = this.getCurrentInputConnection();
+            if (null != oIC) {
+                oIC.finishComposingText();
+            }
+        }
+    }
+
+    /**
+     * Replaces the trigger of the specified snippet by its expansion.
+     *
+     * The last character of the trigger has not been committed yet, so only
+     * the characters before it are deleted. The replacement is queued behind
+     * text that is still being committed, which may contain the trigger. An
+     * expansion longer than <tt>{@link TextCommitter#CHUNK_SIZE}</tt> is
+     * streamed, so only its first batch replaces the trigger atomically.
+     *
+     * @param snippet the index of the snippet.
+     */
+    private void _expandSnippet(final int snippet) {
+        this._oTextCommitter.replace(
+            this._oSnippetMatcher.getTriggerLength(snippet) - 1,
+            this._oSnippetMatcher.getExpansion(snippet)
+        );
+
+        this._oSnippetMatcher.reset();
+        this._resetComposingWord();
+    }
+
+    /**
+     * Adds the specified character to the word that is currently typed, or
+     * learns that word if the character is a word separator.
+     *
+     * @param primaryCode the unicode code of the committed character.
+     */
+    private void _trackComposingWord(final int primaryCode) {
+        if (Character.isLetterOrDigit(primaryCode)
+                || ASCIICharacters.UNDERLINE == primaryCode) {
+            if (this._oComposingWord.length()
+                    < UserDictionary.MAX_WORD_LENGTH) {
+                this._oComposingWord.append((char) primaryCode);
+            } else {
+                ++this._iComposingOverflow;
+            }
+        } else {
+            this._learnComposingWord();
+        }
+    }
+
+    /**
+     * Passes the word that is currently typed to the <tt>UserDictionary</tt>
+     * of the current language and starts a new word.
+     */
+    private void _learnComposingWord() {
+        if (this._bIsLearningEnabled && 0 == this._iComposingOverflow
+                && this._oComposingWord.length() > 1) {
+            final String sWORD = this._oComposingWord.toString();
+            this._oSuggestionEngine.observeWord(sWORD);
+            this._getUserDictionary(this._oCurrentLanguage).learn(sWORD);
+        }
+        this._resetComposingWord();
+    }
+
+    /**
+     * Starts a new word without learning the word that is currently typed.
+     */
+    private void _resetComposingWord() {
+        this._oComposingWord.setLength(0);
+        this._iComposingOverflow = 0;
+    }
+
+    /**
+     * Requests suggestions for the word that is currently typed, looked up in
+     * the dictionaries of all languages.
+     *
+     * Returns immediately; the suggestions are passed to the listener on the
+     * thread of the input method (IME) once they are available.
+     *
+     * @param maxSuggestions the maximum number of suggestions.
+     * @param listener       the callback that receives the suggestions.
+     */
+    public final void requestSuggestions(
+        final int maxSuggestions,
+        final SuggestionEngine.OnSuggestionsListener listener
+    ) {
+        this._oSuggestionEngine.lookup(
+            this._oComposingWord.toString(), maxSuggestions, listener
+        );
+    }
+
+    /**
+     * Returns the <tt>UserDictionary</tt> for the specified language, opening
+     * it on first use.
+     *
+     * An open dictionary stays open until the input method is destroyed.
+     *
+     * @param language the language of the dictionary.
+     *
+     * @return the <tt>UserDictionary</tt>.
+     */
+    private UserDictionary _getUserDictionary(
+        final LanguageDescriptor language
+    ) {
+        UserDictionary oDictionary = this._oUserDictionaries.get(
+            language.getId()
         );
+        if (null == oDictionary) {
+            oDictionary = new UserDictionary(
+                this.getFilesDir(),
+                "user_dictionary_" + language.getId(), //$NON-NLS-1$
+                this._oStorageThread.getLooper()
+            );
+            this._oUserDictionaries.put(language.getId(), oDictionary);
+            this._oSuggestionEngine.setDictionary(
+                language.getIndex(), oDictionary
+            );
+        }
+        return oDictionary;
     }
 
     /**
@@ -567,27 +1480,34 @@ public class VirtualKeyBoard extends InputMethodService implements
      * @param primaryCode the unicode code of the key that was pressed.
      */
     private void _handleKeyEvent(final int primaryCode) {
-        InputConnection ic = this.getCurrentInputConnection();
-        long eventTime = SystemClock.uptimeMillis();
+        this._finishDeadKey();
+        final int iMETA_STATE = this._oChordEngine.getMetaState();
 
         try {
-            ic.sendKeyEvent(
-                new KeyEvent(
-                    eventTime, // The time (in uptimeMillis()) at which this key code originally went down.
-                    eventTime, // The time (in uptimeMillis()) at which this event happened.
-                    KeyEvent.ACTION_DOWN, // Action code: either ACTION_DOWN, ACTION_UP, or ACTION_MULTIPLE.
-                    ASCIICodeToKeyEventConstantTranslator.translate(primaryCode),  // The key code.
-                    0,  // A repeat count for down events (> 0 if this is after the initial down) or event count for multiple events.
-                    this._iCurrentMetaKeyMask, // Flags indicating which meta keys are currently pressed.
-                    KeyCharacterMap.FULL, // The device ID that generated the key event.
-                    0, // Raw device scan code of the event.
-                    KeyEvent.FLAG_SOFT_KEYBOARD | KeyEvent.FLAG_KEEP_TOUCH_MODE, // The flags for this key event.
-                    InputDevice.SOURCE_KEYBOARD // The input source such as SOURCE_KEYBOARD.
-                )
+            final int iKEY_CODE = ASCIICodeToKeyEventConstantTranslator
+                .translate(primaryCode);
+            // Queued behind large text that is still being committed, if any.
+            this._oTextCommitter.sendKey(
+                iKEY_CODE, this._oChordEngine.consumeMetaState()
             );
         } catch (NullPointerException ex) {
-            ic.commitText(String.valueOf((char) primaryCode), 1);
+            // There is no key code for the character.
+            this._oTextCommitter.commit(String.valueOf((char) primaryCode));
+            this._oChordEngine.consumeOneShot();
         }
+
+        if (0 == (iMETA_STATE
+                & (KeyEvent.META_ALT_ON | KeyEvent.META_CTRL_ON))) {
+            // Shifted characters still end up as text in the editor.
+            this._trackComposingWord(
+                (0 == (iMETA_STATE & KeyEvent.META_SHIFT_ON))
+                    ? primaryCode : Character.toUpperCase(primaryCode)
+            );
+        } else {
+            // A shortcut such as Ctrl+V changes the text in unknown ways.
+            this._resetComposingWord();
+        }
+        this._oSnippetMatcher.reset();
     }
 
     /**
@@ -600,30 +1520,35 @@ public class VirtualKeyBoard extends InputMethodService implements
      * @param primaryCode the unicode code of the key that was pressed.
      */
     private void _handleArrowKeys(final int primaryCode) {
+        // The cursor leaves the word that is currently typed.
+        this._finishDeadKey();
+        this._learnComposingWord();
+        this._oSnippetMatcher.reset();
+
         switch (primaryCode) {
         case LatinKeyboard.KEYCODE_ARROW_DOWN:
             // Down cursor movement key or arrow key.
             // Send the key event code for the Directional Pad Down key to the
             // current input connection as a key down + key up event pair.
-            this.sendDownUpKeyEvents(KeyEvent.KEYCODE_DPAD_DOWN);
+            this._sendDownUpKeyChord(KeyEvent.KEYCODE_DPAD_DOWN);
             break;
         case LatinKeyboard.KEYCODE_ARROW_LEFT:
             // Left cursor movement key or arrow key.
             // Send the key event code for the Directional Pad Left key to the
             // current input connection as a key down + key up event pair.
-            this.sendDownUpKeyEvents(KeyEvent.KEYCODE_DPAD_LEFT);
+            this._sendDownUpKeyChord(KeyEvent.KEYCODE_DPAD_LEFT);
             break;
         case LatinKeyboard.KEYCODE_ARROW_RIGHT:
             // Right cursor movement key or arrow key.
             // Send the key event code for the Directional Pad Right key to the
             // current input connection as a key down + key up event pair.
-            this.sendDownUpKeyEvents(KeyEvent.KEYCODE_DPAD_RIGHT);
+            this._sendDownUpKeyChord(KeyEvent.KEYCODE_DPAD_RIGHT);
             break;
         case LatinKeyboard.KEYCODE_ARROW_UP:
             // Up cursor movement key or arrow key.
             // Send the key event code for the Directional Pad Up key to the
             // current input connection as a key down + key up event pair.
-            this.sendDownUpKeyEvents(KeyEvent.KEYCODE_DPAD_UP);
+            this._sendDownUpKeyChord(KeyEvent.KEYCODE_DPAD_UP);
             break;
         default:
             // primaryCode doesn't specify a cursor movement key or arrow key.
@@ -632,10 +1557,50 @@ public class VirtualKeyBoard extends InputMethodService implements
     }
 
     /**
-     * Helper method to send a backspace key (<i>BS</i>) to the current editor.
+     * Sends the given key event code to the current editor as a key down + key
+     * up event pair, together with the active PC modifier keys.
+     *
+     * The key is queued behind large text that is still being committed, if
+     * any.
+     *
+     * @param keyEventCode the raw key code to send, as defined by <tt>{@link
+     *                     KeyEvent}</tt>.
+     */
+    private void _sendDownUpKeyChord(final int keyEventCode) {
+        this._oTextCommitter.sendKey(
+            keyEventCode, this._oChordEngine.consumeMetaState()
+        );
+    }
+
+    /**
+     * Helper method to send a backspace key (<i>BS</i>) to the current editor,
+     * together with the pressed PC modifiers, e.g. <i>Ctrl+Backspace</i>.
      */
     private void _handleBackspaceKey() {
-        this.sendDownUpKeyEvents(KeyEvent.KEYCODE_DEL);
+        if (this._oDeadKeyComposer.isComposing()) {
+            // Only remove the accent shown as composing text.
+            this._oDeadKeyComposer.reset();
+            final InputConnection oIC = this.getCurrentInputConnection();
+            if (null != oIC) {
+                oIC.commitText("", 1); //$NON-NLS-1$
+            }
+            return;
+        }
+        final int iMETA_STATE = this._oChordEngine.consumeMetaState();
+        // Queued behind large text that is still being committed, if any.
+        this._oTextCommitter.sendKey(KeyEvent.KEYCODE_DEL, iMETA_STATE);
+        this._oSnippetMatcher.reset();
+
+        final int iLENGTH = this._oComposingWord.length();
+        if (0 != (iMETA_STATE
+                & (KeyEvent.META_ALT_ON | KeyEvent.META_CTRL_ON))) {
+            // E.g. Ctrl+Backspace deletes an unknown number of characters.
+            this._resetComposingWord();
+        } else if (this._iComposingOverflow > 0) {
+            --this._iComposingOverflow;
+        } else if (iLENGTH > 0) {
+            this._oComposingWord.setLength(iLENGTH - 1);
+        }
     }
 
     // Start: Implementation of the abstracts methods of class
@@ -647,12 +1612,19 @@ public class VirtualKeyBoard extends InputMethodService implements
      *
      * For keys that repeat, this is only called once.
      *
+     * Returns immediately: the click and the vibration are fired by the
+     * feedback thread.
+     *
      * @param primaryCode the unicode code of the key that was pressed. If the
      *                    touch is not on a valid key, the value will be zero.
      */
     @Override
     public void onPress(final int primaryCode) {
-        // Empty block.
+        this._oKeyFeedback.onPress(primaryCode);
+        this._oChordEngine.onPress(primaryCode);
+        if (null != this._oKeystrokeTrace) {
+            this._oKeystrokeTrace.onPress();
+        }
     }
 
     /**
@@ -669,10 +1641,18 @@ public class VirtualKeyBoard extends InputMethodService implements
      */
     @Override
     public final void onKey(final int primaryCode, final int[] keyCodes) {
-        if (DEBUG_MODE) {
-            Log.w(
-                "CURRENT_META_MASK", //$NON-NLS-1$
-                String.valueOf(this._iCurrentMetaKeyMask)
+        this._oAllocationMonitor.begin(AllocationMonitor.OP_KEY);
+        // The event log ends up in bug reports; keep private text out of it.
+        this._logEvent(
+            EventLog.EVENT_KEY,
+            (this._bIsPrivateField && primaryCode >= ASCIICharacters.SPACE)
+                ? KeystrokeTrace.REDACTED_CODE : primaryCode
+        );
+        final KeystrokeTrace oTRACE = this._oKeystrokeTrace;
+        if (null != oTRACE) {
+            oTRACE.beginKey(
+                primaryCode, this._oChordEngine.getMetaState(),
+                this._oModifierState.get()
             );
         }
         switch (primaryCode) {
@@ -716,12 +1696,22 @@ public class VirtualKeyBoard extends InputMethodService implements
             break;
         default:
             // Check whether the current bit mask of the meta keys is set.
-            if (0 != this._iCurrentMetaKeyMask) {
+            if (0 != this._oChordEngine.getMetaState()) {
                 this._handleKeyEvent(primaryCode);
             } else {
                 this._handleCharacter(primaryCode);
             }
+            if (null != oTRACE) {
+                oTRACE.onKeyHandled();
+            }
+            if (null != this._oKeyboardView) {
+                this._oKeyboardView.onKeyCommitted(primaryCode);
+            }
         }
+        if (null != oTRACE) {
+            oTRACE.endKey();
+        }
+        this._oAllocationMonitor.end(AllocationMonitor.OP_KEY);
     }
 
     /**
@@ -734,7 +1724,7 @@ public class VirtualKeyBoard extends InputMethodService implements
      */
     @Override
     public void onRelease(final int primaryCode) {
-        // Empty block.
+        this._oChordEngine.onRelease(primaryCode);
     }
 
     /**
@@ -744,7 +1734,11 @@ public class VirtualKeyBoard extends InputMethodService implements
      */
     @Override
     public void onText(final CharSequence text) {
-        // Empty block.
+        // The text ends the word that is currently typed.
+        this._finishDeadKey();
+        this._learnComposingWord();
+        this._oSnippetMatcher.reset();
+        this._oTextCommitter.commit(text);
     }
 
     /**
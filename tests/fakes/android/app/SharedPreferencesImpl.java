@@ -0,0 +1,249 @@
+/**
+ * <tt>SharedPreferencesImpl.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package android.app;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import android.content.SharedPreferences;
+
+/**
+ * Keeps preferences in memory for the Java virtual machine (JVM) of the
+ * tests.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public final class SharedPreferencesImpl implements SharedPreferences {
+
+    /**
+     * The preferences.
+     */
+    private final Map<String, Object> _oValues = new HashMap<String, Object>();
+
+    /**
+     * Returns all preferences.
+     *
+     * @return a copy of the preferences.
+     */
+    @Override
+    public Map<String, ?> getAll() {
+        synchronized (this._oValues) {
+            return new HashMap<String, Object>(this._oValues);
+        }
+    }
+
+    @Override
+    public String getString(final String key, final String defValue) {
+        return (String) this._get(key, defValue);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Set<String> getStringSet(
+        final String key, final Set<String> defValues
+    ) {
+        return (Set<String>) this._get(key, defValues);
+    }
+
+    @Override
+    public int getInt(final String key, final int defValue) {
+        return ((Integer) this._get(key, Integer.valueOf(defValue)))
+            .intValue();
+    }
+
+    @Override
+    public long getLong(final String key, final long defValue) {
+        return ((Long) this._get(key, Long.valueOf(defValue))).longValue();
+    }
+
+    @Override
+    public float getFloat(final String key, final float defValue) {
+        return ((Float) this._get(key, Float.valueOf(defValue)))
+            .floatValue();
+    }
+
+    @Override
+    public boolean getBoolean(final String key, final boolean defValue) {
+        return ((Boolean) this._get(key, Boolean.valueOf(defValue)))
+            .booleanValue();
+    }
+
+    @Override
+    public boolean contains(final String key) {
+        synchronized (this._oValues) {
+            return this._oValues.containsKey(key);
+        }
+    }
+
+    @Override
+    public SharedPreferences.Editor edit() {
+        return new EditorImpl();
+    }
+
+    @Override
+    public void registerOnSharedPreferenceChangeListener(
+        final OnSharedPreferenceChangeListener listener
+    ) {
+        // Empty block.
+    }
+
+    @Override
+    public void unregisterOnSharedPreferenceChangeListener(
+        final OnSharedPreferenceChangeListener listener
+    ) {
+        // Empty block.
+    }
+
+    /**
+     * Returns a preference.
+     *
+     * @param key      the key of the preference.
+     * @param defValue the value if there is no such preference.
+     *
+     * @return the value.
+     */
+    private Object _get(final String key, final Object defValue) {
+        synchronized (this._oValues) {
+            final Object oVALUE = this._oValues.get(key);
+            return (null == oVALUE) ? defValue : oVALUE;
+        }
+    }
+
+    /**
+     * Collects changes and applies them at once.
+     */
+    private final class EditorImpl implements SharedPreferences.Editor {
+
+        /**
+         * The changed preferences, <tt>this</tt> for removed ones.
+         */
+        private final Map<String, Object> _oChanges
+            = new HashMap<String, Object>();
+
+        /**
+         * Signals whether all preferences are removed first.
+         */
+        private boolean _bIsClearing = false;
+
+        @Override
+        public SharedPreferences.Editor putString(
+            final String key, final String value
+        ) {
+            return this._put(key, value);
+        }
+
+        @Override
+        public SharedPreferences.Editor putStringSet(
+            final String key, final Set<String> values
+        ) {
+            return this._put(
+                key, (null == values) ? null : new HashSet<String>(values)
+            );
+        }
+
+        @Override
+        public SharedPreferences.Editor putInt(
+            final String key, final int value
+        ) {
+            return this._put(key, Integer.valueOf(value));
+        }
+
+        @Override
+        public SharedPreferences.Editor putLong(
+            final String key, final long value
+        ) {
+            return this._put(key, Long.valueOf(value));
+        }
+
+        @Override
+        public SharedPreferences.Editor putFloat(
+            final String key, final float value
+        ) {
+            return this._put(key, Float.valueOf(value));
+        }
+
+        @Override
+        public SharedPreferences.Editor putBoolean(
+            final String key, final boolean value
+        ) {
+            return this._put(key, Boolean.valueOf(value));
+        }
+
+        @Override
+        public SharedPreferences.Editor remove(final String key) {
+            return this._put(key, this);
+        }
+
+        @Override
+        public SharedPreferences.Editor clear() {
+            this._bIsClearing = true;
+            return this;
+        }
+
+        @Override
+        public boolean commit() {
+            final Map<String, Object> oVALUES
+                = SharedPreferencesImpl.this._oValues;
+            synchronized (oVALUES) {
+                if (this._bIsClearing) {
+                    oVALUES.clear();
+                }
+                for (Map.Entry<String, Object> oEntry
+                        : this._oChanges.entrySet()) {
+                    if (this == oEntry.getValue()
+                            || null == oEntry.getValue()) {
+                        oVALUES.remove(oEntry.getKey());
+                    } else {
+                        oVALUES.put(oEntry.getKey(), oEntry.getValue());
+                    }
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void apply() {
+            this.commit();
+        }
+
+        /**
+         * Records a change.
+         *
+         * @param key   the key of the preference.
+         * @param value the value, <tt>this</tt> to remove the preference.
+         *
+         * @return this editor.
+         */
+        private SharedPreferences.Editor _put(
+            final String key, final Object value
+        ) {
+            this._oChanges.put(key, value);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * <tt>Context.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package android.content;
+
+import java.io.File;
+
+import android.content.pm.ApplicationInfo;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.util.AttributeSet;
+
+/**
+ * Replaces <tt>android.content.Context</tt> on the Java virtual machine (JVM)
+ * of the tests.
+ *
+ * Only declares the methods used by the input method.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public abstract class Context {
+
+    /**
+     * The default mode of files and preferences.
+     */
+    public static final int MODE_PRIVATE = 0;
+
+    /**
+     * The name of the audio service.
+     */
+    public static final String AUDIO_SERVICE = "audio"; //$NON-NLS-1$
+
+    /**
+     * The name of the vibrator service.
+     */
+    public static final String VIBRATOR_SERVICE = "vibrator"; //$NON-NLS-1$
+
+    /**
+     * Returns the resources of the application.
+     *
+     * @return the resources.
+     */
+    public abstract Resources getResources();
+
+    /**
+     * Returns the directory of the private files of the application.
+     *
+     * @return the directory.
+     */
+    public abstract File getFilesDir();
+
+    /**
+     * Returns a set of preferences.
+     *
+     * @param name the name of the preferences.
+     * @param mode the mode, e.g. <tt>{@link #MODE_PRIVATE}</tt>.
+     *
+     * @return the preferences.
+     */
+    public abstract SharedPreferences getSharedPreferences(
+        String name, int mode
+    );
+
+    /**
+     * Returns a system service.
+     *
+     * @param name the name of the service.
+     *
+     * @return the service, or <tt>null</tt> if there is none.
+     */
+    public abstract Object getSystemService(String name);
+
+    /**
+     * Returns the information about the application.
+     *
+     * @return the information.
+     */
+    public abstract ApplicationInfo getApplicationInfo();
+
+    /**
+     * Returns the styled attributes of a view. The attributes of the
+     * layout and the theme are ignored; the values come from the default
+     * style.
+     *
+     * @param set          the attributes of the layout, ignored.
+     * @param attrs        the attributes to return.
+     * @param defStyleAttr the attribute of the default style, ignored.
+     * @param defStyleRes  the default style.
+     *
+     * @return the attributes.
+     */
+    public final TypedArray obtainStyledAttributes(
+        final AttributeSet set, final int[] attrs, final int defStyleAttr,
+        final int defStyleRes
+    ) {
+        return this.getResources().obtainStyle(attrs, defStyleRes);
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ * <tt>Configuration.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package android.content.res;
+
+/**
+ * Replaces <tt>android.content.res.Configuration</tt> on the Java virtual
+ * machine (JVM) of the tests.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public final class Configuration {
+
+    /**
+     * The portrait orientation.
+     */
+    public static final int ORIENTATION_PORTRAIT = 1;
+
+    /**
+     * The landscape orientation.
+     */
+    public static final int ORIENTATION_LANDSCAPE = 2;
+
+    /**
+     * The orientation of the screen.
+     */
+    public int orientation = ORIENTATION_LANDSCAPE;
+}
@@ -0,0 +1,519 @@
+/**
+ * <tt>Resources.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package android.content.res;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import android.graphics.Rect;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.util.DisplayMetrics;
+import android.util.TypedValue;
+
+/**
+ * Replaces <tt>android.content.res.Resources</tt> on the Java virtual machine
+ * (JVM) of the tests.
+ *
+ * The resources are read from the <tt>res</tt> directory of the project. The
+ * IDs are taken from the generated <tt>R</tt> class, the values from the
+ * files in <tt>res/values</tt>. Images are replaced by drawables of a single
+ * color that have the size of the image.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public class Resources {
+
+    /**
+     * Thrown if a resource does not exist.
+     */
+    public static class NotFoundException extends RuntimeException {
+
+        /**
+         * The version of the serialized form.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Creates the exception.
+         *
+         * @param message the message.
+         */
+        public NotFoundException(final String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * The directories of the images, with their densities.
+     */
+    private static final Object[][] _DRAWABLE_DIRECTORIES = {
+        {"drawable-mdpi", DisplayMetrics.DENSITY_MEDIUM}, //$NON-NLS-1$
+        {"drawable-hdpi", DisplayMetrics.DENSITY_HIGH}, //$NON-NLS-1$
+        {"drawable", DisplayMetrics.DENSITY_MEDIUM}, //$NON-NLS-1$
+    };
+
+    /**
+     * The color of the images.
+     */
+    private static final int _IMAGE_COLOR = 0xFF808080;
+
+    /**
+     * The size of the text of single character labels in
+     * <tt>Widget.KeyboardView</tt>, in scaled pixels.
+     */
+    private static final float _KEY_TEXT_SIZE_SP = 22f;
+
+    /**
+     * The size of the text of labels with multiple characters in
+     * <tt>Widget.KeyboardView</tt>, in scaled pixels.
+     */
+    private static final float _LABEL_TEXT_SIZE_SP = 14f;
+
+    /**
+     * The padding of the key background of <tt>Widget.KeyboardView</tt>, in
+     * density-independent pixels.
+     */
+    private static final int _KEY_PADDING_DP = 6;
+
+    /**
+     * The <tt>res</tt> directory.
+     */
+    private final File _oDirectory;
+
+    /**
+     * The metrics of the display.
+     */
+    private final DisplayMetrics _oMetrics;
+
+    /**
+     * The configuration of the device.
+     */
+    private final Configuration _oConfiguration = new Configuration();
+
+    /**
+     * The names of the resources, as <tt>type/name</tt>, by ID.
+     */
+    private final Map<Integer, String> _oNames
+        = new HashMap<Integer, String>();
+
+    /**
+     * The IDs of the resources by name, as <tt>type/name</tt>.
+     */
+    private final Map<String, Integer> _oIds = new HashMap<String, Integer>();
+
+    /**
+     * The values of <tt>res/values</tt> by name, as <tt>type/name</tt>.
+     */
+    private final Map<String, String> _oValues
+        = new HashMap<String, String>();
+
+    /**
+     * Reads the resources of an application.
+     *
+     * @param directory   the <tt>res</tt> directory.
+     * @param packageName the package of the generated <tt>R</tt> class.
+     * @param metrics     the metrics of the display.
+     *
+     * @throws IllegalArgumentException if there is no <tt>R</tt> class.
+     */
+    public Resources(
+        final File directory, final String packageName,
+        final DisplayMetrics metrics
+    ) {
+        this._oDirectory = directory;
+        this._oMetrics = metrics;
+        final Class<?> oR;
+        try {
+            oR = Class.forName(packageName + ".R"); //$NON-NLS-1$
+        } catch (ClassNotFoundException ex) {
+            throw new IllegalArgumentException(ex);
+        }
+        for (Class<?> oType : oR.getDeclaredClasses()) {
+            for (Field oField : oType.getDeclaredFields()) {
+                if (int.class != oField.getType()
+                        || !Modifier.isStatic(oField.getModifiers())) {
+                    continue;
+                }
+                final String sNAME = oType.getSimpleName() + '/'
+                    + oField.getName();
+                try {
+                    final int iID = oField.getInt(null);
+                    this._oNames.put(iID, sNAME);
+                    this._oIds.put(sNAME, iID);
+                } catch (IllegalAccessException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        }
+        this._readValues();
+    }
+
+    /**
+     * Reads the files in <tt>res/values</tt>.
+     */
+    private void _readValues() {
+        final File[] aFILES = new File(this._oDirectory, "values") //$NON-NLS-1$
+            .listFiles();
+        if (null == aFILES) {
+            return;
+        }
+        final DocumentBuilderFactory oFACTORY
+            = DocumentBuilderFactory.newInstance();
+        oFACTORY.setIgnoringComments(true);
+        for (File oFile : aFILES) {
+            final Element oROOT;
+            try {
+                oROOT = oFACTORY.newDocumentBuilder().parse(oFile)
+                    .getDocumentElement();
+            } catch (ParserConfigurationException ex) {
+                throw new IllegalStateException(ex);
+            } catch (SAXException ex) {
+                throw new NotFoundException(
+                    "Cannot parse " + oFile //$NON-NLS-1$
+                );
+            } catch (IOException ex) {
+                throw new NotFoundException(
+                    "Cannot read " + oFile //$NON-NLS-1$
+                );
+            }
+            for (Node oNode = oROOT.getFirstChild(); null != oNode;
+                    oNode = oNode.getNextSibling()) {
+                if (Node.ELEMENT_NODE == oNode.getNodeType()) {
+                    final Element oVALUE = (Element) oNode;
+                    this._oValues.put(
+                        oVALUE.getTagName() + '/'
+                            + oVALUE.getAttribute("name"), //$NON-NLS-1$
+                        oVALUE.getTextContent().trim()
+                    );
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the name of a resource.
+     *
+     * @param id the ID.
+     *
+     * @return the name, as <tt>type/name</tt>.
+     *
+     * @throws NotFoundException if there is no such resource.
+     */
+    private String _getName(final int id) {
+        final String sNAME = this._oNames.get(id);
+        if (null == sNAME) {
+            throw new NotFoundException(
+                "Resource ID #0x" + Integer.toHexString(id) //$NON-NLS-1$
+            );
+        }
+        return sNAME;
+    }
+
+    /**
+     * Returns a value of <tt>res/values</tt>.
+     *
+     * @param id the ID.
+     *
+     * @return the value, as written in the file.
+     *
+     * @throws NotFoundException if there is no such value.
+     */
+    private String _getValue(final int id) {
+        final String sVALUE = this._oValues.get(this._getName(id));
+        if (null == sVALUE) {
+            throw new NotFoundException(this._getName(id));
+        }
+        return sVALUE;
+    }
+
+    /**
+     * Returns the metrics of the display.
+     *
+     * @return the metrics.
+     */
+    public DisplayMetrics getDisplayMetrics() {
+        return this._oMetrics;
+    }
+
+    /**
+     * Returns the configuration of the device.
+     *
+     * @return the configuration.
+     */
+    public Configuration getConfiguration() {
+        return this._oConfiguration;
+    }
+
+    /**
+     * Returns the ID of a resource.
+     *
+     * @param name       the name, e.g. <tt>@xml/math</tt>, <tt>xml/math</tt>
+     *                   or <tt>math</tt>.
+     * @param defType    the type if the name has none, or <tt>null</tt>.
+     * @param defPackage ignored.
+     *
+     * @return the ID, or <tt>0</tt> if there is no such resource.
+     */
+    public int getIdentifier(
+        final String name, final String defType, final String defPackage
+    ) {
+        String sName = name.startsWith("@") //$NON-NLS-1$
+            ? name.substring(1) : name;
+        sName = sName.substring(sName.indexOf(':') + 1);
+        if (-1 == sName.indexOf('/')) {
+            sName = defType + '/' + sName;
+        }
+        final Integer oID = this._oIds.get(sName);
+        return (null == oID) ? 0 : oID;
+    }
+
+    /**
+     * Returns the entry name of a resource.
+     *
+     * @param resid the ID.
+     *
+     * @return the name without type, e.g. <tt>math</tt>.
+     *
+     * @throws NotFoundException if there is no such resource.
+     */
+    public String getResourceEntryName(final int resid) {
+        final String sNAME = this._getName(resid);
+        return sNAME.substring(sNAME.indexOf('/') + 1);
+    }
+
+    /**
+     * Returns the type name of a resource.
+     *
+     * @param resid the ID.
+     *
+     * @return the type, e.g. <tt>xml</tt>.
+     *
+     * @throws NotFoundException if there is no such resource.
+     */
+    public String getResourceTypeName(final int resid) {
+        final String sNAME = this._getName(resid);
+        return sNAME.substring(0, sNAME.indexOf('/'));
+    }
+
+    /**
+     * Returns a parser of an XML resource file.
+     *
+     * @param id the ID of a <tt>xml</tt> or <tt>layout</tt> resource.
+     *
+     * @return the parser.
+     *
+     * @throws NotFoundException if there is no such file.
+     */
+    public XmlResourceParser getXml(final int id) {
+        return new XmlBlock(this, new File(
+            this._oDirectory, this._getName(id) + ".xml" //$NON-NLS-1$
+        ));
+    }
+
+    /**
+     * Returns a string of <tt>res/values</tt>.
+     *
+     * @param id the ID.
+     *
+     * @return the string.
+     *
+     * @throws NotFoundException if there is no such string.
+     */
+    public String getString(final int id) {
+        return this._getValue(id);
+    }
+
+    /**
+     * Returns a dimension of <tt>res/values</tt>.
+     *
+     * @param id the ID.
+     *
+     * @return the dimension, in pixels.
+     *
+     * @throws NotFoundException if there is no such dimension.
+     */
+    public float getDimension(final int id) {
+        return TypedValue.parseDimension(this._getValue(id), this._oMetrics);
+    }
+
+    /**
+     * Returns a dimension of <tt>res/values</tt> as an offset.
+     *
+     * @param id the ID.
+     *
+     * @return the dimension, in pixels, truncated.
+     *
+     * @throws NotFoundException if there is no such dimension.
+     */
+    public int getDimensionPixelOffset(final int id) {
+        return (int) this.getDimension(id);
+    }
+
+    /**
+     * Returns a dimension of <tt>res/values</tt> as a size.
+     *
+     * @param id the ID.
+     *
+     * @return the dimension, in pixels, rounded and at least one pixel unless
+     *         it is zero.
+     *
+     * @throws NotFoundException if there is no such dimension.
+     */
+    public int getDimensionPixelSize(final int id) {
+        return Resources.toPixelSize(this.getDimension(id));
+    }
+
+    /**
+     * Converts a dimension to a size the way the framework does. Not part of
+     * the framework.
+     *
+     * @param pixels the dimension, in pixels.
+     *
+     * @return the size, rounded and at least one pixel unless the dimension
+     *         is zero.
+     */
+    static int toPixelSize(final float pixels) {
+        final int iSIZE = Math.round(pixels);
+        if (0 != iSIZE) {
+            return iSIZE;
+        }
+        if (0f == pixels) {
+            return 0;
+        }
+        return (pixels > 0f) ? 1 : -1;
+    }
+
+    /**
+     * Returns an image as a drawable of a single color that has the size of
+     * the image, scaled to the density of the display.
+     *
+     * @param id the ID of a <tt>drawable</tt> resource.
+     *
+     * @return the drawable.
+     *
+     * @throws NotFoundException if there is no such image.
+     */
+    public Drawable getDrawable(final int id) {
+        final String sNAME = this.getResourceEntryName(id)
+            + ".png"; //$NON-NLS-1$
+        for (Object[] aDirectory : _DRAWABLE_DIRECTORIES) {
+            final File oFILE = new File(
+                new File(this._oDirectory, (String) aDirectory[0]), sNAME
+            );
+            if (!oFILE.isFile()) {
+                continue;
+            }
+            try {
+                final DataInputStream oIN = new DataInputStream(
+                    new FileInputStream(oFILE)
+                );
+                try {
+                    // The size follows the signature and the IHDR header.
+                    oIN.skipBytes(16);
+                    final float fSCALE = (float) this._oMetrics.densityDpi
+                        / (Integer) aDirectory[1];
+                    final int iWIDTH = Math.round(oIN.readInt() * fSCALE);
+                    final int iHEIGHT = Math.round(oIN.readInt() * fSCALE);
+                    return new ColorDrawable(
+                        _IMAGE_COLOR, iWIDTH, iHEIGHT, new Rect()
+                    );
+                } finally {
+                    oIN.close();
+                }
+            } catch (IOException ex) {
+                throw new NotFoundException(
+                    "Cannot read " + oFILE //$NON-NLS-1$
+                );
+            }
+        }
+        throw new NotFoundException(this._getName(id));
+    }
+
+    /**
+     * Returns the values of the attributes of a style. Replaces the
+     * resolution of the styles of the theme; not part of the framework.
+     *
+     * Only <tt>android.R.style.Widget_KeyboardView</tt> has values: those
+     * of the platform, with a key background of a single color.
+     *
+     * @param attrs       the attributes to return.
+     * @param defStyleRes the style.
+     *
+     * @return the values.
+     */
+    public TypedArray obtainStyle(final int[] attrs, final int defStyleRes) {
+        final Object[] aVALUES = new Object[attrs.length];
+        if (android.R.style.Widget_KeyboardView != defStyleRes) {
+            return new TypedArray(aVALUES);
+        }
+        for (int i = 0; i < attrs.length; ++i) {
+            switch (attrs[i]) {
+            case android.R.attr.shadowColor:
+                aVALUES[i] = 0xBB000000;
+                break;
+            case android.R.attr.shadowRadius:
+                aVALUES[i] = 2.75f;
+                break;
+            case android.R.attr.keyBackground:
+                final int iPADDING = Math.round(
+                    _KEY_PADDING_DP * this._oMetrics.density
+                );
+                aVALUES[i] = new ColorDrawable(
+                    0xFF303030, -1, -1,
+                    new Rect(iPADDING, iPADDING, iPADDING, iPADDING)
+                );
+                break;
+            case android.R.attr.keyTextSize:
+                aVALUES[i] = _KEY_TEXT_SIZE_SP * this._oMetrics.scaledDensity;
+                break;
+            case android.R.attr.labelTextSize:
+                aVALUES[i] = _LABEL_TEXT_SIZE_SP
+                    * this._oMetrics.scaledDensity;
+                break;
+            case android.R.attr.keyTextColor:
+                aVALUES[i] = 0xFFFFFFFF;
+                break;
+            default:
+                break;
+            }
+        }
+        return new TypedArray(aVALUES);
+    }
+}
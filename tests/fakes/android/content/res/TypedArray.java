@@ -0,0 +1,166 @@
+/**
+ * <tt>TypedArray.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package android.content.res;
+
+import android.graphics.drawable.Drawable;
+
+/**
+ * Replaces <tt>android.content.res.TypedArray</tt> on the Java virtual
+ * machine (JVM) of the tests.
+ *
+ * Holds the values resolved by <tt>{@link Resources#obtainStyle(int[],
+ * int)}</tt>: colors as <tt>Integer</tt>, dimensions in pixels and other
+ * numbers as <tt>Float</tt>, and drawables.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public class TypedArray {
+
+    /**
+     * The values, <tt>null</tt> where an attribute has no value.
+     */
+    private final Object[] _aValues;
+
+    /**
+     * Creates an array of values.
+     *
+     * @param values the values, <tt>null</tt> where an attribute has no
+     *               value.
+     */
+    TypedArray(final Object[] values) {
+        this._aValues = values;
+    }
+
+    /**
+     * Returns the number of attributes.
+     *
+     * @return the number of attributes.
+     */
+    public int length() {
+        return this._aValues.length;
+    }
+
+    /**
+     * Checks whether an attribute has a value.
+     *
+     * @param index the index of the attribute.
+     *
+     * @return <tt>true</tt> if the attribute has a value, <tt>false</tt>
+     *         otherwise.
+     */
+    public boolean hasValue(final int index) {
+        return null != this._aValues[index];
+    }
+
+    /**
+     * Returns a color.
+     *
+     * @param index    the index of the attribute.
+     * @param defValue the value if the attribute has none.
+     *
+     * @return the color, as ARGB.
+     */
+    public int getColor(final int index, final int defValue) {
+        return this.hasValue(index)
+            ? (Integer) this._aValues[index] : defValue;
+    }
+
+    /**
+     * Returns a number.
+     *
+     * @param index    the index of the attribute.
+     * @param defValue the value if the attribute has none.
+     *
+     * @return the number.
+     */
+    public float getFloat(final int index, final float defValue) {
+        return this.hasValue(index)
+            ? ((Number) this._aValues[index]).floatValue() : defValue;
+    }
+
+    /**
+     * Returns a dimension.
+     *
+     * @param index    the index of the attribute.
+     * @param defValue the value if the attribute has none.
+     *
+     * @return the dimension, in pixels.
+     */
+    public float getDimension(final int index, final float defValue) {
+        return this.getFloat(index, defValue);
+    }
+
+    /**
+     * Returns a dimension as a size.
+     *
+     * @param index    the index of the attribute.
+     * @param defValue the value if the attribute has none.
+     *
+     * @return the dimension, in pixels, rounded and at least one pixel
+     *         unless it is zero.
+     */
+    public int getDimensionPixelSize(final int index, final int defValue) {
+        return this.hasValue(index)
+            ? Resources.toPixelSize(this.getFloat(index, 0f)) : defValue;
+    }
+
+    /**
+     * Returns a dimension as an offset.
+     *
+     * @param index    the index of the attribute.
+     * @param defValue the value if the attribute has none.
+     *
+     * @return the dimension, in pixels, truncated.
+     */
+    public int getDimensionPixelOffset(final int index, final int defValue) {
+        return this.hasValue(index)
+            ? (int) this.getFloat(index, 0f) : defValue;
+    }
+
+    /**
+     * Returns a drawable.
+     *
+     * @param index the index of the attribute.
+     *
+     * @return a new drawable, or <tt>null</tt> if the attribute has no
+     *         value.
+     */
+    public Drawable getDrawable(final int index) {
+        if (!this.hasValue(index)) {
+            return null;
+        }
+        // Each call returns a new drawable, like the framework.
+        return ((Drawable) this._aValues[index]).getConstantState()
+            .newDrawable();
+    }
+
+    /**
+     * Releases the array.
+     */
+    public void recycle() {
+        // Empty block.
+    }
+}
@@ -0,0 +1,683 @@
+/**
+ * <tt>XmlBlock.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package android.content.res;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+import org.xmlpull.v1.XmlPullParserException;
+
+/**
+ * Parses an XML resource file on the Java virtual machine (JVM) of the tests.
+ *
+ * The file is read into a list of events at once. Like the compiled XML
+ * files of a package, the parser reports no whitespace and no namespace
+ * declarations, and it unescapes attribute values the way the Android Asset
+ * Packaging Tool (AAPT) does.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+final class XmlBlock implements XmlResourceParser {
+
+    /**
+     * The namespace of the XML namespace declarations.
+     */
+    private static final String _XMLNS_NAMESPACE
+        = "http://www.w3.org/2000/xmlns/"; //$NON-NLS-1$
+
+    /**
+     * The resources that resolve the references.
+     */
+    private final Resources _oResources;
+
+    /**
+     * The name of the file, for messages.
+     */
+    private final String _sName;
+
+    /**
+     * The type of each event.
+     */
+    private final List<Integer> _oTypes = new ArrayList<Integer>();
+
+    /**
+     * The node of each event: the element of a tag, the text of a text.
+     */
+    private final List<Node> _oNodes = new ArrayList<Node>();
+
+    /**
+     * The depth of each event.
+     */
+    private final List<Integer> _oDepths = new ArrayList<Integer>();
+
+    /**
+     * The attributes of the current element, without namespace
+     * declarations.
+     */
+    private final List<Attr> _oAttributes = new ArrayList<Attr>();
+
+    /**
+     * The index of the current event.
+     */
+    private int _iEvent = 0;
+
+    /**
+     * Reads an XML resource file.
+     *
+     * @param resources the resources that resolve the references.
+     * @param file      the file.
+     *
+     * @throws Resources.NotFoundException if the file cannot be read.
+     */
+    XmlBlock(final Resources resources, final File file) {
+        this._oResources = resources;
+        this._sName = file.getName();
+        final Document oDOCUMENT;
+        try {
+            final DocumentBuilderFactory oFACTORY
+                = DocumentBuilderFactory.newInstance();
+            oFACTORY.setNamespaceAware(true);
+            oFACTORY.setIgnoringComments(true);
+            oDOCUMENT = oFACTORY.newDocumentBuilder().parse(file);
+        } catch (ParserConfigurationException ex) {
+            throw new IllegalStateException(ex);
+        } catch (SAXException ex) {
+            throw new Resources.NotFoundException(
+                "Cannot parse " + file //$NON-NLS-1$
+            );
+        } catch (IOException ex) {
+            throw new Resources.NotFoundException(
+                "Cannot read " + file //$NON-NLS-1$
+            );
+        }
+        this._add(START_DOCUMENT, oDOCUMENT, 0);
+        this._addElement(oDOCUMENT.getDocumentElement(), 1);
+        this._add(END_DOCUMENT, oDOCUMENT, 0);
+    }
+
+    /**
+     * Adds an event.
+     *
+     * @param type  the type of the event.
+     * @param node  the node of the event.
+     * @param depth the depth of the event.
+     */
+    private void _add(final int type, final Node node, final int depth) {
+        this._oTypes.add(type);
+        this._oNodes.add(node);
+        this._oDepths.add(depth);
+    }
+
+    /**
+     * Adds the events of an element and its children.
+     *
+     * @param element the element.
+     * @param depth   the depth of the element.
+     */
+    private void _addElement(final Element element, final int depth) {
+        this._add(START_TAG, element, depth);
+        for (Node oChild = element.getFirstChild(); null != oChild;
+                oChild = oChild.getNextSibling()) {
+            switch (oChild.getNodeType()) {
+            case Node.ELEMENT_NODE:
+                this._addElement((Element) oChild, depth + 1);
+                break;
+            case Node.TEXT_NODE:
+            case Node.CDATA_SECTION_NODE:
+                if (!oChild.getNodeValue().trim().isEmpty()) {
+                    this._add(TEXT, oChild, depth);
+                }
+                break;
+            default:
+                break;
+            }
+        }
+        this._add(END_TAG, element, depth);
+    }
+
+    /**
+     * Unescapes an attribute value the way the Android Asset Packaging Tool
+     * (AAPT) does.
+     *
+     * @param value the value as written in the file.
+     *
+     * @return the value as read on a device.
+     */
+    private static String _unescape(final String value) {
+        if (-1 == value.indexOf('\\')) {
+            return value;
+        }
+        final StringBuilder oRESULT = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); ++i) {
+            final char cCHAR = value.charAt(i);
+            if ('\\' != cCHAR || i + 1 == value.length()) {
+                oRESULT.append(cCHAR);
+                continue;
+            }
+            final char cESCAPED = value.charAt(++i);
+            switch (cESCAPED) {
+            case 'n':
+                oRESULT.append('\n');
+                break;
+            case 't':
+                oRESULT.append('\t');
+                break;
+            case 'u':
+                oRESULT.append(
+                    (char) Integer.parseInt(value.substring(i + 1, i + 5), 16)
+                );
+                i += 4;
+                break;
+            default:
+                oRESULT.append(cESCAPED);
+                break;
+            }
+        }
+        return oRESULT.toString();
+    }
+
+    /**
+     * Returns the current element.
+     *
+     * @return the element, or <tt>null</tt> if the current event is not a
+     *         tag.
+     */
+    private Element _getElement() {
+        final int iTYPE = this._oTypes.get(this._iEvent);
+        if (START_TAG == iTYPE || END_TAG == iTYPE) {
+            return (Element) this._oNodes.get(this._iEvent);
+        }
+        return null;
+    }
+
+    /**
+     * Collects the attributes of the current element.
+     */
+    private void _collectAttributes() {
+        this._oAttributes.clear();
+        if (START_TAG != this._oTypes.get(this._iEvent)) {
+            return;
+        }
+        final NamedNodeMap oMAP = this._getElement().getAttributes();
+        for (int i = 0; i < oMAP.getLength(); ++i) {
+            final Attr oATTRIBUTE = (Attr) oMAP.item(i);
+            if (!_XMLNS_NAMESPACE.equals(oATTRIBUTE.getNamespaceURI())) {
+                this._oAttributes.add(oATTRIBUTE);
+            }
+        }
+    }
+
+    /**
+     * Returns the index of an attribute of the current element.
+     *
+     * @param namespace the namespace, or <tt>null</tt> for any namespace.
+     * @param name      the local name.
+     *
+     * @return the index, or <tt>-1</tt> if there is no such attribute.
+     */
+    private int _indexOf(final String namespace, final String name) {
+        for (int i = 0; i < this._oAttributes.size(); ++i) {
+            final Attr oATTRIBUTE = this._oAttributes.get(i);
+            if (name.equals(this.getAttributeName(i))
+                    && (null == namespace || namespace.equals(
+                        oATTRIBUTE.getNamespaceURI()))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Implementation of XmlPullParser.
+
+    @Override
+    public void setFeature(final String name, final boolean state) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean getFeature(final String name) {
+        return FEATURE_PROCESS_NAMESPACES.equals(name);
+    }
+
+    @Override
+    public void setProperty(final String name, final Object value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Object getProperty(final String name) {
+        return null;
+    }
+
+    @Override
+    public void setInput(final Reader in) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setInput(
+        final InputStream inputStream, final String inputEncoding
+    ) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getInputEncoding() {
+        return "UTF-8"; //$NON-NLS-1$
+    }
+
+    @Override
+    public void defineEntityReplacementText(
+        final String entityName, final String replacementText
+    ) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getNamespaceCount(final int depth) {
+        return 0;
+    }
+
+    @Override
+    public String getNamespacePrefix(final int pos) {
+        throw new IndexOutOfBoundsException();
+    }
+
+    @Override
+    public String getNamespaceUri(final int pos) {
+        throw new IndexOutOfBoundsException();
+    }
+
+    @Override
+    public String getNamespace(final String prefix) {
+        return this._oNodes.get(this._iEvent).lookupNamespaceURI(prefix);
+    }
+
+    @Override
+    public int getDepth() {
+        return this._oDepths.get(this._iEvent);
+    }
+
+    @Override
+    public String getPositionDescription() {
+        return "XML file " + this._sName //$NON-NLS-1$
+            + " event #" + this._iEvent; //$NON-NLS-1$
+    }
+
+    @Override
+    public int getLineNumber() {
+        return -1;
+    }
+
+    @Override
+    public int getColumnNumber() {
+        return -1;
+    }
+
+    @Override
+    public boolean isWhitespace() {
+        return false;
+    }
+
+    @Override
+    public String getText() {
+        if (TEXT == this._oTypes.get(this._iEvent)) {
+            return this._oNodes.get(this._iEvent).getNodeValue();
+        }
+        return null;
+    }
+
+    @Override
+    public char[] getTextCharacters(final int[] holderForStartAndLength) {
+        final String sTEXT = this.getText();
+        if (null == sTEXT) {
+            holderForStartAndLength[0] = -1;
+            holderForStartAndLength[1] = -1;
+            return null;
+        }
+        holderForStartAndLength[0] = 0;
+        holderForStartAndLength[1] = sTEXT.length();
+        return sTEXT.toCharArray();
+    }
+
+    @Override
+    public String getNamespace() {
+        final Element oELEMENT = this._getElement();
+        if (null == oELEMENT || null == oELEMENT.getNamespaceURI()) {
+            return ""; //$NON-NLS-1$
+        }
+        return oELEMENT.getNamespaceURI();
+    }
+
+    @Override
+    public String getName() {
+        final Element oELEMENT = this._getElement();
+        return (null == oELEMENT) ? null : oELEMENT.getTagName();
+    }
+
+    @Override
+    public String getPrefix() {
+        final Element oELEMENT = this._getElement();
+        return (null == oELEMENT) ? null : oELEMENT.getPrefix();
+    }
+
+    @Override
+    public boolean isEmptyElementTag() {
+        return START_TAG == this._oTypes.get(this._iEvent)
+            && !this._getElement().hasChildNodes();
+    }
+
+    @Override
+    public int getAttributeCount() {
+        if (START_TAG != this._oTypes.get(this._iEvent)) {
+            return -1;
+        }
+        return this._oAttributes.size();
+    }
+
+    @Override
+    public String getAttributeNamespace(final int index) {
+        final String sNAMESPACE = this._oAttributes.get(index)
+            .getNamespaceURI();
+        return (null == sNAMESPACE) ? "" : sNAMESPACE; //$NON-NLS-1$
+    }
+
+    @Override
+    public String getAttributeName(final int index) {
+        final Attr oATTRIBUTE = this._oAttributes.get(index);
+        return (null == oATTRIBUTE.getLocalName())
+            ? oATTRIBUTE.getName() : oATTRIBUTE.getLocalName();
+    }
+
+    @Override
+    public String getAttributePrefix(final int index) {
+        return this._oAttributes.get(index).getPrefix();
+    }
+
+    @Override
+    public String getAttributeType(final int index) {
+        return "CDATA"; //$NON-NLS-1$
+    }
+
+    @Override
+    public boolean isAttributeDefault(final int index) {
+        return false;
+    }
+
+    @Override
+    public String getAttributeValue(final int index) {
+        return XmlBlock._unescape(this._oAttributes.get(index).getValue());
+    }
+
+    @Override
+    public String getAttributeValue(final String namespace, final String name) {
+        final int iINDEX = this._indexOf(namespace, name);
+        return (-1 == iINDEX) ? null : this.getAttributeValue(iINDEX);
+    }
+
+    @Override
+    public int getEventType() {
+        return this._oTypes.get(this._iEvent);
+    }
+
+    @Override
+    public int next() {
+        if (this._iEvent + 1 < this._oTypes.size()) {
+            ++this._iEvent;
+        }
+        this._collectAttributes();
+        return this._oTypes.get(this._iEvent);
+    }
+
+    @Override
+    public int nextToken() {
+        return this.next();
+    }
+
+    @Override
+    public void require(
+        final int type, final String namespace, final String name
+    ) throws XmlPullParserException {
+        if (type != this.getEventType()
+                || (null != namespace && !namespace.equals(
+                    this.getNamespace()))
+                || (null != name && !name.equals(this.getName()))) {
+            throw new XmlPullParserException(
+                "Expected " + TYPES[type] //$NON-NLS-1$
+                    + " at " + this.getPositionDescription() //$NON-NLS-1$
+            );
+        }
+    }
+
+    @Override
+    public String nextText() throws XmlPullParserException {
+        this.require(START_TAG, null, null);
+        if (TEXT == this.next()) {
+            final String sTEXT = this.getText();
+            this.next();
+            return sTEXT;
+        }
+        return ""; //$NON-NLS-1$
+    }
+
+    @Override
+    public int nextTag() throws XmlPullParserException {
+        final int iTYPE = this.next();
+        if (START_TAG != iTYPE && END_TAG != iTYPE) {
+            throw new XmlPullParserException(
+                "Expected a tag at " //$NON-NLS-1$
+                    + this.getPositionDescription()
+            );
+        }
+        return iTYPE;
+    }
+
+    // Implementation of AttributeSet.
+
+    @Override
+    public int getAttributeNameResource(final int index) {
+        return 0;
+    }
+
+    @Override
+    public int getAttributeListValue(
+        final String namespace, final String attribute, final String[] options,
+        final int defaultValue
+    ) {
+        final int iINDEX = this._indexOf(namespace, attribute);
+        return (-1 == iINDEX)
+            ? defaultValue
+            : this.getAttributeListValue(iINDEX, options, defaultValue);
+    }
+
+    @Override
+    public boolean getAttributeBooleanValue(
+        final String namespace, final String attribute,
+        final boolean defaultValue
+    ) {
+        final int iINDEX = this._indexOf(namespace, attribute);
+        return (-1 == iINDEX)
+            ? defaultValue
+            : this.getAttributeBooleanValue(iINDEX, defaultValue);
+    }
+
+    @Override
+    public int getAttributeResourceValue(
+        final String namespace, final String attribute, final int defaultValue
+    ) {
+        final int iINDEX = this._indexOf(namespace, attribute);
+        return (-1 == iINDEX)
+            ? defaultValue
+            : this.getAttributeResourceValue(iINDEX, defaultValue);
+    }
+
+    @Override
+    public int getAttributeIntValue(
+        final String namespace, final String attribute, final int defaultValue
+    ) {
+        final int iINDEX = this._indexOf(namespace, attribute);
+        return (-1 == iINDEX)
+            ? defaultValue
+            : this.getAttributeIntValue(iINDEX, defaultValue);
+    }
+
+    @Override
+    public int getAttributeUnsignedIntValue(
+        final String namespace, final String attribute, final int defaultValue
+    ) {
+        final int iINDEX = this._indexOf(namespace, attribute);
+        return (-1 == iINDEX)
+            ? defaultValue
+            : this.getAttributeUnsignedIntValue(iINDEX, defaultValue);
+    }
+
+    @Override
+    public float getAttributeFloatValue(
+        final String namespace, final String attribute,
+        final float defaultValue
+    ) {
+        final int iINDEX = this._indexOf(namespace, attribute);
+        return (-1 == iINDEX)
+            ? defaultValue
+            : this.getAttributeFloatValue(iINDEX, defaultValue);
+    }
+
+    @Override
+    public int getAttributeListValue(
+        final int index, final String[] options, final int defaultValue
+    ) {
+        final String sVALUE = this.getAttributeValue(index);
+        for (int i = 0; i < options.length; ++i) {
+            if (options[i].equals(sVALUE)) {
+                return i;
+            }
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public boolean getAttributeBooleanValue(
+        final int index, final boolean defaultValue
+    ) {
+        final String sVALUE = this.getAttributeValue(index);
+        if ("true".equals(sVALUE)) { //$NON-NLS-1$
+            return true;
+        }
+        if ("false".equals(sVALUE)) { //$NON-NLS-1$
+            return false;
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public int getAttributeResourceValue(
+        final int index, final int defaultValue
+    ) {
+        final String sVALUE = this._oAttributes.get(index).getValue();
+        if (!sVALUE.startsWith("@")) { //$NON-NLS-1$
+            return defaultValue;
+        }
+        final int iID = this._oResources.getIdentifier(
+            sVALUE, null, null
+        );
+        return (0 == iID) ? defaultValue : iID;
+    }
+
+    @Override
+    public int getAttributeIntValue(final int index, final int defaultValue) {
+        final String sVALUE = this.getAttributeValue(index).trim();
+        try {
+            if (sVALUE.startsWith("0x")) { //$NON-NLS-1$
+                return (int) Long.parseLong(sVALUE.substring(2), 16);
+            }
+            return Integer.parseInt(sVALUE);
+        } catch (NumberFormatException ex) {
+            return defaultValue;
+        }
+    }
+
+    @Override
+    public int getAttributeUnsignedIntValue(
+        final int index, final int defaultValue
+    ) {
+        return this.getAttributeIntValue(index, defaultValue);
+    }
+
+    @Override
+    public float getAttributeFloatValue(
+        final int index, final float defaultValue
+    ) {
+        try {
+            return Float.parseFloat(this.getAttributeValue(index));
+        } catch (NumberFormatException ex) {
+            return defaultValue;
+        }
+    }
+
+    @Override
+    public String getIdAttribute() {
+        return this.getAttributeValue(null, "id"); //$NON-NLS-1$
+    }
+
+    @Override
+    public String getClassAttribute() {
+        return this.getAttributeValue(null, "class"); //$NON-NLS-1$
+    }
+
+    @Override
+    public int getIdAttributeResourceValue(final int defaultValue) {
+        return this.getAttributeResourceValue(
+            null, "id", defaultValue //$NON-NLS-1$
+        );
+    }
+
+    @Override
+    public int getStyleAttribute() {
+        return this.getAttributeResourceValue(
+            null, "style", 0 //$NON-NLS-1$
+        );
+    }
+
+    // Implementation of XmlResourceParser.
+
+    @Override
+    public void close() {
+        this._oAttributes.clear();
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * <tt>Bitmap.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package android.graphics;
+
+/**
+ * Replaces <tt>android.graphics.Bitmap</tt> on the Java virtual machine (JVM)
+ * of the tests.
+ *
+ * Only the size of the bitmap is kept, not its pixels.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public final class Bitmap {
+
+    /**
+     * The configurations of the pixels.
+     */
+    public enum Config {
+        /**
+         * Transparency only, one byte per pixel.
+         */
+        ALPHA_8(1),
+        /**
+         * RGB without transparency, two bytes per pixel.
+         */
+        RGB_565(2),
+        /**
+         * Deprecated ARGB, two bytes per pixel.
+         */
+        ARGB_4444(2),
+        /**
+         * ARGB, four bytes per pixel.
+         */
+        ARGB_8888(4);
+
+        /**
+         * The bytes per pixel.
+         */
+        private final int _iBytes;
+
+        /**
+         * Creates a configuration.
+         *
+         * @param bytes the bytes per pixel.
+         */
+        Config(final int bytes) {
+            this._iBytes = bytes;
+        }
+    }
+
+    /**
+     * The width, in pixels.
+     */
+    private final int _iWidth;
+
+    /**
+     * The height, in pixels.
+     */
+    private final int _iHeight;
+
+    /**
+     * The configuration of the pixels.
+     */
+    private final Config _oConfig;
+
+    /**
+     * Signals whether the bitmap has been recycled.
+     */
+    private boolean _bIsRecycled = false;
+
+    /**
+     * Creates a bitmap.
+     *
+     * @param width  the width, in pixels.
+     * @param height the height, in pixels.
+     * @param config the configuration of the pixels.
+     */
+    private Bitmap(final int width, final int height, final Config config) {
+        this._iWidth = width;
+        this._iHeight = height;
+        this._oConfig = config;
+    }
+
+    /**
+     * Creates a bitmap.
+     *
+     * @param width  the width, in pixels.
+     * @param height the height, in pixels.
+     * @param config the configuration of the pixels.
+     *
+     * @return the bitmap.
+     */
+    public static Bitmap createBitmap(
+        final int width, final int height, final Config config
+    ) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException(
+                "width and height must be > 0" //$NON-NLS-1$
+            );
+        }
+        return new Bitmap(width, height, config);
+    }
+
+    /**
+     * Returns the width.
+     *
+     * @return the width, in pixels.
+     */
+    public int getWidth() {
+        return this._iWidth;
+    }
+
+    /**
+     * Returns the height.
+     *
+     * @return the height, in pixels.
+     */
+    public int getHeight() {
+        return this._iHeight;
+    }
+
+    /**
+     * Returns the number of bytes of a row of pixels.
+     *
+     * @return the number of bytes.
+     */
+    public int getRowBytes() {
+        return this._iWidth * this._oConfig._iBytes;
+    }
+
+    /**
+     * Returns the configuration of the pixels.
+     *
+     * @return the configuration.
+     */
+    public Config getConfig() {
+        return this._oConfig;
+    }
+
+    /**
+     * Releases the pixels.
+     */
+    public void recycle() {
+        this._bIsRecycled = true;
+    }
+
+    /**
+     * Returns whether the bitmap has been recycled.
+     *
+     * @return <tt>true</tt> if the bitmap has been recycled, <tt>false</tt>
+     *         otherwise.
+     */
+    public boolean isRecycled() {
+        return this._bIsRecycled;
+    }
+}
@@ -0,0 +1,314 @@
+/**
+ * <tt>Canvas.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package android.graphics;
+
+/**
+ * Replaces <tt>android.graphics.Canvas</tt> on the Java virtual machine (JVM)
+ * of the tests.
+ *
+ * Nothing is drawn. The canvas keeps its translation and clip, so that
+ * subclasses can record the draw calls, e.g. to count the draw operations of
+ * a frame.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public class Canvas {
+
+    /**
+     * The maximum number of nested saves.
+     */
+    private static final int _MAX_SAVES = 32;
+
+    /**
+     * The bitmap to draw into, or <tt>null</tt>.
+     */
+    private final Bitmap _oBitmap;
+
+    /**
+     * The clip, in the coordinates of the bitmap.
+     */
+    private final Rect _oClip = new Rect();
+
+    /**
+     * The saved translations and clips, six values per save.
+     */
+    private final int[] _aSaved = new int[6 * _MAX_SAVES];
+
+    /**
+     * The number of saves.
+     */
+    private int _iSaveCount = 0;
+
+    /**
+     * The horizontal translation.
+     */
+    private float _fTranslateX = 0f;
+
+    /**
+     * The vertical translation.
+     */
+    private float _fTranslateY = 0f;
+
+    /**
+     * Creates a canvas without bitmap and with an empty clip.
+     */
+    public Canvas() {
+        this._oBitmap = null;
+    }
+
+    /**
+     * Creates a canvas that draws into a bitmap.
+     *
+     * @param bitmap the bitmap.
+     */
+    public Canvas(final Bitmap bitmap) {
+        this._oBitmap = bitmap;
+        this._oClip.set(0, 0, bitmap.getWidth(), bitmap.getHeight());
+    }
+
+    /**
+     * Returns the width of the bitmap.
+     *
+     * @return the width, or <tt>0</tt> without bitmap.
+     */
+    public int getWidth() {
+        return (null == this._oBitmap) ? 0 : this._oBitmap.getWidth();
+    }
+
+    /**
+     * Returns the height of the bitmap.
+     *
+     * @return the height, or <tt>0</tt> without bitmap.
+     */
+    public int getHeight() {
+        return (null == this._oBitmap) ? 0 : this._oBitmap.getHeight();
+    }
+
+    /**
+     * Saves the translation and the clip.
+     *
+     * @return the number of saves before this one.
+     */
+    public int save() {
+        if (_MAX_SAVES == this._iSaveCount) {
+            throw new IllegalStateException(
+                "Too many nested saves" //$NON-NLS-1$
+            );
+        }
+        final int iOFFSET = 6 * this._iSaveCount;
+        this._aSaved[iOFFSET] = Float.floatToIntBits(this._fTranslateX);
+        this._aSaved[iOFFSET + 1] = Float.floatToIntBits(this._fTranslateY);
+        this._aSaved[iOFFSET + 2] = this._oClip.left;
+        this._aSaved[iOFFSET + 3] = this._oClip.top;
+        this._aSaved[iOFFSET + 4] = this._oClip.right;
+        this._aSaved[iOFFSET + 5] = this._oClip.bottom;
+        return this._iSaveCount++;
+    }
+
+    /**
+     * Restores the translation and the clip of the last save.
+     */
+    public void restore() {
+        if (0 == this._iSaveCount) {
+            throw new IllegalStateException(
+                "Underflow in restore" //$NON-NLS-1$
+            );
+        }
+        final int iOFFSET = 6 * --this._iSaveCount;
+        this._fTranslateX = Float.intBitsToFloat(this._aSaved[iOFFSET]);
+        this._fTranslateY = Float.intBitsToFloat(this._aSaved[iOFFSET + 1]);
+        this._oClip.set(
+            this._aSaved[iOFFSET + 2], this._aSaved[iOFFSET + 3],
+            this._aSaved[iOFFSET + 4], this._aSaved[iOFFSET + 5]
+        );
+    }
+
+    /**
+     * Returns the number of saves that have not been restored, plus one.
+     *
+     * @return the save count.
+     */
+    public int getSaveCount() {
+        return this._iSaveCount + 1;
+    }
+
+    /**
+     * Translates the canvas.
+     *
+     * @param dx the horizontal offset.
+     * @param dy the vertical offset.
+     */
+    public void translate(final float dx, final float dy) {
+        this._fTranslateX += dx;
+        this._fTranslateY += dy;
+    }
+
+    /**
+     * Intersects the clip with a rectangle.
+     *
+     * @param left   the left edge, in local coordinates.
+     * @param top    the top edge, in local coordinates.
+     * @param right  the right edge, in local coordinates.
+     * @param bottom the bottom edge, in local coordinates.
+     *
+     * @return <tt>true</tt> if the clip is not empty, <tt>false</tt>
+     *         otherwise.
+     */
+    public boolean clipRect(
+        final int left, final int top, final int right, final int bottom
+    ) {
+        final int iDX = (int) this._fTranslateX;
+        final int iDY = (int) this._fTranslateY;
+        if (null == this._oBitmap && 0 == this._iSaveCount
+                && this._oClip.isEmpty()) {
+            // A canvas without bitmap is not bounded.
+            this._oClip.set(left + iDX, top + iDY, right + iDX, bottom + iDY);
+            return !this._oClip.isEmpty();
+        }
+        this._oClip.set(
+            Math.max(this._oClip.left, left + iDX),
+            Math.max(this._oClip.top, top + iDY),
+            Math.min(this._oClip.right, right + iDX),
+            Math.min(this._oClip.bottom, bottom + iDY)
+        );
+        return !this._oClip.isEmpty();
+    }
+
+    /**
+     * Intersects the clip with a rectangle.
+     *
+     * @param rect the rectangle, in local coordinates.
+     *
+     * @return <tt>true</tt> if the clip is not empty, <tt>false</tt>
+     *         otherwise.
+     */
+    public boolean clipRect(final Rect rect) {
+        return this.clipRect(rect.left, rect.top, rect.right, rect.bottom);
+    }
+
+    /**
+     * Returns the bounds of the clip, in local coordinates.
+     *
+     * @param bounds receives the bounds.
+     *
+     * @return <tt>true</tt> if the clip is not empty, <tt>false</tt>
+     *         otherwise.
+     */
+    public boolean getClipBounds(final Rect bounds) {
+        bounds.set(this._oClip);
+        bounds.offset((int) -this._fTranslateX, (int) -this._fTranslateY);
+        return !bounds.isEmpty();
+    }
+
+    /**
+     * Returns the bounds of the clip, in local coordinates.
+     *
+     * @return the bounds.
+     */
+    public final Rect getClipBounds() {
+        final Rect oBOUNDS = new Rect();
+        this.getClipBounds(oBOUNDS);
+        return oBOUNDS;
+    }
+
+    /**
+     * Fills the clip with a color.
+     *
+     * @param color the color, as ARGB.
+     */
+    public void drawColor(final int color) {
+        // Empty block.
+    }
+
+    /**
+     * Draws a rectangle.
+     *
+     * @param rect  the rectangle, in local coordinates.
+     * @param paint the paint.
+     */
+    public void drawRect(final Rect rect, final Paint paint) {
+        // Empty block.
+    }
+
+    /**
+     * Draws a rectangle.
+     *
+     * @param left   the left edge, in local coordinates.
+     * @param top    the top edge, in local coordinates.
+     * @param right  the right edge, in local coordinates.
+     * @param bottom the bottom edge, in local coordinates.
+     * @param paint  the paint.
+     */
+    public void drawRect(
+        final float left, final float top, final float right,
+        final float bottom, final Paint paint
+    ) {
+        // Empty block.
+    }
+
+    /**
+     * Draws a text.
+     *
+     * @param text  the text.
+     * @param x     the x-coordinate of the origin of the text.
+     * @param y     the y-coordinate of the baseline of the text.
+     * @param paint the paint.
+     */
+    public void drawText(
+        final String text, final float x, final float y, final Paint paint
+    ) {
+        // Empty block.
+    }
+
+    /**
+     * Draws a part of a bitmap.
+     *
+     * @param bitmap the bitmap.
+     * @param src    the part of the bitmap, or <tt>null</tt> for all of it.
+     * @param dst    the rectangle to draw into, in local coordinates.
+     * @param paint  the paint, or <tt>null</tt>.
+     */
+    public void drawBitmap(
+        final Bitmap bitmap, final Rect src, final Rect dst, final Paint paint
+    ) {
+        // Empty block.
+    }
+
+    /**
+     * Draws a bitmap.
+     *
+     * @param bitmap the bitmap.
+     * @param left   the x-coordinate of the bitmap, in local coordinates.
+     * @param top    the y-coordinate of the bitmap, in local coordinates.
+     * @param paint  the paint, or <tt>null</tt>.
+     */
+    public void drawBitmap(
+        final Bitmap bitmap, final float left, final float top,
+        final Paint paint
+    ) {
+        // Empty block.
+    }
+}
@@ -0,0 +1,252 @@
+/**
+ * <tt>Paint.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package android.graphics;
+
+/**
+ * Replaces <tt>android.graphics.Paint</tt> on the Java virtual machine (JVM)
+ * of the tests.
+ *
+ * The metrics of the text are approximated from the text size.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public class Paint {
+
+    /**
+     * The alignment of text relative to its origin.
+     */
+    public enum Align {
+        /**
+         * The text is drawn to the right of the origin.
+         */
+        LEFT,
+        /**
+         * The text is centered on the origin.
+         */
+        CENTER,
+        /**
+         * The text is drawn to the left of the origin.
+         */
+        RIGHT
+    }
+
+    /**
+     * The flag of anti-aliased drawing.
+     */
+    public static final int ANTI_ALIAS_FLAG = 1;
+
+    /**
+     * The flags.
+     */
+    private int _iFlags;
+
+    /**
+     * The color, as ARGB.
+     */
+    private int _iColor = 0xFF000000;
+
+    /**
+     * The text size, in pixels.
+     */
+    private float _fTextSize = 12f;
+
+    /**
+     * The alignment of text.
+     */
+    private Align _oTextAlign = Align.LEFT;
+
+    /**
+     * The typeface, or <tt>null</tt>.
+     */
+    private Typeface _oTypeface = null;
+
+    /**
+     * The radius of the shadow, <tt>0</tt> for no shadow.
+     */
+    private float _fShadowRadius = 0f;
+
+    /**
+     * Creates a paint with the default settings.
+     */
+    public Paint() {
+        this(0);
+    }
+
+    /**
+     * Creates a paint with the specified flags.
+     *
+     * @param flags the flags.
+     */
+    public Paint(final int flags) {
+        this._iFlags = flags;
+    }
+
+    /**
+     * Enables or disables anti-aliased drawing.
+     *
+     * @param aa <tt>true</tt> to enable anti-aliased drawing.
+     */
+    public void setAntiAlias(final boolean aa) {
+        this._iFlags = aa
+            ? this._iFlags | ANTI_ALIAS_FLAG : this._iFlags & ~ANTI_ALIAS_FLAG;
+    }
+
+    /**
+     * Returns the flags.
+     *
+     * @return the flags.
+     */
+    public int getFlags() {
+        return this._iFlags;
+    }
+
+    /**
+     * Sets the color.
+     *
+     * @param color the color, as ARGB.
+     */
+    public void setColor(final int color) {
+        this._iColor = color;
+    }
+
+    /**
+     * Returns the color.
+     *
+     * @return the color, as ARGB.
+     */
+    public int getColor() {
+        return this._iColor;
+    }
+
+    /**
+     * Sets the text size.
+     *
+     * @param textSize the text size, in pixels.
+     */
+    public void setTextSize(final float textSize) {
+        this._fTextSize = textSize;
+    }
+
+    /**
+     * Returns the text size.
+     *
+     * @return the text size, in pixels.
+     */
+    public float getTextSize() {
+        return this._fTextSize;
+    }
+
+    /**
+     * Sets the alignment of text.
+     *
+     * @param align the alignment.
+     */
+    public void setTextAlign(final Align align) {
+        this._oTextAlign = align;
+    }
+
+    /**
+     * Returns the alignment of text.
+     *
+     * @return the alignment.
+     */
+    public Align getTextAlign() {
+        return this._oTextAlign;
+    }
+
+    /**
+     * Sets the typeface.
+     *
+     * @param typeface the typeface, or <tt>null</tt>.
+     *
+     * @return the typeface.
+     */
+    public Typeface setTypeface(final Typeface typeface) {
+        this._oTypeface = typeface;
+        return typeface;
+    }
+
+    /**
+     * Returns the typeface.
+     *
+     * @return the typeface, or <tt>null</tt>.
+     */
+    public Typeface getTypeface() {
+        return this._oTypeface;
+    }
+
+    /**
+     * Sets the shadow of text.
+     *
+     * @param radius the radius of the shadow, <tt>0</tt> for no shadow.
+     * @param dx     the horizontal offset of the shadow.
+     * @param dy     the vertical offset of the shadow.
+     * @param color  the color of the shadow.
+     */
+    public void setShadowLayer(
+        final float radius, final float dx, final float dy, final int color
+    ) {
+        this._fShadowRadius = radius;
+    }
+
+    /**
+     * Returns the radius of the shadow.
+     *
+     * @return the radius, <tt>0</tt> for no shadow. Not part of the framework.
+     */
+    public float getShadowRadius() {
+        return this._fShadowRadius;
+    }
+
+    /**
+     * Returns the distance below the baseline of the text.
+     *
+     * @return the descent, in pixels.
+     */
+    public float descent() {
+        return this._fTextSize * 0.25f;
+    }
+
+    /**
+     * Returns the distance above the baseline of the text.
+     *
+     * @return the ascent, a negative number of pixels.
+     */
+    public float ascent() {
+        return this._fTextSize * -0.9f;
+    }
+
+    /**
+     * Returns the width of a text.
+     *
+     * @param text the text.
+     *
+     * @return the width, in pixels.
+     */
+    public float measureText(final String text) {
+        return text.length() * this._fTextSize * 0.5f;
+    }
+}
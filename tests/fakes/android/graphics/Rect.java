@@ -0,0 +1,269 @@
+/**
+ * <tt>Rect.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package android.graphics;
+
+/**
+ * Replaces <tt>android.graphics.Rect</tt> on the Java virtual machine (JVM) of
+ * the tests.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public final class Rect {
+
+    /**
+     * The left edge.
+     */
+    public int left;
+
+    /**
+     * The top edge.
+     */
+    public int top;
+
+    /**
+     * The right edge, exclusive.
+     */
+    public int right;
+
+    /**
+     * The bottom edge, exclusive.
+     */
+    public int bottom;
+
+    /**
+     * Creates an empty rectangle.
+     */
+    public Rect() {
+        // Empty block.
+    }
+
+    /**
+     * Creates a rectangle.
+     *
+     * @param left   the left edge.
+     * @param top    the top edge.
+     * @param right  the right edge, exclusive.
+     * @param bottom the bottom edge, exclusive.
+     */
+    public Rect(
+        final int left, final int top, final int right, final int bottom
+    ) {
+        this.set(left, top, right, bottom);
+    }
+
+    /**
+     * Creates a copy of a rectangle.
+     *
+     * @param r the rectangle to copy, or <tt>null</tt> for an empty one.
+     */
+    public Rect(final Rect r) {
+        if (null != r) {
+            this.set(r);
+        }
+    }
+
+    /**
+     * Sets the edges.
+     *
+     * @param left   the left edge.
+     * @param top    the top edge.
+     * @param right  the right edge, exclusive.
+     * @param bottom the bottom edge, exclusive.
+     */
+    public void set(
+        final int left, final int top, final int right, final int bottom
+    ) {
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    /**
+     * Copies the edges of a rectangle.
+     *
+     * @param src the rectangle to copy.
+     */
+    public void set(final Rect src) {
+        this.set(src.left, src.top, src.right, src.bottom);
+    }
+
+    /**
+     * Sets all edges to <tt>0</tt>.
+     */
+    public void setEmpty() {
+        this.set(0, 0, 0, 0);
+    }
+
+    /**
+     * Returns whether the rectangle is empty.
+     *
+     * @return <tt>true</tt> if the rectangle has no area, <tt>false</tt>
+     *         otherwise.
+     */
+    public boolean isEmpty() {
+        return this.left >= this.right || this.top >= this.bottom;
+    }
+
+    /**
+     * Returns the width.
+     *
+     * @return the width.
+     */
+    public int width() {
+        return this.right - this.left;
+    }
+
+    /**
+     * Returns the height.
+     *
+     * @return the height.
+     */
+    public int height() {
+        return this.bottom - this.top;
+    }
+
+    /**
+     * Moves the rectangle.
+     *
+     * @param dx the horizontal offset.
+     * @param dy the vertical offset.
+     */
+    public void offset(final int dx, final int dy) {
+        this.left += dx;
+        this.top += dy;
+        this.right += dx;
+        this.bottom += dy;
+    }
+
+    /**
+     * Returns whether a point is inside the rectangle.
+     *
+     * @param x the x-coordinate.
+     * @param y the y-coordinate.
+     *
+     * @return <tt>true</tt> if the point is inside, <tt>false</tt> otherwise.
+     */
+    public boolean contains(final int x, final int y) {
+        return this.left < this.right && this.top < this.bottom
+            && x >= this.left && x < this.right && y >= this.top
+            && y < this.bottom;
+    }
+
+    /**
+     * Returns whether the rectangle intersects another one.
+     *
+     * @param left   the left edge of the other rectangle.
+     * @param top    the top edge of the other rectangle.
+     * @param right  the right edge of the other rectangle.
+     * @param bottom the bottom edge of the other rectangle.
+     *
+     * @return <tt>true</tt> if the rectangles intersect, <tt>false</tt>
+     *         otherwise.
+     */
+    public boolean intersects(
+        final int left, final int top, final int right, final int bottom
+    ) {
+        return this.left < right && left < this.right && this.top < bottom
+            && top < this.bottom;
+    }
+
+    /**
+     * Returns whether two rectangles intersect.
+     *
+     * @param a the first rectangle.
+     * @param b the second rectangle.
+     *
+     * @return <tt>true</tt> if the rectangles intersect, <tt>false</tt>
+     *         otherwise.
+     */
+    public static boolean intersects(final Rect a, final Rect b) {
+        return a.intersects(b.left, b.top, b.right, b.bottom);
+    }
+
+    /**
+     * Enlarges the rectangle to enclose another one.
+     *
+     * @param r the other rectangle.
+     */
+    public void union(final Rect r) {
+        if (r.isEmpty()) {
+            return;
+        }
+        if (this.isEmpty()) {
+            this.set(r);
+            return;
+        }
+        this.left = Math.min(this.left, r.left);
+        this.top = Math.min(this.top, r.top);
+        this.right = Math.max(this.right, r.right);
+        this.bottom = Math.max(this.bottom, r.bottom);
+    }
+
+    /**
+     * Shrinks the rectangle to its intersection with another one.
+     *
+     * @param r the other rectangle.
+     *
+     * @return <tt>true</tt> if the rectangles intersect, <tt>false</tt> if
+     *         this rectangle has not been changed.
+     */
+    public boolean intersect(final Rect r) {
+        if (!this.intersects(r.left, r.top, r.right, r.bottom)) {
+            return false;
+        }
+        this.left = Math.max(this.left, r.left);
+        this.top = Math.max(this.top, r.top);
+        this.right = Math.min(this.right, r.right);
+        this.bottom = Math.min(this.bottom, r.bottom);
+        return true;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (!(o instanceof Rect)) {
+            return false;
+        }
+        final Rect oOTHER = (Rect) o;
+        return this.left == oOTHER.left && this.top == oOTHER.top
+            && this.right == oOTHER.right && this.bottom == oOTHER.bottom;
+    }
+
+    @Override
+    public int hashCode() {
+        return ((this.left * 31 + this.top) * 31 + this.right) * 31
+            + this.bottom;
+    }
+
+    @Override
+    public String toString() {
+        return "Rect(" + this.left //$NON-NLS-1$
+            + ", " + this.top //$NON-NLS-1$
+            + " - " + this.right //$NON-NLS-1$
+            + ", " + this.bottom //$NON-NLS-1$
+            + ")"; //$NON-NLS-1$
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * <tt>Typeface.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package android.graphics;
+
+/**
+ * Replaces <tt>android.graphics.Typeface</tt> on the Java virtual machine
+ * (JVM) of the tests.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public class Typeface {
+
+    /**
+     * The normal style.
+     */
+    public static final int NORMAL = 0;
+
+    /**
+     * The bold style.
+     */
+    public static final int BOLD = 1;
+
+    /**
+     * The default typeface.
+     */
+    public static final Typeface DEFAULT = new Typeface(NORMAL);
+
+    /**
+     * The default bold typeface.
+     */
+    public static final Typeface DEFAULT_BOLD = new Typeface(BOLD);
+
+    /**
+     * The style of the typeface.
+     */
+    private final int _iStyle;
+
+    /**
+     * Creates a typeface.
+     *
+     * @param style the style.
+     */
+    private Typeface(final int style) {
+        this._iStyle = style;
+    }
+
+    /**
+     * Returns the style of the typeface.
+     *
+     * @return the style.
+     */
+    public int getStyle() {
+        return this._iStyle;
+    }
+
+    /**
+     * Returns whether the typeface is bold.
+     *
+     * @return <tt>true</tt> if the typeface is bold, <tt>false</tt>
+     *         otherwise.
+     */
+    public final boolean isBold() {
+        return 0 != (this._iStyle & BOLD);
+    }
+}
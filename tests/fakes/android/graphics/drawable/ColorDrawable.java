@@ -0,0 +1,139 @@
+/**
+ * <tt>ColorDrawable.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package android.graphics.drawable;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+/**
+ * Replaces <tt>android.graphics.drawable.ColorDrawable</tt> on the Java
+ * virtual machine (JVM) of the tests.
+ *
+ * The drawable may have a natural size and a padding, so that it can stand
+ * in for the images and nine-patches of the resources.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public class ColorDrawable extends Drawable {
+
+    /**
+     * The paint of the color.
+     */
+    private final Paint _oPaint = new Paint();
+
+    /**
+     * The natural width, or <tt>-1</tt>.
+     */
+    private final int _iWidth;
+
+    /**
+     * The natural height, or <tt>-1</tt>.
+     */
+    private final int _iHeight;
+
+    /**
+     * The padding of the content.
+     */
+    private final Rect _oPadding;
+
+    /**
+     * Creates a drawable of a color without natural size.
+     *
+     * @param color the color, as ARGB.
+     */
+    public ColorDrawable(final int color) {
+        this(color, -1, -1, new Rect());
+    }
+
+    /**
+     * Creates a drawable of a color. Not part of the framework.
+     *
+     * @param color   the color, as ARGB.
+     * @param width   the natural width, or <tt>-1</tt>.
+     * @param height  the natural height, or <tt>-1</tt>.
+     * @param padding the padding of the content.
+     */
+    public ColorDrawable(
+        final int color, final int width, final int height,
+        final Rect padding
+    ) {
+        this._oPaint.setColor(color);
+        this._iWidth = width;
+        this._iHeight = height;
+        this._oPadding = padding;
+    }
+
+    /**
+     * Fills the bounds with the color.
+     *
+     * @param canvas the canvas to draw on.
+     */
+    @Override
+    public void draw(final Canvas canvas) {
+        canvas.drawRect(this.getBounds(), this._oPaint);
+    }
+
+    /**
+     * Returns the color.
+     *
+     * @return the color, as ARGB.
+     */
+    public int getColor() {
+        return this._oPaint.getColor();
+    }
+
+    @Override
+    public boolean getPadding(final Rect padding) {
+        padding.set(this._oPadding);
+        return !(0 == padding.left && 0 == padding.top && 0 == padding.right
+            && 0 == padding.bottom);
+    }
+
+    @Override
+    public int getIntrinsicWidth() {
+        return this._iWidth;
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+        return this._iHeight;
+    }
+
+    @Override
+    public ConstantState getConstantState() {
+        final int iCOLOR = this.getColor();
+        final int iWIDTH = this._iWidth;
+        final int iHEIGHT = this._iHeight;
+        final Rect oPADDING = new Rect(this._oPadding);
+        return new ConstantState() {
+            @Override
+            public Drawable newDrawable() {
+                return new ColorDrawable(iCOLOR, iWIDTH, iHEIGHT, oPADDING);
+            }
+        };
+    }
+}
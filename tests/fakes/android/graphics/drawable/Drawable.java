@@ -0,0 +1,190 @@
+/**
+ * <tt>Drawable.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package android.graphics.drawable;
+
+import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+
+/**
+ * Replaces <tt>android.graphics.drawable.Drawable</tt> on the Java virtual
+ * machine (JVM) of the tests.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public abstract class Drawable {
+
+    /**
+     * The state shared by the copies of a drawable.
+     */
+    public abstract static class ConstantState {
+
+        /**
+         * Creates a drawable from this state.
+         *
+         * @return the drawable.
+         */
+        public abstract Drawable newDrawable();
+
+        /**
+         * Creates a drawable from this state.
+         *
+         * @param res the resources to use.
+         *
+         * @return the drawable.
+         */
+        public Drawable newDrawable(final Resources res) {
+            return this.newDrawable();
+        }
+    }
+
+    /**
+     * The empty state.
+     */
+    private static final int[] _EMPTY_STATE = new int[0];
+
+    /**
+     * The bounds.
+     */
+    private final Rect _oBounds = new Rect();
+
+    /**
+     * The state, e.g. <tt>android.R.attr.state_pressed</tt>.
+     */
+    private int[] _aState = _EMPTY_STATE;
+
+    /**
+     * Draws the drawable within its bounds.
+     *
+     * @param canvas the canvas to draw on.
+     */
+    public abstract void draw(Canvas canvas);
+
+    /**
+     * Sets the bounds.
+     *
+     * @param left   the left edge.
+     * @param top    the top edge.
+     * @param right  the right edge, exclusive.
+     * @param bottom the bottom edge, exclusive.
+     */
+    public void setBounds(
+        final int left, final int top, final int right, final int bottom
+    ) {
+        this._oBounds.set(left, top, right, bottom);
+    }
+
+    /**
+     * Sets the bounds.
+     *
+     * @param bounds the bounds.
+     */
+    public void setBounds(final Rect bounds) {
+        this._oBounds.set(bounds);
+    }
+
+    /**
+     * Returns the bounds.
+     *
+     * @return the bounds, not a copy.
+     */
+    public final Rect getBounds() {
+        return this._oBounds;
+    }
+
+    /**
+     * Sets the state.
+     *
+     * @param stateSet the state.
+     *
+     * @return <tt>true</tt> if the state has changed, <tt>false</tt>
+     *         otherwise.
+     */
+    public boolean setState(final int[] stateSet) {
+        if (this._aState == stateSet) {
+            return false;
+        }
+        this._aState = stateSet;
+        return true;
+    }
+
+    /**
+     * Returns the state.
+     *
+     * @return the state.
+     */
+    public int[] getState() {
+        return this._aState;
+    }
+
+    /**
+     * Returns the padding of the content.
+     *
+     * @param padding receives the padding.
+     *
+     * @return <tt>true</tt> if there is a padding, <tt>false</tt> otherwise.
+     */
+    public boolean getPadding(final Rect padding) {
+        padding.set(0, 0, 0, 0);
+        return false;
+    }
+
+    /**
+     * Returns the natural width.
+     *
+     * @return the width, or <tt>-1</tt> if there is none.
+     */
+    public int getIntrinsicWidth() {
+        return -1;
+    }
+
+    /**
+     * Returns the natural height.
+     *
+     * @return the height, or <tt>-1</tt> if there is none.
+     */
+    public int getIntrinsicHeight() {
+        return -1;
+    }
+
+    /**
+     * Returns the state shared by the copies of this drawable.
+     *
+     * @return the state, or <tt>null</tt> if the drawable cannot be copied.
+     */
+    public ConstantState getConstantState() {
+        return null;
+    }
+
+    /**
+     * Makes the drawable independent of its copies.
+     *
+     * @return this drawable.
+     */
+    public Drawable mutate() {
+        return this;
+    }
+}
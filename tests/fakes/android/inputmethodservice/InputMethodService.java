@@ -0,0 +1,321 @@
+/**
+ * <tt>InputMethodService.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package android.inputmethodservice;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+import android.app.SharedPreferencesImpl;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.ApplicationInfo;
+import android.content.res.Resources;
+import android.util.DisplayMetrics;
+import android.view.View;
+import android.view.inputmethod.CompletionInfo;
+import android.view.inputmethod.EditorInfo;
+import android.view.inputmethod.InputConnection;
+
+/**
+ * Replaces <tt>android.inputmethodservice.InputMethodService</tt> on the
+ * Java virtual machine (JVM) of the tests.
+ *
+ * The service has no window and no system services. The resources are read
+ * from the directory named by the system property <tt>vkb.res</tt>, by
+ * default <tt>res</tt>. The tests set the editor with <tt>{@link
+ * #setInput(InputConnection, EditorInfo)}</tt> and call the life cycle
+ * methods themselves.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public class InputMethodService extends Context {
+
+    /**
+     * The system property of the <tt>res</tt> directory.
+     */
+    public static final String RES_PROPERTY = "vkb.res"; //$NON-NLS-1$
+
+    /**
+     * The resources, created when first needed.
+     */
+    private Resources _oResources = null;
+
+    /**
+     * The preferences by name.
+     */
+    private final Map<String, SharedPreferences> _oPreferences
+        = new HashMap<String, SharedPreferences>();
+
+    /**
+     * The information about the application.
+     */
+    private final ApplicationInfo _oApplicationInfo = new ApplicationInfo();
+
+    /**
+     * The directory of the private files, created when first needed.
+     */
+    private File _oFilesDir = null;
+
+    /**
+     * The connection to the editor, or <tt>null</tt>.
+     */
+    private InputConnection _oInputConnection = null;
+
+    /**
+     * The attributes of the editor, or <tt>null</tt>.
+     */
+    private EditorInfo _oEditorInfo = null;
+
+    /**
+     * Sets the editor. Not part of the framework.
+     *
+     * @param ic   the connection to the editor, or <tt>null</tt>.
+     * @param info the attributes of the editor, or <tt>null</tt>.
+     */
+    public final void setInput(
+        final InputConnection ic, final EditorInfo info
+    ) {
+        this._oInputConnection = ic;
+        this._oEditorInfo = info;
+    }
+
+    /**
+     * Sets the directory of the private files. Not part of the framework.
+     *
+     * @param dir the directory.
+     */
+    public final void setFilesDir(final File dir) {
+        this._oFilesDir = dir;
+    }
+
+    @Override
+    public Resources getResources() {
+        if (null == this._oResources) {
+            this._oResources = new Resources(
+                new File(System.getProperty(
+                    RES_PROPERTY, "res" //$NON-NLS-1$
+                )),
+                this.getClass().getPackage().getName(), new DisplayMetrics()
+            );
+        }
+        return this._oResources;
+    }
+
+    @Override
+    public File getFilesDir() {
+        if (null == this._oFilesDir) {
+            try {
+                this._oFilesDir = File.createTempFile(
+                    "vkb", "files" //$NON-NLS-1$ //$NON-NLS-2$
+                );
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+            this._oFilesDir.delete();
+            this._oFilesDir.mkdir();
+            this._oFilesDir.deleteOnExit();
+        }
+        return this._oFilesDir;
+    }
+
+    @Override
+    public SharedPreferences getSharedPreferences(
+        final String name, final int mode
+    ) {
+        SharedPreferences oPreferences = this._oPreferences.get(name);
+        if (null == oPreferences) {
+            oPreferences = new SharedPreferencesImpl();
+            this._oPreferences.put(name, oPreferences);
+        }
+        return oPreferences;
+    }
+
+    @Override
+    public Object getSystemService(final String name) {
+        return null;
+    }
+
+    @Override
+    public ApplicationInfo getApplicationInfo() {
+        return this._oApplicationInfo;
+    }
+
+    /**
+     * Returns the maximum width of the input method.
+     *
+     * @return the width of the display.
+     */
+    public int getMaxWidth() {
+        return this.getResources().getDisplayMetrics().widthPixels;
+    }
+
+    /**
+     * Returns the connection to the editor.
+     *
+     * @return the connection, or <tt>null</tt>.
+     */
+    public InputConnection getCurrentInputConnection() {
+        return this._oInputConnection;
+    }
+
+    /**
+     * Returns the attributes of the editor.
+     *
+     * @return the attributes, or <tt>null</tt>.
+     */
+    public EditorInfo getCurrentInputEditorInfo() {
+        return this._oEditorInfo;
+    }
+
+    /**
+     * Called when the service is created.
+     */
+    public void onCreate() {
+        // Empty block.
+    }
+
+    /**
+     * Called when the service is destroyed.
+     */
+    public void onDestroy() {
+        // Empty block.
+    }
+
+    /**
+     * Called when the system runs low on memory.
+     */
+    public void onLowMemory() {
+        // Empty block.
+    }
+
+    /**
+     * Prints the state of the service.
+     *
+     * @param fd     the file descriptor, ignored.
+     * @param writer the writer to print to.
+     * @param args   the arguments, ignored.
+     */
+    protected void dump(
+        final FileDescriptor fd, final PrintWriter writer, final String[] args
+    ) {
+        writer.println("Input method service state:"); //$NON-NLS-1$
+    }
+
+    /**
+     * Called before the interface is created.
+     */
+    public void onInitializeInterface() {
+        // Empty block.
+    }
+
+    /**
+     * Creates the view of the candidates.
+     *
+     * @return <tt>null</tt>.
+     */
+    public View onCreateCandidatesView() {
+        return null;
+    }
+
+    /**
+     * Creates the view of the input area.
+     *
+     * @return <tt>null</tt>.
+     */
+    public View onCreateInputView() {
+        return null;
+    }
+
+    /**
+     * Called when input starts in an editor.
+     *
+     * @param attribute  the attributes of the editor.
+     * @param restarting <tt>true</tt> if input restarts in the same editor.
+     */
+    public void onStartInput(
+        final EditorInfo attribute, final boolean restarting
+    ) {
+        // Empty block.
+    }
+
+    /**
+     * Called when the input view is shown for an editor.
+     *
+     * @param info       the attributes of the editor.
+     * @param restarting <tt>true</tt> if input restarts in the same editor.
+     */
+    public void onStartInputView(
+        final EditorInfo info, final boolean restarting
+    ) {
+        // Empty block.
+    }
+
+    /**
+     * Called when input finishes in an editor.
+     */
+    public void onFinishInput() {
+        // Empty block.
+    }
+
+    /**
+     * Called when the editor reports a new selection.
+     *
+     * @param oldSelStart     the start of the old selection.
+     * @param oldSelEnd       the end of the old selection.
+     * @param newSelStart     the start of the new selection.
+     * @param newSelEnd       the end of the new selection.
+     * @param candidatesStart the start of the candidates.
+     * @param candidatesEnd   the end of the candidates.
+     */
+    public void onUpdateSelection(
+        final int oldSelStart, final int oldSelEnd, final int newSelStart,
+        final int newSelEnd, final int candidatesStart, final int candidatesEnd
+    ) {
+        // Empty block.
+    }
+
+    /**
+     * Called when the editor reports completions.
+     *
+     * @param completions the completions.
+     */
+    public void onDisplayCompletions(final CompletionInfo[] completions) {
+        // Empty block.
+    }
+
+    /**
+     * Hides the input method.
+     *
+     * @param flags the flags.
+     */
+    public void requestHideSelf(final int flags) {
+        // Empty block.
+    }
+}
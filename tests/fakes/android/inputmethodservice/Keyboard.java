@@ -0,0 +1,1124 @@
+/**
+ * <tt>Keyboard.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package android.inputmethodservice;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.xmlpull.v1.XmlPullParser;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.XmlResourceParser;
+import android.graphics.drawable.Drawable;
+import android.util.DisplayMetrics;
+import android.util.Log;
+import android.util.TypedValue;
+
+/**
+ * Replaces <tt>android.inputmethodservice.Keyboard</tt> on the Java virtual
+ * machine (JVM) of the tests.
+ *
+ * Parses the layouts the way the framework does: the same defaults, the same
+ * fractions of the display, the same position of each key and the same grid
+ * of nearest keys, so that touches resolve to the keys they resolve to on a
+ * device of the same size.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public class Keyboard {
+
+    /**
+     * The left edge of the keyboard.
+     */
+    public static final int EDGE_LEFT = 0x01;
+
+    /**
+     * The right edge of the keyboard.
+     */
+    public static final int EDGE_RIGHT = 0x02;
+
+    /**
+     * The top edge of the keyboard.
+     */
+    public static final int EDGE_TOP = 0x04;
+
+    /**
+     * The bottom edge of the keyboard.
+     */
+    public static final int EDGE_BOTTOM = 0x08;
+
+    /**
+     * The code of the <i>Shift</i> key.
+     */
+    public static final int KEYCODE_SHIFT = -1;
+
+    /**
+     * The code of the key that changes the mode.
+     */
+    public static final int KEYCODE_MODE_CHANGE = -2;
+
+    /**
+     * The code of the key that cancels the input.
+     */
+    public static final int KEYCODE_CANCEL = -3;
+
+    /**
+     * The code of the key that finishes the input.
+     */
+    public static final int KEYCODE_DONE = -4;
+
+    /**
+     * The code of the <i>Backspace</i> key.
+     */
+    public static final int KEYCODE_DELETE = -5;
+
+    /**
+     * The code of the <i>Alt</i> key.
+     */
+    public static final int KEYCODE_ALT = -6;
+
+    /**
+     * The namespace of the attributes.
+     */
+    static final String NAMESPACE
+        = "http://schemas.android.com/apk/res/android"; //$NON-NLS-1$
+
+    /**
+     * The tag of the keyboard.
+     */
+    private static final String _TAG_KEYBOARD = "Keyboard"; //$NON-NLS-1$
+
+    /**
+     * The tag of a row.
+     */
+    private static final String _TAG_ROW = "Row"; //$NON-NLS-1$
+
+    /**
+     * The tag of a key.
+     */
+    private static final String _TAG_KEY = "Key"; //$NON-NLS-1$
+
+    /**
+     * The names of the edge flags, in the order of their bits.
+     */
+    private static final String[] _EDGE_NAMES = {
+        "left", //$NON-NLS-1$
+        "right", //$NON-NLS-1$
+        "top", //$NON-NLS-1$
+        "bottom", //$NON-NLS-1$
+    };
+
+    /**
+     * The number of columns of the grid of nearest keys.
+     */
+    private static final int _GRID_WIDTH = 10;
+
+    /**
+     * The number of rows of the grid of nearest keys.
+     */
+    private static final int _GRID_HEIGHT = 5;
+
+    /**
+     * The number of cells of the grid of nearest keys.
+     */
+    private static final int _GRID_SIZE = _GRID_WIDTH * _GRID_HEIGHT;
+
+    /**
+     * The distance of the nearest keys, in widths of a key.
+     */
+    private static final float _SEARCH_DISTANCE = 1.8f;
+
+    /**
+     * The nearest keys of a touch outside the keyboard.
+     */
+    private static final int[] _NO_KEYS = new int[0];
+
+    /**
+     * A row of keys.
+     */
+    public static class Row {
+
+        /**
+         * The default width of the keys.
+         */
+        public int defaultWidth;
+
+        /**
+         * The default height of the keys.
+         */
+        public int defaultHeight;
+
+        /**
+         * The default gap before the keys.
+         */
+        public int defaultHorizontalGap;
+
+        /**
+         * The gap above the row.
+         */
+        public int verticalGap;
+
+        /**
+         * The edges of the keyboard that the row touches.
+         */
+        public int rowEdgeFlags;
+
+        /**
+         * The mode of the row, or <tt>0</tt> for all modes.
+         */
+        public int mode;
+
+        /**
+         * The keyboard of the row.
+         */
+        private final Keyboard _oParent;
+
+        /**
+         * Creates a row with the defaults of a keyboard.
+         *
+         * @param parent the keyboard.
+         */
+        public Row(final Keyboard parent) {
+            this._oParent = parent;
+        }
+
+        /**
+         * Creates a row from a layout.
+         *
+         * @param res    the resources.
+         * @param parent the keyboard.
+         * @param parser the parser, positioned at the row.
+         */
+        public Row(
+            final Resources res, final Keyboard parent,
+            final XmlResourceParser parser
+        ) {
+            this._oParent = parent;
+            this.defaultWidth = Keyboard.getDimensionOrFraction(
+                res, parser, "keyWidth", //$NON-NLS-1$
+                parent._iDisplayWidth, parent._iDefaultWidth
+            );
+            this.defaultHeight = Keyboard.getDimensionOrFraction(
+                res, parser, "keyHeight", //$NON-NLS-1$
+                parent._iDisplayHeight, parent._iDefaultHeight
+            );
+            this.defaultHorizontalGap = Keyboard.getDimensionOrFraction(
+                res, parser, "horizontalGap", //$NON-NLS-1$
+                parent._iDisplayWidth, parent._iDefaultHorizontalGap
+            );
+            this.verticalGap = Keyboard.getDimensionOrFraction(
+                res, parser, "verticalGap", //$NON-NLS-1$
+                parent._iDisplayHeight, parent._iDefaultVerticalGap
+            );
+            this.rowEdgeFlags = Keyboard._getEdgeFlags(
+                parser, "rowEdgeFlags" //$NON-NLS-1$
+            );
+            this.mode = parser.getAttributeIntValue(
+                NAMESPACE, "keyboardMode", 0 //$NON-NLS-1$
+            );
+        }
+    }
+
+    /**
+     * A key of a keyboard.
+     */
+    public static class Key {
+
+        /**
+         * The state of a key that is on.
+         */
+        private static final int[] _STATE_NORMAL_ON = {
+            android.R.attr.state_checkable,
+            android.R.attr.state_checked,
+        };
+
+        /**
+         * The state of a pressed key that is on.
+         */
+        private static final int[] _STATE_PRESSED_ON = {
+            android.R.attr.state_pressed,
+            android.R.attr.state_checkable,
+            android.R.attr.state_checked,
+        };
+
+        /**
+         * The state of a sticky key that is off.
+         */
+        private static final int[] _STATE_NORMAL_OFF = {
+            android.R.attr.state_checkable,
+        };
+
+        /**
+         * The state of a pressed sticky key that is off.
+         */
+        private static final int[] _STATE_PRESSED_OFF = {
+            android.R.attr.state_pressed,
+            android.R.attr.state_checkable,
+        };
+
+        /**
+         * The state of a key.
+         */
+        private static final int[] _STATE_NORMAL = {};
+
+        /**
+         * The state of a pressed key.
+         */
+        private static final int[] _STATE_PRESSED = {
+            android.R.attr.state_pressed,
+        };
+
+        /**
+         * The codes of the key, the primary code first.
+         */
+        public int[] codes;
+
+        /**
+         * The label, or <tt>null</tt>.
+         */
+        public CharSequence label;
+
+        /**
+         * The icon, or <tt>null</tt>.
+         */
+        public Drawable icon;
+
+        /**
+         * The icon of the preview, or <tt>null</tt>.
+         */
+        public Drawable iconPreview;
+
+        /**
+         * The width.
+         */
+        public int width;
+
+        /**
+         * The height.
+         */
+        public int height;
+
+        /**
+         * The gap before the key.
+         */
+        public int gap;
+
+        /**
+         * Signals whether the key toggles.
+         */
+        public boolean sticky;
+
+        /**
+         * The left edge.
+         */
+        public int x;
+
+        /**
+         * The top edge.
+         */
+        public int y;
+
+        /**
+         * Signals whether the key is pressed.
+         */
+        public boolean pressed;
+
+        /**
+         * Signals whether a sticky key is on.
+         */
+        public boolean on;
+
+        /**
+         * The text to output, or <tt>null</tt>.
+         */
+        public CharSequence text;
+
+        /**
+         * The characters of the popup keyboard, or <tt>null</tt>.
+         */
+        public CharSequence popupCharacters;
+
+        /**
+         * The edges of the keyboard that the key touches.
+         */
+        public int edgeFlags;
+
+        /**
+         * Signals whether the key is a modifier.
+         */
+        public boolean modifier;
+
+        /**
+         * The layout of the popup keyboard, or <tt>0</tt>.
+         */
+        public int popupResId;
+
+        /**
+         * Signals whether the key repeats while it is held.
+         */
+        public boolean repeatable;
+
+        /**
+         * Creates a key with the defaults of a row.
+         *
+         * @param parent the row.
+         */
+        public Key(final Row parent) {
+            this.height = parent.defaultHeight;
+            this.width = parent.defaultWidth;
+            this.gap = parent.defaultHorizontalGap;
+            this.edgeFlags = parent.rowEdgeFlags;
+        }
+
+        /**
+         * Creates a key from a layout.
+         *
+         * @param res    the resources.
+         * @param parent the row.
+         * @param x      the left edge, before the gap.
+         * @param y      the top edge.
+         * @param parser the parser, positioned at the key.
+         */
+        public Key(
+            final Resources res, final Row parent, final int x, final int y,
+            final XmlResourceParser parser
+        ) {
+            this(parent);
+            final Keyboard oKEYBOARD = parent._oParent;
+            this.x = x;
+            this.y = y;
+            this.width = Keyboard.getDimensionOrFraction(
+                res, parser, "keyWidth", //$NON-NLS-1$
+                oKEYBOARD._iDisplayWidth, parent.defaultWidth
+            );
+            this.height = Keyboard.getDimensionOrFraction(
+                res, parser, "keyHeight", //$NON-NLS-1$
+                oKEYBOARD._iDisplayHeight, parent.defaultHeight
+            );
+            this.gap = Keyboard.getDimensionOrFraction(
+                res, parser, "horizontalGap", //$NON-NLS-1$
+                oKEYBOARD._iDisplayWidth, parent.defaultHorizontalGap
+            );
+            this.x += this.gap;
+
+            final String sCODES = parser.getAttributeValue(
+                NAMESPACE, "codes" //$NON-NLS-1$
+            );
+            if (null != sCODES) {
+                final String[] aCODES = sCODES.split(","); //$NON-NLS-1$
+                this.codes = new int[aCODES.length];
+                for (int i = 0; i < aCODES.length; ++i) {
+                    this.codes[i] = Integer.parseInt(aCODES[i].trim());
+                }
+            }
+            this.iconPreview = Keyboard._getDrawable(
+                res, parser, "iconPreview" //$NON-NLS-1$
+            );
+            this.popupCharacters = parser.getAttributeValue(
+                NAMESPACE, "popupCharacters" //$NON-NLS-1$
+            );
+            this.popupResId = parser.getAttributeResourceValue(
+                NAMESPACE, "popupKeyboard", 0 //$NON-NLS-1$
+            );
+            this.repeatable = parser.getAttributeBooleanValue(
+                NAMESPACE, "isRepeatable", false //$NON-NLS-1$
+            );
+            this.modifier = parser.getAttributeBooleanValue(
+                NAMESPACE, "isModifier", false //$NON-NLS-1$
+            );
+            this.sticky = parser.getAttributeBooleanValue(
+                NAMESPACE, "isSticky", false //$NON-NLS-1$
+            );
+            this.edgeFlags = Keyboard._getEdgeFlags(
+                parser, "keyEdgeFlags" //$NON-NLS-1$
+            ) | parent.rowEdgeFlags;
+            this.icon = Keyboard._getDrawable(
+                res, parser, "keyIcon" //$NON-NLS-1$
+            );
+            this.label = parser.getAttributeValue(
+                NAMESPACE, "keyLabel" //$NON-NLS-1$
+            );
+            this.text = parser.getAttributeValue(
+                NAMESPACE, "keyOutputText" //$NON-NLS-1$
+            );
+            if (null == this.codes && null != this.label
+                    && 0 != this.label.length()) {
+                this.codes = new int[] {this.label.charAt(0)};
+            }
+        }
+
+        /**
+         * Called when the key is pressed.
+         */
+        public void onPressed() {
+            this.pressed = !this.pressed;
+        }
+
+        /**
+         * Called when the key is released.
+         *
+         * @param inside <tt>true</tt> if the touch ended on the key,
+         *               <tt>false</tt> otherwise.
+         */
+        public void onReleased(final boolean inside) {
+            this.pressed = !this.pressed;
+            if (this.sticky) {
+                this.on = !this.on;
+            }
+        }
+
+        /**
+         * Checks whether a point is on the key. A key at an edge of the
+         * keyboard extends beyond that edge.
+         *
+         * @param x the horizontal coordinate.
+         * @param y the vertical coordinate.
+         *
+         * @return <tt>true</tt> if the point is on the key, <tt>false</tt>
+         *         otherwise.
+         */
+        public boolean isInside(final int x, final int y) {
+            final boolean bLEFT = 0 != (this.edgeFlags & EDGE_LEFT);
+            final boolean bRIGHT = 0 != (this.edgeFlags & EDGE_RIGHT);
+            final boolean bTOP = 0 != (this.edgeFlags & EDGE_TOP);
+            final boolean bBOTTOM = 0 != (this.edgeFlags & EDGE_BOTTOM);
+            return (x >= this.x || (bLEFT && x <= this.x + this.width))
+                && (x < this.x + this.width || (bRIGHT && x >= this.x))
+                && (y >= this.y || (bTOP && y <= this.y + this.height))
+                && (y < this.y + this.height || (bBOTTOM && y >= this.y));
+        }
+
+        /**
+         * Returns the square of the distance between the center of the key
+         * and a point.
+         *
+         * @param x the horizontal coordinate.
+         * @param y the vertical coordinate.
+         *
+         * @return the square of the distance.
+         */
+        public int squaredDistanceFrom(final int x, final int y) {
+            final int iX = this.x + this.width / 2 - x;
+            final int iY = this.y + this.height / 2 - y;
+            return iX * iX + iY * iY;
+        }
+
+        /**
+         * Returns the state of the drawable of the background.
+         *
+         * @return the state.
+         */
+        public int[] getCurrentDrawableState() {
+            if (this.on) {
+                return this.pressed ? _STATE_PRESSED_ON : _STATE_NORMAL_ON;
+            }
+            if (this.sticky) {
+                return this.pressed ? _STATE_PRESSED_OFF : _STATE_NORMAL_OFF;
+            }
+            return this.pressed ? _STATE_PRESSED : _STATE_NORMAL;
+        }
+    }
+
+    /**
+     * The width of the display.
+     */
+    private final int _iDisplayWidth;
+
+    /**
+     * The height of the display.
+     */
+    private final int _iDisplayHeight;
+
+    /**
+     * The default width of the keys.
+     */
+    private int _iDefaultWidth;
+
+    /**
+     * The default height of the keys.
+     */
+    private int _iDefaultHeight;
+
+    /**
+     * The default gap before the keys.
+     */
+    private int _iDefaultHorizontalGap = 0;
+
+    /**
+     * The default gap above the rows.
+     */
+    private int _iDefaultVerticalGap = 0;
+
+    /**
+     * The square of the distance of the nearest keys.
+     */
+    private int _iProximityThreshold;
+
+    /**
+     * The mode of the keyboard.
+     */
+    private final int _iKeyboardMode;
+
+    /**
+     * The keys.
+     */
+    private final List<Key> _oKeys = new ArrayList<Key>();
+
+    /**
+     * The modifier keys.
+     */
+    private final List<Key> _oModifierKeys = new ArrayList<Key>();
+
+    /**
+     * The <i>Shift</i> key, or <tt>null</tt>.
+     */
+    private Key _oShiftKey = null;
+
+    /**
+     * The index of the <i>Shift</i> key, or <tt>-1</tt>.
+     */
+    private int _iShiftKeyIndex = -1;
+
+    /**
+     * Signals whether the keyboard is shifted.
+     */
+    private boolean _bIsShifted = false;
+
+    /**
+     * The width of the keys.
+     */
+    private int _iTotalWidth = 0;
+
+    /**
+     * The height of the keys.
+     */
+    private int _iTotalHeight = 0;
+
+    /**
+     * The width of a cell of the grid of nearest keys.
+     */
+    private int _iCellWidth;
+
+    /**
+     * The height of a cell of the grid of nearest keys.
+     */
+    private int _iCellHeight;
+
+    /**
+     * The nearest keys of each cell of the grid, or <tt>null</tt>.
+     */
+    private int[][] _aGridNeighbors = null;
+
+    /**
+     * Creates a keyboard from a layout.
+     *
+     * @param context        the context.
+     * @param xmlLayoutResId the layout.
+     */
+    public Keyboard(final Context context, final int xmlLayoutResId) {
+        this(context, xmlLayoutResId, 0);
+    }
+
+    /**
+     * Creates a keyboard from the rows of a layout that have a mode.
+     *
+     * @param context        the context.
+     * @param xmlLayoutResId the layout.
+     * @param modeId         the mode.
+     */
+    public Keyboard(
+        final Context context, final int xmlLayoutResId, final int modeId
+    ) {
+        final DisplayMetrics oMETRICS = context.getResources()
+            .getDisplayMetrics();
+        this._iDisplayWidth = oMETRICS.widthPixels;
+        this._iDisplayHeight = oMETRICS.heightPixels;
+        this._iDefaultWidth = this._iDisplayWidth / 10;
+        this._iDefaultHeight = this._iDefaultWidth;
+        this._iKeyboardMode = modeId;
+        this._loadKeyboard(
+            context, context.getResources().getXml(xmlLayoutResId)
+        );
+    }
+
+    /**
+     * Creates a keyboard from a template and populates it with one key per
+     * character.
+     *
+     * @param context             the context.
+     * @param layoutTemplateResId the template.
+     * @param characters          the characters.
+     * @param columns             the number of columns, or <tt>-1</tt> to
+     *                            fit as many keys as possible in a row.
+     * @param horizontalPadding   the padding of the rows.
+     */
+    public Keyboard(
+        final Context context, final int layoutTemplateResId,
+        final CharSequence characters, final int columns,
+        final int horizontalPadding
+    ) {
+        this(context, layoutTemplateResId);
+        int iX = 0;
+        int iY = 0;
+        int iColumn = 0;
+        this._iTotalWidth = 0;
+        final Row oROW = new Row(this);
+        oROW.defaultHeight = this._iDefaultHeight;
+        oROW.defaultWidth = this._iDefaultWidth;
+        oROW.defaultHorizontalGap = this._iDefaultHorizontalGap;
+        oROW.verticalGap = this._iDefaultVerticalGap;
+        oROW.rowEdgeFlags = EDGE_TOP | EDGE_BOTTOM;
+        final int iMAX_COLUMNS = (-1 == columns) ? Integer.MAX_VALUE : columns;
+        for (int i = 0; i < characters.length(); ++i) {
+            final char cCHAR = characters.charAt(i);
+            if (iColumn >= iMAX_COLUMNS || iX + this._iDefaultWidth
+                    + horizontalPadding > this._iDisplayWidth) {
+                iX = 0;
+                iY += this._iDefaultVerticalGap + this._iDefaultHeight;
+                iColumn = 0;
+            }
+            final Key oKEY = new Key(oROW);
+            oKEY.x = iX;
+            oKEY.y = iY;
+            oKEY.label = String.valueOf(cCHAR);
+            oKEY.codes = new int[] {cCHAR};
+            ++iColumn;
+            iX += oKEY.width + oKEY.gap;
+            this._oKeys.add(oKEY);
+            if (iX > this._iTotalWidth) {
+                this._iTotalWidth = iX;
+            }
+        }
+        this._iTotalHeight = iY + this._iDefaultHeight;
+    }
+
+    /**
+     * Returns a dimension of an attribute, which may be a fraction of a base.
+     *
+     * @param res      the resources.
+     * @param parser   the parser.
+     * @param name     the name of the attribute.
+     * @param base     the base of a fraction.
+     * @param defValue the value if the attribute is missing.
+     *
+     * @return the dimension, in pixels.
+     */
+    static int getDimensionOrFraction(
+        final Resources res, final XmlResourceParser parser,
+        final String name, final int base, final int defValue
+    ) {
+        final String sVALUE = parser.getAttributeValue(NAMESPACE, name);
+        if (null == sVALUE) {
+            return defValue;
+        }
+        // A fraction of the parent, e.g. "10%p", or of the base, e.g. "10%".
+        if (-1 != sVALUE.indexOf('%')) {
+            return Math.round(base * Float.parseFloat(
+                sVALUE.substring(0, sVALUE.indexOf('%'))
+            ) / 100f);
+        }
+        if (sVALUE.startsWith("@")) { //$NON-NLS-1$
+            return res.getDimensionPixelOffset(
+                parser.getAttributeResourceValue(NAMESPACE, name, 0)
+            );
+        }
+        return (int) TypedValue.parseDimension(
+            sVALUE, res.getDisplayMetrics()
+        );
+    }
+
+    /**
+     * Returns the edge flags of an attribute.
+     *
+     * @param parser the parser.
+     * @param name   the name of the attribute.
+     *
+     * @return the flags, or <tt>0</tt> if the attribute is missing.
+     */
+    private static int _getEdgeFlags(
+        final XmlResourceParser parser, final String name
+    ) {
+        final String sVALUE = parser.getAttributeValue(NAMESPACE, name);
+        if (null == sVALUE) {
+            return 0;
+        }
+        int iFlags = 0;
+        for (String sFlag : sVALUE.split("\\|")) { //$NON-NLS-1$
+            for (int i = 0; i < _EDGE_NAMES.length; ++i) {
+                if (_EDGE_NAMES[i].equals(sFlag.trim())) {
+                    iFlags |= 1 << i;
+                }
+            }
+        }
+        return iFlags;
+    }
+
+    /**
+     * Returns the drawable of an attribute, with its natural size as bounds.
+     *
+     * @param res    the resources.
+     * @param parser the parser.
+     * @param name   the name of the attribute.
+     *
+     * @return the drawable, or <tt>null</tt> if the attribute is missing.
+     */
+    private static Drawable _getDrawable(
+        final Resources res, final XmlResourceParser parser,
+        final String name
+    ) {
+        final int iID = parser.getAttributeResourceValue(NAMESPACE, name, 0);
+        if (0 == iID) {
+            return null;
+        }
+        final Drawable oDRAWABLE = res.getDrawable(iID);
+        oDRAWABLE.setBounds(
+            0, 0, oDRAWABLE.getIntrinsicWidth(),
+            oDRAWABLE.getIntrinsicHeight()
+        );
+        return oDRAWABLE;
+    }
+
+    /**
+     * Parses a layout.
+     *
+     * @param context the context.
+     * @param parser  the parser of the layout.
+     */
+    private void _loadKeyboard(
+        final Context context, final XmlResourceParser parser
+    ) {
+        boolean bInKey = false;
+        boolean bInRow = false;
+        int iX = 0;
+        int iY = 0;
+        Key oKey = null;
+        Row oCurrentRow = null;
+        final Resources oRES = context.getResources();
+        try {
+            int iEvent;
+            while (XmlPullParser.END_DOCUMENT != (iEvent = parser.next())) {
+                if (XmlPullParser.START_TAG == iEvent) {
+                    final String sTAG = parser.getName();
+                    if (_TAG_ROW.equals(sTAG)) {
+                        bInRow = true;
+                        iX = 0;
+                        oCurrentRow = this.createRowFromXml(oRES, parser);
+                        if (0 != oCurrentRow.mode
+                                && this._iKeyboardMode != oCurrentRow.mode) {
+                            Keyboard._skipToEndOfRow(parser);
+                            bInRow = false;
+                        }
+                    } else if (_TAG_KEY.equals(sTAG)) {
+                        bInKey = true;
+                        oKey = this.createKeyFromXml(
+                            oRES, oCurrentRow, iX, iY, parser
+                        );
+                        this._oKeys.add(oKey);
+                        if (KEYCODE_SHIFT == oKey.codes[0]) {
+                            this._oShiftKey = oKey;
+                            this._iShiftKeyIndex = this._oKeys.size() - 1;
+                            this._oModifierKeys.add(oKey);
+                        } else if (KEYCODE_ALT == oKey.codes[0]) {
+                            this._oModifierKeys.add(oKey);
+                        }
+                    } else if (_TAG_KEYBOARD.equals(sTAG)) {
+                        this._parseKeyboardAttributes(oRES, parser);
+                    }
+                } else if (XmlPullParser.END_TAG == iEvent) {
+                    if (bInKey) {
+                        bInKey = false;
+                        iX += oKey.gap + oKey.width;
+                        if (iX > this._iTotalWidth) {
+                            this._iTotalWidth = iX;
+                        }
+                    } else if (bInRow) {
+                        bInRow = false;
+                        iY += oCurrentRow.verticalGap;
+                        iY += oCurrentRow.defaultHeight;
+                    }
+                }
+            }
+        } catch (Exception ex) {
+            Log.e("Keyboard", "Parse error: " + ex); //$NON-NLS-1$ //$NON-NLS-2$
+        } finally {
+            parser.close();
+        }
+        this._iTotalHeight = iY - this._iDefaultVerticalGap;
+    }
+
+    /**
+     * Skips the remaining keys of a row.
+     *
+     * @param parser the parser, positioned in the row.
+     *
+     * @throws Exception if the layout cannot be parsed.
+     */
+    private static void _skipToEndOfRow(final XmlResourceParser parser)
+        throws Exception {
+        int iEvent;
+        while (XmlPullParser.END_DOCUMENT != (iEvent = parser.next())) {
+            if (XmlPullParser.END_TAG == iEvent
+                    && _TAG_ROW.equals(parser.getName())) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Reads the defaults of the keyboard.
+     *
+     * @param res    the resources.
+     * @param parser the parser, positioned at the keyboard.
+     */
+    private void _parseKeyboardAttributes(
+        final Resources res, final XmlResourceParser parser
+    ) {
+        this._iDefaultWidth = Keyboard.getDimensionOrFraction(
+            res, parser, "keyWidth", //$NON-NLS-1$
+            this._iDisplayWidth, this._iDisplayWidth / 10
+        );
+        this._iDefaultHeight = Keyboard.getDimensionOrFraction(
+            res, parser, "keyHeight", //$NON-NLS-1$
+            this._iDisplayHeight, 50
+        );
+        this._iDefaultHorizontalGap = Keyboard.getDimensionOrFraction(
+            res, parser, "horizontalGap", //$NON-NLS-1$
+            this._iDisplayWidth, 0
+        );
+        this._iDefaultVerticalGap = Keyboard.getDimensionOrFraction(
+            res, parser, "verticalGap", //$NON-NLS-1$
+            this._iDisplayHeight, 0
+        );
+        this._iProximityThreshold = (int) (
+            this._iDefaultWidth * _SEARCH_DISTANCE
+        );
+        this._iProximityThreshold *= this._iProximityThreshold;
+    }
+
+    /**
+     * Creates a row from a layout.
+     *
+     * @param res    the resources.
+     * @param parser the parser, positioned at the row.
+     *
+     * @return the row.
+     */
+    protected Row createRowFromXml(
+        final Resources res, final XmlResourceParser parser
+    ) {
+        return new Row(res, this, parser);
+    }
+
+    /**
+     * Creates a key from a layout.
+     *
+     * @param res    the resources.
+     * @param parent the row.
+     * @param x      the left edge, before the gap.
+     * @param y      the top edge.
+     * @param parser the parser, positioned at the key.
+     *
+     * @return the key.
+     */
+    protected Key createKeyFromXml(
+        final Resources res, final Row parent, final int x, final int y,
+        final XmlResourceParser parser
+    ) {
+        return new Key(res, parent, x, y, parser);
+    }
+
+    /**
+     * Returns the keys.
+     *
+     * @return the keys, not a copy.
+     */
+    public List<Key> getKeys() {
+        return this._oKeys;
+    }
+
+    /**
+     * Returns the modifier keys.
+     *
+     * @return the keys, not a copy.
+     */
+    public List<Key> getModifierKeys() {
+        return this._oModifierKeys;
+    }
+
+    /**
+     * Returns the default gap before the keys.
+     *
+     * @return the gap.
+     */
+    protected int getHorizontalGap() {
+        return this._iDefaultHorizontalGap;
+    }
+
+    /**
+     * Returns the default gap above the rows.
+     *
+     * @return the gap.
+     */
+    protected int getVerticalGap() {
+        return this._iDefaultVerticalGap;
+    }
+
+    /**
+     * Returns the default height of the keys.
+     *
+     * @return the height.
+     */
+    protected int getKeyHeight() {
+        return this._iDefaultHeight;
+    }
+
+    /**
+     * Returns the default width of the keys.
+     *
+     * @return the width.
+     */
+    protected int getKeyWidth() {
+        return this._iDefaultWidth;
+    }
+
+    /**
+     * Returns the height of the keys.
+     *
+     * @return the height.
+     */
+    public int getHeight() {
+        return this._iTotalHeight;
+    }
+
+    /**
+     * Returns the width of the keys.
+     *
+     * @return the width.
+     */
+    public int getMinWidth() {
+        return this._iTotalWidth;
+    }
+
+    /**
+     * Sets the state of the <i>Shift</i> key.
+     *
+     * @param shiftState <tt>true</tt> to shift the keyboard.
+     *
+     * @return <tt>true</tt> if the state has changed, <tt>false</tt>
+     *         otherwise.
+     */
+    public boolean setShifted(final boolean shiftState) {
+        if (null != this._oShiftKey) {
+            this._oShiftKey.on = shiftState;
+        }
+        if (this._bIsShifted != shiftState) {
+            this._bIsShifted = shiftState;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the keyboard is shifted.
+     *
+     * @return <tt>true</tt> if the keyboard is shifted, <tt>false</tt>
+     *         otherwise.
+     */
+    public boolean isShifted() {
+        return this._bIsShifted;
+    }
+
+    /**
+     * Returns the index of the <i>Shift</i> key.
+     *
+     * @return the index, or <tt>-1</tt> if there is none.
+     */
+    public int getShiftKeyIndex() {
+        return this._iShiftKeyIndex;
+    }
+
+    /**
+     * Computes the nearest keys of each cell of the grid.
+     */
+    private void _computeNearestNeighbors() {
+        this._iCellWidth = (this.getMinWidth() + _GRID_WIDTH - 1)
+            / _GRID_WIDTH;
+        this._iCellHeight = (this.getHeight() + _GRID_HEIGHT - 1)
+            / _GRID_HEIGHT;
+        this._aGridNeighbors = new int[_GRID_SIZE][];
+        final int[] aINDICES = new int[this._oKeys.size()];
+        final int iGRID_WIDTH = _GRID_WIDTH * this._iCellWidth;
+        final int iGRID_HEIGHT = _GRID_HEIGHT * this._iCellHeight;
+        final int iTHRESHOLD = this._iProximityThreshold;
+        for (int iX = 0; iX < iGRID_WIDTH; iX += this._iCellWidth) {
+            for (int iY = 0; iY < iGRID_HEIGHT; iY += this._iCellHeight) {
+                final int iRIGHT = iX + this._iCellWidth - 1;
+                final int iBOTTOM = iY + this._iCellHeight - 1;
+                int iCount = 0;
+                for (int i = 0; i < this._oKeys.size(); ++i) {
+                    final Key oKEY = this._oKeys.get(i);
+                    if (oKEY.squaredDistanceFrom(iX, iY) < iTHRESHOLD
+                            || oKEY.squaredDistanceFrom(iRIGHT, iY)
+                                < iTHRESHOLD
+                            || oKEY.squaredDistanceFrom(iRIGHT, iBOTTOM)
+                                < iTHRESHOLD
+                            || oKEY.squaredDistanceFrom(iX, iBOTTOM)
+                                < iTHRESHOLD) {
+                        aINDICES[iCount++] = i;
+                    }
+                }
+                final int[] aCELL = new int[iCount];
+                System.arraycopy(aINDICES, 0, aCELL, 0, iCount);
+                this._aGridNeighbors[(iY / this._iCellHeight) * _GRID_WIDTH
+                    + (iX / this._iCellWidth)] = aCELL;
+            }
+        }
+    }
+
+    /**
+     * Returns the indices of the keys near a point.
+     *
+     * @param x the horizontal coordinate.
+     * @param y the vertical coordinate.
+     *
+     * @return the indices, not a copy.
+     */
+    public int[] getNearestKeys(final int x, final int y) {
+        if (null == this._aGridNeighbors) {
+            this._computeNearestNeighbors();
+        }
+        if (x >= 0 && x < this.getMinWidth() && y >= 0
+                && y < this.getHeight()) {
+            final int iINDEX = (y / this._iCellHeight) * _GRID_WIDTH
+                + (x / this._iCellWidth);
+            if (iINDEX < _GRID_SIZE) {
+                return this._aGridNeighbors[iINDEX];
+            }
+        }
+        return _NO_KEYS;
+    }
+}
@@ -0,0 +1,202 @@
+/**
+ * <tt>KeyboardView.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package android.inputmethodservice;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * Replaces <tt>android.inputmethodservice.KeyboardView</tt> on the Java
+ * virtual machine (JVM) of the tests.
+ *
+ * The view neither draws its keys nor handles touches; a test drives the
+ * listener directly, e.g. through a <tt>PointerTracker</tt>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public class KeyboardView extends View {
+
+    /**
+     * Interface definition for a callback to be invoked when a key is
+     * pressed.
+     */
+    public interface OnKeyboardActionListener {
+
+        /**
+         * Called when a key has been pressed.
+         *
+         * @param primaryCode the code of the key.
+         */
+        void onPress(int primaryCode);
+
+        /**
+         * Called when a key has been released.
+         *
+         * @param primaryCode the code of the key.
+         */
+        void onRelease(int primaryCode);
+
+        /**
+         * Called when a key has been committed.
+         *
+         * @param primaryCode the code of the key.
+         * @param keyCodes    the codes of the key and of the nearby keys.
+         */
+        void onKey(int primaryCode, int[] keyCodes);
+
+        /**
+         * Called when a text has been committed.
+         *
+         * @param text the text.
+         */
+        void onText(CharSequence text);
+
+        /**
+         * Called when the finger has quickly moved to the left.
+         */
+        void swipeLeft();
+
+        /**
+         * Called when the finger has quickly moved to the right.
+         */
+        void swipeRight();
+
+        /**
+         * Called when the finger has quickly moved down.
+         */
+        void swipeDown();
+
+        /**
+         * Called when the finger has quickly moved up.
+         */
+        void swipeUp();
+    }
+
+    /**
+     * The attached keyboard, or <tt>null</tt>.
+     */
+    private Keyboard _oKeyboard = null;
+
+    /**
+     * The listener, or <tt>null</tt>.
+     */
+    private OnKeyboardActionListener _oListener = null;
+
+    /**
+     * Creates a view without keyboard.
+     *
+     * @param context the context of the view.
+     * @param attrs   the attributes of the layout, ignored.
+     */
+    public KeyboardView(final Context context, final AttributeSet attrs) {
+        super(context);
+    }
+
+    /**
+     * Creates a view without keyboard.
+     *
+     * @param context  the context of the view.
+     * @param attrs    the attributes of the layout, ignored.
+     * @param defStyle the default style, ignored.
+     */
+    public KeyboardView(
+        final Context context, final AttributeSet attrs, final int defStyle
+    ) {
+        super(context);
+    }
+
+    /**
+     * Attaches a keyboard.
+     *
+     * @param keyboard the keyboard.
+     */
+    public void setKeyboard(final Keyboard keyboard) {
+        this._oKeyboard = keyboard;
+        this.invalidateAllKeys();
+    }
+
+    /**
+     * Returns the attached keyboard.
+     *
+     * @return the keyboard, or <tt>null</tt>.
+     */
+    public Keyboard getKeyboard() {
+        return this._oKeyboard;
+    }
+
+    /**
+     * Sets the listener.
+     *
+     * @param listener the listener, or <tt>null</tt>.
+     */
+    public void setOnKeyboardActionListener(
+        final OnKeyboardActionListener listener
+    ) {
+        this._oListener = listener;
+    }
+
+    /**
+     * Returns the listener.
+     *
+     * @return the listener, or <tt>null</tt>.
+     */
+    protected OnKeyboardActionListener getOnKeyboardActionListener() {
+        return this._oListener;
+    }
+
+    /**
+     * Enables or disables the preview of the pressed key. Ignored.
+     *
+     * @param previewEnabled <tt>true</tt> to enable the preview.
+     */
+    public void setPreviewEnabled(final boolean previewEnabled) {
+        // Empty block.
+    }
+
+    /**
+     * Invalidates all keys.
+     */
+    public void invalidateAllKeys() {
+        this.invalidate();
+    }
+
+    /**
+     * Invalidates a key.
+     *
+     * @param keyIndex the index of the key.
+     */
+    public void invalidateKey(final int keyIndex) {
+        this.invalidate();
+    }
+
+    /**
+     * Closes the popups of the view. Ignored.
+     */
+    public void closing() {
+        // Empty block.
+    }
+}
@@ -0,0 +1,376 @@
+/**
+ * <tt>Handler.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package android.os;
+
+/**
+ * Replaces <tt>android.os.Handler</tt> on the Java virtual machine (JVM) of
+ * the tests.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public class Handler {
+
+    /**
+     * Callback interface to handle messages without subclassing.
+     */
+    public interface Callback {
+
+        /**
+         * Handles a message.
+         *
+         * @param msg the message.
+         *
+         * @return <tt>true</tt> if the message has been handled,
+         *         <tt>false</tt> to pass it on to the handler.
+         */
+        boolean handleMessage(Message msg);
+    }
+
+    /**
+     * The looper of this handler.
+     */
+    private final Looper _oLooper;
+
+    /**
+     * The callback, or <tt>null</tt>.
+     */
+    private final Callback _oCallback;
+
+    /**
+     * Creates a handler for the looper of the calling thread.
+     */
+    public Handler() {
+        this(Looper.myLooper(), null);
+    }
+
+    /**
+     * Creates a handler for the looper of the calling thread.
+     *
+     * @param callback the callback, or <tt>null</tt>.
+     */
+    public Handler(final Callback callback) {
+        this(Looper.myLooper(), callback);
+    }
+
+    /**
+     * Creates a handler for a looper.
+     *
+     * @param looper the looper.
+     */
+    public Handler(final Looper looper) {
+        this(looper, null);
+    }
+
+    /**
+     * Creates a handler for a looper.
+     *
+     * @param looper   the looper.
+     * @param callback the callback, or <tt>null</tt>.
+     */
+    public Handler(final Looper looper, final Callback callback) {
+        if (null == looper) {
+            throw new RuntimeException(
+                "Can't create handler inside thread that has not called "
+                    + "Looper.prepare()" //$NON-NLS-1$
+            );
+        }
+        this._oLooper = looper;
+        this._oCallback = callback;
+    }
+
+    /**
+     * Handles a message. Does nothing; subclasses override it.
+     *
+     * @param msg the message.
+     */
+    public void handleMessage(final Message msg) {
+        // Empty block.
+    }
+
+    /**
+     * Dispatches a message to its runnable, the callback or <tt>{@link
+     * #handleMessage(Message)}</tt>.
+     *
+     * @param msg the message.
+     */
+    public void dispatchMessage(final Message msg) {
+        if (null != msg.callback) {
+            msg.callback.run();
+        } else if (null == this._oCallback
+                || !this._oCallback.handleMessage(msg)) {
+            this.handleMessage(msg);
+        }
+    }
+
+    /**
+     * Returns the looper of this handler.
+     *
+     * @return the looper.
+     */
+    public final Looper getLooper() {
+        return this._oLooper;
+    }
+
+    /**
+     * Returns a message of this handler from the pool.
+     *
+     * @return the message.
+     */
+    public final Message obtainMessage() {
+        return Message.obtain(this, 0, 0, 0, null);
+    }
+
+    /**
+     * Returns a message of this handler from the pool.
+     *
+     * @param what the code of the message.
+     *
+     * @return the message.
+     */
+    public final Message obtainMessage(final int what) {
+        return Message.obtain(this, what, 0, 0, null);
+    }
+
+    /**
+     * Returns a message of this handler from the pool.
+     *
+     * @param what the code of the message.
+     * @param obj  the object argument.
+     *
+     * @return the message.
+     */
+    public final Message obtainMessage(final int what, final Object obj) {
+        return Message.obtain(this, what, 0, 0, obj);
+    }
+
+    /**
+     * Returns a message of this handler from the pool.
+     *
+     * @param what the code of the message.
+     * @param arg1 the first integer argument.
+     * @param arg2 the second integer argument.
+     *
+     * @return the message.
+     */
+    public final Message obtainMessage(
+        final int what, final int arg1, final int arg2
+    ) {
+        return Message.obtain(this, what, arg1, arg2, null);
+    }
+
+    /**
+     * Returns a message of this handler from the pool.
+     *
+     * @param what the code of the message.
+     * @param arg1 the first integer argument.
+     * @param arg2 the second integer argument.
+     * @param obj  the object argument.
+     *
+     * @return the message.
+     */
+    public final Message obtainMessage(
+        final int what, final int arg1, final int arg2, final Object obj
+    ) {
+        return Message.obtain(this, what, arg1, arg2, obj);
+    }
+
+    /**
+     * Runs a runnable on the thread of the looper.
+     *
+     * @param r the runnable.
+     *
+     * @return <tt>true</tt> if the runnable has been enqueued.
+     */
+    public final boolean post(final Runnable r) {
+        return this.postDelayed(r, 0L);
+    }
+
+    /**
+     * Runs a runnable on the thread of the looper after a delay.
+     *
+     * @param r           the runnable.
+     * @param delayMillis the delay, in milliseconds.
+     *
+     * @return <tt>true</tt> if the runnable has been enqueued.
+     */
+    public final boolean postDelayed(final Runnable r, final long delayMillis) {
+        return this.sendMessageDelayed(
+            Message.obtain(this, r), delayMillis
+        );
+    }
+
+    /**
+     * Runs a runnable on the thread of the looper at the specified uptime.
+     *
+     * @param r            the runnable.
+     * @param uptimeMillis the uptime, in milliseconds.
+     *
+     * @return <tt>true</tt> if the runnable has been enqueued.
+     */
+    public final boolean postAtTime(final Runnable r, final long uptimeMillis) {
+        return this.sendMessageAtTime(Message.obtain(this, r), uptimeMillis);
+    }
+
+    /**
+     * Sends a message to the end of the queue.
+     *
+     * @param msg the message.
+     *
+     * @return <tt>true</tt> if the message has been enqueued.
+     */
+    public final boolean sendMessage(final Message msg) {
+        return this.sendMessageDelayed(msg, 0L);
+    }
+
+    /**
+     * Sends a message after a delay.
+     *
+     * @param msg         the message.
+     * @param delayMillis the delay, in milliseconds.
+     *
+     * @return <tt>true</tt> if the message has been enqueued.
+     */
+    public final boolean sendMessageDelayed(
+        final Message msg, final long delayMillis
+    ) {
+        return this.sendMessageAtTime(
+            msg, SystemClock.uptimeMillis() + Math.max(0L, delayMillis)
+        );
+    }
+
+    /**
+     * Sends a message at the specified uptime.
+     *
+     * @param msg          the message.
+     * @param uptimeMillis the uptime, in milliseconds.
+     *
+     * @return <tt>true</tt> if the message has been enqueued.
+     */
+    public boolean sendMessageAtTime(
+        final Message msg, final long uptimeMillis
+    ) {
+        msg.target = this;
+        return this._oLooper.getQueue().enqueueMessage(msg, uptimeMillis);
+    }
+
+    /**
+     * Sends a message with a code only.
+     *
+     * @param what the code of the message.
+     *
+     * @return <tt>true</tt> if the message has been enqueued.
+     */
+    public final boolean sendEmptyMessage(final int what) {
+        return this.sendMessage(this.obtainMessage(what));
+    }
+
+    /**
+     * Sends a message with a code only after a delay.
+     *
+     * @param what        the code of the message.
+     * @param delayMillis the delay, in milliseconds.
+     *
+     * @return <tt>true</tt> if the message has been enqueued.
+     */
+    public final boolean sendEmptyMessageDelayed(
+        final int what, final long delayMillis
+    ) {
+        return this.sendMessageDelayed(this.obtainMessage(what), delayMillis);
+    }
+
+    /**
+     * Removes the pending messages with a code.
+     *
+     * @param what the code of the messages.
+     */
+    public final void removeMessages(final int what) {
+        this._oLooper.getQueue().removeMessages(this, what, null, null);
+    }
+
+    /**
+     * Removes the pending messages with a code and an object argument.
+     *
+     * @param what   the code of the messages.
+     * @param object the object argument, or <tt>null</tt> for any.
+     */
+    public final void removeMessages(final int what, final Object object) {
+        this._oLooper.getQueue().removeMessages(this, what, null, object);
+    }
+
+    /**
+     * Removes the pending posts of a runnable.
+     *
+     * @param r the runnable.
+     */
+    public final void removeCallbacks(final Runnable r) {
+        this._oLooper.getQueue().removeMessages(this, 0, r, null);
+    }
+
+    /**
+     * Removes the pending posts of a runnable with an object argument.
+     *
+     * @param r     the runnable.
+     * @param token the object argument, or <tt>null</tt> for any.
+     */
+    public final void removeCallbacks(final Runnable r, final Object token) {
+        this._oLooper.getQueue().removeMessages(this, 0, r, token);
+    }
+
+    /**
+     * Removes the pending messages and posts with an object argument.
+     *
+     * @param token the object argument, or <tt>null</tt> for all.
+     */
+    public final void removeCallbacksAndMessages(final Object token) {
+        this._oLooper.getQueue().removeCallbacksAndMessages(this, token);
+    }
+
+    /**
+     * Returns whether there are pending messages with a code.
+     *
+     * @param what the code of the messages.
+     *
+     * @return <tt>true</tt> if there are such messages, <tt>false</tt>
+     *         otherwise.
+     */
+    public final boolean hasMessages(final int what) {
+        return this._oLooper.getQueue().hasMessages(this, what, null, null);
+    }
+
+    /**
+     * Returns whether there are pending messages with a code and an object
+     * argument.
+     *
+     * @param what   the code of the messages.
+     * @param object the object argument, or <tt>null</tt> for any.
+     *
+     * @return <tt>true</tt> if there are such messages, <tt>false</tt>
+     *         otherwise.
+     */
+    public final boolean hasMessages(final int what, final Object object) {
+        return this._oLooper.getQueue().hasMessages(this, what, null, object);
+    }
+}
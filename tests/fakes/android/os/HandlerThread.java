@@ -0,0 +1,126 @@
+/**
+ * <tt>HandlerThread.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package android.os;
+
+/**
+ * Replaces <tt>android.os.HandlerThread</tt> on the Java virtual machine (JVM)
+ * of the tests.
+ *
+ * The thread is a daemon, so that a test that does not quit it still ends.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public class HandlerThread extends Thread {
+
+    /**
+     * The priority of the thread, ignored.
+     */
+    private final int _iPriority;
+
+    /**
+     * The looper of the thread, or <tt>null</tt> until it has been prepared.
+     */
+    private Looper _oLooper = null;
+
+    /**
+     * Creates a thread with the default priority.
+     *
+     * @param name the name of the thread.
+     */
+    public HandlerThread(final String name) {
+        this(name, Process.THREAD_PRIORITY_DEFAULT);
+    }
+
+    /**
+     * Creates a thread.
+     *
+     * @param name     the name of the thread.
+     * @param priority the priority of the thread, ignored.
+     */
+    public HandlerThread(final String name, final int priority) {
+        super(name);
+        this._iPriority = priority;
+        this.setDaemon(true);
+    }
+
+    /**
+     * Called after the looper has been prepared, before it loops.
+     */
+    protected void onLooperPrepared() {
+        // Empty block.
+    }
+
+    /**
+     * Prepares the looper and loops until it is quit.
+     */
+    @Override
+    public void run() {
+        Process.setThreadPriority(this._iPriority);
+        Looper.prepare();
+        synchronized (this) {
+            this._oLooper = Looper.myLooper();
+            this.notifyAll();
+        }
+        this.onLooperPrepared();
+        Looper.loop();
+    }
+
+    /**
+     * Returns the looper of the thread, waiting until it has been prepared.
+     *
+     * @return the looper, or <tt>null</tt> if the thread is not alive.
+     */
+    public Looper getLooper() {
+        if (!this.isAlive()) {
+            return null;
+        }
+        synchronized (this) {
+            while (this.isAlive() && null == this._oLooper) {
+                try {
+                    this.wait();
+                } catch (InterruptedException ex) {
+                    // Keep waiting.
+                }
+            }
+        }
+        return this._oLooper;
+    }
+
+    /**
+     * Quits the looper of the thread.
+     *
+     * @return <tt>true</tt> if the looper has been quit, <tt>false</tt> if
+     *         the thread is not alive.
+     */
+    public boolean quit() {
+        final Looper oLOOPER = this.getLooper();
+        if (null == oLOOPER) {
+            return false;
+        }
+        oLOOPER.quit();
+        return true;
+    }
+}
@@ -0,0 +1,285 @@
+/**
+ * <tt>Looper.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package android.os;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replaces <tt>android.os.Looper</tt> on the Java virtual machine (JVM) of
+ * the tests.
+ *
+ * The thread of a test prepares the main looper but never loops; it runs the
+ * messages that are due with <tt>{@link #dispatchPending()}</tt> or <tt>{@link
+ * #idleAll(long)}</tt>, which are not part of the framework.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public final class Looper {
+
+    /**
+     * The looper of each thread.
+     */
+    private static final ThreadLocal<Looper> _LOOPERS
+        = new ThreadLocal<Looper>();
+
+    /**
+     * The loopers that are looping on their thread.
+     */
+    private static final List<Looper> _LOOPING = new ArrayList<Looper>();
+
+    /**
+     * The looper of the main thread, or <tt>null</tt>.
+     */
+    private static Looper _oMainLooper = null;
+
+    /**
+     * The queue of this looper.
+     */
+    private final MessageQueue _oQueue = new MessageQueue();
+
+    /**
+     * The thread of this looper.
+     */
+    private final Thread _oThread = Thread.currentThread();
+
+    /**
+     * Creates a looper for the calling thread.
+     */
+    private Looper() {
+        // Empty block.
+    }
+
+    /**
+     * Initializes the calling thread as a looper.
+     */
+    public static void prepare() {
+        if (null != _LOOPERS.get()) {
+            throw new RuntimeException(
+                "Only one Looper may be created per thread" //$NON-NLS-1$
+            );
+        }
+        _LOOPERS.set(new Looper());
+    }
+
+    /**
+     * Initializes the calling thread as the main looper.
+     */
+    public static void prepareMainLooper() {
+        Looper.prepare();
+        synchronized (Looper.class) {
+            if (null != _oMainLooper) {
+                throw new IllegalStateException(
+                    "The main Looper has already been prepared." //$NON-NLS-1$
+                );
+            }
+            _oMainLooper = Looper.myLooper();
+        }
+    }
+
+    /**
+     * Returns the looper of the main thread.
+     *
+     * @return the looper, or <tt>null</tt> if it has not been prepared.
+     */
+    public static Looper getMainLooper() {
+        synchronized (Looper.class) {
+            return _oMainLooper;
+        }
+    }
+
+    /**
+     * Returns the looper of the calling thread.
+     *
+     * @return the looper, or <tt>null</tt> if the thread is not a looper.
+     */
+    public static Looper myLooper() {
+        return _LOOPERS.get();
+    }
+
+    /**
+     * Returns the queue of the looper of the calling thread.
+     *
+     * @return the queue.
+     */
+    public static MessageQueue myQueue() {
+        return _LOOPERS.get()._oQueue;
+    }
+
+    /**
+     * Runs the queue of the calling thread until the looper is quit.
+     */
+    public static void loop() {
+        final Looper oME = Looper.myLooper();
+        if (null == oME) {
+            throw new RuntimeException(
+                "No Looper on this thread" //$NON-NLS-1$
+            );
+        }
+        synchronized (_LOOPING) {
+            _LOOPING.add(oME);
+        }
+        try {
+            Message oMessage;
+            while (null != (oMessage = oME._oQueue.next())) {
+                Looper._dispatch(oMessage);
+            }
+        } finally {
+            synchronized (_LOOPING) {
+                _LOOPING.remove(oME);
+            }
+        }
+    }
+
+    /**
+     * Quits the looper and discards the pending messages.
+     */
+    public void quit() {
+        this._oQueue.quit();
+    }
+
+    /**
+     * Returns the thread of this looper.
+     *
+     * @return the thread.
+     */
+    public Thread getThread() {
+        return this._oThread;
+    }
+
+    /**
+     * Returns the queue of this looper.
+     *
+     * @return the queue.
+     */
+    public MessageQueue getQueue() {
+        return this._oQueue;
+    }
+
+    /**
+     * Dispatches the messages that are due and runs the idle handlers once.
+     * Must be called on the thread of this looper. Not part of the framework.
+     *
+     * @return the number of messages and idle handlers that have been run.
+     */
+    public int dispatchPending() {
+        if (Thread.currentThread() != this._oThread) {
+            throw new IllegalStateException(
+                "Not the thread of the Looper" //$NON-NLS-1$
+            );
+        }
+        int iCount = 0;
+        Message oMessage;
+        while (null != (oMessage = this._oQueue.poll())) {
+            Looper._dispatch(oMessage);
+            ++iCount;
+        }
+        return iCount + this._oQueue.runIdleHandlers();
+    }
+
+    /**
+     * Runs the looper of the calling thread and waits for the loopers of all
+     * other threads until no message is due on any of them. Not part of the
+     * framework.
+     *
+     * @param timeoutMillis the maximum time to wait, in milliseconds.
+     *
+     * @throws IllegalStateException if the loopers are still busy after the
+     *                               timeout.
+     */
+    public static void idleAll(final long timeoutMillis) {
+        final long lDEADLINE = SystemClock.uptimeMillis() + timeoutMillis;
+        final Looper oME = Looper.myLooper();
+        int iQuietRounds = 0;
+        while (iQuietRounds < 2) {
+            if (SystemClock.uptimeMillis() > lDEADLINE) {
+                throw new IllegalStateException(
+                    "The loopers are still busy" //$NON-NLS-1$
+                );
+            }
+            final Looper[] aOTHERS;
+            synchronized (_LOOPING) {
+                aOTHERS = _LOOPING.toArray(new Looper[_LOOPING.size()]);
+            }
+            boolean bBusy = false;
+            for (Looper oOther : aOTHERS) {
+                if (oOther == oME) {
+                    continue;
+                }
+                bBusy |= !oOther._oQueue.isIdle();
+                oOther._await(lDEADLINE);
+            }
+            if (null != oME) {
+                bBusy |= oME.dispatchPending() > 0;
+            }
+            iQuietRounds = bBusy ? 0 : iQuietRounds + 1;
+        }
+    }
+
+    /**
+     * Waits until this looper has handled all messages that are due.
+     *
+     * @param deadline the uptime after which to stop waiting.
+     */
+    private void _await(final long deadline) {
+        final CountDownLatch oLATCH = new CountDownLatch(1);
+        final Message oBARRIER = Message.obtain(null, new Runnable() {
+            @Override
+            public void run() {
+                oLATCH.countDown();
+            }
+        });
+        if (!this._oQueue.enqueueMessage(
+            oBARRIER, SystemClock.uptimeMillis()
+        )) {
+            return;
+        }
+        try {
+            oLATCH.await(
+                Math.max(0L, deadline - SystemClock.uptimeMillis()),
+                TimeUnit.MILLISECONDS
+            );
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Dispatches a message to its handler and recycles it.
+     *
+     * @param message the message.
+     */
+    private static void _dispatch(final Message message) {
+        if (null == message.target) {
+            message.callback.run();
+        } else {
+            message.target.dispatchMessage(message);
+        }
+        message.recycle();
+    }
+}
@@ -0,0 +1,230 @@
+/**
+ * <tt>Message.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package android.os;
+
+/**
+ * Replaces <tt>android.os.Message</tt> on the Java virtual machine (JVM) of
+ * the tests.
+ *
+ * Like the original, messages are recycled through a global pool, so that
+ * sending a message does not allocate.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public final class Message {
+
+    /**
+     * The maximum number of recycled messages.
+     */
+    private static final int _MAX_POOL_SIZE = 50;
+
+    /**
+     * Guards the pool.
+     */
+    private static final Object _POOL_LOCK = new Object();
+
+    /**
+     * The first recycled message, or <tt>null</tt>.
+     */
+    private static Message _oPool = null;
+
+    /**
+     * The number of recycled messages.
+     */
+    private static int _iPoolSize = 0;
+
+    /**
+     * The code of the message.
+     */
+    public int what;
+
+    /**
+     * The first integer argument.
+     */
+    public int arg1;
+
+    /**
+     * The second integer argument.
+     */
+    public int arg2;
+
+    /**
+     * The object argument.
+     */
+    public Object obj;
+
+    /**
+     * The uptime at which the message is due, in milliseconds.
+     */
+    long when;
+
+    /**
+     * The handler of the message.
+     */
+    Handler target;
+
+    /**
+     * The runnable to run instead of handling the message, or <tt>null</tt>.
+     */
+    Runnable callback;
+
+    /**
+     * The next message in the queue or in the pool.
+     */
+    Message next;
+
+    /**
+     * Creates a message. Use <tt>{@link #obtain()}</tt> instead.
+     */
+    public Message() {
+        // Empty block.
+    }
+
+    /**
+     * Returns a message from the pool, or a new one if the pool is empty.
+     *
+     * @return the message.
+     */
+    public static Message obtain() {
+        synchronized (_POOL_LOCK) {
+            if (null != _oPool) {
+                final Message oMESSAGE = _oPool;
+                _oPool = oMESSAGE.next;
+                oMESSAGE.next = null;
+                --_iPoolSize;
+                return oMESSAGE;
+            }
+        }
+        return new Message();
+    }
+
+    /**
+     * Returns a message from the pool with the specified values.
+     *
+     * @param handler the handler of the message.
+     * @param what    the code of the message.
+     * @param arg1    the first integer argument.
+     * @param arg2    the second integer argument.
+     * @param obj     the object argument.
+     *
+     * @return the message.
+     */
+    public static Message obtain(
+        final Handler handler, final int what, final int arg1,
+        final int arg2, final Object obj
+    ) {
+        final Message oMESSAGE = Message.obtain();
+        oMESSAGE.target = handler;
+        oMESSAGE.what = what;
+        oMESSAGE.arg1 = arg1;
+        oMESSAGE.arg2 = arg2;
+        oMESSAGE.obj = obj;
+        return oMESSAGE;
+    }
+
+    /**
+     * Returns a message from the pool with the specified handler and code.
+     *
+     * @param handler the handler of the message.
+     * @param what    the code of the message.
+     *
+     * @return the message.
+     */
+    public static Message obtain(final Handler handler, final int what) {
+        return Message.obtain(handler, what, 0, 0, null);
+    }
+
+    /**
+     * Returns a message from the pool that runs a runnable.
+     *
+     * @param handler  the handler of the message.
+     * @param callback the runnable.
+     *
+     * @return the message.
+     */
+    public static Message obtain(
+        final Handler handler, final Runnable callback
+    ) {
+        final Message oMESSAGE = Message.obtain(handler, 0, 0, 0, null);
+        oMESSAGE.callback = callback;
+        return oMESSAGE;
+    }
+
+    /**
+     * Returns the message to the pool. The message must not be used
+     * afterwards.
+     */
+    public void recycle() {
+        this.what = 0;
+        this.arg1 = 0;
+        this.arg2 = 0;
+        this.obj = null;
+        this.when = 0L;
+        this.target = null;
+        this.callback = null;
+        synchronized (_POOL_LOCK) {
+            if (_iPoolSize < _MAX_POOL_SIZE) {
+                this.next = _oPool;
+                _oPool = this;
+                ++_iPoolSize;
+            }
+        }
+    }
+
+    /**
+     * Returns the uptime at which the message is due.
+     *
+     * @return the uptime, in milliseconds.
+     */
+    public long getWhen() {
+        return this.when;
+    }
+
+    /**
+     * Returns the handler of the message.
+     *
+     * @return the handler.
+     */
+    public Handler getTarget() {
+        return this.target;
+    }
+
+    /**
+     * Returns the runnable of the message.
+     *
+     * @return the runnable, or <tt>null</tt>.
+     */
+    public Runnable getCallback() {
+        return this.callback;
+    }
+
+    /**
+     * Sends the message to its handler.
+     */
+    public void sendToTarget() {
+        this.target.sendMessage(this);
+    }
+}
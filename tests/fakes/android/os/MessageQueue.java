@@ -0,0 +1,373 @@
+/**
+ * <tt>MessageQueue.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package android.os;
+
+import java.util.ArrayList;
+
+/**
+ * Replaces <tt>android.os.MessageQueue</tt> on the Java virtual machine (JVM)
+ * of the tests.
+ *
+ * The messages are kept in a list sorted by the time at which they are due.
+ * Neither enqueuing nor taking a message allocates.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public final class MessageQueue {
+
+    /**
+     * Callback interface for discovering when a thread is going to block
+     * waiting for more messages.
+     */
+    public static interface IdleHandler {
+
+        /**
+         * Called when the queue has run out of messages that are due.
+         *
+         * @return <tt>true</tt> to keep the handler registered,
+         *         <tt>false</tt> to remove it.
+         */
+        boolean queueIdle();
+    }
+
+    /**
+     * The registered idle handlers.
+     */
+    private final ArrayList<IdleHandler> _oIdleHandlers
+        = new ArrayList<IdleHandler>();
+
+    /**
+     * The idle handlers that are run, reused to avoid allocations.
+     */
+    private IdleHandler[] _aPendingIdleHandlers = new IdleHandler[4];
+
+    /**
+     * The first message, or <tt>null</tt>.
+     */
+    private Message _oMessages = null;
+
+    /**
+     * Signals whether the queue has been quit.
+     */
+    private boolean _bIsQuitting = false;
+
+    /**
+     * Creates a queue. Only called by <tt>{@link Looper}</tt>.
+     */
+    MessageQueue() {
+        // Empty block.
+    }
+
+    /**
+     * Registers an idle handler.
+     *
+     * @param handler the handler.
+     */
+    public void addIdleHandler(final IdleHandler handler) {
+        if (null == handler) {
+            throw new NullPointerException(
+                "Can't add a null IdleHandler" //$NON-NLS-1$
+            );
+        }
+        synchronized (this) {
+            this._oIdleHandlers.add(handler);
+        }
+    }
+
+    /**
+     * Unregisters an idle handler.
+     *
+     * @param handler the handler.
+     */
+    public void removeIdleHandler(final IdleHandler handler) {
+        synchronized (this) {
+            this._oIdleHandlers.remove(handler);
+        }
+    }
+
+    /**
+     * Returns whether the queue has no message that is due.
+     *
+     * @return <tt>true</tt> if no message is due, <tt>false</tt> otherwise.
+     */
+    public boolean isIdle() {
+        synchronized (this) {
+            return null == this._oMessages
+                || this._oMessages.when > SystemClock.uptimeMillis();
+        }
+    }
+
+    /**
+     * Inserts a message in the order of the time at which it is due.
+     *
+     * @param message the message.
+     * @param when    the uptime at which the message is due.
+     *
+     * @return <tt>true</tt> if the message has been enqueued, <tt>false</tt>
+     *         if the queue has been quit.
+     */
+    boolean enqueueMessage(final Message message, final long when) {
+        synchronized (this) {
+            if (this._bIsQuitting) {
+                message.recycle();
+                return false;
+            }
+            message.when = when;
+            Message oPrevious = null;
+            Message oCurrent = this._oMessages;
+            while (null != oCurrent && oCurrent.when <= when) {
+                oPrevious = oCurrent;
+                oCurrent = oCurrent.next;
+            }
+            message.next = oCurrent;
+            if (null == oPrevious) {
+                this._oMessages = message;
+            } else {
+                oPrevious.next = message;
+            }
+            this.notifyAll();
+            return true;
+        }
+    }
+
+    /**
+     * Returns the next message, waiting until one is due. Runs the idle
+     * handlers once before waiting.
+     *
+     * @return the message, or <tt>null</tt> if the queue has been quit.
+     */
+    Message next() {
+        boolean bIdleHandled = false;
+        while (true) {
+            synchronized (this) {
+                if (this._bIsQuitting) {
+                    return null;
+                }
+                final Message oMESSAGE = this.poll();
+                if (null != oMESSAGE) {
+                    return oMESSAGE;
+                }
+                if (bIdleHandled || this._oIdleHandlers.isEmpty()) {
+                    final long lWAIT = (null == this._oMessages)
+                        ? 0L
+                        : this._oMessages.when - SystemClock.uptimeMillis();
+                    try {
+                        if (null == this._oMessages || lWAIT > 0L) {
+                            this.wait(lWAIT);
+                        }
+                    } catch (InterruptedException ex) {
+                        // Check the queue again.
+                    }
+                    continue;
+                }
+            }
+            this.runIdleHandlers();
+            bIdleHandled = true;
+        }
+    }
+
+    /**
+     * Removes and returns the first message if it is due.
+     *
+     * @return the message, or <tt>null</tt> if no message is due.
+     */
+    Message poll() {
+        synchronized (this) {
+            final Message oMESSAGE = this._oMessages;
+            if (null == oMESSAGE
+                    || oMESSAGE.when > SystemClock.uptimeMillis()) {
+                return null;
+            }
+            this._oMessages = oMESSAGE.next;
+            oMESSAGE.next = null;
+            return oMESSAGE;
+        }
+    }
+
+    /**
+     * Runs the idle handlers and removes those that return <tt>false</tt>.
+     *
+     * @return the number of idle handlers that have been run.
+     */
+    int runIdleHandlers() {
+        final int iCOUNT;
+        synchronized (this) {
+            iCOUNT = this._oIdleHandlers.size();
+            if (this._aPendingIdleHandlers.length < iCOUNT) {
+                this._aPendingIdleHandlers = new IdleHandler[iCOUNT];
+            }
+            this._oIdleHandlers.toArray(this._aPendingIdleHandlers);
+        }
+        for (int i = 0; i < iCOUNT; ++i) {
+            final IdleHandler oHANDLER = this._aPendingIdleHandlers[i];
+            this._aPendingIdleHandlers[i] = null;
+            if (!oHANDLER.queueIdle()) {
+                this.removeIdleHandler(oHANDLER);
+            }
+        }
+        return iCOUNT;
+    }
+
+    /**
+     * Returns whether the queue contains a matching message.
+     *
+     * @param handler  the handler of the message.
+     * @param what     the code of the message, ignored if <tt>callback</tt>
+     *                 is not <tt>null</tt>.
+     * @param callback the runnable of the message, or <tt>null</tt>.
+     * @param obj      the object argument, or <tt>null</tt> for any.
+     *
+     * @return <tt>true</tt> if there is a matching message, <tt>false</tt>
+     *         otherwise.
+     */
+    boolean hasMessages(
+        final Handler handler, final int what, final Runnable callback,
+        final Object obj
+    ) {
+        synchronized (this) {
+            for (Message oMessage = this._oMessages; null != oMessage;
+                    oMessage = oMessage.next) {
+                if (MessageQueue._matches(
+                    oMessage, handler, what, callback, obj
+                )) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Removes the matching messages.
+     *
+     * @param handler  the handler of the messages.
+     * @param what     the code of the messages, ignored if <tt>callback</tt>
+     *                 is not <tt>null</tt>.
+     * @param callback the runnable of the messages, or <tt>null</tt>.
+     * @param obj      the object argument, or <tt>null</tt> for any.
+     */
+    void removeMessages(
+        final Handler handler, final int what, final Runnable callback,
+        final Object obj
+    ) {
+        synchronized (this) {
+            Message oPrevious = null;
+            Message oMessage = this._oMessages;
+            while (null != oMessage) {
+                final Message oNEXT = oMessage.next;
+                if (MessageQueue._matches(
+                    oMessage, handler, what, callback, obj
+                )) {
+                    if (null == oPrevious) {
+                        this._oMessages = oNEXT;
+                    } else {
+                        oPrevious.next = oNEXT;
+                    }
+                    oMessage.next = null;
+                    oMessage.recycle();
+                } else {
+                    oPrevious = oMessage;
+                }
+                oMessage = oNEXT;
+            }
+        }
+    }
+
+    /**
+     * Removes all messages of a handler, or those with an object argument.
+     *
+     * @param handler the handler of the messages.
+     * @param obj     the object argument, or <tt>null</tt> for all messages.
+     */
+    void removeCallbacksAndMessages(final Handler handler, final Object obj) {
+        synchronized (this) {
+            Message oPrevious = null;
+            Message oMessage = this._oMessages;
+            while (null != oMessage) {
+                final Message oNEXT = oMessage.next;
+                if (handler == oMessage.target
+                        && (null == obj || obj == oMessage.obj)) {
+                    if (null == oPrevious) {
+                        this._oMessages = oNEXT;
+                    } else {
+                        oPrevious.next = oNEXT;
+                    }
+                    oMessage.next = null;
+                    oMessage.recycle();
+                } else {
+                    oPrevious = oMessage;
+                }
+                oMessage = oNEXT;
+            }
+        }
+    }
+
+    /**
+     * Quits the queue and discards all messages.
+     */
+    void quit() {
+        synchronized (this) {
+            this._bIsQuitting = true;
+            while (null != this._oMessages) {
+                final Message oMESSAGE = this._oMessages;
+                this._oMessages = oMESSAGE.next;
+                oMESSAGE.next = null;
+                if (null == oMESSAGE.target && null != oMESSAGE.callback) {
+                    // Releases the waiting Looper.idleAll().
+                    oMESSAGE.callback.run();
+                }
+                oMESSAGE.recycle();
+            }
+            this.notifyAll();
+        }
+    }
+
+    /**
+     * Returns whether a message matches.
+     *
+     * @param message  the message.
+     * @param handler  the handler of the message.
+     * @param what     the code, ignored if <tt>callback</tt> is not
+     *                 <tt>null</tt>.
+     * @param callback the runnable, or <tt>null</tt>.
+     * @param obj      the object argument, or <tt>null</tt> for any.
+     *
+     * @return <tt>true</tt> if the message matches, <tt>false</tt> otherwise.
+     */
+    private static boolean _matches(
+        final Message message, final Handler handler, final int what,
+        final Runnable callback, final Object obj
+    ) {
+        if (handler != message.target
+                || (null != obj && obj != message.obj)) {
+            return false;
+        }
+        if (null != callback) {
+            return callback == message.callback;
+        }
+        return null == message.callback && what == message.what;
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * <tt>Process.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package android.os;
+
+/**
+ * Replaces <tt>android.os.Process</tt> on the Java virtual machine (JVM) of
+ * the tests.
+ *
+ * The priorities of threads are ignored.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public class Process {
+
+    /**
+     * The standard priority of application threads.
+     */
+    public static final int THREAD_PRIORITY_DEFAULT = 0;
+
+    /**
+     * The standard priority of background threads.
+     */
+    public static final int THREAD_PRIORITY_BACKGROUND = 10;
+
+    /**
+     * The minimum increment to make a priority less favorable.
+     */
+    public static final int THREAD_PRIORITY_LESS_FAVORABLE = 1;
+
+    /**
+     * The minimum increment to make a priority more favorable.
+     */
+    public static final int THREAD_PRIORITY_MORE_FAVORABLE = -1;
+
+    /**
+     * Sets the priority of the calling thread. Does nothing.
+     *
+     * @param priority the priority, from -20 for the highest to 19 for the
+     *                 lowest priority.
+     */
+    public static final void setThreadPriority(final int priority) {
+        // Empty block.
+    }
+
+    /**
+     * Sets the priority of a thread. Does nothing.
+     *
+     * @param tid      the identifier of the thread.
+     * @param priority the priority, from -20 for the highest to 19 for the
+     *                 lowest priority.
+     */
+    public static final void setThreadPriority(
+        final int tid, final int priority
+    ) {
+        // Empty block.
+    }
+
+    /**
+     * Returns the identifier of the calling thread.
+     *
+     * @return the identifier of the thread.
+     */
+    public static final int myTid() {
+        return (int) Thread.currentThread().getId();
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * <tt>SystemClock.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package android.os;
+
+/**
+ * Replaces <tt>android.os.SystemClock</tt> on the Java virtual machine (JVM)
+ * of the tests.
+ *
+ * The uptime is taken from <tt>System.nanoTime()</tt>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public final class SystemClock {
+
+    /**
+     * Prevents instantiation.
+     */
+    private SystemClock() {
+        // Empty block.
+    }
+
+    /**
+     * Returns the milliseconds since an arbitrary but fixed origin.
+     *
+     * @return the uptime, in milliseconds.
+     */
+    public static long uptimeMillis() {
+        return System.nanoTime() / 1000000L;
+    }
+
+    /**
+     * Returns the milliseconds since an arbitrary but fixed origin.
+     *
+     * @return the elapsed time, in milliseconds.
+     */
+    public static long elapsedRealtime() {
+        return SystemClock.uptimeMillis();
+    }
+
+    /**
+     * Waits for the specified number of milliseconds, ignoring interrupts.
+     *
+     * @param ms the milliseconds to wait.
+     */
+    public static void sleep(final long ms) {
+        final long lEND = SystemClock.uptimeMillis() + ms;
+        long lRemaining = ms;
+        while (lRemaining > 0L) {
+            try {
+                Thread.sleep(lRemaining);
+            } catch (InterruptedException ex) {
+                // Keep waiting.
+            }
+            lRemaining = lEND - SystemClock.uptimeMillis();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * <tt>DisplayMetrics.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package android.util;
+
+/**
+ * Replaces <tt>android.util.DisplayMetrics</tt> on the Java virtual machine
+ * (JVM) of the tests.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public class DisplayMetrics {
+
+    /**
+     * The density of medium-density screens.
+     */
+    public static final int DENSITY_MEDIUM = 160;
+
+    /**
+     * The density of high-density screens.
+     */
+    public static final int DENSITY_HIGH = 240;
+
+    /**
+     * The reference density.
+     */
+    public static final int DENSITY_DEFAULT = DENSITY_MEDIUM;
+
+    /**
+     * The width of the display, in pixels.
+     */
+    public int widthPixels;
+
+    /**
+     * The height of the display, in pixels.
+     */
+    public int heightPixels;
+
+    /**
+     * The logical density of the display.
+     */
+    public float density;
+
+    /**
+     * The density of the display, in dots per inch.
+     */
+    public int densityDpi;
+
+    /**
+     * The scaling factor of fonts.
+     */
+    public float scaledDensity;
+
+    /**
+     * The horizontal pixels per inch.
+     */
+    public float xdpi;
+
+    /**
+     * The vertical pixels per inch.
+     */
+    public float ydpi;
+
+    /**
+     * Creates the metrics of a medium-density display of 1280 by 800 pixels,
+     * a typical tablet.
+     */
+    public DisplayMetrics() {
+        this.widthPixels = 1280;
+        this.heightPixels = 800;
+        this.densityDpi = DENSITY_MEDIUM;
+        this.density = 1f;
+        this.scaledDensity = 1f;
+        this.xdpi = DENSITY_MEDIUM;
+        this.ydpi = DENSITY_MEDIUM;
+    }
+}
@@ -0,0 +1,193 @@
+/**
+ * <tt>Log.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package android.util;
+
+/**
+ * Replaces <tt>android.util.Log</tt> on the Java virtual machine (JVM) of the
+ * tests.
+ *
+ * Warnings and errors are printed to the standard error stream, all other
+ * messages are discarded.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public final class Log {
+
+    /**
+     * The priority of verbose messages.
+     */
+    public static final int VERBOSE = 2;
+
+    /**
+     * The priority of debug messages.
+     */
+    public static final int DEBUG = 3;
+
+    /**
+     * The priority of informational messages.
+     */
+    public static final int INFO = 4;
+
+    /**
+     * The priority of warnings.
+     */
+    public static final int WARN = 5;
+
+    /**
+     * The priority of errors.
+     */
+    public static final int ERROR = 6;
+
+    /**
+     * Prevents instantiation.
+     */
+    private Log() {
+        // Empty block.
+    }
+
+    /**
+     * Logs a verbose message.
+     *
+     * @param tag the tag of the message.
+     * @param msg the message.
+     *
+     * @return the number of bytes written.
+     */
+    public static int v(final String tag, final String msg) {
+        return Log.println(VERBOSE, tag, msg);
+    }
+
+    /**
+     * Logs a debug message.
+     *
+     * @param tag the tag of the message.
+     * @param msg the message.
+     *
+     * @return the number of bytes written.
+     */
+    public static int d(final String tag, final String msg) {
+        return Log.println(DEBUG, tag, msg);
+    }
+
+    /**
+     * Logs an informational message.
+     *
+     * @param tag the tag of the message.
+     * @param msg the message.
+     *
+     * @return the number of bytes written.
+     */
+    public static int i(final String tag, final String msg) {
+        return Log.println(INFO, tag, msg);
+    }
+
+    /**
+     * Logs a warning.
+     *
+     * @param tag the tag of the message.
+     * @param msg the message.
+     *
+     * @return the number of bytes written.
+     */
+    public static int w(final String tag, final String msg) {
+        return Log.println(WARN, tag, msg);
+    }
+
+    /**
+     * Logs a warning with an exception.
+     *
+     * @param tag the tag of the message.
+     * @param msg the message.
+     * @param tr  the exception.
+     *
+     * @return the number of bytes written.
+     */
+    public static int w(
+        final String tag, final String msg, final Throwable tr
+    ) {
+        return Log.println(WARN, tag, msg + ": " + tr); //$NON-NLS-1$
+    }
+
+    /**
+     * Logs an error.
+     *
+     * @param tag the tag of the message.
+     * @param msg the message.
+     *
+     * @return the number of bytes written.
+     */
+    public static int e(final String tag, final String msg) {
+        return Log.println(ERROR, tag, msg);
+    }
+
+    /**
+     * Logs an error with an exception.
+     *
+     * @param tag the tag of the message.
+     * @param msg the message.
+     * @param tr  the exception.
+     *
+     * @return the number of bytes written.
+     */
+    public static int e(
+        final String tag, final String msg, final Throwable tr
+    ) {
+        return Log.println(ERROR, tag, msg + ": " + tr); //$NON-NLS-1$
+    }
+
+    /**
+     * Returns whether messages of a priority are logged.
+     *
+     * @param tag   the tag of the messages.
+     * @param level the priority.
+     *
+     * @return <tt>true</tt> for warnings and errors, <tt>false</tt>
+     *         otherwise.
+     */
+    public static boolean isLoggable(final String tag, final int level) {
+        return level >= WARN;
+    }
+
+    /**
+     * Logs a message.
+     *
+     * @param priority the priority of the message.
+     * @param tag      the tag of the message.
+     * @param msg      the message.
+     *
+     * @return the number of bytes written.
+     */
+    public static int println(
+        final int priority, final String tag, final String msg
+    ) {
+        if (!Log.isLoggable(tag, priority)) {
+            return 0;
+        }
+        final String sLINE = tag + ": " + msg; //$NON-NLS-1$
+        System.err.println(sLINE);
+        return sLINE.length();
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * <tt>TypedValue.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package android.util;
+
+/**
+ * Replaces <tt>android.util.TypedValue</tt> on the Java virtual machine (JVM)
+ * of the tests.
+ *
+ * Only converts dimensions.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public class TypedValue {
+
+    /**
+     * The unit of raw pixels.
+     */
+    public static final int COMPLEX_UNIT_PX = 0;
+
+    /**
+     * The unit of density-independent pixels.
+     */
+    public static final int COMPLEX_UNIT_DIP = 1;
+
+    /**
+     * The unit of scaled pixels.
+     */
+    public static final int COMPLEX_UNIT_SP = 2;
+
+    /**
+     * The unit of points.
+     */
+    public static final int COMPLEX_UNIT_PT = 3;
+
+    /**
+     * The unit of inches.
+     */
+    public static final int COMPLEX_UNIT_IN = 4;
+
+    /**
+     * The unit of millimeters.
+     */
+    public static final int COMPLEX_UNIT_MM = 5;
+
+    /**
+     * The suffixes of the units, in the order of their constants.
+     */
+    private static final String[][] _SUFFIXES = {
+        {"px"}, //$NON-NLS-1$
+        {"dp", "dip"}, //$NON-NLS-1$ //$NON-NLS-2$
+        {"sp"}, //$NON-NLS-1$
+        {"pt"}, //$NON-NLS-1$
+        {"in"}, //$NON-NLS-1$
+        {"mm"}, //$NON-NLS-1$
+    };
+
+    /**
+     * Converts a dimension to pixels.
+     *
+     * @param unit    the unit, one of the <tt>COMPLEX_UNIT_</tt> constants.
+     * @param value   the value in the unit.
+     * @param metrics the metrics of the display.
+     *
+     * @return the value in pixels.
+     */
+    public static float applyDimension(
+        final int unit, final float value, final DisplayMetrics metrics
+    ) {
+        switch (unit) {
+        case COMPLEX_UNIT_PX:
+            return value;
+        case COMPLEX_UNIT_DIP:
+            return value * metrics.density;
+        case COMPLEX_UNIT_SP:
+            return value * metrics.scaledDensity;
+        case COMPLEX_UNIT_PT:
+            return value * metrics.xdpi / 72f;
+        case COMPLEX_UNIT_IN:
+            return value * metrics.xdpi;
+        case COMPLEX_UNIT_MM:
+            return value * metrics.xdpi / 25.4f;
+        default:
+            return 0f;
+        }
+    }
+
+    /**
+     * Converts a dimension written in a resource, e.g. <tt>70dp</tt>, to
+     * pixels. Not part of the framework.
+     *
+     * @param value   the dimension.
+     * @param metrics the metrics of the display.
+     *
+     * @return the value in pixels.
+     *
+     * @throws NumberFormatException if the value is not a dimension.
+     */
+    public static float parseDimension(
+        final String value, final DisplayMetrics metrics
+    ) {
+        final String sVALUE = value.trim();
+        for (int i = 0; i < _SUFFIXES.length; ++i) {
+            for (String sSuffix : _SUFFIXES[i]) {
+                if (sVALUE.endsWith(sSuffix)) {
+                    return TypedValue.applyDimension(
+                        i, Float.parseFloat(sVALUE.substring(
+                            0, sVALUE.length() - sSuffix.length()
+                        )), metrics
+                    );
+                }
+            }
+        }
+        throw new NumberFormatException(
+            "Not a dimension: " + value //$NON-NLS-1$
+        );
+    }
+}
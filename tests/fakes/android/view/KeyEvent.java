@@ -0,0 +1,281 @@
+/**
+ * <tt>KeyEvent.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package android.view;
+
+/**
+ * Replaces <tt>android.view.KeyEvent</tt> on the Java virtual machine (JVM)
+ * of the tests.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public class KeyEvent {
+
+    /**
+     * The action of a pressed key.
+     */
+    public static final int ACTION_DOWN = 0;
+
+    /**
+     * The action of a released key.
+     */
+    public static final int ACTION_UP = 1;
+
+    /**
+     * The key code of the <i>C</i> key.
+     */
+    public static final int KEYCODE_C = 31;
+
+    /**
+     * The key code of the <i>V</i> key.
+     */
+    public static final int KEYCODE_V = 50;
+
+    /**
+     * The key code of the <i>Backspace</i> key.
+     */
+    public static final int KEYCODE_DEL = 67;
+
+    /**
+     * The meta state of a pressed <i>Shift</i> key.
+     */
+    public static final int META_SHIFT_ON = 0x01;
+
+    /**
+     * The meta state of a pressed <i>Alt</i> key.
+     */
+    public static final int META_ALT_ON = 0x02;
+
+    /**
+     * The meta state of a pressed <i>Ctrl</i> key.
+     */
+    public static final int META_CTRL_ON = 0x1000;
+
+    /**
+     * The time the key was pressed.
+     */
+    private final long _lDownTime;
+
+    /**
+     * The time of the event.
+     */
+    private final long _lEventTime;
+
+    /**
+     * The action.
+     */
+    private final int _iAction;
+
+    /**
+     * The code of the key.
+     */
+    private final int _iKeyCode;
+
+    /**
+     * The number of repetitions.
+     */
+    private final int _iRepeat;
+
+    /**
+     * The state of the meta keys.
+     */
+    private final int _iMetaState;
+
+    /**
+     * The device.
+     */
+    private final int _iDeviceId;
+
+    /**
+     * The hardware code of the key.
+     */
+    private final int _iScanCode;
+
+    /**
+     * The flags.
+     */
+    private final int _iFlags;
+
+    /**
+     * The source.
+     */
+    private final int _iSource;
+
+    /**
+     * Creates an event.
+     *
+     * @param action the action.
+     * @param code   the code of the key.
+     */
+    public KeyEvent(final int action, final int code) {
+        this(0L, 0L, action, code, 0, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Creates an event.
+     *
+     * @param downTime  the time the key was pressed.
+     * @param eventTime the time of the event.
+     * @param action    the action.
+     * @param code      the code of the key.
+     * @param repeat    the number of repetitions.
+     * @param metaState the state of the meta keys.
+     * @param deviceId  the device.
+     * @param scancode  the hardware code of the key.
+     * @param flags     the flags.
+     */
+    public KeyEvent(
+        final long downTime, final long eventTime, final int action,
+        final int code, final int repeat, final int metaState,
+        final int deviceId, final int scancode, final int flags
+    ) {
+        this(
+            downTime, eventTime, action, code, repeat, metaState, deviceId,
+            scancode, flags, 0
+        );
+    }
+
+    /**
+     * Creates an event.
+     *
+     * @param downTime  the time the key was pressed.
+     * @param eventTime the time of the event.
+     * @param action    the action.
+     * @param code      the code of the key.
+     * @param repeat    the number of repetitions.
+     * @param metaState the state of the meta keys.
+     * @param deviceId  the device.
+     * @param scancode  the hardware code of the key.
+     * @param flags     the flags.
+     * @param source    the source.
+     */
+    public KeyEvent(
+        final long downTime, final long eventTime, final int action,
+        final int code, final int repeat, final int metaState,
+        final int deviceId, final int scancode, final int flags,
+        final int source
+    ) {
+        this._lDownTime = downTime;
+        this._lEventTime = eventTime;
+        this._iAction = action;
+        this._iKeyCode = code;
+        this._iRepeat = repeat;
+        this._iMetaState = metaState;
+        this._iDeviceId = deviceId;
+        this._iScanCode = scancode;
+        this._iFlags = flags;
+        this._iSource = source;
+    }
+
+    /**
+     * Returns the time the key was pressed.
+     *
+     * @return the time.
+     */
+    public final long getDownTime() {
+        return this._lDownTime;
+    }
+
+    /**
+     * Returns the time of the event.
+     *
+     * @return the time.
+     */
+    public final long getEventTime() {
+        return this._lEventTime;
+    }
+
+    /**
+     * Returns the action.
+     *
+     * @return the action.
+     */
+    public final int getAction() {
+        return this._iAction;
+    }
+
+    /**
+     * Returns the code of the key.
+     *
+     * @return the code.
+     */
+    public final int getKeyCode() {
+        return this._iKeyCode;
+    }
+
+    /**
+     * Returns the number of repetitions.
+     *
+     * @return the number.
+     */
+    public final int getRepeatCount() {
+        return this._iRepeat;
+    }
+
+    /**
+     * Returns the state of the meta keys.
+     *
+     * @return the state.
+     */
+    public final int getMetaState() {
+        return this._iMetaState;
+    }
+
+    /**
+     * Returns the device.
+     *
+     * @return the device.
+     */
+    public final int getDeviceId() {
+        return this._iDeviceId;
+    }
+
+    /**
+     * Returns the hardware code of the key.
+     *
+     * @return the code.
+     */
+    public final int getScanCode() {
+        return this._iScanCode;
+    }
+
+    /**
+     * Returns the flags.
+     *
+     * @return the flags.
+     */
+    public final int getFlags() {
+        return this._iFlags;
+    }
+
+    /**
+     * Returns the source.
+     *
+     * @return the source.
+     */
+    public final int getSource() {
+        return this._iSource;
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * <tt>View.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package android.view;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * Replaces <tt>android.view.View</tt> on the Java virtual machine (JVM) of
+ * the tests.
+ *
+ * The view is never attached to a window. Runnables are posted to the main
+ * thread, which runs them when the test lets the loopers idle.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public class View {
+
+    /**
+     * The context of the view.
+     */
+    private final Context _oContext;
+
+    /**
+     * Runs the posted runnables on the main thread.
+     */
+    private final Handler _oHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Creates a view.
+     *
+     * @param context the context of the view.
+     */
+    public View(final Context context) {
+        this._oContext = context;
+    }
+
+    /**
+     * Returns the context of the view.
+     *
+     * @return the context.
+     */
+    public final Context getContext() {
+        return this._oContext;
+    }
+
+    /**
+     * Returns the resources of the context of the view.
+     *
+     * @return the resources.
+     */
+    public Resources getResources() {
+        return this._oContext.getResources();
+    }
+
+    /**
+     * Runs a runnable on the main thread after a delay.
+     *
+     * @param action      the runnable.
+     * @param delayMillis the delay, in milliseconds.
+     *
+     * @return <tt>true</tt> if the runnable has been posted.
+     */
+    public boolean postDelayed(final Runnable action, final long delayMillis) {
+        return this._oHandler.postDelayed(action, delayMillis);
+    }
+
+    /**
+     * Removes a posted runnable.
+     *
+     * @param action the runnable.
+     *
+     * @return <tt>true</tt>.
+     */
+    public boolean removeCallbacks(final Runnable action) {
+        this._oHandler.removeCallbacks(action);
+        return true;
+    }
+
+    /**
+     * Invalidates the whole view. Ignored, because nothing is drawn.
+     */
+    public void invalidate() {
+        // Empty block.
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * <tt>EditorInfo.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package android.view.inputmethod;
+
+import android.text.InputType;
+
+/**
+ * Replaces <tt>android.view.inputmethod.EditorInfo</tt> on the Java virtual
+ * machine (JVM) of the tests.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public class EditorInfo implements InputType {
+
+    /**
+     * The type of the text, see <tt>{@link InputType}</tt>.
+     */
+    public int inputType = TYPE_NULL;
+
+    /**
+     * The options of the input method.
+     */
+    public int imeOptions = 0;
+
+    /**
+     * The start of the selection when input starts.
+     */
+    public int initialSelStart = -1;
+
+    /**
+     * The end of the selection when input starts.
+     */
+    public int initialSelEnd = -1;
+
+    /**
+     * The package of the editor.
+     */
+    public String packageName;
+}
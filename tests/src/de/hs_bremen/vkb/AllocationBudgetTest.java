@@ -0,0 +1,296 @@
+/**
+ * <tt>AllocationBudgetTest.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package de.hs_bremen.vkb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import android.inputmethodservice.Keyboard;
+
+/**
+ * Checks the allocations of the hot paths of the input method against a
+ * budget per operation.
+ *
+ * The keys are sent through <tt>onKey()</tt> on the thread of the input
+ * method (IME), like the <tt>KeyboardView</tt> sends them, and the bytes
+ * allocated by that thread are averaged over many operations. The messages
+ * posted by an operation are run outside the measurement; the allocations
+ * of the background threads are not counted.
+ *
+ * The budgets are in bytes on a 64-bit Java virtual machine (JVM). They are
+ * not the budgets of <tt>{@link AllocationMonitor}</tt>, which counts
+ * objects on the device, but they fail on the same regressions: an
+ * operation that starts to allocate a collection, an iterator or a boxed
+ * number per key.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public class AllocationBudgetTest {
+
+    /**
+     * The number of operations run before measuring.
+     */
+    private static final int _WARM_UP = 2000;
+
+    /**
+     * The number of measured operations.
+     */
+    private static final int _MEASURED = 1000;
+
+    /**
+     * The number of pairs of language switches run before measuring and
+     * measured. Each switch loads a dictionary on the storage thread.
+     */
+    private static final int _LANGUAGE_SWITCHES = 30;
+
+    /**
+     * The text typed to measure keys.
+     */
+    private static final String _TEXT
+        = "the quick brown fox jumps over the lazy dog "; //$NON-NLS-1$
+
+    /**
+     * The counter of the allocated bytes of each thread.
+     */
+    private static final com.sun.management.ThreadMXBean _THREADS
+        = (com.sun.management.ThreadMXBean) ManagementFactory
+            .getThreadMXBean();
+
+    /**
+     * The directory of the private files.
+     */
+    @Rule
+    public final TemporaryFolder files = new TemporaryFolder();
+
+    /**
+     * The input method.
+     */
+    private HeadlessKeyboard _oKeyboard;
+
+    /**
+     * The bytes allocated by reading the counter.
+     */
+    private long _lOverhead;
+
+    /**
+     * The bytes allocated since the current measurement started.
+     */
+    private long _lAllocated;
+
+    /**
+     * The counter when the current measurement started.
+     */
+    private long _lStart;
+
+    /**
+     * Creates the input method and starts input in a text field.
+     */
+    @Before
+    public void setUp() {
+        assertTrue(
+            "The JVM cannot count allocations", //$NON-NLS-1$
+            AllocationBudgetTest._THREADS.isThreadAllocatedMemorySupported()
+        );
+        AllocationBudgetTest._THREADS.setThreadAllocatedMemoryEnabled(true);
+        this._oKeyboard = new HeadlessKeyboard(this.files.getRoot());
+        this._oKeyboard.create("com.example.notes"); //$NON-NLS-1$
+
+        long lMin = Long.MAX_VALUE;
+        for (int i = 0; i < 100; ++i) {
+            final long lSTART = AllocationBudgetTest._allocatedBytes();
+            lMin = Math.min(
+                lMin, AllocationBudgetTest._allocatedBytes() - lSTART
+            );
+        }
+        this._lOverhead = lMin;
+    }
+
+    /**
+     * Destroys the input method.
+     */
+    @After
+    public void tearDown() {
+        if (null != this._oKeyboard) {
+            this._oKeyboard.destroy();
+        }
+    }
+
+    /**
+     * Returns the bytes allocated by the current thread.
+     *
+     * @return the bytes allocated since the thread started.
+     */
+    private static long _allocatedBytes() {
+        return AllocationBudgetTest._THREADS.getThreadAllocatedBytes(
+            Thread.currentThread().getId()
+        );
+    }
+
+    /**
+     * Starts measuring an operation.
+     */
+    private void _begin() {
+        this._lStart = AllocationBudgetTest._allocatedBytes();
+    }
+
+    /**
+     * Stops measuring an operation.
+     */
+    private void _end() {
+        this._lAllocated += AllocationBudgetTest._allocatedBytes()
+            - this._lStart - this._lOverhead;
+    }
+
+    /**
+     * Types a character of <tt>{@link #_TEXT}</tt>.
+     *
+     * @param index    the index of the key, wrapped around the text.
+     * @param measured <tt>true</tt> to measure the key, <tt>false</tt>
+     *                 otherwise.
+     */
+    private void _typeCharacter(final int index, final boolean measured) {
+        final char cCHAR = _TEXT.charAt(index % _TEXT.length());
+        if (measured) {
+            this._begin();
+        }
+        this._oKeyboard.tap(cCHAR);
+        if (measured) {
+            this._end();
+        }
+        if (' ' == cCHAR) {
+            // Lets the input method handle the end of the word.
+            this._oKeyboard.idle();
+        }
+    }
+
+    /**
+     * Taps a key twice, e.g. to switch a layer on and off again.
+     *
+     * @param primaryCode the code of the key.
+     * @param measured    <tt>true</tt> to measure the keys, <tt>false</tt>
+     *                    otherwise.
+     */
+    private void _toggle(final int primaryCode, final boolean measured) {
+        for (int i = 0; i < 2; ++i) {
+            if (measured) {
+                this._begin();
+            }
+            this._oKeyboard.tap(primaryCode);
+            if (measured) {
+                this._end();
+            }
+            this._oKeyboard.idle();
+        }
+    }
+
+    /**
+     * Asserts that the average allocation of an operation is within its
+     * budget.
+     *
+     * @param operation   the name of the operation.
+     * @param count       the number of measured operations.
+     * @param budgetBytes the budget, in bytes per operation.
+     */
+    private void _assertWithinBudget(
+        final String operation, final int count, final long budgetBytes
+    ) {
+        final long lAVERAGE = this._lAllocated / count;
+        assertTrue(
+            operation + " allocated " + lAVERAGE //$NON-NLS-1$
+                + " bytes per operation, budget " //$NON-NLS-1$
+                + budgetBytes,
+            lAVERAGE <= budgetBytes
+        );
+    }
+
+    /**
+     * A key commits its character as a new <tt>String</tt>; the end of a
+     * word adds the word passed to the dictionary.
+     */
+    @Test
+    public void keyStaysWithinBudget() {
+        for (int i = 0; i < _WARM_UP; ++i) {
+            this._typeCharacter(i, false);
+        }
+        final int iSTART = this._oKeyboard.getEditor().length();
+        for (int i = 0; i < _MEASURED; ++i) {
+            this._typeCharacter(i, true);
+        }
+        assertEquals(
+            _MEASURED, this._oKeyboard.getEditor().length() - iSTART
+        );
+        this._assertWithinBudget("key", _MEASURED, 64); //$NON-NLS-1$
+    }
+
+    /**
+     * Switching between the layouts of a language takes the keyboards from
+     * the cache; the lookup boxes its key.
+     */
+    @Test
+    public void modifierSwitchStaysWithinBudget() {
+        final int[] aKEYS = {
+            Keyboard.KEYCODE_SHIFT,
+            Keyboard.KEYCODE_ALT,
+            Keyboard.KEYCODE_MODE_CHANGE,
+        };
+        for (int i = 0; i < _WARM_UP; ++i) {
+            this._toggle(aKEYS[i % aKEYS.length], false);
+        }
+        for (int i = 0; i < _MEASURED; ++i) {
+            this._toggle(aKEYS[i % aKEYS.length], true);
+        }
+        this._assertWithinBudget(
+            "modifier switch", 2 * _MEASURED, 32 //$NON-NLS-1$
+        );
+    }
+
+    /**
+     * Switching the language takes the keyboards of the language from the
+     * cache once they have been built. The dictionary of the language is
+     * opened again, since only the dictionaries of the recent languages are
+     * kept open.
+     */
+    @Test
+    public void languageSwitchStaysWithinBudget() {
+        for (int i = 0; i < _LANGUAGE_SWITCHES; ++i) {
+            this._toggle(LatinKeyboard.KEYCODE_LANGUAGE, false);
+        }
+        for (int i = 0; i < _LANGUAGE_SWITCHES; ++i) {
+            this._toggle(LatinKeyboard.KEYCODE_LANGUAGE, true);
+        }
+        this._assertWithinBudget(
+            "language switch", 2 * _LANGUAGE_SWITCHES, 2048 //$NON-NLS-1$
+        );
+    }
+}
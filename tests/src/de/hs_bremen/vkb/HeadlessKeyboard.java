@@ -0,0 +1,204 @@
+/**
+ * <tt>HeadlessKeyboard.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package de.hs_bremen.vkb;
+
+import java.io.File;
+import java.util.Arrays;
+
+import android.content.SharedPreferences;
+import android.os.Looper;
+import android.text.InputType;
+import android.view.inputmethod.EditorInfo;
+
+/**
+ * Runs the input method without a window on the Java virtual machine (JVM)
+ * of the tests.
+ *
+ * The keyboard is driven the way the <tt>KeyboardView</tt> drives it, through
+ * <tt>onPress()</tt>, <tt>onKey()</tt> and <tt>onRelease()</tt>, on the
+ * thread of the test, which acts as the thread of the input method (IME).
+ * The input view is not created.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+final class HeadlessKeyboard {
+
+    /**
+     * The maximum time, in milliseconds, to wait for the background threads.
+     */
+    private static final long _TIMEOUT_MILLIS = 10000L;
+
+    /**
+     * The maximum number of codes of the nearby keys passed to
+     * <tt>onKey()</tt> by the <tt>KeyboardView</tt>.
+     */
+    private static final int _MAX_NEARBY_KEYS = 12;
+
+    /**
+     * The name of the preferences of the input method.
+     */
+    private static final String _PREFERENCES
+        = "VirtualKeyBoard"; //$NON-NLS-1$
+
+    /**
+     * The input method.
+     */
+    private final VirtualKeyBoard _oService;
+
+    /**
+     * The editor.
+     */
+    private final RecordingInputConnection _oEditor
+        = new RecordingInputConnection();
+
+    /**
+     * The codes passed to <tt>onKey()</tt>, reused for each key.
+     */
+    private final int[] _aKeyCodes = new int[_MAX_NEARBY_KEYS];
+
+    /**
+     * Signals whether the input method has been created.
+     */
+    private boolean _bIsCreated = false;
+
+    /**
+     * Prepares an input method that stores its files in a directory.
+     *
+     * @param filesDir the directory of the private files.
+     */
+    HeadlessKeyboard(final File filesDir) {
+        if (null == Looper.getMainLooper()) {
+            Looper.prepareMainLooper();
+        }
+        // The KeyboardView pads the codes with -1.
+        Arrays.fill(this._aKeyCodes, -1);
+        // The input method creates its handlers on the main thread.
+        this._oService = new VirtualKeyBoard();
+        this._oService.setFilesDir(filesDir);
+    }
+
+    /**
+     * Returns the preferences of the input method, e.g. to change them
+     * before <tt>{@link #create()}</tt>.
+     *
+     * @return the preferences.
+     */
+    SharedPreferences getPreferences() {
+        return this._oService.getSharedPreferences(
+            _PREFERENCES, VirtualKeyBoard.MODE_PRIVATE
+        );
+    }
+
+    /**
+     * Returns the input method.
+     *
+     * @return the input method.
+     */
+    VirtualKeyBoard getService() {
+        return this._oService;
+    }
+
+    /**
+     * Returns the editor.
+     *
+     * @return the editor.
+     */
+    RecordingInputConnection getEditor() {
+        return this._oEditor;
+    }
+
+    /**
+     * Creates the input method and starts input in a text field of an
+     * application.
+     *
+     * @param packageName the package of the application.
+     */
+    void create(final String packageName) {
+        this._oService.onCreate();
+        this._bIsCreated = true;
+        this._oService.onInitializeInterface();
+        final EditorInfo oINFO = new EditorInfo();
+        oINFO.inputType = InputType.TYPE_CLASS_TEXT;
+        oINFO.packageName = packageName;
+        this._oService.setInput(this._oEditor, oINFO);
+        this._oService.onStartInput(oINFO, false);
+        this.idle();
+    }
+
+    /**
+     * Taps a key: presses it, lets the input method handle it and releases
+     * it.
+     *
+     * @param primaryCode the code of the key.
+     */
+    void tap(final int primaryCode) {
+        this._oService.onPress(primaryCode);
+        this.key(primaryCode);
+        this._oService.onRelease(primaryCode);
+    }
+
+    /**
+     * Lets the input method handle a key, without pressing or releasing it.
+     *
+     * @param primaryCode the code of the key.
+     */
+    void key(final int primaryCode) {
+        this._aKeyCodes[0] = primaryCode;
+        this._oService.onKey(primaryCode, this._aKeyCodes);
+    }
+
+    /**
+     * Types a text by tapping the key of each character.
+     *
+     * @param text the text.
+     */
+    void type(final CharSequence text) {
+        for (int i = 0; i < text.length(); ++i) {
+            this.tap(text.charAt(i));
+        }
+    }
+
+    /**
+     * Runs the pending messages of the thread of the input method and waits
+     * until the background threads are idle.
+     */
+    void idle() {
+        Looper.idleAll(_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Destroys the input method and waits until its background threads have
+     * finished their work.
+     */
+    void destroy() {
+        if (this._bIsCreated) {
+            this._bIsCreated = false;
+            this._oService.onFinishInput();
+            this._oService.onDestroy();
+            this.idle();
+        }
+    }
+}
@@ -0,0 +1,341 @@
+/**
+ * <tt>KeyRendererTest.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package de.hs_bremen.vkb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.inputmethodservice.Keyboard.Key;
+
+/**
+ * Counts the draw operations of the frames of a
+ * <tt>{@link KeyRenderer}</tt>.
+ *
+ * The keys are drawn onto a canvas that only counts the operations, so the
+ * cost of a frame is checked without a device: a full frame draws each key
+ * with at most two operations, or one if the faces of the keys have been
+ * rendered into a <tt>{@link KeyFaceAtlas}</tt>, and a key press redraws
+ * only the pressed key.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public class KeyRendererTest {
+
+    /**
+     * The maximum number of draw operations of a key without atlas: its
+     * background and its label or icon.
+     */
+    private static final int _MAX_OPS_PER_KEY = 2;
+
+    /**
+     * The x-coordinate of the keyboard on the canvas, e.g. the padding of
+     * the view.
+     */
+    private static final int _LEFT = 3;
+
+    /**
+     * The y-coordinate of the keyboard on the canvas.
+     */
+    private static final int _TOP = 5;
+
+    /**
+     * A canvas that counts the draw operations instead of drawing.
+     */
+    private static final class CountingCanvas extends Canvas {
+
+        /**
+         * The number of draw operations.
+         */
+        private int _iOps = 0;
+
+        /**
+         * The number of drawn bitmaps.
+         */
+        private int _iBitmaps = 0;
+
+        /**
+         * Creates a canvas of the specified size.
+         *
+         * @param width  the width, in pixels.
+         * @param height the height, in pixels.
+         */
+        CountingCanvas(final int width, final int height) {
+            super(Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888));
+        }
+
+        /**
+         * Returns the number of draw operations and resets it.
+         *
+         * @return the number of draw operations.
+         */
+        int takeOps() {
+            final int iOPS = this._iOps;
+            this._iOps = 0;
+            return iOPS;
+        }
+
+        /**
+         * Returns the number of drawn bitmaps and resets it.
+         *
+         * @return the number of drawn bitmaps.
+         */
+        int takeBitmaps() {
+            final int iBITMAPS = this._iBitmaps;
+            this._iBitmaps = 0;
+            return iBITMAPS;
+        }
+
+        @Override
+        public void drawColor(final int color) {
+            ++this._iOps;
+        }
+
+        @Override
+        public void drawRect(final Rect rect, final Paint paint) {
+            ++this._iOps;
+        }
+
+        @Override
+        public void drawRect(
+            final float left, final float top, final float right,
+            final float bottom, final Paint paint
+        ) {
+            ++this._iOps;
+        }
+
+        @Override
+        public void drawText(
+            final String text, final float x, final float y,
+            final Paint paint
+        ) {
+            ++this._iOps;
+        }
+
+        @Override
+        public void drawBitmap(
+            final Bitmap bitmap, final Rect src, final Rect dst,
+            final Paint paint
+        ) {
+            ++this._iOps;
+            ++this._iBitmaps;
+        }
+
+        @Override
+        public void drawBitmap(
+            final Bitmap bitmap, final float left, final float top,
+            final Paint paint
+        ) {
+            ++this._iOps;
+            ++this._iBitmaps;
+        }
+    }
+
+    /**
+     * The directory of the private files.
+     */
+    @Rule
+    public final TemporaryFolder files = new TemporaryFolder();
+
+    /**
+     * The input method, which provides the resources.
+     */
+    private HeadlessKeyboard _oHeadless;
+
+    /**
+     * The style of the keys.
+     */
+    private KeyFaceAtlas.Style _oStyle;
+
+    /**
+     * The keyboard that is drawn.
+     */
+    private LatinKeyboard _oKeyboard;
+
+    /**
+     * The renderer under test.
+     */
+    private KeyRenderer _oRenderer;
+
+    /**
+     * The canvas the keys are drawn onto.
+     */
+    private CountingCanvas _oCanvas;
+
+    /**
+     * Creates a renderer for a German keyboard and a canvas of the size of
+     * the view.
+     */
+    @Before
+    public void setUp() {
+        this._oHeadless = new HeadlessKeyboard(this.files.getRoot());
+        this._oHeadless.create("com.example.notes"); //$NON-NLS-1$
+        final VirtualKeyBoard oSERVICE = this._oHeadless.getService();
+        this._oStyle = new KeyFaceAtlas.Style(oSERVICE, null, 0);
+        this._oKeyboard = new LatinKeyboard(oSERVICE, R.xml.de_de_lc);
+        this._oRenderer = new KeyRenderer(this._oStyle);
+        this._oCanvas = new CountingCanvas(
+            _LEFT + this._oKeyboard.getMinWidth(),
+            _TOP + this._oKeyboard.getHeight()
+        );
+    }
+
+    /**
+     * Destroys the input method.
+     */
+    @After
+    public void tearDown() {
+        if (null != this._oHeadless) {
+            this._oHeadless.destroy();
+        }
+    }
+
+    /**
+     * Checks that a full frame draws each key with at most two operations.
+     */
+    @Test
+    public void fullFrameStaysWithinBudget() {
+        final int iKEYS = this._oKeyboard.getKeys().size();
+        this._draw(null);
+        final int iOPS = this._oCanvas.takeOps();
+        assertEquals(iOPS, this._oRenderer.getLastFrameOps());
+        assertTrue(iOPS >= iKEYS);
+        assertTrue(
+            iOPS + " ops for " + iKEYS + " keys", //$NON-NLS-1$ //$NON-NLS-2$
+            iOPS <= _MAX_OPS_PER_KEY * iKEYS
+        );
+    }
+
+    /**
+     * Checks that a key press redraws the pressed key and nothing else.
+     */
+    @Test
+    public void keyPressRedrawsOnlyThePressedKey() {
+        this._draw(null);
+        this._oCanvas.takeOps();
+
+        final int iINDEX = this._indexOf('a');
+        final Rect oDIRTY = this._press(iINDEX);
+        this._oCanvas.save();
+        this._oCanvas.clipRect(oDIRTY);
+        this._draw(null);
+        this._oCanvas.restore();
+
+        final int iOPS = this._oCanvas.takeOps();
+        assertEquals(iOPS, this._oRenderer.getLastFrameOps());
+        assertTrue(iOPS > 0);
+        assertTrue(iOPS + " ops", iOPS <= _MAX_OPS_PER_KEY); //$NON-NLS-1$
+    }
+
+    /**
+     * Checks that the keys are copied from the atlas with one bitmap each,
+     * and that a key press copies only the pressed key.
+     */
+    @Test
+    public void atlasFrameCopiesEachKeyOnce() {
+        final KeyFaceAtlas oATLAS = new KeyFaceAtlas.Request(
+            this._oHeadless.getService().getResources(), this._oStyle,
+            this._oKeyboard
+        ).render();
+        assertNotNull(oATLAS);
+        final int iKEYS = this._oKeyboard.getKeys().size();
+
+        this._draw(oATLAS);
+        assertEquals(iKEYS, this._oCanvas.takeBitmaps());
+        assertEquals(iKEYS, this._oCanvas.takeOps());
+        assertEquals(iKEYS, this._oRenderer.getLastFrameOps());
+
+        final Rect oDIRTY = this._press(this._indexOf('a'));
+        this._oCanvas.save();
+        this._oCanvas.clipRect(oDIRTY);
+        this._draw(oATLAS);
+        this._oCanvas.restore();
+        assertEquals(1, this._oCanvas.takeBitmaps());
+        assertEquals(1, this._oCanvas.takeOps());
+        oATLAS.recycle();
+    }
+
+    /**
+     * Draws a frame of the keyboard.
+     *
+     * @param atlas the faces of the keys, or <tt>null</tt>.
+     */
+    private void _draw(final KeyFaceAtlas atlas) {
+        this._oRenderer.draw(
+            this._oCanvas, this._oKeyboard, atlas, _LEFT, _TOP
+        );
+    }
+
+    /**
+     * Presses a key and damages it, like the view does.
+     *
+     * @param index the index of the key.
+     *
+     * @return the area of the canvas to redraw.
+     */
+    private Rect _press(final int index) {
+        final Rect oDIRTY = new Rect();
+        this._oKeyboard.getKeys().get(index).onPressed();
+        assertTrue(this._oRenderer.damageKey(
+            this._oKeyboard, index, _LEFT, _TOP, oDIRTY
+        ));
+        // The key is redrawn once, however often it is damaged.
+        assertFalse(this._oRenderer.damageKey(
+            this._oKeyboard, index, _LEFT, _TOP, new Rect()
+        ));
+        return oDIRTY;
+    }
+
+    /**
+     * Returns the index of the first key with the specified code.
+     *
+     * @param code the code of the key.
+     *
+     * @return the index of the key.
+     */
+    private int _indexOf(final int code) {
+        final List<Key> lKEYS = this._oKeyboard.getKeys();
+        for (int i = 0; i < lKEYS.size(); ++i) {
+            if (code == lKEYS.get(i).codes[0]) {
+                return i;
+            }
+        }
+        throw new AssertionError("No key for " + code); //$NON-NLS-1$
+    }
+}
@@ -0,0 +1,301 @@
+/**
+ * <tt>KeystrokeTraceTest.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package de.hs_bremen.vkb;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import android.inputmethodservice.Keyboard;
+import android.inputmethodservice.KeyboardView.OnKeyboardActionListener;
+import android.text.InputType;
+
+/**
+ * Records keys into a <tt>{@link KeystrokeTrace}</tt> through the input
+ * method and feeds the trace back through <tt>onKey()</tt>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public class KeystrokeTraceTest {
+
+    /**
+     * The package of the application that is typed into.
+     */
+    private static final String _PACKAGE
+        = "com.example.notes"; //$NON-NLS-1$
+
+    /**
+     * The letters typed to fill the segments, followed by a space.
+     */
+    private static final String _WORD = "abcdefghijklmnopq "; //$NON-NLS-1$
+
+    /**
+     * The directories of the private files.
+     */
+    @Rule
+    public final TemporaryFolder files = new TemporaryFolder();
+
+    /**
+     * The input method that records the trace.
+     */
+    private HeadlessKeyboard _oRecorder;
+
+    /**
+     * The directory of the trace.
+     */
+    private File _oTraceDir;
+
+    /**
+     * Creates an input method that records its keys into a trace.
+     *
+     * @throws IOException if the directory cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException {
+        this._oTraceDir = this.files.newFolder("recorded"); //$NON-NLS-1$
+        this._oRecorder = new HeadlessKeyboard(this._oTraceDir);
+        this._oRecorder.getPreferences().edit()
+            .putBoolean(KeystrokeTrace.PREFERENCE_KEY, true).commit();
+        this._oRecorder.create(_PACKAGE);
+    }
+
+    /**
+     * Destroys the input method, if the test has not done so.
+     */
+    @After
+    public void tearDown() {
+        if (null != this._oRecorder) {
+            this._oRecorder.destroy();
+        }
+    }
+
+    /**
+     * Checks that replaying a trace into a fresh input method leaves the
+     * same text in the editor as typing the keys did.
+     *
+     * @throws IOException if the trace cannot be read.
+     */
+    @Test
+    public void replayReproducesTheTypedText() throws IOException {
+        int iKeys = 0;
+        final String sTEXT = "Hallo Wlet"; //$NON-NLS-1$
+        this._oRecorder.type(sTEXT);
+        iKeys += sTEXT.length();
+        for (int i = 0; i < 3; ++i) {
+            this._oRecorder.tap(Keyboard.KEYCODE_DELETE);
+            ++iKeys;
+        }
+        this._oRecorder.type("elt!"); //$NON-NLS-1$
+        iKeys += 4;
+        this._oRecorder.idle();
+        final String sTYPED = this._oRecorder.getEditor().getText();
+        assertEquals("Hallo Welt!", sTYPED); //$NON-NLS-1$
+        this._oRecorder.destroy();
+        this._oRecorder = null;
+
+        final HeadlessKeyboard oREPLAYER = new HeadlessKeyboard(
+            this.files.newFolder("replayed") //$NON-NLS-1$
+        );
+        oREPLAYER.create(_PACKAGE);
+        try {
+            assertEquals(iKeys, KeystrokeTrace.replay(
+                this._oTraceDir, oREPLAYER.getService()
+            ));
+            oREPLAYER.idle();
+            assertEquals(sTYPED, oREPLAYER.getEditor().getText());
+        } finally {
+            oREPLAYER.destroy();
+        }
+    }
+
+    /**
+     * Checks that a trace whose segments have been reused replays the
+     * newest keys, oldest segment first.
+     *
+     * @throws IOException if the trace cannot be read.
+     */
+    @Test
+    public void replayFollowsTheSegmentsInOrder() throws IOException {
+        // Fill both segments and start to overwrite the first one.
+        final int iTYPED = KeystrokeTrace.SEGMENT_COUNT
+            * KeystrokeTrace.RECORDS_PER_SEGMENT + 100;
+        final int[] aTYPED = new int[iTYPED];
+        for (int i = 0; i < iTYPED; ++i) {
+            aTYPED[i] = _WORD.charAt(i % _WORD.length());
+            this._oRecorder.tap(aTYPED[i]);
+            if (' ' == aTYPED[i]) {
+                this._oRecorder.idle();
+            }
+        }
+        this._oRecorder.destroy();
+        this._oRecorder = null;
+
+        final int[] aREPLAYED = new int[iTYPED];
+        final int[] aCOUNT = new int[1];
+        final int iKEYS = KeystrokeTrace.replay(
+            this._oTraceDir, new OnKeyboardActionListener() {
+                @Override
+                public void onPress(final int primaryCode) {
+                    // Empty block.
+                }
+
+                @Override
+                public void onRelease(final int primaryCode) {
+                    // Empty block.
+                }
+
+                @Override
+                public void onKey(final int primaryCode, final int[] keyCodes) {
+                    aREPLAYED[aCOUNT[0]++] = primaryCode;
+                }
+
+                @Override
+                public void onText(final CharSequence text) {
+                    // Empty block.
+                }
+
+                @Override
+                public void swipeLeft() {
+                    // Empty block.
+                }
+
+                @Override
+                public void swipeRight() {
+                    // Empty block.
+                }
+
+                @Override
+                public void swipeDown() {
+                    // Empty block.
+                }
+
+                @Override
+                public void swipeUp() {
+                    // Empty block.
+                }
+            }
+        );
+
+        // The full segment and the part of the reused one.
+        final int iKEPT = KeystrokeTrace.RECORDS_PER_SEGMENT + 100;
+        assertEquals(iKEPT, iKEYS);
+        assertEquals(iKEPT, aCOUNT[0]);
+        assertArrayEquals(
+            Arrays.copyOfRange(aTYPED, iTYPED - iKEPT, iTYPED),
+            Arrays.copyOf(aREPLAYED, iKEPT)
+        );
+    }
+
+    /**
+     * Checks that the codes of characters typed into a redacted editor are
+     * not written to the trace, while the codes of control keys are.
+     *
+     * @throws IOException if the trace cannot be written or read.
+     */
+    @Test
+    public void redactedEditorHidesTheCharacters() throws IOException {
+        final int[] aTYPED = {
+            'g', 'e', 'h', ' ', 'M', Keyboard.KEYCODE_DELETE,
+            Keyboard.KEYCODE_SHIFT, ASCIICharacters.LF,
+        };
+        final File oDIRECTORY = this.files.newFolder("redacted"); //$NON-NLS-1$
+        final KeystrokeTrace oTRACE = KeystrokeTrace.open(oDIRECTORY);
+        oTRACE.setEditor(
+            InputType.TYPE_CLASS_TEXT
+                | InputType.TYPE_TEXT_VARIATION_PASSWORD,
+            true
+        );
+        for (int iCode : aTYPED) {
+            oTRACE.onPress();
+            oTRACE.beginKey(iCode, 0, 0);
+            oTRACE.onKeyHandled();
+            oTRACE.endKey();
+        }
+        oTRACE.close();
+
+        final byte[] aBYTES = new byte[
+            KeystrokeTrace.HEADER_SIZE
+                + aTYPED.length * KeystrokeTrace.RECORD_SIZE
+        ];
+        final RandomAccessFile oFILE = new RandomAccessFile(
+            KeystrokeTrace.getSegmentFile(oDIRECTORY, 0), "r" //$NON-NLS-1$
+        );
+        try {
+            oFILE.readFully(aBYTES);
+        } finally {
+            oFILE.close();
+        }
+        final ByteBuffer oSEGMENT = ByteBuffer.wrap(aBYTES);
+        for (int i = 0; i < aTYPED.length; ++i) {
+            final int iOFFSET = KeystrokeTrace.HEADER_SIZE
+                + i * KeystrokeTrace.RECORD_SIZE;
+            final boolean bREDACTED = aTYPED[i] >= ASCIICharacters.SPACE;
+            assertEquals(
+                bREDACTED ? KeystrokeTrace.REDACTED_CODE : aTYPED[i],
+                oSEGMENT.getInt(iOFFSET + 20)
+            );
+            assertEquals(
+                bREDACTED ? KeystrokeTrace.FLAG_REDACTED : 0,
+                oSEGMENT.get(iOFFSET + 31) & KeystrokeTrace.FLAG_REDACTED
+            );
+        }
+    }
+
+    /**
+     * Checks that replaying a directory without trace does nothing.
+     *
+     * @throws IOException if the directory cannot be read.
+     */
+    @Test
+    public void replayWithoutTraceReplaysNothing() throws IOException {
+        final HeadlessKeyboard oREPLAYER = new HeadlessKeyboard(
+            this.files.newFolder("replayed") //$NON-NLS-1$
+        );
+        oREPLAYER.create(_PACKAGE);
+        try {
+            assertEquals(0, KeystrokeTrace.replay(
+                this.files.newFolder("empty"), //$NON-NLS-1$
+                oREPLAYER.getService()
+            ));
+            oREPLAYER.idle();
+            assertTrue(0 == oREPLAYER.getEditor().length());
+        } finally {
+            oREPLAYER.destroy();
+        }
+    }
+}
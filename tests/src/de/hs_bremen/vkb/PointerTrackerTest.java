@@ -0,0 +1,497 @@
+/**
+ * <tt>PointerTrackerTest.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package de.hs_bremen.vkb;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import android.inputmethodservice.Keyboard.Key;
+import android.inputmethodservice.KeyboardView;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+
+/**
+ * Replays scripted touches through a <tt>{@link PointerTracker}</tt> into
+ * the input method and checks that no key is dropped or reordered.
+ *
+ * The keys are typed at 15 keys per second and each finger stays on its key
+ * for 120 milliseconds, so that the next finger always touches the keyboard
+ * before the previous one is lifted. Every key has to reach
+ * <tt>onKey()</tt> exactly once and in the order in which the keys have been
+ * pressed, also while a PC modifier key is held by another finger.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+public class PointerTrackerTest {
+
+    /**
+     * The number of keys typed per second.
+     */
+    private static final int _KEYS_PER_SECOND = 15;
+
+    /**
+     * The time, in milliseconds, a finger stays on its key.
+     */
+    private static final long _HOLD_MILLIS = 120L;
+
+    /**
+     * The distance, in pixels, a finger jitters on its key.
+     */
+    private static final int _JITTER = 2;
+
+    /**
+     * The maximum number of samples of a script.
+     */
+    private static final int _MAX_SAMPLES = 2048;
+
+    /**
+     * The maximum number of recorded callbacks of each type.
+     */
+    private static final int _MAX_CALLBACKS = 512;
+
+    /**
+     * The text typed by the fingers.
+     */
+    private static final String _TEXT
+        = "the quick brown fox jumps over the lazy dog "; //$NON-NLS-1$
+
+    /**
+     * The directory of the private files.
+     */
+    @Rule
+    public final TemporaryFolder files = new TemporaryFolder();
+
+    /**
+     * The input method.
+     */
+    private HeadlessKeyboard _oKeyboard;
+
+    /**
+     * The view whose keys are tracked.
+     */
+    private KeyboardView _oView;
+
+    /**
+     * The tracker under test.
+     */
+    private PointerTracker _oTracker;
+
+    /**
+     * The codes passed to <tt>onPress()</tt>, in order.
+     */
+    private final int[] _aPressed = new int[_MAX_CALLBACKS];
+
+    /**
+     * The number of calls to <tt>onPress()</tt>.
+     */
+    private int _iPressedCount = 0;
+
+    /**
+     * The codes passed to <tt>onKey()</tt>, in order.
+     */
+    private final int[] _aCommitted = new int[_MAX_CALLBACKS];
+
+    /**
+     * The number of calls to <tt>onKey()</tt>.
+     */
+    private int _iCommittedCount = 0;
+
+    /**
+     * The time of each sample of the script.
+     */
+    private final long[] _aTimes = new long[_MAX_SAMPLES];
+
+    /**
+     * The action of each sample of the script.
+     */
+    private final int[] _aActions = new int[_MAX_SAMPLES];
+
+    /**
+     * The pointer ID of each sample of the script.
+     */
+    private final int[] _aPointerIds = new int[_MAX_SAMPLES];
+
+    /**
+     * The horizontal position of each sample of the script.
+     */
+    private final int[] _aX = new int[_MAX_SAMPLES];
+
+    /**
+     * The vertical position of each sample of the script.
+     */
+    private final int[] _aY = new int[_MAX_SAMPLES];
+
+    /**
+     * The number of samples of the script.
+     */
+    private int _iSampleCount = 0;
+
+    /**
+     * Creates the input method and a tracker on a German keyboard, which
+     * passes the keys on to the input method and records them.
+     */
+    @Before
+    public void setUp() {
+        this._oKeyboard = new HeadlessKeyboard(this.files.getRoot());
+        this._oKeyboard.create("com.example.notes"); //$NON-NLS-1$
+        final VirtualKeyBoard oSERVICE = this._oKeyboard.getService();
+        this._oView = new KeyboardView(oSERVICE, null);
+        this._oView.setKeyboard(new LatinKeyboard(oSERVICE, R.xml.de_de_lc));
+        this._oTracker = new PointerTracker(this._oView);
+        this._oTracker.setOnKeyboardActionListener(
+            new KeyboardView.OnKeyboardActionListener() {
+                @Override
+                public void onPress(final int primaryCode) {
+                    PointerTrackerTest.this._aPressed[
+                        PointerTrackerTest.this._iPressedCount++
+                    ] = primaryCode;
+                    oSERVICE.onPress(primaryCode);
+                }
+
+                @Override
+                public void onRelease(final int primaryCode) {
+                    oSERVICE.onRelease(primaryCode);
+                }
+
+                @Override
+                public void onKey(final int primaryCode, final int[] keyCodes) {
+                    PointerTrackerTest.this._aCommitted[
+                        PointerTrackerTest.this._iCommittedCount++
+                    ] = primaryCode;
+                    oSERVICE.onKey(primaryCode, keyCodes);
+                }
+
+                @Override
+                public void onText(final CharSequence text) {
+                    oSERVICE.onText(text);
+                }
+
+                @Override
+                public void swipeLeft() {
+                    oSERVICE.swipeLeft();
+                }
+
+                @Override
+                public void swipeRight() {
+                    oSERVICE.swipeRight();
+                }
+
+                @Override
+                public void swipeDown() {
+                    oSERVICE.swipeDown();
+                }
+
+                @Override
+                public void swipeUp() {
+                    oSERVICE.swipeUp();
+                }
+            }
+        );
+    }
+
+    /**
+     * Destroys the input method.
+     */
+    @After
+    public void tearDown() {
+        if (null != this._oKeyboard) {
+            this._oKeyboard.destroy();
+        }
+    }
+
+    /**
+     * Checks that overlapping taps at 15 keys per second are committed in
+     * the order in which they have been pressed, each exactly once.
+     */
+    @Test
+    public void rolloverKeepsPressOrderAtFifteenKeysPerSecond() {
+        final StringBuilder oTEXT = new StringBuilder();
+        for (int i = 0; i < 5; ++i) {
+            oTEXT.append(_TEXT);
+        }
+        this._typeFrom(oTEXT, 0L, 0);
+        this._replay();
+        this._oKeyboard.idle();
+
+        final int[] aEXPECTED = PointerTrackerTest._codes(oTEXT);
+        assertArrayEquals(
+            aEXPECTED, Arrays.copyOf(this._aPressed, this._iPressedCount)
+        );
+        assertArrayEquals(
+            aEXPECTED, Arrays.copyOf(this._aCommitted, this._iCommittedCount)
+        );
+        assertEquals(oTEXT.toString(), this._oKeyboard.getEditor().getText());
+
+        // Every key but a space, which repeats and is committed on down, is
+        // committed when the next finger touches the keyboard.
+        int iRollover = 0;
+        for (int i = 0; i < oTEXT.length(); ++i) {
+            if (' ' != oTEXT.charAt(i)) {
+                ++iRollover;
+            }
+        }
+        final String sDUMP = this._dump();
+        assertTrue(sDUMP, sDUMP.contains(
+            "committed=" + oTEXT.length() //$NON-NLS-1$
+                + ", rollover=" + iRollover //$NON-NLS-1$
+                + ", dropped=0, max down=2" //$NON-NLS-1$
+        ));
+    }
+
+    /**
+     * Checks that a PC <i>Shift</i> key held by one finger applies to the
+     * keys typed with the other fingers, and only to them.
+     */
+    @Test
+    public void heldPcShiftAppliesToRolledOverKeys() {
+        this._assertHeldModifier(
+            LatinKeyboard.KEYCODE_PC_SHIFT, "abc", //$NON-NLS-1$
+            KeyEvent.KEYCODE_C, KeyEvent.META_SHIFT_ON
+        );
+    }
+
+    /**
+     * Checks that a PC <i>Ctrl</i> key held by one finger applies to the
+     * keys typed with the other fingers, and only to them.
+     */
+    @Test
+    public void heldPcCtrlAppliesToRolledOverKeys() {
+        this._assertHeldModifier(
+            LatinKeyboard.KEYCODE_PC_CTRL, "xv", //$NON-NLS-1$
+            KeyEvent.KEYCODE_V, KeyEvent.META_CTRL_ON
+        );
+    }
+
+    /**
+     * Holds a PC modifier key with one finger while the other fingers type
+     * a text, then types another key without the modifier, and checks the
+     * callbacks and the editor.
+     *
+     * @param modifierCode the code of the PC modifier key.
+     * @param text         the text typed while the modifier is held.
+     * @param lastKeyCode  the key code of the last character of the text.
+     * @param metaState    the meta state bit of the modifier.
+     */
+    private void _assertHeldModifier(
+        final int modifierCode, final String text, final int lastKeyCode,
+        final int metaState
+    ) {
+        // The modifier is held from 0 ms until the last key has been lifted.
+        final long lTYPED = this._typeFrom(text, 100L, 1);
+        this._addTap(modifierCode, 0, 0L, lTYPED + 50L);
+        this._typeFrom("d", lTYPED + 100L, 1); //$NON-NLS-1$
+        this._replay();
+        this._oKeyboard.idle();
+
+        final int[] aTEXT = PointerTrackerTest._codes(text);
+        final int[] aPRESSED = new int[aTEXT.length + 2];
+        aPRESSED[0] = modifierCode;
+        System.arraycopy(aTEXT, 0, aPRESSED, 1, aTEXT.length);
+        aPRESSED[aTEXT.length + 1] = 'd';
+        assertArrayEquals(
+            aPRESSED, Arrays.copyOf(this._aPressed, this._iPressedCount)
+        );
+        // The modifier is committed when its finger is lifted.
+        final int[] aCOMMITTED = new int[aTEXT.length + 2];
+        System.arraycopy(aTEXT, 0, aCOMMITTED, 0, aTEXT.length);
+        aCOMMITTED[aTEXT.length] = modifierCode;
+        aCOMMITTED[aTEXT.length + 1] = 'd';
+        assertArrayEquals(
+            aCOMMITTED, Arrays.copyOf(this._aCommitted, this._iCommittedCount)
+        );
+
+        // The chords are sent as key events; the modifier has been used, so
+        // it is not left as a one-shot modifier for the last key.
+        final RecordingInputConnection oEDITOR = this._oKeyboard.getEditor();
+        assertEquals(lastKeyCode, oEDITOR.getLastKeyCode());
+        assertTrue(0 != (metaState & oEDITOR.getLastMetaState()));
+        assertEquals("d", oEDITOR.getText()); //$NON-NLS-1$
+        final String sDUMP = this._dump();
+        assertTrue(sDUMP, sDUMP.contains(", dropped=0,")); //$NON-NLS-1$
+    }
+
+    /**
+     * Adds the taps of a text to the script, at 15 keys per second.
+     *
+     * @param text           the text.
+     * @param startTime      the time of the first tap.
+     * @param firstPointerId the pointer ID of the first finger; three
+     *                       fingers take turns.
+     *
+     * @return the time the last finger is lifted.
+     */
+    private long _typeFrom(
+        final CharSequence text, final long startTime,
+        final int firstPointerId
+    ) {
+        long lUp = startTime;
+        for (int i = 0; i < text.length(); ++i) {
+            final long lDOWN = startTime + i * 1000L / _KEYS_PER_SECOND;
+            lUp = lDOWN + _HOLD_MILLIS;
+            this._addTap(text.charAt(i), firstPointerId + i % 3, lDOWN, lUp);
+        }
+        return lUp;
+    }
+
+    /**
+     * Adds a tap on the center of a key to the script: the finger touches
+     * the key, jitters on it and is lifted.
+     *
+     * @param code      the code of the key.
+     * @param pointerId the pointer ID of the finger.
+     * @param downTime  the time the finger touches the key.
+     * @param upTime    the time the finger is lifted.
+     */
+    private void _addTap(
+        final int code, final int pointerId, final long downTime,
+        final long upTime
+    ) {
+        final Key oKEY = this._findKey(code);
+        final int iX = oKEY.x + oKEY.width / 2;
+        final int iY = oKEY.y + oKEY.height / 2;
+        this._addSample(downTime, MotionEvent.ACTION_DOWN, pointerId, iX, iY);
+        this._addSample(
+            downTime + 16L, MotionEvent.ACTION_MOVE, pointerId, iX + _JITTER,
+            iY - _JITTER
+        );
+        this._addSample(
+            downTime + 32L, MotionEvent.ACTION_MOVE, pointerId, iX - _JITTER,
+            iY + _JITTER
+        );
+        this._addSample(upTime, MotionEvent.ACTION_UP, pointerId, iX, iY);
+    }
+
+    /**
+     * Adds a sample to the script.
+     *
+     * @param time      the time of the sample.
+     * @param action    the action of the sample.
+     * @param pointerId the pointer ID of the sample.
+     * @param x         the horizontal position of the sample.
+     * @param y         the vertical position of the sample.
+     */
+    private void _addSample(
+        final long time, final int action, final int pointerId, final int x,
+        final int y
+    ) {
+        final int iINDEX = this._iSampleCount++;
+        this._aTimes[iINDEX] = time;
+        this._aActions[iINDEX] = action;
+        this._aPointerIds[iINDEX] = pointerId;
+        this._aX[iINDEX] = x;
+        this._aY[iINDEX] = y;
+    }
+
+    /**
+     * Passes the samples of the script to the tracker, ordered by time.
+     * Samples with the same time keep the order in which they have been
+     * added.
+     */
+    private void _replay() {
+        final int iCOUNT = this._iSampleCount;
+        final boolean[] aDONE = new boolean[iCOUNT];
+        for (int n = 0; n < iCOUNT; ++n) {
+            int iNext = -1;
+            for (int i = 0; i < iCOUNT; ++i) {
+                if (!aDONE[i] && (-1 == iNext
+                        || this._aTimes[i] < this._aTimes[iNext])) {
+                    iNext = i;
+                }
+            }
+            aDONE[iNext] = true;
+            final int iID = this._aPointerIds[iNext];
+            final int iX = this._aX[iNext];
+            final int iY = this._aY[iNext];
+            final long lTIME = this._aTimes[iNext];
+            switch (this._aActions[iNext]) {
+            case MotionEvent.ACTION_DOWN:
+                this._oTracker.onDown(iID, iX, iY, lTIME);
+                break;
+            case MotionEvent.ACTION_MOVE:
+                this._oTracker.onMove(iID, iX, iY, lTIME);
+                break;
+            default:
+                this._oTracker.onUp(iID, iX, iY, lTIME);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the first key of the keyboard with the specified code.
+     *
+     * @param code the code of the key.
+     *
+     * @return the key.
+     */
+    private Key _findKey(final int code) {
+        final List<Key> lKEYS = this._oView.getKeyboard().getKeys();
+        for (int i = 0; i < lKEYS.size(); ++i) {
+            if (code == lKEYS.get(i).codes[0]) {
+                return lKEYS.get(i);
+            }
+        }
+        throw new AssertionError("No key for " + code); //$NON-NLS-1$
+    }
+
+    /**
+     * Returns the statistics of the tracker.
+     *
+     * @return the statistics.
+     */
+    private String _dump() {
+        final StringWriter oWRITER = new StringWriter();
+        this._oTracker.dump(new PrintWriter(oWRITER), ""); //$NON-NLS-1$
+        return oWRITER.toString();
+    }
+
+    /**
+     * Returns the codes of the characters of a text.
+     *
+     * @param text the text.
+     *
+     * @return the codes.
+     */
+    private static int[] _codes(final CharSequence text) {
+        final int[] aCODES = new int[text.length()];
+        for (int i = 0; i < aCODES.length; ++i) {
+            aCODES[i] = text.charAt(i);
+        }
+        return aCODES;
+    }
+}
@@ -0,0 +1,299 @@
+/**
+ * <tt>RecordingInputConnection.java</tt>
+ *
+ * VKB (Virtual KeyBoard) is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * VKB (Virtual KeyBoard) is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ * You should have received a copy of the GNU General Public License along with
+ * VKB (Virtual KeyBoard).  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @license http://gnu.org/licenses/gpl.txt GNU General Public License
+ * @version SVN: Id:$
+ * @since   File available since Release 1.1.0
+ */
+
+package de.hs_bremen.vkb;
+
+import android.os.Bundle;
+import android.view.KeyEvent;
+import android.view.inputmethod.CompletionInfo;
+import android.view.inputmethod.CorrectionInfo;
+import android.view.inputmethod.ExtractedText;
+import android.view.inputmethod.ExtractedTextRequest;
+import android.view.inputmethod.InputConnection;
+
+/**
+ * An editor that records the text and the key events sent by the input
+ * method.
+ *
+ * The cursor stays at the end of the text; a <i>Backspace</i> key event
+ * deletes the character before it, like a text field does. The buffers are
+ * allocated up front, so that the editor does not allocate while the
+ * allocations of the input method are measured.
+ *
+ * @author  Tobias Groch <tgroch@stud.hs-bremen.de>
+ * @author  Florian Wolters <flwolters@stud.hs-bremen.de>
+ * @version Release: @package_version@
+ * @since   Class available since Release 1.1.0
+ */
+final class RecordingInputConnection implements InputConnection {
+
+    /**
+     * The number of characters the editor holds without growing.
+     */
+    private static final int _CAPACITY = 1 << 20;
+
+    /**
+     * The text, including the composing text.
+     */
+    private final StringBuilder _oText = new StringBuilder(_CAPACITY);
+
+    /**
+     * The start of the composing text, or <tt>-1</tt>.
+     */
+    private int _iComposingStart = -1;
+
+    /**
+     * The number of key events.
+     */
+    private int _iKeyEventCount = 0;
+
+    /**
+     * The code of the last key that has been pressed, or <tt>0</tt>.
+     */
+    private int _iLastKeyCode = 0;
+
+    /**
+     * The meta state of the last key that has been pressed.
+     */
+    private int _iLastMetaState = 0;
+
+    /**
+     * The depth of the current batch edit.
+     */
+    private int _iBatchDepth = 0;
+
+    /**
+     * Returns the text, including the composing text.
+     *
+     * @return the text.
+     */
+    String getText() {
+        return this._oText.toString();
+    }
+
+    /**
+     * Returns the number of characters.
+     *
+     * @return the length of the text.
+     */
+    int length() {
+        return this._oText.length();
+    }
+
+    /**
+     * Returns the number of key events.
+     *
+     * @return the number of events.
+     */
+    int getKeyEventCount() {
+        return this._iKeyEventCount;
+    }
+
+    /**
+     * Returns the code of the last key that has been pressed.
+     *
+     * @return the code, or <tt>0</tt>.
+     */
+    int getLastKeyCode() {
+        return this._iLastKeyCode;
+    }
+
+    /**
+     * Returns the meta state of the last key that has been pressed.
+     *
+     * @return the meta state.
+     */
+    int getLastMetaState() {
+        return this._iLastMetaState;
+    }
+
+    /**
+     * Checks whether a batch edit is open.
+     *
+     * @return <tt>true</tt> if a batch edit is open, <tt>false</tt>
+     *         otherwise.
+     */
+    boolean isInBatchEdit() {
+        return 0 != this._iBatchDepth;
+    }
+
+    /**
+     * Clears the text and the key events.
+     */
+    void clear() {
+        this._oText.setLength(0);
+        this._iComposingStart = -1;
+        this._iKeyEventCount = 0;
+        this._iLastKeyCode = 0;
+        this._iLastMetaState = 0;
+    }
+
+    /**
+     * Removes the composing text.
+     */
+    private void _removeComposingText() {
+        if (-1 != this._iComposingStart) {
+            this._oText.setLength(this._iComposingStart);
+            this._iComposingStart = -1;
+        }
+    }
+
+    @Override
+    public CharSequence getTextBeforeCursor(final int n, final int flags) {
+        return this._oText.subSequence(
+            Math.max(0, this._oText.length() - n), this._oText.length()
+        );
+    }
+
+    @Override
+    public CharSequence getTextAfterCursor(final int n, final int flags) {
+        return ""; //$NON-NLS-1$
+    }
+
+    @Override
+    public CharSequence getSelectedText(final int flags) {
+        return null;
+    }
+
+    @Override
+    public int getCursorCapsMode(final int reqModes) {
+        return 0;
+    }
+
+    @Override
+    public ExtractedText getExtractedText(
+        final ExtractedTextRequest request, final int flags
+    ) {
+        return null;
+    }
+
+    @Override
+    public boolean deleteSurroundingText(
+        final int beforeLength, final int afterLength
+    ) {
+        this._iComposingStart = -1;
+        this._oText.setLength(
+            Math.max(0, this._oText.length() - beforeLength)
+        );
+        return true;
+    }
+
+    @Override
+    public boolean setComposingText(
+        final CharSequence text, final int newCursorPosition
+    ) {
+        this._removeComposingText();
+        this._iComposingStart = this._oText.length();
+        this._oText.append(text);
+        return true;
+    }
+
+    @Override
+    public boolean setComposingRegion(final int start, final int end) {
+        this._iComposingStart = start;
+        return true;
+    }
+
+    @Override
+    public boolean finishComposingText() {
+        this._iComposingStart = -1;
+        return true;
+    }
+
+    @Override
+    public boolean commitText(
+        final CharSequence text, final int newCursorPosition
+    ) {
+        this._removeComposingText();
+        this._oText.append(text);
+        return true;
+    }
+
+    @Override
+    public boolean commitCompletion(final CompletionInfo text) {
+        return false;
+    }
+
+    @Override
+    public boolean commitCorrection(final CorrectionInfo correctionInfo) {
+        return false;
+    }
+
+    @Override
+    public boolean setSelection(final int start, final int end) {
+        return false;
+    }
+
+    @Override
+    public boolean performEditorAction(final int editorAction) {
+        return true;
+    }
+
+    @Override
+    public boolean performContextMenuAction(final int id) {
+        return false;
+    }
+
+    @Override
+    public boolean beginBatchEdit() {
+        ++this._iBatchDepth;
+        return true;
+    }
+
+    @Override
+    public boolean endBatchEdit() {
+        --this._iBatchDepth;
+        return true;
+    }
+
+    @Override
+    public boolean sendKeyEvent(final KeyEvent event) {
+        ++this._iKeyEventCount;
+        if (KeyEvent.ACTION_DOWN == event.getAction()) {
+            this._iLastKeyCode = event.getKeyCode();
+            this._iLastMetaState = event.getMetaState();
+            // A text field deletes the character before the cursor.
+            if (KeyEvent.KEYCODE_DEL == event.getKeyCode()
+                    && 0 == event.getMetaState()) {
+                this.deleteSurroundingText(1, 0);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean clearMetaKeyStates(final int states) {
+        return true;
+    }
+
+    @Override
+    public boolean reportFullscreenMode(final boolean enabled) {
+        return false;
+    }
+
+    @Override
+    public boolean performPrivateCommand(
+        final String action, final Bundle data
+    ) {
+        return false;
+    }
+}